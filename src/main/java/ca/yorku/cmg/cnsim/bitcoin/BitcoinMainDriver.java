@@ -4,20 +4,23 @@ import java.io.IOException;
 import java.util.List;
 import java.util.Scanner;
 
-import ca.yorku.cmg.cnsim.engine.Config;
 import ca.yorku.cmg.cnsim.engine.ConfigInitializer;
 import ca.yorku.cmg.cnsim.engine.Debug;
 import ca.yorku.cmg.cnsim.engine.NetworkSamplerFactory;
 import ca.yorku.cmg.cnsim.engine.NodeSamplerFactory;
-import ca.yorku.cmg.cnsim.engine.Profiling;
+import ca.yorku.cmg.cnsim.engine.ReplicationExecutor;
 import ca.yorku.cmg.cnsim.engine.Sampler;
+import ca.yorku.cmg.cnsim.engine.ParallelSimulation;
+import ca.yorku.cmg.cnsim.engine.SimConfig;
 import ca.yorku.cmg.cnsim.engine.Simulation;
 import ca.yorku.cmg.cnsim.engine.TransactionSamplerFactory;
 import ca.yorku.cmg.cnsim.engine.event.Event_NewTransactionArrival;
 import ca.yorku.cmg.cnsim.engine.network.AbstractNetwork;
 import ca.yorku.cmg.cnsim.engine.network.FileBasedEndToEndNetwork;
 import ca.yorku.cmg.cnsim.engine.network.RandomEndToEndNetwork;
+import ca.yorku.cmg.cnsim.engine.network.TopologyNetwork;
 import ca.yorku.cmg.cnsim.engine.node.AbstractNodeFactory;
+import ca.yorku.cmg.cnsim.engine.node.INode;
 import ca.yorku.cmg.cnsim.engine.node.Node;
 import ca.yorku.cmg.cnsim.engine.node.NodeSet;
 import ca.yorku.cmg.cnsim.engine.reporter.ReportEventFactory;
@@ -28,6 +31,18 @@ import ca.yorku.cmg.cnsim.engine.transaction.TransactionWorkload;
 
 public class BitcoinMainDriver {
 
+    private SimConfig config;
+
+    public BitcoinMainDriver() {
+    }
+
+    /**
+     * @param config The configuration of the simulations, as {@linkplain #run(String[])} would read it.
+     */
+    BitcoinMainDriver(SimConfig config) {
+        this.config = config;
+    }
+
     public static void main(String[] args) {
         //run simulation with the given configuration for n times
         BitcoinMainDriver b = new BitcoinMainDriver();
@@ -51,19 +66,26 @@ public class BitcoinMainDriver {
         }
 
         
+        config = ConfigInitializer.getSimConfig();
+
         //INitialize Bitcoin reporter
-        BitcoinReporter.reportBlockEvents(Config.getPropertyBoolean("reporter.reportBlockEvents"));
-        BitcoinReporter.reportStructureEvents(Config.getPropertyBoolean("reporter.reportStructureEvents"));
+        BitcoinReporter.reportBlockEvents(config.reportBlockEvents());
+        BitcoinReporter.reportStructureEvents(config.reportStructureEvents());
+        BitcoinReporter.filterBlockEventNodes(config.blockEventNodes());
+        BitcoinReporter.filterBlockEventTypes(BlockEvent.parseSet(config.blockEventTypes()));
+        BitcoinReporter.sampleBlockEvents(config.blockEventSampling());
+        BitcoinReporter.reportMetrics(config.reportMetrics());
+        BitcoinReporter.metricsConfirmations(config.metricsConfirmations());
         
         
         // Get the number of simulations to run
-        int numSimulations = Config.getPropertyInt("sim.numSimulations");
+        int numSimulations = config.numSimulations();
+        // Get the number of simulations to run concurrently
+        int threads = config.threads();
 
 
         // SIM SCOPE STARTS HERE
-        for (int simID = 1; simID <= numSimulations; simID++) {
-            runSingleSimulation(simID);
-        }
+        new ReplicationExecutor(threads).run(1, numSimulations, this::runSingleSimulation);
         // SIM SCOPE ENDS HERE
         
         BitcoinReporter.flushBlockReport();
@@ -73,18 +95,57 @@ public class BitcoinMainDriver {
         BitcoinReporter.flushInputReport();
         BitcoinReporter.flushNetworkReport();
         BitcoinReporter.flushBeliefReport();
+        BitcoinReporter.flushMetricsReport();
         BitcoinReporter.flushErrorReport();
         BitcoinReporter.flushConfig();
+        BitcoinReporter.close();
     }
 
     private void runSingleSimulation(int simID) {
+        Simulation s = createSimulation(simID);
+
+        //
+        //
+        // Running the simulator
+        //
+        //
+
+        System.out.println("\n  * Running Simulation #" + simID);
+        s.run();
+
+        //
+        // Print some simulation stats
+        //
+        
+        System.out.println(s.getStatistics());
+        BitcoinReporter.completeMetrics(mainChainHeight(s.getNodeSet()));
+
+        //
+        //
+        // Clean-up
+        //
+        //
+        s.getNodeSet().closeNodes();
+        
+        
+    }
+
+    /**
+     * Creates a simulation, with its samplers, nodes, network, workload and report events, ready to run in the
+     * {@linkplain ca.yorku.cmg.cnsim.engine.SimulationContext} of the current thread.
+     * @param simID The ID of the simulation.
+     * @return The simulation.
+     */
+    Simulation createSimulation(int simID) {
         //
         //
         // Creating simulation object
         //
         //
     	//System.out.println("\n  * Setting up simulation #" + simID);
-        Simulation s = new Simulation(simID);
+        Simulation s = (config.partitions() > 1)
+        		? new ParallelSimulation(simID, config)
+        		: new Simulation(simID, config);
         
 
         //
@@ -115,10 +176,10 @@ public class BitcoinMainDriver {
     	//System.out.println("    Creating and setting Node Sampler for Sim #" + simID);
         try {
             sampler.setNodeSampler(new NodeSamplerFactory().getSampler(
-                    Config.getPropertyString("node.sampler.file"),
-                    Config.getPropertyString("node.sampler.seed"),
-                    Config.getPropertyString("node.sampler.seedUpdateTimes"),
-                    Config.getPropertyString("node.sampler.updateSeedFlags"),
+                    config.nodeSamplerFile(),
+                    config.nodeSamplerSeed(),
+                    config.nodeSeedUpdateTimes(),
+                    config.nodeUpdateSeedFlags(),
                     sampler,
                     s
             ));
@@ -131,8 +192,8 @@ public class BitcoinMainDriver {
         //System.out.println("    Creating and setting NetworkSampler for Sim #" + simID);
         sampler.setNetworkSampler(new NetworkSamplerFactory().
         		getNetworkSampler(
-        				(Config.hasProperty("net.sampler.seed") ? Config.getPropertyLong("net.sampler.seed") : null),
-                        (Config.hasProperty("net.sampler.seed.updateSeed") ? Config.getPropertyBoolean("net.sampler.seed.updateSeed") : null),
+        				config.netSamplerSeed(),
+                        config.netSamplerSeedUpdate(),
                         sampler,
                         s));
 
@@ -143,7 +204,7 @@ public class BitcoinMainDriver {
         try {
             sampler.setTransactionSampler(
                     new TransactionSamplerFactory().getSampler(
-                            Config.getPropertyString("workload.sampler.file"),
+                            config.workloadSamplerFile(),
                             //(Config.hasProperty("workload.sampler.seed") ? Config.getPropertyLong("workload.sampler.seed") : null),
                             //(Config.hasProperty("workload.sampler.seed.updateSeed") ? Config.getPropertyBoolean("workload.sampler.seed.updateSeed") : null),
                             //(Config.hasProperty("workload.sampler.seed.updateTransaction") ? Config.getPropertyLong("workload.sampler.seed.updateTransaction") : null),
@@ -169,9 +230,9 @@ public class BitcoinMainDriver {
         AbstractNodeFactory nf = new BitcoinNodeFactory("Honest", s);
         NodeSet ns = new NodeSet(nf);
         
-        ns.addNodes(Config.getPropertyInt("net.numOfHonestNodes"));
+        ns.addNodes(config.numOfHonestNodes());
         ns.setNodeFactory(new BitcoinNodeFactory("Malicious", s, ns));
-        ns.addNodes(Config.getPropertyInt("net.numOfMaliciousNodes"));
+        ns.addNodes(config.numOfMaliciousNodes());
 
         
         //
@@ -181,11 +242,13 @@ public class BitcoinMainDriver {
         //
 
         //Define network.
-        //If a file exists it will be file-based, otherwise, just create a standard network.
+        //A peer graph if so configured. Otherwise, if a file exists it will be file-based, otherwise, just create a standard network.
         //System.out.println("    Creating Network for Sim #" + simID);
         AbstractNetwork net = null;
-        String netFilePath = Config.getPropertyString("net.sampler.file");
-        if (netFilePath != null) {
+        String netFilePath = config.netSamplerFile();
+        if (config.isTopologyNetwork()) {
+            net = new TopologyNetwork(ns, sampler, config);
+        } else if (netFilePath != null) {
             try {
                 //Debug.p("    Creating file-based network.");
                 net = new FileBasedEndToEndNetwork(ns, netFilePath);
@@ -214,7 +277,7 @@ public class BitcoinMainDriver {
         //System.out.println("    Creating and Scheduling Workload for Sim #" + simID);
         TransactionWorkload ts = new TransactionWorkload(sampler);
         try {
-            ts.appendTransactions(Config.getPropertyLong("workload.numTransactions"));
+            ts.appendTransactions(config.numTransactions());
         } catch (Exception e) {
             e.printStackTrace();
         }
@@ -231,17 +294,18 @@ public class BitcoinMainDriver {
         
         
         //Set hard termination time
-        s.setTerminationTime(Config.getPropertyLong("sim.terminate.atTime"));
+        s.setTerminationTime(config.terminationTime());
         
         //Schedule reporting events
         ReportEventFactory r = new ReportEventFactory();
-        r.scheduleBeliefReports_Interval(Config.getPropertyLong("sim.reporting.beliefReportInterval"), 
-        		s, Config.getPropertyLong("sim.reporting.beliefReportOffset"));
+        r.scheduleBeliefReports_Interval(config.beliefReportInterval(), 
+        		s, config.beliefReportOffset());
+        r.schedulePeriodicReports(s);
 
         /*
         // Assign a target transaction for malicious behavior
         Transaction targetTransaction = null;
-        if (Config.getPropertyBoolean("node.createMaliciousNode")) {
+        if (config.createMaliciousNode()) {
             targetTransaction = getTargetTransactionFromUser(ts.getAllTransactions());
         }
         for (INode node : ns.getNodes()) {
@@ -254,40 +318,20 @@ public class BitcoinMainDriver {
         }
 		*/
 
-        //
-        //
-        // Running the simulator
-        //
-        //
-
-        System.out.println("\n  * Running Simulation #" + simID);
-        Profiling.simBeginningTime = System.currentTimeMillis();
-        s.run();
-
-        //
-        // Print some simulation stats
-        //
-        
-        System.out.println(s.getStatistics());
-
-        //
-        //
-        // Clean-up
-        //
-        //
-        s.getNodeSet().closeNodes();
+        return s;
+    }
 
-        
-        //
-        //
-        // Reset Statics
-        //
-        //
-        Node.resetCurrID();
-        Transaction.resetCurrID();
-        Block.resetCurrID();
-        
-        
+    /**
+     * The height of the longest blockchain of the nodes.
+     */
+    private static int mainChainHeight(NodeSet ns) {
+        int height = 0;
+        for (INode n : ns.getNodes()) {
+            if (n instanceof BitcoinNode) {
+                height = Math.max(height, ((BitcoinNode) n).getBlockchain().getBlockchainHeight());
+            }
+        }
+        return height;
     }
 
 
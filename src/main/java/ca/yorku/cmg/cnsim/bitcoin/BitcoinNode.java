@@ -1,6 +1,5 @@
 package ca.yorku.cmg.cnsim.bitcoin;
 
-import ca.yorku.cmg.cnsim.engine.Config;
 import ca.yorku.cmg.cnsim.engine.IStructure;
 import ca.yorku.cmg.cnsim.engine.Simulation;
 import ca.yorku.cmg.cnsim.engine.node.INode;
@@ -9,7 +8,6 @@ import ca.yorku.cmg.cnsim.engine.reporter.Reporter;
 import ca.yorku.cmg.cnsim.engine.transaction.ITxContainer;
 import ca.yorku.cmg.cnsim.engine.transaction.Transaction;
 import ca.yorku.cmg.cnsim.engine.transaction.TransactionGroup;
-import ca.yorku.cmg.cnsim.engine.transaction.TxValuePerSizeComparator;
 
 /**
  * @author Enterprise Systems Group (ESG) @ York University
@@ -24,31 +22,42 @@ public class BitcoinNode extends Node {
 	protected Double operatingDifficulty;
 	protected long minValueToMine;
 	protected long minSizeToMine;
+	protected long maxBlockSize;
 
 	public void _______________Constructors() {}
 
 	public BitcoinNode(Simulation sim) {
 		super(sim);
-		blockchain = new Blockchain();
+		blockchain = new Blockchain(BlockStore.of(sim.getContext()), getID(), sim.getConfig().maxOrphans(), sim.getConfig().pruneDepth());
 		miningPool = new TransactionGroup();
-		minValueToMine = Config.getPropertyLong("bitcoin.minValueToMine");
-		minSizeToMine = Config.getPropertyLong("bitcoin.minSizeToMine");
-		this.operatingDifficulty = Config.getPropertyDouble("pow.difficulty");
+		minValueToMine = sim.getConfig().minValueToMine();
+		minSizeToMine = sim.getConfig().minSizeToMine();
+		maxBlockSize = sim.getConfig().maxBlockSize();
+		this.operatingDifficulty = sim.getConfig().difficulty();
 	}
 	public BitcoinNode(Simulation sim, NodeBehaviorStrategy behaviorStrategy) {
 		super(sim);
 		this.behaviorStrategy = behaviorStrategy;
-		blockchain = new Blockchain();
+		blockchain = new Blockchain(BlockStore.of(sim.getContext()), getID(), sim.getConfig().maxOrphans(), sim.getConfig().pruneDepth());
 		miningPool = new TransactionGroup();
-		minValueToMine = Config.getPropertyLong("bitcoin.minValueToMine");
-		minSizeToMine = Config.getPropertyLong("bitcoin.minSizeToMine");
+		minValueToMine = sim.getConfig().minValueToMine();
+		minSizeToMine = sim.getConfig().minSizeToMine();
+		maxBlockSize = sim.getConfig().maxBlockSize();
 
-		this.operatingDifficulty = Config.getPropertyDouble("pow.difficulty");
+		this.operatingDifficulty = sim.getConfig().difficulty();
 	}
 
 
 
+	/**
+	 * Returns the block template: the transactions of the pool of highest value per size that fit in a block.
+	 * The template is produced from the pool the first time it is needed after {@linkplain #reconstructMiningPool()}.
+	 * @return The mining pool.
+	 */
 	public TransactionGroup getMiningPool() {
+		if (miningPool == null) {
+			miningPool = pool.getTopN(maxBlockSize);
+		}
 		return miningPool;
 	}
 
@@ -109,24 +118,24 @@ public class BitcoinNode extends Node {
 			//Start mining and schedule a new validation event
 			if (!isMining()) {
 				//It is not mining because it has never OR it has but then abandoned.
-				assert((getNextValidationEvent() == null) || ((getNextValidationEvent() != null) ? getNextValidationEvent().ignoreEvt(): true));
+				assert(getNextValidationEvent() == null);
 
-				long interval = scheduleValidationEvent(new Block(miningPool.getTransactions()), time);
+				long interval = scheduleValidationEvent(new Block(getMiningPool()), time);
 				startMining(interval);
 			} else {
-				assert((getNextValidationEvent() != null) && !getNextValidationEvent().ignoreEvt());
+				assert(getNextValidationEvent() != null);
 				//All good!
 			}
 		} else {
 			if (!isMining()) {
-				assert((getNextValidationEvent() == null) || getNextValidationEvent().ignoreEvt());
+				assert(getNextValidationEvent() == null);
 				//All good otherwise!
 			} else  {
-				// Stop mining, invalidate any future validation event.
-				assert((getNextValidationEvent() != null) && !getNextValidationEvent().ignoreEvt());
-				getNextValidationEvent().ignoreEvt(true);
+				// Stop mining, cancel the future validation event.
+				assert(getNextValidationEvent() != null);
+				resetNextValidationEvent();
 				stopMining();
-				assert((getNextValidationEvent() == null) || ((getNextValidationEvent() != null) ? getNextValidationEvent().ignoreEvt(): true));
+				assert(getNextValidationEvent() == null);
 			}
 		}
 
@@ -134,11 +143,19 @@ public class BitcoinNode extends Node {
 
 
 	public boolean isWorthMining() {
+		if (miningPool == null) {
+			return (pool.getTopValue(maxBlockSize) > getMinValueToMine());
+		}
 		return((miningPool.getValue() > getMinValueToMine()));
 	}
 
+	/**
+	 * Marks the mining pool as out of date, following a change to the pool. The value of the new template
+	 * is read off the pool (see {@linkplain ca.yorku.cmg.cnsim.engine.transaction.Mempool#getTopValue(float)});
+	 * its transactions are only collected when {@linkplain #getMiningPool()} is called.
+	 */
 	protected void reconstructMiningPool() {
-		miningPool  = pool.getTopN(Config.getPropertyLong("bitcoin.maxBlockSize"), new TxValuePerSizeComparator());
+		miningPool = null;
 		//miningPool.extractGroup(blockchain.getAllOrphanTransactions());
 	}
 
@@ -153,7 +170,7 @@ public class BitcoinNode extends Node {
 	@Override
 	public void close(INode n) {
 		BitcoinReporter.reportBlockChainState(
-				//Simulation.currTime, System.currentTimeMillis(), this.getID(),
+				//Simulation.getCurrTime(), System.currentTimeMillis(), this.getID(),
 				this.blockchain.printStructureReport(this.getID()), 
 				this.blockchain.printOrphansReport(this.getID()));
 	}
@@ -227,7 +244,8 @@ public class BitcoinNode extends Node {
 	@Override
 	public void beliefReport(long[] sample, long time) {
 		for (int i = 0; i < sample.length; i++) {
-			Reporter.addBeliefEntry(this.sim.getSimID(), this.getID(), sample[i], blockchain.transactionInStructure(sample[i]), time);
+			int depth = blockchain.confirmationDepth(sample[i]);
+			Reporter.addBeliefEntry(this.sim.getSimID(), this.getID(), sample[i], depth > 0, time, depth);
 		}
 	}
 
@@ -1,6 +1,5 @@
 package ca.yorku.cmg.cnsim.bitcoin;
 
-import ca.yorku.cmg.cnsim.engine.Config;
 import ca.yorku.cmg.cnsim.engine.Simulation;
 import ca.yorku.cmg.cnsim.engine.node.AbstractNodeFactory;
 import ca.yorku.cmg.cnsim.engine.node.INode;
@@ -56,16 +55,16 @@ public class BitcoinNodeFactory extends AbstractNodeFactory {
 		NodeBehaviorStrategy strategy;
 		if (this.defaultNodeType.equals("Malicious")) {
 			strategy = new MaliciousNodeBehavior(node);
-			boolean powerByRatio = Config.getPropertyBoolean("node.maliciousPowerByRatio");
+			boolean powerByRatio = sim.getConfig().maliciousPowerByRatio();
 			if (powerByRatio) {
 				if (this.refNs == null) {
 					throw new Exception("Malicious power by ratio requested but reference honest nodeset not provided.");
 				} else {
-					float powerRatio = Config.getPropertyFloat("node.maliciousRatio");
+					float powerRatio = sim.getConfig().maliciousRatio();
 					nodeHashPower = powerRatio/(1-powerRatio) * refNs.getTotalHonestHP();
 				}
 			} else { //absolute power
-				nodeHashPower = Config.getPropertyFloat("node.maliciousHashPower");
+				nodeHashPower = sim.getConfig().maliciousHashPower();
 			}
 			
 			if (nodeHashPower == -1) {
@@ -75,8 +74,8 @@ public class BitcoinNodeFactory extends AbstractNodeFactory {
 			}
 			
 			//Set target transaction
-			int targetTx[] = Config.parseStringToIntArray(Config.getPropertyString("workload.sampleTransaction"));
-			((MaliciousNodeBehavior) strategy).setTargetTransaction(targetTx[0]);
+			long targetTx[] = sim.getConfig().sampleTransactions();
+			((MaliciousNodeBehavior) strategy).setTargetTransaction((int) targetTx[0]);
 			
 		} else {
 			strategy = new HonestNodeBehavior(node);
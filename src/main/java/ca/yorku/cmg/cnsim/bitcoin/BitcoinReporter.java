@@ -1,10 +1,14 @@
 package ca.yorku.cmg.cnsim.bitcoin;
 
-import java.io.FileWriter;
-import java.io.IOException;
-import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.EnumSet;
+import java.util.Set;
 
+import ca.yorku.cmg.cnsim.engine.Simulation;
+import ca.yorku.cmg.cnsim.engine.transaction.Transaction;
 import ca.yorku.cmg.cnsim.engine.reporter.Reporter;
+import ca.yorku.cmg.cnsim.engine.reporter.RunMetrics;
+import ca.yorku.cmg.cnsim.engine.reporter.ColumnarFormat.Type;
 
 /**
  * Handles reporting for Bitcoin simulators in addition to the reports generated by the engine's Reporter, which it extends.
@@ -16,29 +20,131 @@ import ca.yorku.cmg.cnsim.engine.reporter.Reporter;
  * 
  */
 public class BitcoinReporter extends Reporter {
-	protected static ArrayList<String> blockLog = new ArrayList<String>();
-	protected static ArrayList<String> structureLog = new ArrayList<String>();
-	protected static FileWriter blockWriter;
+	public static final String BLOCK_LOG = "BlockLog";
+	public static final String STRUCTURE_LOG = "StructureLog";
+
+	// Names of the metrics recorded for blocks and transactions, see Reporter.metrics().
+	/** Blocks placed in the blockchain of the node that validated them. */
+	public static final String BLOCKS_MINED = "block.mined";
+	/** Blocks arriving at a node other than the one that validated them. */
+	public static final String BLOCKS_RECEIVED = "block.received";
+	/** Blocks placed in the blockchain of a node, by any node. */
+	public static final String BLOCKS_PLACED = "block.placed";
+	/** Blocks placed on a parent that already had a child at the node. */
+	public static final String FORKS = "block.forks";
+	public static final String ORPHANED = "block.orphaned";
+	public static final String ORPHANS_EVICTED = "block.orphansEvicted";
+	/** Blocks discarded by a node, for overlapping with their chain or branching off below the checkpoint. */
+	public static final String DISCARDED = "block.discarded";
+	/** The height of the longest chain at the end of the run. */
+	public static final String MAIN_CHAIN = "block.mainChain";
+	/** Mined blocks not on the longest chain at the end of the run. */
+	public static final String STALE = "block.stale";
+	public static final String STALE_RATE = "block.staleRate";
+	public static final String FORK_RATE = "block.forkRate";
+	public static final String ORPHAN_RATE = "block.orphanRate";
+	/** Time from the validation of a block to its arrival at another node. */
+	public static final String PROPAGATION_DELAY = "block.propagationDelay";
+	public static final String ORPHAN_RESIDENCY = "block.orphanResidency";
+	/** Time from the validation of a block until a node first has it {@linkplain #metricsConfirmations(int) confirmed}. */
+	public static final String BLOCK_CONFIRMATION_TIME = "block.confirmationTime";
+	/** Time from the arrival of a transaction to the validation of the first block placed that includes it. */
+	public static final String INCLUSION_TIME = "tx.inclusionTime";
+	/** Time from the arrival of a transaction until a node first has it {@linkplain #metricsConfirmations(int) confirmed}. */
+	public static final String CONFIRMATION_TIME = "tx.confirmationTime";
 
 	
 	protected static boolean reportBlockEvents;
 	protected static boolean reportStructureEvents;
+	/** The nodes whose block events are reported, or <tt>null</tt> for all nodes. */
+	protected static BitSet blockEventNodes = null;
+	protected static Set<BlockEvent> blockEventTypes = EnumSet.allOf(BlockEvent.class);
+	protected static int blockEventSampling = 1;
+	protected static int metricsConfirmations = 6;
 	
 	public static void reportBlockEvents(boolean reportBlockEvents) {
 		BitcoinReporter.reportBlockEvents = reportBlockEvents;
 	}
 
+	/**
+	 * Restricts the block log to the events of some nodes.
+	 * @param nodeIDs The IDs of the nodes; empty for all nodes.
+	 */
+	public static void filterBlockEventNodes(long[] nodeIDs) {
+		if (nodeIDs.length == 0) {
+			blockEventNodes = null;
+			return;
+		}
+		BitSet nodes = new BitSet();
+		for (long id : nodeIDs) {
+			if (id < 0 || id > Integer.MAX_VALUE) {
+				throw new IllegalArgumentException("Invalid node ID for block events: " + id);
+			}
+			nodes.set((int) id);
+		}
+		blockEventNodes = nodes;
+	}
+
+	/**
+	 * Restricts the block log to some types of events.
+	 * @param types The types reported.
+	 */
+	public static void filterBlockEventTypes(Set<BlockEvent> types) {
+		blockEventTypes = types.isEmpty() ? EnumSet.noneOf(BlockEvent.class) : EnumSet.copyOf(types);
+	}
+
+	/**
+	 * Restricts the block log to one in every {@code k} blocks: the blocks whose ID is a multiple of {@code k}.
+	 * Sampling by block rather than by event keeps the complete history of each sampled block, at all nodes,
+	 * and picks the same blocks in every run.
+	 * @param k The sampling interval; 1 to report all blocks.
+	 */
+	public static void sampleBlockEvents(int k) {
+		if (k < 1) {
+			throw new IllegalArgumentException("Block event sampling interval must be at least 1, but was " + k);
+		}
+		blockEventSampling = k;
+	}
+
+	/**
+	 * Whether an event of the block log passes the switch and the filters of the log.
+	 * @param type The type of the event.
+	 * @param nodeID The node reporting the event.
+	 * @param blockID The block.
+	 * @return <tt>true</tt> if the event is to be written.
+	 */
+	static boolean isBlockEventReported(BlockEvent type, int nodeID, int blockID) {
+		return reportBlockEvents
+				&& blockEventTypes.contains(type)
+				&& (blockEventNodes == null || (nodeID >= 0 && blockEventNodes.get(nodeID)))
+				&& blockID % blockEventSampling == 0;
+	}
+
 
 	public static void reportStructureEvents(boolean reportStructureEvents) {
 		BitcoinReporter.reportStructureEvents = reportStructureEvents;
 	}
 
+	/**
+	 * Sets the number of blocks of the longest chain, counting its own, that confirm a block for the confirmation time metrics.
+	 * @param k The number of blocks.
+	 */
+	public static void metricsConfirmations(int k) {
+		if (k < 1) {
+			throw new IllegalArgumentException("Confirmations for metrics must be at least 1, but was " + k);
+		}
+		metricsConfirmations = k;
+	}
+
 	
 	static {
-		blockLog.add("SimID, SimTime,SysTime,NodeID,"
+		define(BLOCK_LOG, "SimID, SimTime,SysTime,NodeID,"
 				+ "BlockID,ParentID,Height,BlockContent,"
-				+ "EvtType,Difficulty,Cycles");
-		structureLog.add("SimID, SimTime, SysTime, NodeID, BlockID, ParentBlockID, Height, Content, Place");
+				+ "EvtType,Difficulty,Cycles",
+				Type.LONG, Type.LONG, Type.LONG, Type.LONG, Type.LONG, Type.LONG, Type.LONG, Type.IDS,
+				Type.DICT, Type.DOUBLE, Type.DOUBLE);
+		define(STRUCTURE_LOG, "SimID, SimTime, SysTime, NodeID, BlockID, ParentBlockID, Height, Content, Place",
+				Type.LONG, Type.LONG, Type.LONG, Type.LONG, Type.LONG, Type.LONG, Type.LONG, Type.IDS, Type.DICT);
 	}
 	
 	
@@ -52,18 +158,60 @@ public class BitcoinReporter extends Reporter {
 		if (BitcoinReporter.reportStructureEvents) {
 			for (String s :blockchain) {
 				//s = SimTime + "," + SysTime + "," + blockID + "," + s + ",blockchain";
-				structureLog.add(s);
+				buffer().add(STRUCTURE_LOG, s);
 			}
 			for (String s :orphans) {
 				//s = SimTime + "," + SysTime + "," + blockID + "," + s + ",orphans";
-				structureLog.add(s);
+				buffer().add(STRUCTURE_LOG, s);
 			}
 		}
 	}
 	
 
 	/**
-	 * Adds a line to the blockhain state report. TODO: complete this.
+	 * Adds an event to the block log. The fields of the line are taken from the block, and the current time or the
+	 * validation record of the block, as the {@linkplain BlockEvent.Kind kind} of the event says; nothing is taken
+	 * or formatted unless the log is enabled and the event passes its filters.
+	 * @param b The block.
+	 * @param type The type of the event.
+	 * @param nodeID The node reporting the event; ignored for {@linkplain BlockEvent.Kind#VALIDATION validation}
+	 * events, which are reported by the node that validated the block.
+	 */
+	public static void reportBlockEvent(Block b, BlockEvent type, int nodeID) {
+		if (!reportBlockEvents) {
+			return;
+		}
+		boolean validation = (type.getKind() == BlockEvent.Kind.VALIDATION);
+		int node = validation ? b.getValidationNodeID() : nodeID;
+		if (!isBlockEventReported(type, node, b.getID())) {
+			return;
+		}
+		long simTime, sysTime;
+		if (validation) {
+			simTime = b.getSimTime_validation();
+			sysTime = b.getSysTime_validation();
+		} else {
+			simTime = Simulation.getCurrTime();
+			sysTime = System.currentTimeMillis() - Simulation.getSysStartTime();
+		}
+		boolean validated = (type.getKind() != BlockEvent.Kind.PROPAGATION) && (b.getValidationNodeID() == node);
+		reportBlockEvent(
+				Simulation.getCurrentSimulationID(),
+				simTime,
+				sysTime,
+				node,
+				b.getID(),
+				(b.getParent() == null) ? -1 : b.getParent().getID(),
+				type.reportsHeight() ? b.getHeight() : -1,
+				b.printIDs(";"),
+				type.getLabel(),
+				validated ? b.getValidationDifficulty() : -1.0,
+				validated ? b.getValidationCycles() : -1.0);
+	}
+
+	/**
+	 * Adds a line to the blockhain state report. Prefer {@linkplain #reportBlockEvent(Block, BlockEvent, int)},
+	 * which formats nothing when the log is disabled.
 	 * @param simTime ...
 	 * @param sysTime ...
 	 * @param nodeID ...
@@ -84,7 +232,7 @@ public class BitcoinReporter extends Reporter {
 			double difficulty, //Difficulty: the difficulty under which the block was validated.
 			double cycles) { //Cycles: the number of cycles dedicated to validate the block.
 		if (BitcoinReporter.reportBlockEvents)
-		blockLog.add(simID + "," +
+		buffer().add(BLOCK_LOG, simID + "," +
 				simTime + "," + 
 				sysTime + "," +
 				nodeID + "," +
@@ -100,40 +248,97 @@ public class BitcoinReporter extends Reporter {
 
 	
 	/**
-	 * Save Block report to file. File name is "BlockLog - [Simulation Date Time].csv"
+	 * Records the arrival of a {@linkplain Block} at a node, for the metrics. Blocks arriving at the node that
+	 * validated them are not counted.
+	 * @param b The block.
+	 * @param nodeID The node.
+	 */
+	static void recordArrival(Block b, int nodeID) {
+		RunMetrics m = metrics();
+		if (m == null || nodeID == b.getValidationNodeID()) {
+			return;
+		}
+		m.count(BLOCKS_RECEIVED, 1);
+		m.record(PROPAGATION_DELAY, Simulation.getCurrTime() - b.getSimTime_validation());
+	}
+
+	/**
+	 * Records the placement of a {@linkplain Block} in the blockchain of a node, for the metrics. At the node that
+	 * validated the block, the transactions it is the first to include are measured. If the block is a longest tip, 
+	 * its ancestor that is {@linkplain #metricsConfirmations(int) confirmed} by it is measured, unless another node
+	 * confirmed it earlier.
+	 * @param b The block, with its height set.
+	 * @param nodeID The node.
+	 * @param fork Whether the parent of the block already had a child at the node.
+	 * @param longest Whether the block is a tip of a longest chain of the node.
+	 */
+	static void recordPlacement(Block b, int nodeID, boolean fork, boolean longest) {
+		RunMetrics m = metrics();
+		if (m == null) {
+			return;
+		}
+		m.count(BLOCKS_PLACED, 1);
+		if (fork) {
+			m.count(FORKS, 1);
+		}
+		if (nodeID == b.getValidationNodeID()) {
+			m.count(BLOCKS_MINED, 1);
+			for (Transaction t : b.getTransactions()) {
+				if (m.once(INCLUSION_TIME, t.getID())) {
+					m.record(INCLUSION_TIME, b.getSimTime_validation() - t.getCreationTime());
+				}
+			}
+		}
+		Block confirmed = longest ? b.getAncestor(b.getHeight() - metricsConfirmations + 1) : null;
+		if (confirmed != null && m.once(BLOCK_CONFIRMATION_TIME, confirmed.getID())) {
+			long now = Simulation.getCurrTime();
+			m.record(BLOCK_CONFIRMATION_TIME, now - confirmed.getSimTime_validation());
+			if (!confirmed.isPruned()) {
+				for (Transaction t : confirmed.getTransactions()) {
+					if (m.once(CONFIRMATION_TIME, t.getID())) {
+						m.record(CONFIRMATION_TIME, now - t.getCreationTime());
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Adds the metrics that need the end state of a run: the stale blocks, and the rates of stale blocks, forks and orphans.
+	 * To be called once the run is over, before it is merged.
+	 * @param mainChain The height of the longest chain of any node.
+	 */
+	public static void completeMetrics(int mainChain) {
+		RunMetrics m = metrics();
+		if (m == null) {
+			return;
+		}
+		long mined = m.getCount(BLOCKS_MINED);
+		long stale = Math.max(0, mined - mainChain);
+		m.count(MAIN_CHAIN, mainChain);
+		m.count(STALE, stale);
+		m.rate(STALE_RATE, stale, mined);
+		m.rate(FORK_RATE, m.getCount(FORKS), m.getCount(BLOCKS_PLACED));
+		m.rate(ORPHAN_RATE, m.getCount(ORPHANED), m.getCount(BLOCKS_RECEIVED));
+	}
+
+	/**
+	 * Completes the block log file. File name is "BlockLog - [Simulation Date Time].csv"
 	 * 
 	 * @author Sotirios Liaskos
 	 */
 	public static void flushBlockReport() {
-		FileWriter writer;
-		try {
-			writer = new FileWriter(Reporter.path + "BlockLog - " + Reporter.runId + ".csv");
-			for(String str: blockLog) {
-				  writer.write(str + System.lineSeparator());
-				}
-			writer.close();
-		} catch (IOException e) {
-			e.printStackTrace();
-		} 
+		flush(BLOCK_LOG);
 	}
 
 
 	/**
-	 * Save Blockchain report to file. File name is "Blockchain - [Simulation Date Time].csv"
+	 * Completes the structure log file. File name is "StructureLog - [Simulation Date Time].csv"
 	 * 
 	 * @author Sotirios Liaskos
 	 */
 	public static void flushStructReport() {
-		FileWriter writer;
-		try {
-			writer = new FileWriter(Reporter.path + "StructureLog - " + Reporter.runId + ".csv");
-			for(String str: structureLog) {
-				  writer.write(str + System.lineSeparator());
-				}
-			writer.close();
-		} catch (IOException e) {
-			e.printStackTrace();
-		} 
+		flush(STRUCTURE_LOG);
 	}
 	
 }
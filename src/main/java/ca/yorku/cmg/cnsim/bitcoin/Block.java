@@ -1,14 +1,20 @@
 package ca.yorku.cmg.cnsim.bitcoin;
 
+import ca.yorku.cmg.cnsim.engine.PersistentLongSet;
+import ca.yorku.cmg.cnsim.engine.SimulationContext;
 import ca.yorku.cmg.cnsim.engine.node.Node;
 import ca.yorku.cmg.cnsim.engine.transaction.Transaction;
 import ca.yorku.cmg.cnsim.engine.transaction.TransactionGroup;
 
+import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 
 /**
  * The Block class represents a block in a blockchain. It extends the TransactionGroup class.
+ * <p>
+ * Once validated and propagated, a block is shared by all nodes (see {@linkplain BlockStore}) and must not be changed
+ * by them; what differs between nodes is kept in the {@linkplain Blockchain} of each node.
  *
  * @author Sotirios Liaskos for the Enterprise Systems Group @ York University
  */
@@ -18,10 +24,8 @@ public class Block extends TransactionGroup implements Cloneable {
     // ID Generation & Management
     // =========================
 
-    private static int currID = 1;
-
     public static int getNextID() {
-        return currID++;
+        return SimulationContext.current().nextID(Block.class);
     }
 
     // ========================
@@ -34,6 +38,15 @@ public class Block extends TransactionGroup implements Cloneable {
     // Height in blockchain (if in one)
     protected int height = 0;
 
+    // An ancestor further down the chain (if in a blockchain), to reach any ancestor in O(log h) steps
+    private Block skip = null;
+
+    // Whether the transactions of the block have been dropped from memory (see BlockStore)
+    private boolean pruned = false;
+
+    // IDs of the transactions of the block and its ancestors (if in a blockchain); shared with the ancestors' sets
+    private PersistentLongSet chainTransactions = null;
+
 
     // Times the block was validated
     private long simTime_validation = -1;
@@ -93,6 +106,18 @@ public class Block extends TransactionGroup implements Cloneable {
         groupID = getNextID();
     }
 
+    /**
+     * Constructs a new {@link Block} object with the next available ID, the transactions of a group, by handle,
+     * and an empty context.
+     *
+     * @param initial The group whose transactions the block holds.
+     */
+    public Block(TransactionGroup initial) {
+        super(initial);
+        context = new Context();
+        groupID = getNextID();
+    }
+
     // =========================
     // Utility Methods
     // =========================
@@ -119,7 +144,7 @@ public class Block extends TransactionGroup implements Cloneable {
             double difficulty,
             double cycles
     ) {
-        super.updateTransactionGroup(newTransList.getTransactions());
+        super.updateTransactionGroup(newTransList);
 //    	groupID = getID();
 
         simTime_validation = simTime;
@@ -140,6 +165,111 @@ public class Block extends TransactionGroup implements Cloneable {
         context.cycles = cycles;
     }
 
+    /**
+     * Returns the ancestor of the {@linkplain Block} at a given height, following skip pointers, in O(log h) steps.
+     * The block must be in a blockchain.
+     *
+     * @param height The height of the ancestor.
+     * @return The ancestor at <tt>height</tt>, the block itself if <tt>height</tt> is its own height, or <tt>null</tt> if there is none.
+     */
+    public Block getAncestor(int height) {
+        if (height > this.height || height < 1) {
+            return null;
+        }
+        Block walk = this;
+        int heightWalk = this.height;
+        while (heightWalk > height) {
+            int heightSkip = skipHeight(heightWalk);
+            int heightSkipPrev = skipHeight(heightWalk - 1);
+            // Take the skip unless the skip of the parent gets closer without overshooting.
+            if (walk.skip != null && (heightSkip == height
+                    || (heightSkip > height && !(heightSkipPrev < heightSkip - 2 && heightSkipPrev >= height)))) {
+                walk = walk.skip;
+                heightWalk = heightSkip;
+            } else {
+                walk = (Block) walk.parent;
+                heightWalk--;
+            }
+            if (walk == null) {
+                return null;
+            }
+        }
+        return walk;
+    }
+
+    /**
+     * Returns the last common ancestor of this {@linkplain Block} and another, i.e., the block at which their chains fork.
+     * Both blocks must be in a blockchain. Blocks are compared by ID.
+     *
+     * @param other The other block.
+     * @return The last block that is on both chains (possibly one of the two blocks), or <tt>null</tt> if the chains do not meet.
+     */
+    public Block lastCommonAncestor(Block other) {
+        Block a = this, b = other;
+        if (a.height > b.height) {
+            a = a.getAncestor(b.height);
+        } else if (b.height > a.height) {
+            b = b.getAncestor(a.height);
+        }
+        while (a != null && b != null && a.getID() != b.getID()) {
+            // Blocks of equal height have skips of equal height; if those differ, the fork is below them.
+            if (a.skip != null && b.skip != null && a.skip.getID() != b.skip.getID()) {
+                a = a.skip;
+                b = b.skip;
+            } else {
+                a = (Block) a.parent;
+                b = (Block) b.parent;
+            }
+        }
+        return (a == null || b == null) ? null : a;
+    }
+
+    /**
+     * Sets the skip pointer of a {@linkplain Block} that was just placed in a blockchain, with its parent and height set.
+     * Blocks are shared by the nodes, so this happens once.
+     */
+    void linkSkip() {
+        if (skip == null && parent != null && height > 1) {
+            skip = ((Block) parent).getAncestor(skipHeight(height));
+        }
+    }
+
+    /**
+     * The height of the ancestor the skip pointer of a block at <tt>height</tt> points to. Same as in Bitcoin Core,
+     * with heights counted from 1 at the genesis block.
+     */
+    private static int skipHeight(int height) {
+        int h = height - 1;
+        if (h < 2) {
+            return 1;
+        }
+        int skip = ((h & 1) != 0) ? invertLowestOne(invertLowestOne(h - 1)) + 1 : invertLowestOne(h);
+        return skip + 1;
+    }
+
+    private static int invertLowestOne(int n) {
+        return n & (n - 1);
+    }
+
+    /**
+     * Drops the transactions of a final {@linkplain Block} that was archived, keeping its ID, parent and height.
+     */
+    void prune() {
+        updateTransactionGroup(Collections.emptyList());
+        chainTransactions = null;
+        pruned = true;
+    }
+
+    /**
+     * Whether the transactions of the {@linkplain Block} have been dropped from memory, as it is final and archived
+     * (see {@linkplain BlockStore}).
+     *
+     * @return {@code true} if the block is pruned.
+     */
+    public boolean isPruned() {
+        return pruned;
+    }
+
     /**
      * Checks if the {@linkplain Block} has a parent.
      *
@@ -185,11 +315,11 @@ public class Block extends TransactionGroup implements Cloneable {
     // =========================
 
     public static int getCurrID() {
-        return currID;
+        return SimulationContext.current().getCurrID(Block.class);
     }
 
     public static void setCurrID(int currID) {
-        Block.currID = currID;
+        SimulationContext.current().setCurrID(Block.class, currID);
     }
     
 	/**
@@ -197,7 +327,7 @@ public class Block extends TransactionGroup implements Cloneable {
 	 * @author Sotirios Liaskos
 	 */
     public static void resetCurrID() {
-        currID = 1;
+        SimulationContext.current().setCurrID(Block.class, 1);
     }
 
     
@@ -217,6 +347,22 @@ public class Block extends TransactionGroup implements Cloneable {
 
     public void setParent(TransactionGroup parent) {
         this.parent = parent;
+        this.skip = null;
+        this.chainTransactions = null;
+    }
+
+    /**
+     * The IDs of the transactions on the chain from this block to the genesis block, including those of this block.
+     * Set when the block is added to a {@linkplain Blockchain}, and cleared when its parent changes.
+     *
+     * @return The set of transaction IDs, or <tt>null</tt> if the block has not been added to a blockchain.
+     */
+    public PersistentLongSet getChainTransactions() {
+        return chainTransactions;
+    }
+
+    public void setChainTransactions(PersistentLongSet chainTransactions) {
+        this.chainTransactions = chainTransactions;
     }
 
     public int getHeight() {
@@ -255,6 +401,10 @@ public class Block extends TransactionGroup implements Cloneable {
         return currentNodeID;
     }
 
+    /**
+     * @deprecated Blocks are shared by all nodes; the node reporting an event on a block is known to the reporter.
+     */
+    @Deprecated
     public void setCurrentNodeID(int currentNodeID) {
         this.currentNodeID = currentNodeID;
     }
@@ -279,6 +429,10 @@ public class Block extends TransactionGroup implements Cloneable {
         return lastBlockEvent;
     }
 
+    /**
+     * @deprecated Blocks are shared by all nodes; events are reported as they happen.
+     */
+    @Deprecated
     public void setLastBlockEvent(String lastBlockEvent) {
         this.lastBlockEvent = lastBlockEvent;
     }
@@ -0,0 +1,99 @@
+package ca.yorku.cmg.cnsim.bitcoin;
+
+import java.util.EnumSet;
+
+/**
+ * The types of events of the block log (see {@linkplain BitcoinReporter#reportBlockEvent(Block, BlockEvent, int)}).
+ * Each type has the label written in the <tt>EvtType</tt> column of the log, and says where the times and validation
+ * figures of its lines come from:
+ * <ul>
+ * <li>{@linkplain Kind#CHAIN}: the current time at the reporting node, with the validation difficulty and cycles if the
+ * node validated the block and -1 otherwise.</li>
+ * <li>{@linkplain Kind#PROPAGATION}: the current time at the reporting node, with -1 for difficulty and cycles.</li>
+ * <li>{@linkplain Kind#VALIDATION}: the time, node, difficulty and cycles of the validation of the block.</li>
+ * </ul>
+ *
+ * @author Sotirios Liaskos for the Conceptual Modeling Group @ York University
+ */
+public enum BlockEvent {
+	APPENDED("Appended On Chain (w/ parent)", Kind.CHAIN, true),
+	DISCARDED_PARENT_OVERLAP("Discarded due to overlap with parent's chain", Kind.CHAIN, true),
+	APPENDED_PARENTLESS("Appended On Chain (parentless)", Kind.CHAIN, true),
+	DISCARDED_CHAIN_OVERLAP("Discarding due to chain overlap", Kind.CHAIN, true),
+	DISCARDED_BELOW_CHECKPOINT("Discarded below checkpoint", Kind.CHAIN, true),
+	ADDED_TO_ORPHANS("Added to Orphans", Kind.CHAIN, false),
+	EVICTED_FROM_ORPHANS("Evicted from Orphans", Kind.CHAIN, false),
+	ATTACK_STARTS("Target Transaction Appeared - Attack Starts", Kind.CHAIN, true),
+	HIDDEN_CHAIN_REVEALED("Reveal of hidden chain starts here.", Kind.CHAIN, true),
+	RECEIVED("Node Receives Propagated Block", Kind.PROPAGATION, true),
+	RECEIVED_EXISTING("ERROR: propagated Block already exists", Kind.PROPAGATION, true),
+	DISCARDED_EXISTING("Propagated Block Discarded (already exists)", Kind.PROPAGATION, true),
+	VALIDATED("Node Completes Validation", Kind.VALIDATION, true),
+	ADDED_TO_HIDDEN_CHAIN("Adding block to hidden chain", Kind.VALIDATION, true),
+	OWN_DISCARDED("Discarding own Block (ERROR)", Kind.VALIDATION, true),
+	OWN_DISCARDED_IN_ATTACK("ERROR: Discarding own Block", Kind.VALIDATION, true),
+	OWN_DISCARDED_BY_ATTACKER("Error: Discarding own Block", Kind.VALIDATION, true);
+
+	/**
+	 * Where the times and validation figures of a block event come from.
+	 */
+	public enum Kind {
+		CHAIN, PROPAGATION, VALIDATION
+	}
+
+	private final String label;
+	private final Kind kind;
+	private final boolean reportsHeight;
+
+	BlockEvent(String label, Kind kind, boolean reportsHeight) {
+		this.label = label;
+		this.kind = kind;
+		this.reportsHeight = reportsHeight;
+	}
+
+	/**
+	 * @return The label of the event in the block log.
+	 */
+	public String getLabel() {
+		return label;
+	}
+
+	/**
+	 * @return Where the times and validation figures of the event come from.
+	 */
+	public Kind getKind() {
+		return kind;
+	}
+
+	/**
+	 * @return Whether the log shows the height of the block, or -1 because the block is not placed on the chain (orphans).
+	 */
+	public boolean reportsHeight() {
+		return reportsHeight;
+	}
+
+	/**
+	 * Parses a set of event types of the form "{TYPE1, TYPE2, ...}", using the names of the constants in any case.
+	 * @param input The set; an empty string or "{}" stands for all types.
+	 * @return The types.
+	 * @throws IllegalArgumentException If the set is malformed or names an unknown type.
+	 */
+	public static EnumSet<BlockEvent> parseSet(String input) {
+		String s = input.trim();
+		if (s.isEmpty() || s.equals("{}")) {
+			return EnumSet.allOf(BlockEvent.class);
+		}
+		if (!s.startsWith("{") || !s.endsWith("}")) {
+			throw new IllegalArgumentException("Block event types must be of the form {TYPE1, TYPE2, ...}, but were " + input);
+		}
+		EnumSet<BlockEvent> types = EnumSet.noneOf(BlockEvent.class);
+		for (String name : s.substring(1, s.length() - 1).split(",")) {
+			try {
+				types.add(BlockEvent.valueOf(name.trim().toUpperCase()));
+			} catch (IllegalArgumentException e) {
+				throw new IllegalArgumentException("Unknown block event type: '" + name.trim() + "'");
+			}
+		}
+		return types;
+	}
+}
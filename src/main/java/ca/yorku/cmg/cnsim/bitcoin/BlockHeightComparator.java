@@ -10,7 +10,7 @@ public class BlockHeightComparator implements Comparator<Block> {
 	 *
 	 * @param b1 The first block to compare.
 	 * @param b2 The second block to compare.
-	 * @return A negative integer if <tt>b1</tt> is shorter than <tt>b2</tt>, a positive integer if <tt>b1</tt> is considered taller than <tt>b2</tt>. If they are equal, compare IDs accordingly.
+	 * @return A negative integer if <tt>b1</tt> is shorter than <tt>b2</tt>, a positive integer if <tt>b1</tt> is considered taller than <tt>b2</tt>. If they are equal, compare IDs accordingly; <tt>0</tt> if the IDs are also equal.
 	 */
 	@Override
 	public int compare(Block b1, Block b2) {
@@ -20,6 +20,8 @@ public class BlockHeightComparator implements Comparator<Block> {
 			if (b1.getHeight() == b2.getHeight()) 
 				if (b1.getID() < b2.getID())
 					return 1;
+				else if (b1.getID() == b2.getID())
+					return 0;
 				else
 					return -1;
 			else //height is greater
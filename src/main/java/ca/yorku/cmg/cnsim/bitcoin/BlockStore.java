@@ -0,0 +1,259 @@
+package ca.yorku.cmg.cnsim.bitcoin;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+import ca.yorku.cmg.cnsim.engine.LongIntHashMap;
+import ca.yorku.cmg.cnsim.engine.SimulationContext;
+import ca.yorku.cmg.cnsim.engine.reporter.Reporter;
+
+/**
+ * The {@linkplain Block}s of a simulation run, shared by the {@linkplain Blockchain}s of all nodes. Each block is
+ * stored once, under a dense index in order of arrival, along with an index of the transactions it contains.
+ * A {@linkplain Blockchain} is a view of the store: the set of indexes of the blocks the node knows, plus its tips
+ * and orphans.
+ * <p>
+ * A stored block is shared by all nodes and must not be changed by them; information that differs between nodes,
+ * such as the node that reports an event on the block, is kept by the nodes. The store is accessed by block events,
+ * which are processed in the global order of events also by a {@linkplain ca.yorku.cmg.cnsim.engine.ParallelSimulation}.
+ * <p>
+ * Blockchains that prune their history (see {@linkplain Blockchain#Blockchain(BlockStore, int, int, int)}) tell the store
+ * the height of their checkpoint. Blocks below the lowest checkpoint of all blockchains are final for every node: they
+ * are written to an archive file, from which structure reports read them, and their transactions are dropped from
+ * memory (see {@linkplain Block#isPruned()}). The archive of a run is written next to its logs, as
+ * "BlockArchive - [Simulation Date Time] - [SimID].csv", one <tt>BlockID,ParentID,Height,Transactions</tt> line per
+ * block, and the store keeps the position of each line so that reports read only the blocks they need.
+ * <p>
+ * The pruned {@linkplain Block} objects stay in the store: blockchains still walk through them to find ancestors and
+ * heights, and look them up by ID. Without their transactions they take a few dozen bytes each.
+ *
+ * @author Sotirios Liaskos for the Conceptual Modeling Group @ York University
+ */
+public class BlockStore {
+
+	/** All blocks by index, including the archived ones, which are pruned but still linked to by their descendants. */
+	private final ArrayList<Block> blocks = new ArrayList<Block>();
+	private final LongIntHashMap indexByID = new LongIntHashMap();
+	private final TxBlockIndex txIndex = new TxBlockIndex();
+
+	/** The checkpoint height of each registered blockchain; 0 for none. */
+	private int[] checkpoints = new int[0];
+	/** Blocks below this height are archived. */
+	private int finalHeight = 0;
+	/** The indexes of the archived blocks. */
+	private final BitSet archived = new BitSet();
+	/** The blocks not yet archived, among those added before index {@code scanned}. */
+	private ArrayList<Block> pending = new ArrayList<Block>();
+	private int scanned = 0;
+	/** The archive file; <tt>null</tt> for a temporary file, created when first needed. */
+	private Path archive;
+	private boolean archiveCreated = false;
+	/** The position and length of the archive line of each archived block, by index. */
+	private long[] archiveOffsets = new long[0];
+	private int[] archiveLengths = new int[0];
+	private long archiveSize = 0;
+
+	/**
+	 * Creates a store whose archive, if any blocks are archived, is a temporary file deleted on exit.
+	 */
+	public BlockStore() {
+		this(null);
+	}
+
+	/**
+	 * Creates a store that archives final blocks into a file.
+	 * @param archive The archive file; replaced if it exists. If <tt>null</tt>, a temporary file deleted on exit.
+	 */
+	public BlockStore(Path archive) {
+		this.archive = archive;
+	}
+
+	/**
+	 * Returns the store of a simulation run.
+	 * @param ctx The context of the run.
+	 * @return The store shared by the nodes of the run.
+	 */
+	public static BlockStore of(SimulationContext ctx) {
+		return ctx.getShared(BlockStore.class, () -> new BlockStore(
+				Paths.get(Reporter.getPath(), "BlockArchive - " + Reporter.getRunId() + " - " + ctx.getSimID() + ".csv")));
+	}
+
+	/**
+	 * Adds a block to the store, unless a block with the same ID is already there.
+	 * @param b The block.
+	 * @return The index of the block with the ID of <tt>b</tt>.
+	 */
+	int add(Block b) {
+		int index = indexByID.get(b.getID(), -1);
+		if (index < 0) {
+			index = blocks.size();
+			blocks.add(b);
+			indexByID.put(b.getID(), index);
+			txIndex.add(b, index);
+		}
+		return index;
+	}
+
+	/**
+	 * The index of a block.
+	 * @param blockID The ID of the block.
+	 * @return The index of the block, or -1 if it is not in the store.
+	 */
+	int indexOf(int blockID) {
+		return indexByID.get(blockID, -1);
+	}
+
+	/**
+	 * The block at an index.
+	 * @param index The index.
+	 * @return The block.
+	 */
+	Block get(int index) {
+		return blocks.get(index);
+	}
+
+	/**
+	 * The index from transactions to the blocks containing them.
+	 * @return The transaction index.
+	 */
+	TxBlockIndex transactions() {
+		return txIndex;
+	}
+
+	/**
+	 * Registers a blockchain that will report its checkpoint.
+	 * @return The number by which the blockchain reports its checkpoint.
+	 */
+	int register() {
+		checkpoints = Arrays.copyOf(checkpoints, checkpoints.length + 1);
+		return checkpoints.length - 1;
+	}
+
+	/**
+	 * Records the checkpoint of a blockchain, and archives the blocks that have become final for all blockchains.
+	 * @param view The number of the blockchain, see {@linkplain #register()}.
+	 * @param height The height of its checkpoint.
+	 */
+	void setCheckpoint(int view, int height) {
+		checkpoints[view] = height;
+		int min = Integer.MAX_VALUE;
+		for (int h : checkpoints) {
+			min = Math.min(min, h);
+		}
+		if (min > finalHeight) {
+			finalHeight = min;
+			archiveBelow(finalHeight);
+		}
+	}
+
+	/**
+	 * Whether a block has been archived.
+	 * @param index The index of the block.
+	 * @return <tt>true</tt> if the block is archived and its transactions dropped.
+	 */
+	boolean isArchived(int index) {
+		return archived.get(index);
+	}
+
+	/**
+	 * Appends the blocks below a height to the archive, as <tt>BlockID,ParentID,Height,Transactions</tt>, and drops their transactions.
+	 */
+	private void archiveBelow(int height) {
+		ArrayList<Block> remaining = new ArrayList<Block>();
+		ArrayList<Block> done = new ArrayList<Block>();
+		for (; scanned < blocks.size(); scanned++) {
+			pending.add(blocks.get(scanned));
+		}
+		for (Block b : pending) {
+			(b.getHeight() < height ? done : remaining).add(b);
+		}
+		pending = remaining;
+		if (done.isEmpty()) {
+			return;
+		}
+		if (archiveOffsets.length < blocks.size()) {
+			archiveOffsets = Arrays.copyOf(archiveOffsets, Math.max(blocks.size(), archiveOffsets.length * 2));
+			archiveLengths = Arrays.copyOf(archiveLengths, archiveOffsets.length);
+		}
+		try (OutputStream out = new BufferedOutputStream(openArchive())) {
+			for (Block b : done) {
+				byte[] line = ((b.getID() + "," + (b.hasParent() ? b.getParent().getID() : -1) + "," + b.getHeight()
+						+ "," + b.printIDs(";")) + "\n").getBytes(StandardCharsets.UTF_8);
+				int index = indexOf(b.getID());
+				out.write(line);
+				archiveOffsets[index] = archiveSize;
+				archiveLengths[index] = line.length - 1;
+				archiveSize += line.length;
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException("Cannot write block archive " + archive, e);
+		}
+		for (Block b : done) {
+			b.prune();
+			archived.set(indexOf(b.getID()));
+		}
+	}
+
+	/**
+	 * Opens the archive for appending, creating it on first use.
+	 */
+	private OutputStream openArchive() throws IOException {
+		if (!archiveCreated) {
+			if (archive == null) {
+				archive = Files.createTempFile("cnsim-blocks-", ".csv");
+				archive.toFile().deleteOnExit();
+			}
+			archiveCreated = true;
+			return Files.newOutputStream(archive);
+		}
+		return Files.newOutputStream(archive, StandardOpenOption.APPEND);
+	}
+
+	/**
+	 * Reads archived blocks back from the archive.
+	 * @param sorted The archived blocks to read, in the order of the result.
+	 * @return Entries of the form <tt>BlockID,ParentID,Height,Transactions</tt>, with transaction IDs separated by ";".
+	 */
+	ArrayList<String> readArchived(List<Block> sorted) {
+		ArrayList<String> result = new ArrayList<String>(sorted.size());
+		if (sorted.isEmpty()) {
+			return result;
+		}
+		try (FileChannel in = FileChannel.open(archive, StandardOpenOption.READ)) {
+			for (Block b : sorted) {
+				int index = indexOf(b.getID());
+				ByteBuffer line = ByteBuffer.allocate(archiveLengths[index]);
+				while (line.hasRemaining()) {
+					if (in.read(line, archiveOffsets[index] + line.position()) < 0) {
+						throw new IOException("Block archive ends before block " + b.getID());
+					}
+				}
+				result.add(new String(line.array(), 0, line.position(), StandardCharsets.UTF_8));
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException("Cannot read block archive " + archive, e);
+		}
+		return result;
+	}
+
+	/**
+	 * The number of blocks in the store.
+	 * @return The number of blocks.
+	 */
+	public int size() {
+		return blocks.size();
+	}
+}
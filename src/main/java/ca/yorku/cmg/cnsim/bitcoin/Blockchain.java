@@ -2,17 +2,30 @@ package ca.yorku.cmg.cnsim.bitcoin;
 
 import ca.yorku.cmg.cnsim.engine.Debug;
 import ca.yorku.cmg.cnsim.engine.IStructure;
+import ca.yorku.cmg.cnsim.engine.LongIntHashMap;
+import ca.yorku.cmg.cnsim.engine.PersistentLongSet;
 import ca.yorku.cmg.cnsim.engine.Simulation;
 import ca.yorku.cmg.cnsim.engine.reporter.Reporter;
+import ca.yorku.cmg.cnsim.engine.reporter.RunMetrics;
 import ca.yorku.cmg.cnsim.engine.transaction.ITxContainer;
 import ca.yorku.cmg.cnsim.engine.transaction.Transaction;
 import ca.yorku.cmg.cnsim.engine.transaction.TransactionGroup;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.TreeSet;
 
 /**
- * The Bitcoin's blockchain structure
+ * The Bitcoin's blockchain structure, as known by a node. The {@linkplain Block}s themselves are kept once per run in a
+ * {@linkplain BlockStore} shared by all nodes; the blockchain of a node records which of them the node has placed,
+ * along with its own tips and orphans.
  * 
  * @author Sotirios Liaskos for the Conceptual Modeling Group @ York University
  * 
@@ -20,23 +33,139 @@ import java.util.Collections;
 public class Blockchain implements IStructure {
 
 	/**
-	 * A list of blocks. Each {@linkplain Block}'s getParent() points to a parent {@linkplain Block}
+	 * The blocks of the run. Each {@linkplain Block}'s getParent() points to a parent {@linkplain Block}
 	 */
-	ArrayList<Block> blockchain = new ArrayList<Block>();
+	private final BlockStore store;
 	
 	/**
-	 * List of orphan {@linkplain Block}s. {@linkplain Block}s end up here if they refer to a parent that does not exist in the blockchain (e.g., has delayed arrival). At key events the orphan {@linkplain Block}s are revisited. 
+	 * The indexes in the {@linkplain #store} of the blocks in the blockchain.
 	 */
-	ArrayList<Block> orphans = new ArrayList<Block>();
+	private final BitSet known = new BitSet();
+	
+	/**
+	 * The ID of the node whose blockchain this is, for reporting; -1 if none.
+	 */
+	private final int nodeID;
+	
+	/**
+	 * The depth below the longest tip at which blocks are final; 0 to keep all history. The final block of the longest
+	 * chain is the checkpoint: blocks that would branch off below it are discarded, and the forks that do are dropped.
+	 */
+	private final int pruneDepth;
+	private Block checkpoint = null;
+	private long prunedForkBlocks = 0;
+	
+	/**
+	 * The number by which this blockchain reports its checkpoint to the {@linkplain #store}.
+	 */
+	private final int storeView;
+	
+	/**
+	 * Orphan {@linkplain Block}s by ID, in order of arrival. {@linkplain Block}s end up here if they refer to a parent that does not exist in the blockchain (e.g., has delayed arrival).
+	 * When a {@linkplain Block} is added to the blockchain, the orphans waiting for it are placed in turn (see {@linkplain #orphansByParent}).
+	 */
+	LinkedHashMap<Integer, Block> orphans = new LinkedHashMap<Integer, Block>();
+	
+	/**
+	 * Orphan {@linkplain Block}s by the ID of their missing parent, in order of arrival.
+	 */
+	HashMap<Integer, ArrayList<Block>> orphansByParent = new HashMap<Integer, ArrayList<Block>>();
+	
+	/**
+	 * The simulation time at which each orphan arrived, by block ID.
+	 */
+	private HashMap<Integer, Long> orphanArrival = new HashMap<Integer, Long>();
+	
+	/**
+	 * Orphans whose parent has been added and which wait to be placed, the next one first.
+	 */
+	private ArrayDeque<Block> released = new ArrayDeque<Block>();
+	private boolean releasing = false;
+	
+	/**
+	 * Maximum number of orphans; 0 for no limit.
+	 */
+	private int maxOrphans;
+	
+	private long orphansResolved = 0;
+	private long orphansEvicted = 0;
+	private long orphanResidencyTotal = 0;
+	private long orphanResidencyMax = 0;
 
 	/**
-	 * A list of tips.
+	 * The tips, in two parts: those that were present when the tips were last ordered (by {@linkplain #getNonOverlappingTip(Block)}),
+	 * ordered by {@linkplain BlockHeightComparator}, and those that were added since, ordered by height and then by arrival.
+	 * Together they reproduce the order of a list of tips that is appended to and sorted in place.
 	 */
-	ArrayList<Block> tips = new ArrayList<Block>();
+	TreeSet<Block> tips = new TreeSet<Block>(new BlockHeightComparator());
+	private HashMap<Integer, Long> tipArrival = new HashMap<Integer, Long>();
+	private long nextArrival = 0;
+	TreeSet<Block> newTips = new TreeSet<Block>(
+			Comparator.comparingInt((Block b) -> -b.getHeight()).thenComparingLong(b -> tipArrival.get(b.getID())));
 	
+	/**
+	 * The height of the tallest block.
+	 */
+	private int maxHeight = 0;
+	
+	/**
+	 * The tip of the main (longest) chain as of the last belief query, and the height of the block containing each transaction
+	 * of that chain. Brought up to date with the longest tip on each query, by walking only the blocks that the main chain gained or lost.
+	 */
+	private Block mainTip = null;
+	private LongIntHashMap mainChainHeights = new LongIntHashMap();
 	
 	
 	
+	
+	/**
+	 * Creates an empty blockchain with no limit on the number of orphans.
+	 */
+	public Blockchain() {
+		this(0);
+	}
+	
+	/**
+	 * Creates an empty blockchain with its own {@linkplain BlockStore}.
+	 * @param maxOrphans The maximum number of orphan {@linkplain Block}s kept; when exceeded, the oldest orphan is evicted. 0 for no limit.
+	 */
+	public Blockchain(int maxOrphans) {
+		this(new BlockStore(), -1, maxOrphans);
+	}
+	
+	/**
+	 * Creates an empty blockchain of a node that keeps all history.
+	 * @param store The store of the blocks of the run, shared with the other nodes.
+	 * @param nodeID The ID of the node, for reporting.
+	 * @param maxOrphans The maximum number of orphan {@linkplain Block}s kept; when exceeded, the oldest orphan is evicted. 0 for no limit.
+	 */
+	public Blockchain(BlockStore store, int nodeID, int maxOrphans) {
+		this(store, nodeID, maxOrphans, 0);
+	}
+	
+	/**
+	 * Creates an empty blockchain of a node.
+	 * @param store The store of the blocks of the run, shared with the other nodes.
+	 * @param nodeID The ID of the node, for reporting.
+	 * @param maxOrphans The maximum number of orphan {@linkplain Block}s kept; when exceeded, the oldest orphan is evicted. 0 for no limit.
+	 * @param pruneDepth The depth below the longest tip at which {@linkplain Block}s are final. Forks that branch off below it are dropped, 
+	 * and blocks below the final blocks of all nodes are archived by the store. 0 to keep all history.
+	 */
+	public Blockchain(BlockStore store, int nodeID, int maxOrphans, int pruneDepth) {
+		if (maxOrphans < 0) {
+			throw new IllegalArgumentException("Maximum number of orphans must be non-negative, but was " + maxOrphans);
+		}
+		if (pruneDepth < 0) {
+			throw new IllegalArgumentException("Prune depth must be non-negative, but was " + pruneDepth);
+		}
+		this.store = store;
+		this.nodeID = nodeID;
+		this.maxOrphans = maxOrphans;
+		this.pruneDepth = pruneDepth;
+		this.storeView = store.register();
+	}
+	
+	
 	/**
 	 * @deprecated
 	 */
@@ -53,6 +182,7 @@ public class Blockchain implements IStructure {
 	 * @param b A validated block to be added to the chain. 
 	 */
 	public void addToStructure(Block b) {
+		BitcoinReporter.recordArrival(b, nodeID);
 		if (b.hasParent()) {
 			// Typically it has parent when it is coming from the orphans list or propagation.
 			assert(b.getParent() != null);
@@ -80,6 +210,9 @@ public class Blockchain implements IStructure {
 		//TODO for the condition add (&& b.parent not equal null) -> means I could not find parent of this
 		if (parent == null) {
 			addToOrphans(b);
+		} else if (checkpoint != null && parent.getHeight() < checkpoint.getHeight()) {
+			// It would fork the chain below the checkpoint.
+			reportBelowCheckpoint(b);
 		} else {
 			//Debug.p("Propagated Block " + b.getID());
 			if (!hasChainOverlap(b,parent)) {
@@ -87,11 +220,11 @@ public class Blockchain implements IStructure {
 
 				// Just add the block
 				b.setHeight(parent.getHeight() + 1);
-				blockchain.add(b);
+				appendBlock(b, parent);
 
 				//Replace parent with block
-				tips.remove(parent);
-				tips.add(b);
+				removeTip(parent);
+				addTip(b);
 				
 				//Report event.
 				//BitcoinReporter.reportBlockEvent(b.getContext().simTime, b.getContext().sysTime, b.getContext().nodeID,
@@ -99,20 +232,10 @@ public class Blockchain implements IStructure {
 				//		"Appended On Chain (w/ parent)", b.getContext().difficulty,b.getContext().cycles);
 
 				
-				BitcoinReporter.reportBlockEvent(
-						Simulation.currentSimulationID,
-	            		Simulation.currTime,
-	            		System.currentTimeMillis() - Simulation.sysStartTime,
-	            		b.getCurrentNodeID(),
-						b.getID(),
-						b.getParent().getID(),
-						b.getHeight(),
-						b.printIDs(";"),
-						"Appended On Chain (w/ parent)", 
-	                    b.getValidationDifficulty(),
-	                    b.getValidationCycles());
+				BitcoinReporter.reportBlockEvent(b, BlockEvent.APPENDED, nodeID);
 				
-				processOrphans();
+				advanceCheckpoint();
+				releaseOrphans(b);
 			} else {
 				Debug.p("discarding overlapping block");
 //				BitcoinReporter.reportBlockEvent(
@@ -127,18 +250,8 @@ public class Blockchain implements IStructure {
 //						b.getContext().difficulty,
 //						b.getContext().cycles);
 
-				BitcoinReporter.reportBlockEvent(
-						Simulation.currentSimulationID,
-	            		Simulation.currTime,
-	            		System.currentTimeMillis() - Simulation.sysStartTime,
-	            		b.getCurrentNodeID(),
-						b.getID(),
-						b.getParent().getID(),
-						b.getHeight(),
-						b.printIDs(";"),
-						"Discarded due to overlap with parent's chain", 
-	                    b.getValidationDifficulty(),
-	                    b.getValidationCycles());
+				countMetric(BitcoinReporter.DISCARDED);
+				BitcoinReporter.reportBlockEvent(b, BlockEvent.DISCARDED_PARENT_OVERLAP, nodeID);
 
 				
 			}
@@ -161,14 +274,17 @@ public class Blockchain implements IStructure {
 	 * In case it does, an error is printed in the Log file.
 	 *
 	 * If the chain is empty, make the block a genesis block with null as a parent.
+	 * A parentless block that is already in the {@linkplain BlockStore} is the genesis block of another node;
+	 * it is shared and cannot be given a parent, so it is also placed as a genesis block.
 	 *
 	 * @param b The block to be pushed to the blockchain
 	 *
 	 */
 	private void pushBlockToChain(Block b) {
+		boolean shared = store.indexOf(b.getID()) >= 0;
 
 		//Nonempty blockchain - find the tallest non-conflicting tip
-		if (!blockchain.isEmpty()) {
+		if (!known.isEmpty() && !shared) {
 
 			Block par = this.getNonOverlappingTip(b);
 			//Block par = this.getLongestTip();
@@ -176,54 +292,40 @@ public class Blockchain implements IStructure {
 				//Prepare and block to structure
 				b.setParent(par);
 				b.setHeight(par.getHeight() + 1);
-				blockchain.add(b);
-				tips.add(b);
-				tips.remove(b.getParent());
+				appendBlock(b, par);
+				addTip(b);
+				removeTip(par);
 				
 //				BitcoinReporter.reportBlockEvent(b.getContext().simTime, b.getContext().sysTime, b.getContext().nodeID,
 //						b.getID(),((b.getParent() == null) ? -1 : b.getParent().getID()),b.getHeight(),b.printIDs(";"),
 //						"Appended On Chain (parentless)", b.getContext().difficulty,b.getContext().cycles);
 
-				BitcoinReporter.reportBlockEvent(
-						Simulation.currentSimulationID,
-	            		Simulation.currTime,
-	            		System.currentTimeMillis() - Simulation.sysStartTime,
-	            		b.getCurrentNodeID(),
-						b.getID(),
-						((b.getParent() == null) ? -1 : b.getParent().getID()),
-						b.getHeight(),
-						b.printIDs(";"),
-						"Appended On Chain (parentless)",
-	                    b.getValidationDifficulty(),
-	                    b.getValidationCycles());				
+				BitcoinReporter.reportBlockEvent(b, BlockEvent.APPENDED_PARENTLESS, nodeID);
 				
-				processOrphans();
+				advanceCheckpoint();
+				releaseOrphans(b);
 
 			} else {
 				//Do nothing, block should be discarded.
 //				BitcoinReporter.reportBlockEvent(b.getContext().simTime, b.getContext().sysTime, b.getContext().nodeID,
 //						b.getID(),((b.getParent() == null) ? -1 : b.getParent().getID()),b.getHeight(),b.printIDs(";"),
 //						"Discarding due to chain overlap", b.getContext().difficulty,b.getContext().cycles);
-				BitcoinReporter.reportBlockEvent(
-						Simulation.currentSimulationID,
-	            		Simulation.currTime,
-	            		System.currentTimeMillis() - Simulation.sysStartTime,
-	            		b.getCurrentNodeID(),
-						b.getID(),((b.getParent() == null) ? -1 : b.getParent().getID()),
-						b.getHeight(),
-						b.printIDs(";"),
-						"Discarding due to chain overlap", 
-	                    b.getValidationDifficulty(),
-	                    b.getValidationCycles());				
+				countMetric(BitcoinReporter.DISCARDED);
+				BitcoinReporter.reportBlockEvent(b, BlockEvent.DISCARDED_CHAIN_OVERLAP, nodeID);
 			}
+		} else if (checkpoint != null) {
+			// The genesis block of another node, which would start a chain below the checkpoint.
+			reportBelowCheckpoint(b);
 		} else {
 			//It is a genesis block
-			b.setParent(null); // it was already but for clarity
+			if (!shared) {
+				b.setParent(null); // it was already but for clarity
+			}
 			b.setHeight(1);
-			blockchain.add(b);
-			tips.add(b);
+			appendBlock(b, null);
+			addTip(b);
 
-			processOrphans();
+			releaseOrphans(b);
 		}
 	}
 
@@ -268,50 +370,179 @@ public class Blockchain implements IStructure {
 
 
 
+	/**
+	 * Adds a placed {@linkplain Block} to the blockchain and its indexes.
+	 * @param b The block, with its height set.
+	 * @param parent The parent of the block in the blockchain, or <tt>null</tt> for the genesis block.
+	 */
+	private void appendBlock(Block b, Block parent) {
+		boolean fork = (parent != null) && !tips.contains(parent) && !tipArrival.containsKey(parent.getID());
+		PersistentLongSet txs = (parent == null) ? PersistentLongSet.EMPTY : parent.getChainTransactions();
+		// Blocks may be shared with other nodes, which will have set the same transactions.
+		if (b.getChainTransactions() == null && txs != null) {
+			for (int i = 0; i < b.getCount(); i++) {
+				txs = txs.with(b.getTransactionID(i));
+			}
+			b.setChainTransactions(txs);
+		}
+		b.linkSkip();
+		known.set(store.add(b));
+		maxHeight = Math.max(maxHeight, b.getHeight());
+		BitcoinReporter.recordPlacement(b, nodeID, fork, b.getHeight() == maxHeight);
+	}
+
+	/**
+	 * Moves the checkpoint to the ancestor of the longest tip that is {@linkplain #pruneDepth} blocks deep, if it is higher.
+	 * The forks that branch off below the new checkpoint are dropped: their tips and blocks leave the blockchain.
+	 * The {@linkplain BlockStore} is told the new height, so that it can archive the blocks that are final for all nodes.
+	 */
+	private void advanceCheckpoint() {
+		if (pruneDepth == 0) {
+			return;
+		}
+		Block tip = getLongestTip();
+		int height = tip.getHeight() - pruneDepth;
+		if (height <= ((checkpoint == null) ? 0 : checkpoint.getHeight())) {
+			return;
+		}
+		// Bring the main chain to the longest tip, so that it does not remain on a fork that is dropped.
+		syncMainChain();
+		checkpoint = tip.getAncestor(height);
+		
+		ArrayList<Block> dead = new ArrayList<Block>();
+		for (Block t : tips) {
+			if (!isAncestor(checkpoint, t)) dead.add(t);
+		}
+		for (Block t : newTips) {
+			if (!isAncestor(checkpoint, t)) dead.add(t);
+		}
+		for (Block t : dead) {
+			removeTip(t);
+			// Remove the blocks of the fork down to the chain of the checkpoint, or to blocks already removed.
+			for (Block x = t; x != null; x = (Block) x.getParent()) {
+				int index = store.indexOf(x.getID());
+				if (!known.get(index) || (x.getHeight() <= height && isAncestor(x, checkpoint))) {
+					break;
+				}
+				known.clear(index);
+				prunedForkBlocks++;
+			}
+		}
+		store.setCheckpoint(storeView, height);
+	}
+	
+	/**
+	 * Reports a {@linkplain Block} that is discarded because it would branch off below the checkpoint.
+	 */
+	private void reportBelowCheckpoint(Block b) {
+		countMetric(BitcoinReporter.DISCARDED);
+		BitcoinReporter.reportBlockEvent(b, BlockEvent.DISCARDED_BELOW_CHECKPOINT, nodeID);
+	}
+
+	/**
+	 * Adds one to a counter of the metrics of the run, if metrics are reported.
+	 */
+	private static void countMetric(String name) {
+		RunMetrics m = Reporter.metrics();
+		if (m != null) {
+			m.count(name, 1);
+		}
+	}
+
+	private void addTip(Block b) {
+		if (tips.contains(b) || tipArrival.containsKey(b.getID())) return;
+		tipArrival.put(b.getID(), nextArrival++);
+		newTips.add(b);
+	}
+
+	private void removeTip(Block b) {
+		if (!tips.remove(b) && tipArrival.containsKey(b.getID())) {
+			newTips.remove(b);
+			tipArrival.remove(b.getID());
+		}
+	}
+
+
 	/**
 	 * @deprecated
 	 */
 	public void _______OrphansManagement() {}
 	
 	/**
-	 * Recursive function: for each orphan in the orphans list try to place in the chain using placeBlockInChain. Repeat this loop (through a recursive call) until no orphan in the list can be placed in the chain.  
+	 * Places the orphans waiting for a {@linkplain Block} that was just added to the blockchain, then the orphans waiting for those, and so on.
+	 * Orphans are placed depth first, the orphans of each {@linkplain Block} in order of arrival, using a worklist rather than recursion; 
+	 * if called while the worklist is being processed, it only adds the orphans to the worklist.
+	 * @param parent The {@linkplain Block} that was added.
 	 */
-	private void processOrphans() {
-		ArrayList<Block> orphansCpy = new ArrayList<Block>(orphans);
-		int initNumOrphans = orphans.size();
-		orphans.clear();
-		for (Block b:orphansCpy) {
-			placeBlockInChain(b);
+	private void releaseOrphans(Block parent) {
+		ArrayList<Block> children = orphansByParent.remove(parent.getID());
+		if (children != null) {
+			for (int i = children.size() - 1; i >= 0; i--) {
+				Block b = children.get(i);
+				removeOrphan(b);
+				orphansResolved++;
+				released.push(b);
+			}
 		}
-		if ( (orphans.size() < initNumOrphans) && (orphans.size() > 0) ){
-			// do it again if the loop above actually affected the blockchain, and there are still orphans in the list.
-			processOrphans();
+		if (releasing) return;
+		releasing = true;
+		try {
+			while (!released.isEmpty()) {
+				placeBlockInChain(released.pop());
+			}
+		} finally {
+			releasing = false;
 		}
 	}
 
-	
+	/**
+	 * Removes a {@linkplain Block} from the orphans and records how long it stayed there.
+	 */
+	private void removeOrphan(Block b) {
+		orphans.remove(b.getID());
+		long residency = Simulation.getCurrTime() - orphanArrival.remove(b.getID());
+		orphanResidencyTotal += residency;
+		orphanResidencyMax = Math.max(orphanResidencyMax, residency);
+		RunMetrics m = Reporter.metrics();
+		if (m != null) {
+			m.record(BitcoinReporter.ORPHAN_RESIDENCY, residency);
+		}
+	}
+
+	/**
+	 * Evicts the oldest orphan.
+	 */
+	private void evictOldestOrphan() {
+		Block b = orphans.values().iterator().next();
+		removeOrphan(b);
+		ArrayList<Block> siblings = orphansByParent.get(b.getParent().getID());
+		siblings.removeIf(o -> o == b);
+		if (siblings.isEmpty()) {
+			orphansByParent.remove(b.getParent().getID());
+		}
+		orphansEvicted++;
+		countMetric(BitcoinReporter.ORPHANS_EVICTED);
+		BitcoinReporter.reportBlockEvent(b, BlockEvent.EVICTED_FROM_ORPHANS, nodeID);
+	}
 
 	/**
-	 * Adds a block to the orphans list. 
+	 * Adds a block to the orphans, evicting the oldest orphan if the maximum number of orphans is reached. A block that is already an orphan is ignored.
 	 * @param b The block to be added.
 	 */
 	private void addToOrphans(Block b) {
-		orphans.add(b);
+		if (orphans.containsKey(b.getID())) return;
+		if (maxOrphans > 0 && orphans.size() >= maxOrphans) {
+			evictOldestOrphan();
+		}
+		orphans.put(b.getID(), b);
+		orphansByParent.computeIfAbsent(b.getParent().getID(), k -> new ArrayList<Block>()).add(b);
+		orphanArrival.put(b.getID(), Simulation.getCurrTime());
 //		BitcoinReporter.reportBlockEvent(b.getContext().simTime, b.getContext().sysTime, b.getContext().nodeID,
 //				b.getID(),b.getParent().getID(),-1,b.printIDs(";"),
 //				"Added to Orphans", b.getContext().difficulty,b.getContext().cycles);
 
-		BitcoinReporter.reportBlockEvent(
-				Simulation.currentSimulationID,
-        		Simulation.currTime,
-        		System.currentTimeMillis() - Simulation.sysStartTime,
-        		b.getCurrentNodeID(),
-				b.getID(),
-				b.getParent().getID(),-1,
-				b.printIDs(";"),
-				"Added to Orphans", 
-                b.getValidationDifficulty(),
-                b.getValidationCycles());	
+		countMetric(BitcoinReporter.ORPHANED);
+		BitcoinReporter.reportBlockEvent(b, BlockEvent.ADDED_TO_ORPHANS, nodeID);
 	}
 	
 	
@@ -322,14 +553,53 @@ public class Blockchain implements IStructure {
 	 */
 	public TransactionGroup getAllOrphanTransactions() {
 		TransactionGroup allOrphTxs = new TransactionGroup();
-		for (Block orphan : orphans) {
-            for (Transaction ts: orphan.getTransactions()) {
-            	allOrphTxs.addTransaction(ts);
-            }
+		for (Block orphan : orphans.values()) {
+			allOrphTxs.addGroup(orphan);
         }
 		return (allOrphTxs);
 	}
 	
+	/**
+	 * The number of orphan {@linkplain Block}s.
+	 * @return The number of orphans.
+	 */
+	public int getOrphanCount() {
+		return orphans.size();
+	}
+	
+	/**
+	 * The number of orphans that left the orphans because their parent was added to the blockchain.
+	 * @return The number of resolved orphans.
+	 */
+	public long getOrphansResolved() {
+		return orphansResolved;
+	}
+	
+	/**
+	 * The number of orphans evicted because the maximum number of orphans was reached.
+	 * @return The number of evicted orphans.
+	 */
+	public long getOrphansEvicted() {
+		return orphansEvicted;
+	}
+	
+	/**
+	 * The mean simulation time (ms) that resolved and evicted orphans spent as orphans.
+	 * @return The mean residency time, or 0 if no orphan has left the orphans.
+	 */
+	public double getMeanOrphanResidency() {
+		long left = orphansResolved + orphansEvicted;
+		return (left == 0) ? 0 : (double) orphanResidencyTotal / left;
+	}
+	
+	/**
+	 * The longest simulation time (ms) that a resolved or evicted orphan spent as orphan.
+	 * @return The maximum residency time.
+	 */
+	public long getMaxOrphanResidency() {
+		return orphanResidencyMax;
+	}
+	
 	
 	
 	/**
@@ -340,11 +610,17 @@ public class Blockchain implements IStructure {
 	
 	/**
 	 * Checks if any of the transactions in Block b exist in any of the transactions that are contained in blocks starting from tip and to the genesis block. 
+	 * If tip is in a blockchain, this takes O(|b|) lookups in the set of transactions of its chain (see {@linkplain Block#getChainTransactions()}); otherwise, the chain is walked.
 	 * @param b The block to check the overlap for.
 	 * @param tip The tip of the chain to check the overlap against.
 	 * @return <tt>true</tt> if overlap exists false otherwise
 	 */
 	public boolean hasChainOverlap(Block b, Block tip) {
+		PersistentLongSet onChain = (tip == null) ? null : tip.getChainTransactions();
+		if (onChain != null) {
+			return overlaps(b, onChain);
+		}
+		
 		Block pointer = tip;
 		boolean overlapExists = false;
 		
@@ -364,6 +640,18 @@ public class Blockchain implements IStructure {
 	
 	
 
+	/**
+	 * Checks if any of the transactions of Block b is in a set of transaction IDs.
+	 */
+	private static boolean overlaps(Block b, PersistentLongSet txs) {
+		for (int i = 0; i < b.getCount(); i++) {
+			if (txs.contains(b.getTransactionID(i))) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
 	/**
 	 * Given a Block b find the tallest tip whose chain to the genesis does not contain transactions whose ID matches one of the IDs in the transactions in b. Searches form tallest to shortest. Return null if such tip is not found.
 	 * @param b The block in question. 
@@ -374,12 +662,14 @@ public class Blockchain implements IStructure {
 		boolean found = false;
 
 		// Sort tips by height
-		Collections.sort(this.tips, new BlockHeightComparator());
+		tips.addAll(newTips);
+		newTips.clear();
+		tipArrival.clear();
 		//Debug.p("Placing Block: " + b.getID() + " with transactions " + b.printIDs(","));
 
 		// Loop tips from tallest to shortest
-		for (int i=0; (i < this.tips.size()) && !found;i++) {
-			t = this.tips.get(i);
+		for (Iterator<Block> i = tips.iterator(); i.hasNext() && !found;) {
+			t = i.next();
 			//Debug.p("--> Trying tip " + t.getID() + " with height " + t.getHeight() + " and transactions " + t.printIDs(","));
 			//Check for overlaps
 			if (!hasChainOverlap(b,t)) {
@@ -424,31 +714,74 @@ public class Blockchain implements IStructure {
 	 */
 	private ITxContainer findParentOfbyID(Block b) {
 		Block parent = (Block) b.getParent();
-		Block found = null;
-		for (Block l : blockchain) {
-			if (l.getID() == parent.getID()) {
-				found = l;
-				break;
-			}
-		}
-		return(found);
+		return(getBlockByID(parent.getID()));
 	}
 	
 
 	/**
-	 * Checks if a {@linkplain Transaction} is contained (anywhere) in the blockchain. Likely to be used in the gossip stage.
+	 * Checks if a {@linkplain Transaction} is contained (anywhere, i.e., on any branch) in the blockchain. Likely to be used in the gossip stage.
+	 * Every block of the blockchain is on the chain of one of its tips, so the transactions of the chains of the tips
+	 * (see {@linkplain Block#getChainTransactions()}) answer this without the transaction index of the {@linkplain BlockStore},
+	 * which the other nodes of the simulation may be adding to at the same time (see {@linkplain ca.yorku.cmg.cnsim.engine.ParallelSimulation}).
 	 *
 	 * @param t The {@linkplain Transaction} to be checked.
 	 * @return <tt>true</tt> if it is contained, <tt>false</tt> if it is not.
 	 */
 	public boolean contains(Transaction t) {
-		boolean found = false;
-		for (Block b : blockchain) {
-			for (Transaction r:b.getTransactions()) {
-				if (r.getID() == t.getID()) found = true;
+		for (Block tip : tips) {
+			if (transactionOnChain(t.getID(), tip)) {
+				return true;
+			}
+		}
+		for (Block tip : newTips) {
+			if (transactionOnChain(t.getID(), tip)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Finds the {@linkplain Block} containing a transaction on the chain from a tip to the genesis block.
+	 *
+	 * @param txID The ID of the transaction.
+	 * @param tip The tip (or any block) of the chain.
+	 * @return The block of the chain containing the transaction, or <tt>null</tt> if the chain does not contain it.
+	 */
+	public Block getContainingBlock(long txID, Block tip) {
+		TxBlockIndex txIndex = store.transactions();
+		for (int e = txIndex.first(txID); e >= 0; e = txIndex.next(e)) {
+			int index = txIndex.block(e);
+			if (known.get(index) && isAncestor(store.get(index), tip)) {
+				return store.get(index);
 			}
 		}
-		return found;
+		return null;
+	}
+
+	/**
+	 * Checks if a transaction is contained on the chain from a tip to the genesis block.
+	 *
+	 * @param txID The ID of the transaction.
+	 * @param tip The tip (or any block) of the chain.
+	 * @return <tt>true</tt> if a block of the chain contains the transaction, <tt>false</tt> otherwise.
+	 */
+	public boolean transactionOnChain(long txID, Block tip) {
+		if (tip.getChainTransactions() != null) {
+			return tip.getChainTransactions().contains(txID);
+		}
+		return getContainingBlock(txID, tip) != null;
+	}
+
+	/**
+	 * Checks if {@linkplain Block} <tt>a</tt> is <tt>b</tt> or one of its ancestors, by ID.
+	 */
+	private boolean isAncestor(Block a, Block b) {
+		if (a.getHeight() >= b.getHeight()) {
+			return a.getID() == b.getID();
+		}
+		Block ancestor = b.getAncestor(a.getHeight());
+		return (ancestor != null) && (ancestor.getID() == a.getID());
 	}
 
 	/**
@@ -463,6 +796,10 @@ public class Blockchain implements IStructure {
 			return false;
 		}
 		Block current = (Block) block.getParent();
+		// Only walk the chain, to report where, if there is an overlap.
+		if (current.getChainTransactions() != null && !overlaps(block, current.getChainTransactions())) {
+			return false;
+		}
 
 		// Traverse the parental structure from the parent of the given block
 		while (current != null) {
@@ -487,7 +824,8 @@ public class Blockchain implements IStructure {
 			current = (Block) current.getParent();
 		}
 
-		return false; // Block not found in the parental structure
+		// If the parent's transactions overlap with the block, the overlap is in a pruned block, whose transactions are archived.
+		return (((Block) block.getParent()).getChainTransactions() != null);
 	}
 
 
@@ -503,18 +841,8 @@ public class Blockchain implements IStructure {
 	@Override
 	public String[] printStructure() {
 		ArrayList<String> result = new ArrayList<String>();
-		String s,par;
 		result.add("BlockID,ParentID,BlockHeight,Transactions");
-		Collections.sort(blockchain, new BlockHeightComparator());
-		for (Block b: blockchain) {
-			if (b.hasParent()) {
-				par = "" + b.getParent().getID();
-			} else {
-				par = "" + -1;
-			}
-			s = b.getID() + "," + par + "," + b.getHeight() + "," + b.printIDs(",");
-			result.add(s);
-		}
+		result.addAll(structureEntries(","));
 		return (result.toArray(new String[result.size()]));
 	}
 
@@ -526,20 +854,51 @@ public class Blockchain implements IStructure {
 	 */
 	public String[] printStructureReport(int nodeID) {
 		ArrayList<String> result = new ArrayList<String>();
-		String s,par;
-		Long realTime = System.currentTimeMillis() - Simulation.sysStartTime;
-		Collections.sort(blockchain, new BlockHeightComparator());
-		for (Block b: blockchain) {
+		Long realTime = System.currentTimeMillis() - Simulation.getSysStartTime();
+		for (String a : structureEntries(";")) {
+			//SimTime, SysTime, NodeID, BlockID, ParentID, Height, Content, Place
+			result.add(Simulation.getCurrentSimulationID() + "," + Simulation.getCurrTime() + "," + realTime + "," +  nodeID + "," + a + ", blockchain");
+		}
+		return (result.toArray(new String[result.size()]));
+	}
+	
+	/**
+	 * The blocks of the blockchain, ordered by {@linkplain BlockHeightComparator}, each as <tt>BlockID,ParentID,Height,Transactions</tt>.
+	 * Archived blocks are read back from the archive of the {@linkplain BlockStore} and take their place in the order
+	 * like all others.
+	 * @param sep The separator of the transaction IDs.
+	 */
+	private ArrayList<String> structureEntries(String sep) {
+		ArrayList<Block> sorted = new ArrayList<Block>(known.cardinality());
+		ArrayList<Block> archived = new ArrayList<Block>();
+		for (int i = known.nextSetBit(0); i >= 0; i = known.nextSetBit(i + 1)) {
+			sorted.add(store.get(i));
+			if (store.isArchived(i)) {
+				archived.add(store.get(i));
+			}
+		}
+		sorted.sort(new BlockHeightComparator());
+		HashMap<Integer, String> archivedEntries = new HashMap<Integer, String>();
+		Iterator<String> lines = store.readArchived(archived).iterator();
+		for (Block b : archived) {
+			archivedEntries.put(b.getID(), lines.next());
+		}
+		ArrayList<String> result = new ArrayList<String>(sorted.size());
+		String par;
+		for (Block b : sorted) {
+			String a = archivedEntries.get(b.getID());
+			if (a != null) {
+				result.add(a.replace(";", sep));
+				continue;
+			}
 			if (b.hasParent()) {
 				par = "" + b.getParent().getID();
 			} else {
 				par = "" + -1;
 			}
-			//SimTime, SysTime, NodeID, BlockID, ParentID, Height, Content, Place
-			s = Simulation.currentSimulationID + "," + Simulation.currTime + "," + realTime + "," +  nodeID + "," +  b.getID() + "," + par + "," + b.getHeight() + "," + b.printIDs(";") + ", blockchain";
-			result.add(s);
+			result.add(b.getID() + "," + par + "," + b.getHeight() + "," + b.printIDs(sep));
 		}
-		return (result.toArray(new String[result.size()]));
+		return result;
 	}
 	
 	/**
@@ -550,7 +909,7 @@ public class Blockchain implements IStructure {
 		ArrayList<String> result = new ArrayList<String>();
 		String s;
 		result.add("BlockID,ParentID,Transactions");
-		for (Block b: orphans) {
+		for (Block b: orphans.values()) {
 			s = b.getID() + "," + b.getParent().getID() + "," + b.printIDs(",");
 			result.add(s);
 		}
@@ -565,10 +924,10 @@ public class Blockchain implements IStructure {
 	public String[] printOrphansReport(int nodeID) {
 		ArrayList<String> result = new ArrayList<String>();
 		String s;
-		Long realTime = System.currentTimeMillis() - Simulation.sysStartTime;
-		for (Block b: orphans) {
+		Long realTime = System.currentTimeMillis() - Simulation.getSysStartTime();
+		for (Block b: orphans.values()) {
 			//SimTime, SysTime, NodeID, BlockID, ParentID, Height, Content, Place
-			s = Simulation.currentSimulationID + "," + Simulation.currTime + "," + realTime + "," + nodeID + "," +  b.getID() + "," + b.getParent().getID() + ",-1," + b.printIDs(";") + ", orphans";
+			s = Simulation.getCurrentSimulationID() + "," + Simulation.getCurrTime() + "," + realTime + "," + nodeID + "," +  b.getID() + "," + b.getParent().getID() + ",-1," + b.printIDs(";") + ", orphans";
 			result.add(s);
 		}
 		return (result.toArray(new String[result.size()]));
@@ -584,6 +943,11 @@ public class Blockchain implements IStructure {
     	for(Block t:tips) {
     		s += t.getID() + sep;
     	}
+    	ArrayList<Block> added = new ArrayList<Block>(newTips);
+    	added.sort(Comparator.comparingLong(t -> tipArrival.get(t.getID())));
+    	for(Block t:added) {
+    		s += t.getID() + sep;
+    	}
     	if (s.length()>1) 
     		s = s.substring(0, s.length()-1) + "}";
     	else 
@@ -592,52 +956,128 @@ public class Blockchain implements IStructure {
     }
 
 	public int getBlockchainHeight() {
-		int maxHeight = 0;
-		for (Block block : blockchain) {
-			if (block.getHeight() > maxHeight) {
-				maxHeight = block.getHeight();
-			}
-		}
 		return maxHeight;
 	}
 
 	/**
-	 * Returns the tip with the longest height.
+	 * Returns the tip with the longest height. Among tips of equal height, tips present when the tips were last ordered
+	 * come first, in the order of {@linkplain BlockHeightComparator}, and tips added since follow in order of arrival.
 	 * @return The Block with the longest height from the tips list. If the list is empty, returns null.
 	 */
 	public Block getLongestTip() {
-		if (tips.isEmpty()) {
-			return null;
-		}
-		//for (Block tip : tips)
-		//	System.out.println("Tip " + tip.getID() +" size: "+tip.getHeight());
-
-		Block longestTip = tips.get(0);
-		for (Block tip : tips) {
-			if (tip.getHeight() > longestTip.getHeight()) {
-				longestTip = tip;
-			}
+		Block ordered = tips.isEmpty() ? null : tips.first();
+		Block added = newTips.isEmpty() ? null : newTips.first();
+		if (added == null || (ordered != null && ordered.getHeight() >= added.getHeight())) {
+			return ordered;
 		}
-		return longestTip;
+		return added;
 	}
 	
-	//TODO: Test this
+	/**
+	 * Checks if a transaction is contained on the longest chain.
+	 */
 	@Override
 	public boolean transactionInStructure(long txID) {
-		Block longestTip = getLongestTip();
-		
-		if (longestTip == null) {
-			return false;
+		return confirmationDepth(txID) > 0;
+	}
+
+	/**
+	 * Returns the number of blocks of the longest chain that confirm a transaction: 1 if it is in the tip, 2 if it is in its parent, and so on.
+	 * Takes O(1) time, plus the time to bring the main chain up to date if the longest tip has changed since the last query.
+	 */
+	@Override
+	public int confirmationDepth(long txID) {
+		syncMainChain();
+		if (mainTip == null) {
+			return 0;
 		}
-		
-		boolean found = false;
-		Block current = longestTip;
-		while (current != null) {
-			found = (found || current.contains(txID));
-			if (found) break;
-			current = (Block) current.getParent();
+		int height = mainChainHeights.get(txID, 0);
+		return (height == 0) ? 0 : mainTip.getHeight() - height + 1;
+	}
+
+	/**
+	 * Moves the main chain to the current longest tip: removes the transactions of the blocks from the previous tip down to
+	 * the fork point, and adds those of the blocks from the fork point up to the new tip. When the chain was only extended,
+	 * only the new blocks are visited.
+	 */
+	private void syncMainChain() {
+		Block tip = getLongestTip();
+		if (tip == null || (mainTip != null && tip.getID() == mainTip.getID())) {
+			return;
+		}
+		ReorgDiff diff = reorgDiff(mainTip, tip);
+		for (Block x : diff.getRemoved()) {
+			for (int i = 0; i < x.getCount(); i++) {
+				mainChainHeights.remove(x.getTransactionID(i));
+			}
+		}
+		for (Block x : diff.getAdded()) {
+			for (int i = 0; i < x.getCount(); i++) {
+				mainChainHeights.put(x.getTransactionID(i), x.getHeight());
+			}
+		}
+		mainTip = tip;
+	}
+
+	/**
+	 * Computes the blocks that a move of the main chain from one tip to another removes and adds. The fork point is found
+	 * in O(log h) steps (see {@linkplain Block#lastCommonAncestor(Block)}); only the blocks above it are visited.
+	 * @param oldTip The tip of the chain before the move; <tt>null</tt> for an empty chain.
+	 * @param newTip The tip of the chain after the move; <tt>null</tt> for an empty chain.
+	 * @return The fork point and the blocks removed and added.
+	 */
+	public static ReorgDiff reorgDiff(Block oldTip, Block newTip) {
+		Block fork = (oldTip == null || newTip == null) ? null : oldTip.lastCommonAncestor(newTip);
+		int forkHeight = (fork == null) ? 0 : fork.getHeight();
+		ArrayList<Block> removed = new ArrayList<Block>();
+		for (Block x = oldTip; x != null && x.getHeight() > forkHeight; x = (Block) x.getParent()) {
+			removed.add(x);
+		}
+		ArrayList<Block> added = new ArrayList<Block>();
+		for (Block x = newTip; x != null && x.getHeight() > forkHeight; x = (Block) x.getParent()) {
+			added.add(x);
+		}
+		Collections.reverse(added);
+		return new ReorgDiff(fork, removed, added);
+	}
+
+	/**
+	 * The difference between two chains of a blockchain: the blocks that a move from the tip of one to the tip of the other removes and adds.
+	 */
+	public static final class ReorgDiff {
+		private final Block forkPoint;
+		private final List<Block> removed;
+		private final List<Block> added;
+
+		ReorgDiff(Block forkPoint, List<Block> removed, List<Block> added) {
+			this.forkPoint = forkPoint;
+			this.removed = Collections.unmodifiableList(removed);
+			this.added = Collections.unmodifiableList(added);
+		}
+
+		/**
+		 * The last block common to both chains.
+		 * @return The fork point, or <tt>null</tt> if the chains have no common block.
+		 */
+		public Block getForkPoint() {
+			return forkPoint;
+		}
+
+		/**
+		 * The blocks of the old chain above the fork point, old tip first.
+		 * @return The removed blocks.
+		 */
+		public List<Block> getRemoved() {
+			return removed;
+		}
+
+		/**
+		 * The blocks of the new chain above the fork point, lowest first.
+		 * @return The added blocks.
+		 */
+		public List<Block> getAdded() {
+			return added;
 		}
-		return found;
 	}
 	
 	public String printLongestChain() {
@@ -655,13 +1095,25 @@ public class Blockchain implements IStructure {
 		return result.toString();
 	}
 
+	/**
+	 * The checkpoint: the final block of the longest chain, below which history is pruned.
+	 * @return The checkpoint, or <tt>null</tt> if the blockchain keeps all history or is not yet deep enough.
+	 */
+	public Block getCheckpoint() {
+		return checkpoint;
+	}
+	
+	/**
+	 * The number of blocks dropped from the blockchain because they were on forks that branched off below the checkpoint.
+	 * @return The number of dropped blocks.
+	 */
+	public long getPrunedForkBlocks() {
+		return prunedForkBlocks;
+	}
+
 	public Block getBlockByID(int id) {
-		for (Block block : blockchain) {
-			if (block.getID() == id) {
-				return block;
-			}
-		}
-		return null;
+		int index = store.indexOf(id);
+		return (index >= 0 && known.get(index)) ? store.get(index) : null;
 	}
 
 }
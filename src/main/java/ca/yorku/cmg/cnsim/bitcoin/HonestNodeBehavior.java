@@ -38,22 +38,8 @@ public class HonestNodeBehavior implements NodeBehaviorStrategy {
 
         //reportBlockEvent(b, b.getContext().blockEvt);
 
-        b.setCurrentNodeID(node.getID());
-        b.setLastBlockEvent("Node Receives Propagated Block");
-        b.setValidationCycles(-1.0);
-        b.setValidationDifficulty(-1.0);
-     
-        BitcoinReporter.reportBlockEvent(
-				Simulation.currentSimulationID,
-        		Simulation.currTime,
-        		System.currentTimeMillis()- Simulation.sysStartTime,
-        		b.getCurrentNodeID(),
-                b.getID(),
-                ((b.getParent() == null) ? -1 : b.getParent().getID()),b.getHeight(),
-                b.printIDs(";"),
-                b.getLastBlockEvent(), 
-                b.getValidationDifficulty(),
-                b.getValidationCycles());
+        // The block is shared with the other nodes: report it as seen by this node, without changing it.
+        BitcoinReporter.reportBlockEvent(b, BlockEvent.RECEIVED, node.getID());
                 
         if (!node.blockchain.contains(b)){
             handleNewBlockReception(b);
@@ -61,19 +47,7 @@ public class HonestNodeBehavior implements NodeBehaviorStrategy {
             //Discard the block and report the event.
             //reportBlockEvent(b, "Propagated Block Discarded");
         	BitcoinReporter.addErrorEntry("Node::event_NodeReceivesPropagatedContainer: NodeBlock " + b.getID() + " containing " + b.printIDs(",") + " received through propagation is found to overlap with structure.");
-            b.setLastBlockEvent("ERROR: propagated Block already exists");
-        	BitcoinReporter.reportBlockEvent(
-					Simulation.currentSimulationID,
-            		Simulation.currTime,
-            		System.currentTimeMillis() - Simulation.sysStartTime,
-            		b.getCurrentNodeID(),
-                    b.getID(),
-                    ((b.getParent() == null) ? -1 : b.getParent().getID()),
-                    b.getHeight(),
-                    b.printIDs(";"),
-                    b.getLastBlockEvent(), 
-                    b.getValidationDifficulty(),
-                    b.getValidationCycles());
+        	BitcoinReporter.reportBlockEvent(b, BlockEvent.RECEIVED_EXISTING, node.getID());
         }
     }
 
@@ -84,33 +58,23 @@ public class HonestNodeBehavior implements NodeBehaviorStrategy {
     public void event_NodeCompletesValidation(ITxContainer t, long time) {
         Block b = (Block) t;
         //Add validation information to the block.
-        b.validateBlock(node.miningPool,
-                Simulation.currTime,
-                System.currentTimeMillis() - Simulation.sysStartTime,
+        b.validateBlock(node.getMiningPool(),
+                Simulation.getCurrTime(),
+                System.currentTimeMillis() - Simulation.getSysStartTime(),
                 node.getID(),
                 "Node Completes Validation",
                 node.getOperatingDifficulty(),
                 node.getProspectiveCycles());
 
 
-        node.completeValidation(node.miningPool, time);
+        node.completeValidation(node.getMiningPool(), time);
 
 
         //Report validation
         //reportBlockEvent(b, b.getContext().blockEvt);
 
         //Report the validation event
-        BitcoinReporter.reportBlockEvent(
-				Simulation.currentSimulationID,
-        		b.getSimTime_validation(),
-        		b.getSysTime_validation(),
-        		b.getValidationNodeID(),
-                b.getID(),((b.getParent() == null) ? -1 : b.getParent().getID()),
-                b.getHeight(),
-                b.printIDs(";"),
-                "Node Completes Validation",
-                b.getValidationDifficulty(),
-                b.getValidationCycles());
+        BitcoinReporter.reportBlockEvent(b, BlockEvent.VALIDATED, b.getValidationNodeID());
         
         
         b.setParent(node.blockchain.getLongestTip());
@@ -119,25 +83,11 @@ public class HonestNodeBehavior implements NodeBehaviorStrategy {
             //Add block to blockchain
             node.blockchain.addToStructure(b);
             
-            //Propagate a clone of the block to the rest of the network
-            try {
-				node.propagateContainer((ITxContainer) b.clone(), time);
-			} catch (CloneNotSupportedException e) {
-				e.printStackTrace();
-			}
+            //Propagate the block to the rest of the network
+            node.propagateContainer(b, time);
         } else {
         	BitcoinReporter.addErrorEntry("Node::event_NodeCompletesValidation: Block " + b.getID() + " containing " + b.printIDs(",") + " just validated is found to overlap with structure. This shouldn't happen as the node always updates its miningpool.");
-            BitcoinReporter.reportBlockEvent(
-					Simulation.currentSimulationID,
-            		b.getSimTime_validation(),
-            		b.getSysTime_validation()- Simulation.sysStartTime,
-            		b.getValidationNodeID(),
-                    b.getID(),((b.getParent() == null) ? -1 : b.getParent().getID()),
-                    b.getHeight(),
-                    b.printIDs(";"),
-                    "Discarding own Block (ERROR)",
-                    b.getValidationDifficulty(),
-                    b.getValidationCycles());
+            BitcoinReporter.reportBlockEvent(b, BlockEvent.OWN_DISCARDED, b.getValidationNodeID());
             
         }
 
@@ -149,7 +99,7 @@ public class HonestNodeBehavior implements NodeBehaviorStrategy {
 //    private void updateBlockContext(Block b) {
 //        //TODO: updating of context here seems wrong!
 //        //Update context information for reporting
-//        b.getContext().simTime = Simulation.currTime;
+//        b.getContext().simTime = Simulation.getCurrTime();
 //        b.getContext().sysTime = System.currentTimeMillis();
 //        b.getContext().nodeID = node.getID();
 //        b.getContext().blockEvt = "Node Receives Propagated Block";
@@ -165,7 +115,7 @@ public class HonestNodeBehavior implements NodeBehaviorStrategy {
         // Reconstruct mining pool based on the new information.
         node.reconstructMiningPool();
         //Consider starting or stopping mining.
-        node.considerMining(Simulation.currTime);
+        node.considerMining(Simulation.getCurrTime());
         //node.blockchain.printLongestChain();
     }
 
@@ -185,7 +135,7 @@ public class HonestNodeBehavior implements NodeBehaviorStrategy {
         //Reset the next validation event. TODO: why do you do this?
         node.resetNextValidationEvent();
         //Remove the block's transactions from the mining pool.
-        node.removeFromPool(node.miningPool);
+        node.removeFromPool(node.getMiningPool());
         //Reconstruct mining pool, with whatever other transactions are there.
         node.reconstructMiningPool();
         //Consider if it is worth mining.
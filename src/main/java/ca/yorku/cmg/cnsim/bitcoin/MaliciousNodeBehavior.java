@@ -48,21 +48,10 @@ public class MaliciousNodeBehavior implements NodeBehaviorStrategy {
     }
 
     private void startAttack(Block b) {
-        BitcoinReporter.reportBlockEvent(
-				Simulation.currentSimulationID,
-        		Simulation.currTime,
-        		System.currentTimeMillis() - Simulation.sysStartTime,
-        		b.getCurrentNodeID(),
-                b.getID(),
-                ((b.getParent() == null) ? -1 : b.getParent().getID()),
-                b.getHeight(),
-                b.printIDs(";"),
-                "Target Transaction Appeared - Attack Starts", 
-                b.getValidationDifficulty(),
-                b.getValidationCycles());
+        BitcoinReporter.reportBlockEvent(b, BlockEvent.ATTACK_STARTS, node.getID());
         isAttackInProgress = true;
         calculateBlockchainSizeAtAttackStart();
-        Debug.p("Starting attack! at time " + Simulation.currTime);
+        Debug.p("Starting attack! at time " + Simulation.getCurrTime());
     }
 
 
@@ -72,22 +61,7 @@ public class MaliciousNodeBehavior implements NodeBehaviorStrategy {
         
         //updateBlockContext(b);
         
-        b.setCurrentNodeID(node.getID());
-        b.setLastBlockEvent("Node Receives Propagated Block");
-        b.setValidationCycles(-1.0);
-        b.setValidationDifficulty(-1.0);
-     
-        BitcoinReporter.reportBlockEvent(
-				Simulation.currentSimulationID,
-        		Simulation.currTime,
-        		System.currentTimeMillis() - Simulation.sysStartTime,
-        		b.getCurrentNodeID(),
-                b.getID(),
-                ((b.getParent() == null) ? -1 : b.getParent().getID()),b.getHeight(),
-                b.printIDs(";"),
-                b.getLastBlockEvent(), 
-                b.getValidationDifficulty(),
-                b.getValidationCycles());
+        BitcoinReporter.reportBlockEvent(b, BlockEvent.RECEIVED, node.getID());
         
         //TODO: why is this below a t and not a b?
         if (!isAttackInProgress && t.contains(targetTxID)) {
@@ -97,17 +71,7 @@ public class MaliciousNodeBehavior implements NodeBehaviorStrategy {
                 handleNewBlockReceptionInAttack(b);
                 startAttack(b);
             } else { //Does not contain target transaction
-                BitcoinReporter.reportBlockEvent(
-						Simulation.currentSimulationID,
-                		Simulation.currTime,
-                		System.currentTimeMillis() - Simulation.sysStartTime,
-                		b.getCurrentNodeID(),
-                        b.getID(),
-                        ((b.getParent() == null) ? -1 : b.getParent().getID()),b.getHeight(),
-                        b.printIDs(";"),
-                        "Propagated Block Discarded (already exists)", 
-                        b.getValidationDifficulty(),
-                        b.getValidationCycles());
+                BitcoinReporter.reportBlockEvent(b, BlockEvent.DISCARDED_EXISTING, node.getID());
                 //reportBlockEvent(b, "Propagated Block Discarded");
             }
         }
@@ -117,17 +81,7 @@ public class MaliciousNodeBehavior implements NodeBehaviorStrategy {
                 handleNewBlockReceptionInAttack(b);
             } else {
                 //Discard the block and report the event.
-                BitcoinReporter.reportBlockEvent(
-						Simulation.currentSimulationID,
-                		Simulation.currTime,
-                		System.currentTimeMillis() - Simulation.sysStartTime,
-                		b.getCurrentNodeID(),
-                        b.getID(),
-                        ((b.getParent() == null) ? -1 : b.getParent().getID()),b.getHeight(),
-                        b.printIDs(";"),
-                        "Propagated Block Discarded (already exists)", 
-                        b.getValidationDifficulty(),
-                        b.getValidationCycles());
+                BitcoinReporter.reportBlockEvent(b, BlockEvent.DISCARDED_EXISTING, node.getID());
                 //reportBlockEvent(b, "Propagated Block Discarded");
             }
             checkAndRevealHiddenChain(b);
@@ -138,17 +92,7 @@ public class MaliciousNodeBehavior implements NodeBehaviorStrategy {
                 honestBehavior.handleNewBlockReception(b);
             } else {
             	//reportBlockEvent(b, "Propagated Block Discarded");
-                BitcoinReporter.reportBlockEvent(
-						Simulation.currentSimulationID,
-                		Simulation.currTime,
-                		System.currentTimeMillis() - Simulation.sysStartTime,
-                		b.getCurrentNodeID(),
-                        b.getID(),
-                        ((b.getParent() == null) ? -1 : b.getParent().getID()),b.getHeight(),
-                        b.printIDs(";"),
-                        "Propagated Block Discarded (already exists)", 
-                        b.getValidationDifficulty(),
-                        b.getValidationCycles());
+                BitcoinReporter.reportBlockEvent(b, BlockEvent.DISCARDED_EXISTING, node.getID());
             }
 
         }
@@ -160,72 +104,42 @@ public class MaliciousNodeBehavior implements NodeBehaviorStrategy {
     public void event_NodeCompletesValidation(ITxContainer t, long time) {
         if (isAttackInProgress) {
             Block newBlock = (Block) t;
-            newBlock.validateBlock(node.miningPool,
-            		Simulation.currTime, 
-            		System.currentTimeMillis()- Simulation.sysStartTime, 
+            newBlock.validateBlock(node.getMiningPool(),
+            		Simulation.getCurrTime(), 
+            		System.currentTimeMillis()- Simulation.getSysStartTime(), 
             		node.getID(), 
             		"Node Completes Validation", 
             		node.getOperatingDifficulty(), 
             		node.getProspectiveCycles());
             
-            node.completeValidation(node.miningPool, time);
-
-            BitcoinReporter.reportBlockEvent(
-					Simulation.currentSimulationID,
-            		newBlock.getSimTime_validation(),
-            		newBlock.getSysTime_validation() - Simulation.sysStartTime,
-            		newBlock.getValidationNodeID(),
-            		newBlock.getID(),((newBlock.getParent() == null) ? -1 : newBlock.getParent().getID()),
-            		newBlock.getHeight(),
-            		newBlock.printIDs(";"),
-                    "Node Completes Validation",
-                    newBlock.getValidationDifficulty(),
-                    newBlock.getValidationCycles());
+            node.completeValidation(node.getMiningPool(), time);
+
+            BitcoinReporter.reportBlockEvent(newBlock, BlockEvent.VALIDATED, newBlock.getValidationNodeID());
             
             
             if (!node.blockchain.contains(newBlock)) {
                 //reportBlockEvent(newBlock, newBlock.getContext().blockEvt);
-                BitcoinReporter.reportBlockEvent(
-						Simulation.currentSimulationID,
-                		newBlock.getSimTime_validation(),
-                		newBlock.getSysTime_validation() - Simulation.sysStartTime,
-                		newBlock.getValidationNodeID(),
-                		newBlock.getID(),((newBlock.getParent() == null) ? -1 : newBlock.getParent().getID()),
-                		newBlock.getHeight(),
-                		newBlock.printIDs(";"),
-                        "Adding block to hidden chain",
-                        newBlock.getValidationDifficulty(),
-                        newBlock.getValidationCycles());
+                BitcoinReporter.reportBlockEvent(newBlock, BlockEvent.ADDED_TO_HIDDEN_CHAIN, newBlock.getValidationNodeID());
                 hiddenChain.add(newBlock);
             } else {
                 //System.out.println(node.getID()+ " contains " + newBlock.getID() + " in its blockchain in completes validation");
                 //System.out.println(node.getID()+ " contains " + newBlock.getID() + " in its blockchain in completes validation");
                 //reportBlockEvent(newBlock, "Discarding own Block (ERROR)");
-                BitcoinReporter.reportBlockEvent(
-						Simulation.currentSimulationID,
-                		newBlock.getSimTime_validation(),
-                		newBlock.getSysTime_validation() - Simulation.sysStartTime,
-                		newBlock.getValidationNodeID(),
-                		newBlock.getID(),((newBlock.getParent() == null) ? -1 : newBlock.getParent().getID()),
-                		newBlock.getHeight(),
-                		newBlock.printIDs(";"),
-                        "ERROR: Discarding own Block",
-                        newBlock.getValidationDifficulty(),
-                        newBlock.getValidationCycles());
+                BitcoinReporter.reportBlockEvent(newBlock, BlockEvent.OWN_DISCARDED_IN_ATTACK, newBlock.getValidationNodeID());
             }
             manageMiningPostValidation();
             checkAndRevealHiddenChain(newBlock);
         } else { //Attack not in progress
             Block b = (Block) t;
-            b.validateBlock(node.miningPool,
-            		Simulation.currTime, 
-            		System.currentTimeMillis() - Simulation.sysStartTime, 
+            b.validateBlock(node.getMiningPool(),
+            		Simulation.getCurrTime(), 
+            		System.currentTimeMillis() - Simulation.getSysStartTime(), 
             		node.getID(), 
             		"Node Completes Validation", 
             		node.getOperatingDifficulty(), 
             		node.getProspectiveCycles());
-            //node.completeValidation(node.miningPool, time);
-            node.completeValidation(node.miningPool, time);
+            //node.completeValidation(node.getMiningPool(), time);
+            node.completeValidation(node.getMiningPool(), time);
 
 
             
@@ -233,17 +147,7 @@ public class MaliciousNodeBehavior implements NodeBehaviorStrategy {
                 if (!node.blockchain.contains(b)) {
                     //Report validation
                     //reportBlockEvent(b, b.getContext().blockEvt);
-                    BitcoinReporter.reportBlockEvent(
-    						Simulation.currentSimulationID,
-                    		b.getSimTime_validation(),
-                    		b.getSysTime_validation() - Simulation.sysStartTime,
-                    		b.getValidationNodeID(),
-                    		b.getID(),((b.getParent() == null) ? -1 : b.getParent().getID()),
-                    		b.getHeight(),
-                    		b.printIDs(";"),
-                            "Node Completes Validation",
-                            b.getValidationDifficulty(),
-                            b.getValidationCycles());
+                    BitcoinReporter.reportBlockEvent(b, BlockEvent.VALIDATED, b.getValidationNodeID());
                     
                     startAttack(b);
                     node.blockchain.addToStructure(b);
@@ -252,66 +156,31 @@ public class MaliciousNodeBehavior implements NodeBehaviorStrategy {
                     node.stopMining();
                     node.resetNextValidationEvent();
                     node.reconstructMiningPool();
-                    node.miningPool.removeTransaction(targetTxID);
-                    node.considerMining(Simulation.currTime);
+                    node.getMiningPool().removeTransaction(targetTxID);
+                    node.considerMining(Simulation.getCurrTime());
                 } else {
-                    BitcoinReporter.reportBlockEvent(
-    						Simulation.currentSimulationID,
-                    		b.getSimTime_validation(),
-                    		b.getSysTime_validation() - Simulation.sysStartTime,
-                    		b.getValidationNodeID(),
-                    		b.getID(),((b.getParent() == null) ? -1 : b.getParent().getID()),
-                    		b.getHeight(),
-                    		b.printIDs(";"),
-                            "Error: Discarding own Block",
-                            b.getValidationDifficulty(),
-                            b.getValidationCycles());
+                    BitcoinReporter.reportBlockEvent(b, BlockEvent.OWN_DISCARDED_BY_ATTACKER, b.getValidationNodeID());
                     System.out.println(node.getID()+ " contains " + b.getID() + " in its blockchain in completes validation");
                     //reportBlockEvent(b, "Discarding own Block (ERROR)");
                 }
                 node.stopMining();
                 node.resetNextValidationEvent();
                 node.reconstructMiningPool();
-                node.miningPool.removeTransaction(targetTxID);
-                node.considerMining(Simulation.currTime);
+                node.getMiningPool().removeTransaction(targetTxID);
+                node.considerMining(Simulation.getCurrTime());
             } else {
                 b.setParent(node.blockchain.getLongestTip());
                 if (!node.blockchain.contains(b)){
                     //reportBlockEvent(b, b.getContext().blockEvt);
-                    BitcoinReporter.reportBlockEvent(
-    						Simulation.currentSimulationID,
-                    		b.getSimTime_validation(),
-                    		b.getSysTime_validation() - Simulation.sysStartTime,
-                    		b.getValidationNodeID(),
-                    		b.getID(),((b.getParent() == null) ? -1 : b.getParent().getID()),
-                    		b.getHeight(),
-                    		b.printIDs(";"),
-                            "Node Completes Validation",
-                            b.getValidationDifficulty(),
-                            b.getValidationCycles());
+                    BitcoinReporter.reportBlockEvent(b, BlockEvent.VALIDATED, b.getValidationNodeID());
                 	
                     b.setParent(null);
                     node.blockchain.addToStructure(b);
-                    try {
-                    	//Propagate a clone of the block to the rest of the network
-						node.propagateContainer((ITxContainer) b.clone(), time);
-					} catch (CloneNotSupportedException e) {
-						// TODO Auto-generated catch block
-						e.printStackTrace();
-					}
+                    //Propagate the block to the rest of the network
+                    node.propagateContainer(b, time);
                 } else {
                     //reportBlockEvent(b, "Discarding own Block (ERROR)");
-                    BitcoinReporter.reportBlockEvent(
-    						Simulation.currentSimulationID,
-                    		b.getSimTime_validation(),
-                    		b.getSysTime_validation() - Simulation.sysStartTime,
-                    		b.getValidationNodeID(),
-                    		b.getID(),((b.getParent() == null) ? -1 : b.getParent().getID()),
-                    		b.getHeight(),
-                    		b.printIDs(";"),
-                            "Error: Discarding own Block",
-                            b.getValidationDifficulty(),
-                            b.getValidationCycles());
+                    BitcoinReporter.reportBlockEvent(b, BlockEvent.OWN_DISCARDED_BY_ATTACKER, b.getValidationNodeID());
                 }
                 honestBehavior.processPostValidationActivities(time);
             }
@@ -323,19 +192,19 @@ public class MaliciousNodeBehavior implements NodeBehaviorStrategy {
             Block b = hiddenChain.get(i);
             b.parent = i==0 ? lastBlock : hiddenChain.get(i-1);
             node.blockchain.addToStructure(b);
-            node.propagateContainer(b, Simulation.currTime);
+            node.propagateContainer(b, Simulation.getCurrTime());
         }
         isAttackInProgress = false;
         hiddenChain = new ArrayList<Block>();
         node.removeFromPool(targetTxID);
-        Debug.p("Chain reveal! at time " + Simulation.currTime);
+        Debug.p("Chain reveal! at time " + Simulation.getCurrTime());
     }
 
     
     /*
     private void reportBlockEvent(Block b, String blockEvt) {
         BitcoinReporter.reportBlockEvent(
-				Simulation.currentSimulationID,b.getContext().simTime, b.getContext().sysTime  - Simulation.sysStartTime, b.getContext().nodeID,
+				Simulation.getCurrentSimulationID(),b.getContext().simTime, b.getContext().sysTime  - Simulation.getSysStartTime(), b.getContext().nodeID,
                 b.getID(),((b.getParent() == null) ? -1 : b.getParent().getID()),b.getHeight(),b.printIDs(";"),
                 blockEvt, b.getContext().difficulty,b.getContext().cycles);
     }
@@ -343,8 +212,8 @@ public class MaliciousNodeBehavior implements NodeBehaviorStrategy {
     private void updateBlockContext(Block b) {
         //TODO: updating of context here seems wrong!
         //Update context information for reporting
-        b.getContext().simTime = Simulation.currTime;
-        b.getContext().sysTime = System.currentTimeMillis() - Simulation.sysStartTime;
+        b.getContext().simTime = Simulation.getCurrTime();
+        b.getContext().sysTime = System.currentTimeMillis() - Simulation.getSysStartTime();
         b.getContext().nodeID = node.getID();
         b.getContext().blockEvt = "Node Receives Propagated Block";
         b.getContext().cycles = -1;
@@ -366,10 +235,10 @@ public class MaliciousNodeBehavior implements NodeBehaviorStrategy {
     private void manageMiningPostValidation() {
         node.stopMining();
         node.resetNextValidationEvent();
-        node.removeFromPool(node.miningPool);
+        node.removeFromPool(node.getMiningPool());
         node.reconstructMiningPool();
-        node.miningPool.removeTransaction(targetTxID);
-        node.considerMining(Simulation.currTime);
+        node.getMiningPool().removeTransaction(targetTxID);
+        node.considerMining(Simulation.getCurrTime());
     }
 
     private void calculateBlockchainSizeAtAttackStart() {
@@ -384,8 +253,8 @@ public class MaliciousNodeBehavior implements NodeBehaviorStrategy {
     private void handleNewBlockReceptionInAttack(Block b) {
         node.blockchain.addToStructure(b);
         node.reconstructMiningPool();
-        node.miningPool.removeTransaction(targetTxID);
-        node.considerMining(Simulation.currTime);
+        node.getMiningPool().removeTransaction(targetTxID);
+        node.considerMining(Simulation.getCurrTime());
     }
 
     private boolean shouldRevealHiddenChain() {
@@ -396,17 +265,7 @@ public class MaliciousNodeBehavior implements NodeBehaviorStrategy {
     private void checkAndRevealHiddenChain(Block b) {
         publicChainGrowthSinceAttack = node.blockchain.getLongestTip().height - blockchainSizeAtAttackStart;
         if (shouldRevealHiddenChain()) {
-            BitcoinReporter.reportBlockEvent(
-					Simulation.currentSimulationID,
-            		Simulation.currTime,
-            		System.currentTimeMillis() - Simulation.sysStartTime,
-            		b.getCurrentNodeID(),
-                    b.getID(),
-                    ((b.getParent() == null) ? -1 : b.getParent().getID()),b.getHeight(),
-                    b.printIDs(";"),
-                    "Reveal of hidden chain starts here.", 
-                    b.getValidationDifficulty(),
-                    b.getValidationCycles());
+            BitcoinReporter.reportBlockEvent(b, BlockEvent.HIDDEN_CHAIN_REVEALED, node.getID());
             revealHiddenChain();
         }
     }
@@ -0,0 +1,70 @@
+package ca.yorku.cmg.cnsim.bitcoin;
+
+import java.util.Arrays;
+
+import ca.yorku.cmg.cnsim.engine.LongIntHashMap;
+
+/**
+ * An index from transaction ID to the {@linkplain Block}s of a {@linkplain BlockStore} that contain the transaction.
+ * A transaction may be contained in more than one block, each on a different branch; the blocks of each transaction
+ * are kept in a linked list, most recently added first, stored in parallel arrays. Blocks are identified by their
+ * index in the store.
+ *
+ * @author Sotirios Liaskos for the Conceptual Modeling Group @ York University
+ */
+class TxBlockIndex {
+
+	/** Transaction ID to the first entry of its list. */
+	private final LongIntHashMap first = new LongIntHashMap();
+	/** The block (store index) of each entry. */
+	private int[] blocks = new int[64];
+	/** The next entry of the same transaction, or -1. */
+	private int[] next = new int[64];
+	private int entries = 0;
+
+	/**
+	 * Indexes the transactions of a block that was added to the store.
+	 * @param b The block.
+	 * @param index The index of the block in the store.
+	 */
+	void add(Block b, int index) {
+		for (int i = 0; i < b.getCount(); i++) {
+			long txID = b.getTransactionID(i);
+			int entry = entries++;
+			if (entry == next.length) {
+				next = Arrays.copyOf(next, entry * 2);
+				blocks = Arrays.copyOf(blocks, entry * 2);
+			}
+			blocks[entry] = index;
+			next[entry] = first.get(txID, -1);
+			first.put(txID, entry);
+		}
+	}
+
+	/**
+	 * The first entry of a transaction; see {@linkplain #block(int)} and {@linkplain #next(int)}.
+	 * @param txID The ID of the transaction.
+	 * @return The entry, or -1 if no block contains the transaction.
+	 */
+	int first(long txID) {
+		return first.get(txID, -1);
+	}
+
+	/**
+	 * The entry following {@code entry} for the same transaction.
+	 * @param entry An entry.
+	 * @return The next entry, or -1.
+	 */
+	int next(int entry) {
+		return next[entry];
+	}
+
+	/**
+	 * The block of an entry.
+	 * @param entry An entry.
+	 * @return The index of the block in the store.
+	 */
+	int block(int entry) {
+		return blocks[entry];
+	}
+}
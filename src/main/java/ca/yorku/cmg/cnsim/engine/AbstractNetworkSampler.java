@@ -107,8 +107,9 @@ public abstract class AbstractNetworkSampler implements ISowable {
 
 
     public void LoadConfig() {
-        this.setNetThroughputMean(Config.getPropertyFloat("net.throughputMean"));
-        this.setNetThroughputSD(Config.getPropertyFloat("net.throughputSD"));
+        SimConfig config = ConfigInitializer.getSimConfig();
+        this.setNetThroughputMean(config.throughputMean());
+        this.setNetThroughputSD(config.throughputSD());
     }
     
 }
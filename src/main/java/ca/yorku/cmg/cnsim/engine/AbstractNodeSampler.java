@@ -217,16 +217,17 @@ public abstract class AbstractNodeSampler implements IMultiSowable {
 	public abstract void updateSeed();
     
     /**
-     * Load configuration using Config object.
+     * Load configuration from the {@linkplain SimConfig} snapshot.
      */
     public void LoadConfig() {
-        this.setNodeHashPowerMean(Config.getPropertyFloat("pow.hashPowerMean"));
-        this.setNodeHashPowerSD(Config.getPropertyFloat("pow.hashPowerSD"));
-        this.setNodeElectricPowerMean(Config.getPropertyFloat("node.electricPowerMean"));
-        this.setNodeElectricPowerSD(Config.getPropertyFloat("node.electricPowerSD"));
-        this.setNodeElectricCostMean(Config.getPropertyFloat("node.electricCostMean"));
-        this.setNodeElectricCostSD(Config.getPropertyFloat("node.electricCostSD"));
-        this.setCurrentDifficulty(Config.getPropertyDouble("pow.difficulty"));
+        SimConfig config = ConfigInitializer.getSimConfig();
+        this.setNodeHashPowerMean(config.hashPowerMean());
+        this.setNodeHashPowerSD(config.hashPowerSD());
+        this.setNodeElectricPowerMean(config.electricPowerMean());
+        this.setNodeElectricPowerSD(config.electricPowerSD());
+        this.setNodeElectricCostMean(config.electricCostMean());
+        this.setNodeElectricCostSD(config.electricCostSD());
+        this.setCurrentDifficulty(config.difficulty());
     }
     
 	
@@ -182,14 +182,15 @@ public abstract class AbstractTransactionSampler implements ISowable {
     }
 
     /**
-     * Load configuration using Config object.
+     * Load configuration from the {@linkplain SimConfig} snapshot.
      */
     public void LoadConfig() {
-        this.setTxArrivalIntervalRate(Config.getPropertyFloat("workload.lambda")); //How often transactions arrive at the system.
-        this.setTxSizeMean(Config.getPropertyFloat("workload.txSizeMean"));
-        this.setTxSizeSD(Config.getPropertyFloat("workload.txSizeSD"));
-        this.setTxFeeValueMean(Config.getPropertyFloat("workload.txFeeValueMean"));
-        this.setTxFeeValueSD(Config.getPropertyFloat("workload.txFeeValueSD"));
+        SimConfig config = ConfigInitializer.getSimConfig();
+        this.setTxArrivalIntervalRate(config.arrivalRate()); //How often transactions arrive at the system.
+        this.setTxSizeMean(config.txSizeMean());
+        this.setTxSizeSD(config.txSizeSD());
+        this.setTxFeeValueMean(config.txFeeValueMean());
+        this.setTxFeeValueSD(config.txFeeValueSD());
     }
 	
 	//
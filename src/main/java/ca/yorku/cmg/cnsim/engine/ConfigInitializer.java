@@ -19,11 +19,14 @@ import java.nio.file.*;
  * - Loading the configuration file
  * - Overriding config file settings with command line arguments
  * - Validating the resulting configuration
+ * - Building the typed {@linkplain SimConfig} snapshot used by the simulations
  * <p>
  * Command line arguments always take priority over config file settings.
  */
 public class ConfigInitializer {
 
+    private static SimConfig simConfig;
+
     /**
      * Initialize Config with properties based on the provided command line arguments and config file.
      *
@@ -60,15 +63,27 @@ public class ConfigInitializer {
 
         // Initialize Config prop with the properties
         Config.prop.putAll(properties);
-     
-        Reporter.reportEvents(Config.getPropertyBoolean("reporter.reportEvents"));
-        Reporter.reportTransactions(Config.getPropertyBoolean("reporter.reportTransactions"));
-        Reporter.reportNodes(Config.getPropertyBoolean("reporter.reportNodes"));
-        Reporter.reportNetEvents(Config.getPropertyBoolean("reporter.reportNetEvents"));
-        Reporter.reportBeliefs(Config.getPropertyBoolean("reporter.reportBeliefs"));
+
+        // Build and validate the typed snapshot once
+        simConfig = SimConfig.fromProperties(Config.prop);
+
+        Reporter.reportEvents(simConfig.reportEvents());
+        Reporter.reportTransactions(simConfig.reportTransactions());
+        Reporter.reportNodes(simConfig.reportNodes());
+        Reporter.reportNetEvents(simConfig.reportNetEvents());
+        Reporter.reportBeliefs(simConfig.reportBeliefs());
         
     }
 
+    /**
+     * Returns the typed configuration built by the last call to {@linkplain #initialize(String[])}.
+     *
+     * @return The configuration snapshot, or {@code null} if the configuration has not been initialized.
+     */
+    public static SimConfig getSimConfig() {
+        return simConfig;
+    }
+
     /**
      * Validates the combined configuration.
      *
@@ -91,6 +106,16 @@ public class ConfigInitializer {
 
         // Validate sim.numSimulations
         validateIntProperty(properties, "sim.numSimulations", 1, 1);
+
+        // Validate that required properties are present
+        validateRequired(properties);
+    }
+
+    private static void validateRequired(Properties properties) {
+        List<String> missing = SimConfig.missing(properties);
+        if (!missing.isEmpty()) {
+            throw new IllegalArgumentException("Missing required properties: " + String.join(", ", missing));
+        }
     }
 
     private static void validateIntProperty(Properties properties, String key, int defaultValue, int minValue) {
@@ -14,7 +14,7 @@ public class FileBasedNodeSampler extends AbstractNodeSampler {
 	private Queue<Float> nodeElectricPowers = new LinkedList<>();
 	private Queue<Float> nodeHashPowers = new LinkedList<>();
 	private Queue<Float> nodeElectricityCosts = new LinkedList<>();
-	private int requiredNodeLines = Config.getPropertyInt("net.numOfNodes");
+	private int requiredNodeLines = ConfigInitializer.getSimConfig().numOfNodes();
 
 
 	public FileBasedNodeSampler(String nodesFilePath, AbstractNodeSampler nodeSampler) {
@@ -10,7 +10,7 @@ public class FileBasedTransactionSampler extends AbstractTransactionSampler {
 	String transactionsFilePath;
 	AbstractTransactionSampler alternativeSampler = null;
 	
-    private int requiredTransactionLines = Config.getPropertyInt("workload.numTransactions");
+    private int requiredTransactionLines = (int) ConfigInitializer.getSimConfig().numTransactions();
 	private float lastArrivalTime = 0;
     private Queue<Long> transactionSizes = new LinkedList<>();
     private Queue<Float> transactionFeeValues = new LinkedList<>();
@@ -19,4 +19,13 @@ public interface IStructure {
 	 * @return {@code true} if the transaction is part of the structure and {@code false} if it is not 
 	 */
 	boolean transactionInStructure(long txID);
+	
+	
+	/**
+	 * Returns the confirmation depth of a transaction, i.e., the number of blocks (or other units) of the structure that 
+	 * confirm it, counting the one that contains it.
+	 * @param txID The ID of the transaction.
+	 * @return The confirmation depth, or {@code 0} if the transaction is not part of the structure.
+	 */
+	int confirmationDepth(long txID);
 }
@@ -0,0 +1,162 @@
+package ca.yorku.cmg.cnsim.engine;
+
+import java.util.Arrays;
+
+/**
+ * A hash map from {@code long} keys to {@code int} values, stored in two primitive arrays with open addressing
+ * (linear probing), so that lookups, insertions and removals take expected O(1) time without boxing. Used to
+ * index transactions and blocks by ID.
+ * <p>
+ * {@link Long#MIN_VALUE} marks free slots and cannot be used as a key. The map is not thread-safe.
+ *
+ * @author Sotirios Liaskos for the Conceptual Modeling Group @ York University
+ */
+public final class LongIntHashMap {
+
+	private static final long FREE = Long.MIN_VALUE;
+
+	private long[] keys;
+	private int[] values;
+	private int mask;
+	private int size;
+
+	/**
+	 * Creates an empty map.
+	 */
+	public LongIntHashMap() {
+		this(16);
+	}
+
+	/**
+	 * Creates an empty map that can hold {@code expected} entries before it grows.
+	 * @param expected The expected number of entries.
+	 */
+	public LongIntHashMap(int expected) {
+		int capacity = Integer.highestOneBit(Math.max(4, expected) * 2 - 1) << 1;
+		allocate(capacity);
+	}
+
+	private void allocate(int capacity) {
+		keys = new long[capacity];
+		Arrays.fill(keys, FREE);
+		values = new int[capacity];
+		mask = capacity - 1;
+	}
+
+	private int slot(long key) {
+		long h = key * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32)) & mask;
+	}
+
+	private int find(long key) {
+		int i = slot(key);
+		while (keys[i] != FREE) {
+			if (keys[i] == key) {
+				return i;
+			}
+			i = (i + 1) & mask;
+		}
+		return -1 - i;
+	}
+
+	/**
+	 * Returns the value associated with a key.
+	 * @param key The key.
+	 * @param missing The value to return if the key is absent.
+	 * @return The value of the key, or {@code missing}.
+	 */
+	public int get(long key, int missing) {
+		int i = find(key);
+		return (i >= 0) ? values[i] : missing;
+	}
+
+	/**
+	 * Whether the map contains a key.
+	 * @param key The key.
+	 * @return {@code true} if the key is present.
+	 */
+	public boolean containsKey(long key) {
+		return find(key) >= 0;
+	}
+
+	/**
+	 * Associates a value with a key, replacing any previous value.
+	 * @param key The key; must not be {@link Long#MIN_VALUE}.
+	 * @param value The value.
+	 */
+	public void put(long key, int value) {
+		if (key == FREE) {
+			throw new IllegalArgumentException("Key " + key + " is reserved.");
+		}
+		int i = find(key);
+		if (i >= 0) {
+			values[i] = value;
+			return;
+		}
+		i = -1 - i;
+		keys[i] = key;
+		values[i] = value;
+		if (++size * 4 > keys.length * 3) {
+			grow();
+		}
+	}
+
+	/**
+	 * Removes a key.
+	 * @param key The key.
+	 * @return {@code true} if the key was present.
+	 */
+	public boolean remove(long key) {
+		int i = find(key);
+		if (i < 0) {
+			return false;
+		}
+		// Shift back the entries that follow in the same probe sequence, so that no tombstones are needed.
+		int j = i;
+		while (true) {
+			j = (j + 1) & mask;
+			if (keys[j] == FREE) {
+				break;
+			}
+			int home = slot(keys[j]);
+			boolean movable = (i <= j) ? (home <= i || home > j) : (home <= i && home > j);
+			if (movable) {
+				keys[i] = keys[j];
+				values[i] = values[j];
+				i = j;
+			}
+		}
+		keys[i] = FREE;
+		size--;
+		return true;
+	}
+
+	/**
+	 * Removes all entries.
+	 */
+	public void clear() {
+		Arrays.fill(keys, FREE);
+		size = 0;
+	}
+
+	/**
+	 * The number of entries in the map.
+	 * @return The number of entries.
+	 */
+	public int size() {
+		return size;
+	}
+
+	private void grow() {
+		long[] oldKeys = keys;
+		int[] oldValues = values;
+		allocate(keys.length * 2);
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldKeys[i] != FREE) {
+				int j = -1 - find(oldKeys[i]);
+				keys[j] = oldKeys[i];
+				values[j] = oldValues[i];
+			}
+		}
+	}
+}
@@ -57,7 +57,7 @@ public class NodeSamplerFactory {
         //Schedule the switchover events
     	if (hasSwitchTimes) {
     		if (!hasNodeSeeds) {
-    			throw new Exception("Error in NodeSamplerFactory: seed switch times given (" + Config.getPropertyString("node.sampler.seedUpdateTimes") +  ") but not seeds to switch around.");
+    			throw new Exception("Error in NodeSamplerFactory: seed switch times given (" + changeTimes +  ") but not seeds to switch around.");
     		} else {
     	        //Schedule seed change events
     	        for (int i = 0; i < switchTimes.length; i++) {
@@ -0,0 +1,969 @@
+package ca.yorku.cmg.cnsim.engine;
+
+import ca.yorku.cmg.cnsim.engine.event.Event;
+import ca.yorku.cmg.cnsim.engine.event.EventQueue;
+import ca.yorku.cmg.cnsim.engine.event.EventQueueFactory;
+import ca.yorku.cmg.cnsim.engine.event.Event_Multicast;
+import ca.yorku.cmg.cnsim.engine.node.INode;
+import ca.yorku.cmg.cnsim.engine.reporter.RunMetrics;
+import ca.yorku.cmg.cnsim.engine.reporter.SpillReportBuffer;
+import ca.yorku.cmg.cnsim.engine.transaction.TransactionTable;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CyclicBarrier;
+import java.util.function.Supplier;
+
+/**
+ * A {@linkplain Simulation} whose events are processed by several threads, following a conservative parallel
+ * discrete-event scheme that advances in windows. The nodes are partitioned among the threads (round robin by ID);
+ * each partition has its own {@linkplain EventQueue} holding the events that happen at its nodes. Events that concern
+ * the simulation as a whole (see {@linkplain Event#getNode()}), such as belief reports, are kept in an additional
+ * global partition.
+ * <p>
+ * Events scheduled for a node of another partition must be at least {@code lookahead} ms in the future, as is the case
+ * for propagation over the network. Hence, if {@code T} is the time of the earliest pending node event, no event
+ * scheduled from now on can precede an event of time up to {@code T + lookahead}: all of these form a window, which the
+ * partitions process concurrently, each in the order of its own queue. Events scheduled during a window are kept by
+ * the partition that scheduled them and queued, with their sequence numbers, at the barrier that ends the window.
+ * An event a partition schedules for itself may fall within the window; no partition then passes its time in the window,
+ * and a partition only starts an event once the others have reached its time (see {@linkplain #awaitTime(Partition)}),
+ * so that every event processed in a window precedes those left to later windows. At the barrier the global events that precede
+ * all node events are processed, and the next window is computed; a window also ends before the next global event.
+ * <p>
+ * The simulation produces exactly the output of the sequential engine. Sequence numbers are handed out at the barrier,
+ * in the global order of the events that scheduled, so scheduling needs no coordination. Operations whose outcome
+ * depends on the order of events across nodes, namely sampling, ID generation and reading the latest known event time,
+ * are executed in the global order of events: the calling event waits for its turn, i.e., until every other partition
+ * has moved past it in the window. Events that only touch the state of their own node (see {@linkplain Event#isNodeLocal()})
+ * run concurrently up to the first operation that waits; the rest wait for their turn before they start. The log lines
+ * of each partition are written to a file of its own (see {@linkplain SpillReportBuffer}) and merged in event order at
+ * the end of the run.
+ * <p>
+ * The number of partitions and the lookahead are given by the {@code sim.partitions} and {@code sim.lookahead}
+ * configuration properties (see {@linkplain SimConfig}). A lookahead of 0 is always correct, windows then cover a single
+ * time; larger values allow more concurrency but must not exceed the smallest delay of an event scheduled for another
+ * node, or the run fails. If {@code sim.lookahead} is not given, the lookahead is derived when the run starts
+ * (see {@linkplain #deriveLookahead()}).
+ *
+ * @author Sotirios Liaskos for the Conceptual Modeling Group @ York University
+ */
+public class ParallelSimulation extends Simulation {
+
+	private final int numPartitions;
+	// The lookahead in use; derived when the run starts if not given.
+	private long lookahead;
+	private final boolean derivedLookahead;
+
+	// Node partitions followed by the global partition.
+	private final Partition[] partitions;
+	private final Partition global;
+
+	// The current window: node events preceding (boundTime, boundSeq). Set at the barrier.
+	private CyclicBarrier barrier;
+	private long boundTime;
+	private long boundSeq;
+	private boolean done = false;
+
+	// The partition whose scheduled events are being queued at the barrier, and the time at which they were scheduled.
+	private Partition source = null;
+	private long sourceTime;
+
+	// Partitions waiting for their turn wait on the lock.
+	private final Object lock = new Object();
+	private volatile int waiters = 0;
+	private volatile Throwable failure = null;
+
+
+	/**
+	 * Creates a parallel simulation with the number of partitions and lookahead given in the configuration.
+	 *
+	 * @param simID The ID of the simulation (replication).
+	 */
+	public ParallelSimulation(int simID) {
+		this(simID, ConfigInitializer.getSimConfig());
+	}
+
+	/**
+	 * Creates a parallel simulation with the number of partitions and lookahead given in a configuration.
+	 *
+	 * @param simID The ID of the simulation (replication).
+	 * @param config The configuration of the simulation.
+	 */
+	public ParallelSimulation(int simID, SimConfig config) {
+		this(simID, config, config.partitions(), config.lookahead());
+	}
+
+	/**
+	 * @param simID The ID of the simulation (replication).
+	 * @param numPartitions The number of partitions of the nodes, i.e., of threads processing node events.
+	 * @param lookahead The minimum delay (ms) of an event scheduled for a node of another partition.
+	 */
+	public ParallelSimulation(int simID, int numPartitions, long lookahead) {
+		this(simID, ConfigInitializer.getSimConfig(), numPartitions, lookahead);
+	}
+
+	/**
+	 * @param simID The ID of the simulation (replication).
+	 * @param config The configuration of the simulation.
+	 * @param numPartitions The number of partitions of the nodes, i.e., of threads processing node events.
+	 * @param lookahead The minimum delay (ms) of an event scheduled for a node of another partition.
+	 */
+	public ParallelSimulation(int simID, SimConfig config, int numPartitions, long lookahead) {
+		this(simID, config, numPartitions, Long.valueOf(lookahead));
+	}
+
+	/**
+	 * @param lookahead The minimum delay (ms) of an event scheduled for a node of another partition, or {@code null} to derive it.
+	 */
+	private ParallelSimulation(int simID, SimConfig config, int numPartitions, Long lookahead) {
+		super(simID, config);
+		if (numPartitions < 1) {
+			throw new IllegalArgumentException("Number of partitions must be positive: " + numPartitions);
+		}
+		if (lookahead != null && lookahead < 0) {
+			throw new IllegalArgumentException("Lookahead must not be negative: " + lookahead);
+		}
+		this.numPartitions = numPartitions;
+		this.lookahead = (lookahead == null) ? 0 : lookahead;
+		this.derivedLookahead = (lookahead == null);
+		this.partitions = new Partition[numPartitions + 1];
+		for (int i = 0; i <= numPartitions; i++) {
+			partitions[i] = new Partition(i, i == numPartitions, EventQueueFactory.createEventQueue(config.eventQueue()));
+		}
+		this.global = partitions[numPartitions];
+		this.queue = new PartitionedEventQueue();
+	}
+
+	public int getNumPartitions() {
+		return numPartitions;
+	}
+
+	/**
+	 * @return The lookahead (ms); if it is derived, the derived value once the run has started.
+	 */
+	public long getLookahead() {
+		return lookahead;
+	}
+
+	/**
+	 * Derives the lookahead from the network and the workload: the smallest delay with which a node can schedule an
+	 * event for another node. Every message between nodes carries at least one transaction of the workload: a transaction
+	 * arrives after its transfer plus {@code net.propagationTime}, a container, such as a block, which holds at least one
+	 * transaction, after its transfer. The transfer of the smallest transaction over the fastest link (see
+	 * {@linkplain ca.yorku.cmg.cnsim.engine.network.AbstractNetwork#getMinPropagationTime(float)}) bounds both.
+	 *
+	 * @return The lookahead (ms).
+	 */
+	protected long deriveLookahead() {
+		float size = getMinTransactionSize();
+		if (getNetwork() == null || size == Float.POSITIVE_INFINITY) {
+			// No transactions, hence no propagation.
+			return getConfig().propagationTime();
+		}
+		return Math.max(0, getNetwork().getMinPropagationTime(size));
+	}
+
+
+	/**
+	 * @deprecated
+	 */
+	public void ____________Shared_State() {}
+
+	/**
+	 * Schedules an event. Within a window, the event is kept by the partition of the scheduling event and is stamped and
+	 * queued at the end of the window, see {@linkplain #commit()}.
+	 */
+	@Override
+	public void schedule(Event e) {
+		Partition p = currentPartition();
+		if (p == null || p.global) {
+			super.schedule(e);
+		} else {
+			long min = p.minDeferredTime;
+			p.defer(e);
+			if (p.minDeferredTime < min) {
+				wake();
+			}
+		}
+	}
+
+	/**
+	 * Queues the event in the partition of its node. A multicast is split into one multicast per partition
+	 * of its recipients, so that its deliveries are re-inserted into the queue of the partition processing them.
+	 */
+	@Override
+	protected void enqueue(Event e) {
+		if (e instanceof Event_Multicast m) {
+			for (Event_Multicast part : m.split(this::partitionIndex)) {
+				queue.add(part);
+			}
+		} else {
+			queue.add(e);
+		}
+	}
+
+	/**
+	 * Cancels an event without waiting for the turn. Within a window, only the events of the partition of the caller,
+	 * queued or scheduled during the window, can be canceled.
+	 */
+	@Override
+	public boolean cancel(Event e) {
+		Partition p = currentPartition();
+		if (p == null || p.global) {
+			return super.cancel(e);
+		}
+		if (p.cancelDeferred(e)) {
+			p.cancelled++;
+			return true;
+		}
+		if (partitionOf(e) != p) {
+			throw new IllegalStateException("Event " + e.getClass().getSimpleName() + " at time " + e.getTime()
+					+ " belongs to another partition and cannot be canceled by an event of partition " + p.index + ".");
+		}
+		if (p.queue.remove(e)) {
+			p.cancelled++;
+			return true;
+		}
+		return false;
+	}
+
+	@Override
+	public long getNumEventsCancelled() {
+		long n = super.getNumEventsCancelled();
+		for (Partition p : partitions) {
+			n += p.cancelled;
+		}
+		return n;
+	}
+
+	@Override
+	public Sampler getSampler() {
+		awaitTurn();
+		return super.getSampler();
+	}
+
+	/**
+	 * Within a window, the latest time of the events scheduled up to the current event: those scheduled before the window
+	 * and those scheduled during the window by events that precede the current one, in any partition.
+	 */
+	@Override
+	public long getLatestKnownEventTime() {
+		Partition p = currentPartition();
+		if (p == null || p.global) {
+			return super.getLatestKnownEventTime();
+		}
+		awaitTurn();
+		long latest = super.getLatestKnownEventTime();
+		for (int i = 0; i < numPartitions; i++) {
+			latest = Math.max(latest, partitions[i].latestScheduledUpTo(p.current));
+		}
+		return latest;
+	}
+
+	/**
+	 * Blocks the event being processed in the current thread until all events of the window that precede it have
+	 * finished. Returns immediately outside windows (e.g., during setup or at the barrier) and if the event already holds the turn.
+	 */
+	private void awaitTurn() {
+		Partition p = currentPartition();
+		if (p == null || p.global || p.turn) {
+			return;
+		}
+		if (!isEarliest(p)) {
+			synchronized (lock) {
+				waiters++;
+				try {
+					while (!isEarliest(p)) {
+						await();
+					}
+				} finally {
+					waiters--;
+				}
+			}
+		}
+		p.turn = true;
+	}
+
+	/**
+	 * Every other partition has moved past the event in progress in {@code p}.
+	 */
+	private boolean isEarliest(Partition p) {
+		for (int i = 0; i < numPartitions; i++) {
+			Partition q = partitions[i];
+			if (q != p && !p.current.precedes(q.progress)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Wakes up the partitions waiting for their turn, if any, after the progress of a partition has changed.
+	 */
+	private void wake() {
+		if (waiters > 0) {
+			synchronized (lock) {
+				lock.notifyAll();
+			}
+		}
+	}
+
+	/**
+	 * Returns the partition processed by the current thread, or {@code null} if the thread does not process events of this simulation.
+	 */
+	private Partition currentPartition() {
+		SimulationContext ctx = SimulationContext.current();
+		if (ctx instanceof WorkerContext w && w.owner() == this) {
+			return w.partition;
+		}
+		return null;
+	}
+
+	private Partition partitionOf(Event e) {
+		INode n = e.getNode();
+		return (n == null) ? global : partitions[partitionIndex(n)];
+	}
+
+	private int partitionIndex(INode n) {
+		return Math.floorMod(n.getID() - 1, numPartitions);
+	}
+
+	/**
+	 * Verifies that an event scheduled by an event of partition {@code from} at the given time may be queued in partition
+	 * {@code target}, i.e., that the target partition cannot have processed, in the same window, any event following it.
+	 */
+	private void checkRemoteAccess(Partition from, Partition target, Event e, long now) {
+		if (from == target) {
+			return;
+		}
+		if (target.global) {
+			throw new IllegalStateException("Event " + e.getClass().getSimpleName() + " at time " + e.getTime()
+					+ " concerns the whole simulation and cannot be scheduled by an event of a node.");
+		}
+		if (e.getTime() < now + lookahead) {
+			throw new IllegalStateException("Event " + e.getClass().getSimpleName() + " at time " + e.getTime()
+					+ " is scheduled for another partition within the lookahead (" + lookahead + " ms) of the current time " + now
+					+ ". Reduce sim.lookahead.");
+		}
+	}
+
+
+	/**
+	 * @deprecated
+	 */
+	public void ____________Main_Loop() {}
+
+	/**
+	 * Runs the main loop of the simulation, one thread per node partition, until no partition has events
+	 * up to the termination time. The log lines of the partitions are then merged in event order.
+	 */
+	@Override
+	public void run() {
+		SimulationContext ctx = getContext();
+		ctx.setSysStartTime(System.currentTimeMillis());
+		if (derivedLookahead) {
+			lookahead = deriveLookahead();
+		}
+		for (Partition p : partitions) {
+			p.context = new WorkerContext(p, ctx);
+		}
+		barrier = new CyclicBarrier(numPartitions, this::advance);
+		Thread[] threads = new Thread[numPartitions];
+		for (int i = 0; i < numPartitions; i++) {
+			Partition p = partitions[i];
+			threads[i] = new Thread(() -> work(p), "sim" + getSimID() + "-partition" + p.index);
+			threads[i].start();
+		}
+		try {
+			for (Thread t : threads) {
+				t.join();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			fail(e);
+			throw new RuntimeException("Interrupted while waiting for partitions", e);
+		}
+		if (failure instanceof RuntimeException re) {
+			throw re;
+		} else if (failure instanceof Error err) {
+			throw err;
+		} else if (failure != null) {
+			throw new RuntimeException("Partition failed", failure);
+		}
+		mergePartitions();
+		ctx.setSysEndTime(System.currentTimeMillis());
+	}
+
+	/**
+	 * Processes the windows of a node partition. A failing event ends the run at the next barrier.
+	 */
+	private void work(Partition p) {
+		SimulationContext.set(p.context);
+		try {
+			while (true) {
+				barrier.await();
+				if (done) {
+					break;
+				}
+				try {
+					processWindow(p);
+				} catch (Throwable t) {
+					fail(t);
+				}
+				p.progress = Key.DONE;
+				wake();
+			}
+		} catch (BrokenBarrierException e) {
+			// Another partition failed at the barrier and reported it.
+		} catch (Throwable t) {
+			fail(t);
+		} finally {
+			SimulationContext.clear();
+		}
+	}
+
+	/**
+	 * Processes the events of a partition that belong to the current window, in order.
+	 */
+	private void processWindow(Partition p) {
+		Event e;
+		while ((e = p.queue.peek()) != null && inWindow(p, e)) {
+			p.current = new Key(e.getTime(), e.getSeq());
+			p.progress = p.current;
+			wake();
+			if (!awaitTime(p)) {
+				break;
+			}
+			p.queue.poll();
+			p.turn = false;
+			if (!e.isNodeLocal()) {
+				awaitTurn();
+			}
+			process(p, e);
+		}
+	}
+
+	/**
+	 * Blocks the event at the head of the queue of {@code p} until every other partition has reached its time, so that no
+	 * partition can still schedule, in the window, an event for itself that precedes it. Such an event would only be
+	 * processed in a later window; the event at the head is then left to a later window too.
+	 *
+	 * @return {@code false} if the event must wait for a later window.
+	 */
+	private boolean awaitTime(Partition p) {
+		long t = p.current.time;
+		while (true) {
+			boolean reached = true;
+			for (int i = 0; i < numPartitions; i++) {
+				Partition q = partitions[i];
+				if (q != p) {
+					if (q.minDeferredTime < t) {
+						return false;
+					}
+					reached &= (q.progress.time >= t);
+				}
+			}
+			if (reached) {
+				return true;
+			}
+			synchronized (lock) {
+				waiters++;
+				try {
+					if (!hasReached(p, t)) {
+						await();
+					}
+				} finally {
+					waiters--;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Every other partition is at time {@code t} or later, or has scheduled an event preceding it.
+	 */
+	private boolean hasReached(Partition p, long t) {
+		for (int i = 0; i < numPartitions; i++) {
+			Partition q = partitions[i];
+			if (q != p && q.progress.time < t && q.minDeferredTime >= t) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * The event, at the head of the queue of {@code p}, belongs to the current window and does not follow an event that
+	 * {@code p} has scheduled in the window.
+	 */
+	private boolean inWindow(Partition p, Event e) {
+		return e.getTime() <= getTerminationTime() && precedes(e, boundTime, boundSeq) && e.getTime() <= p.minDeferredTime;
+	}
+
+	private void process(Partition p, Event e) {
+		p.context.setCurrTime(e.getTime());
+		p.buffer.mark(e.getTime(), e.getSeq());
+		p.record(e);
+		e.happen(this);
+	}
+
+	/**
+	 * The action of the barrier, run by the last partition to reach it while all others wait: queues the events scheduled
+	 * in the window, processes the global events that precede all node events and sets up the next window.
+	 */
+	private void advance() {
+		if (failure != null) {
+			done = true;
+			return;
+		}
+		SimulationContext own = SimulationContext.current();
+		SimulationContext.set(global.context);
+		try {
+			commit();
+			while (true) {
+				Event first = null;
+				for (int i = 0; i < numPartitions; i++) {
+					Event h = partitions[i].queue.peek();
+					if (h != null && h.getTime() <= getTerminationTime() && (first == null || precedes(h, first.getTime(), first.getSeq()))) {
+						first = h;
+					}
+				}
+				Event g = global.queue.peek();
+				if (g != null && g.getTime() > getTerminationTime()) {
+					g = null;
+				}
+				if (g != null && (first == null || precedes(g, first.getTime(), first.getSeq()))) {
+					global.queue.poll();
+					process(global, g);
+					continue;
+				}
+				if (first == null) {
+					done = true;
+					return;
+				}
+				boundTime = (lookahead > Long.MAX_VALUE - first.getTime()) ? Long.MAX_VALUE : first.getTime() + lookahead;
+				boundSeq = Long.MAX_VALUE;
+				if (g != null && precedes(g, boundTime, boundSeq)) {
+					boundTime = g.getTime();
+					boundSeq = g.getSeq();
+				}
+				for (int i = 0; i < numPartitions; i++) {
+					Partition p = partitions[i];
+					p.minDeferredTime = Long.MAX_VALUE;
+					Event h = p.queue.peek();
+					p.progress = (h != null && inWindow(p, h)) ? new Key(h.getTime(), h.getSeq()) : Key.DONE;
+				}
+				return;
+			}
+		} finally {
+			SimulationContext.set(own);
+		}
+	}
+
+	/**
+	 * Stamps and queues the events scheduled during the window, in the global order of the events that scheduled them,
+	 * so that they receive the sequence numbers of the sequential engine.
+	 */
+	private void commit() {
+		int[] next = new int[numPartitions];
+		int[] item = new int[numPartitions];
+		while (true) {
+			Partition from = null;
+			Record first = null;
+			for (int i = 0; i < numPartitions; i++) {
+				Partition p = partitions[i];
+				if (next[i] < p.records.size()) {
+					Record r = p.records.get(next[i]);
+					if (first == null || r.key.precedes(first.key)) {
+						from = p;
+						first = r;
+					}
+				}
+			}
+			if (from == null) {
+				break;
+			}
+			source = from;
+			sourceTime = first.key.time;
+			for (int k = item[from.index]; k < first.end; k++) {
+				Event e = from.deferred.get(k);
+				stamp(e);
+				if (!from.cancelledDeferred.get(k)) {
+					enqueue(e);
+				}
+			}
+			item[from.index] = first.end;
+			next[from.index]++;
+		}
+		source = null;
+		for (int i = 0; i < numPartitions; i++) {
+			partitions[i].clearDeferred();
+		}
+	}
+
+	private static boolean precedes(Event a, long time, long seq) {
+		return (a.getTime() < time) || (a.getTime() == time && a.getSeq() < seq);
+	}
+
+	/**
+	 * Waits for a change of the progress of the partitions. Must hold the lock.
+	 */
+	private void await() {
+		if (failure != null) {
+			throw new IllegalStateException("Simulation #" + getSimID() + " aborted", failure);
+		}
+		try {
+			lock.wait();
+		} catch (InterruptedException e) {
+			fail(e);
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Simulation #" + getSimID() + " interrupted", e);
+		}
+		if (failure != null) {
+			throw new IllegalStateException("Simulation #" + getSimID() + " aborted", failure);
+		}
+	}
+
+	/**
+	 * Records the first failure and wakes up all partitions waiting for their turn, so that they abort.
+	 * The run ends at the next barrier.
+	 */
+	private void fail(Throwable t) {
+		synchronized (lock) {
+			if (failure == null) {
+				failure = t;
+			}
+			lock.notifyAll();
+		}
+	}
+
+	/**
+	 * Numbers the processed events in global (time, sequence) order, merges the log lines of the partitions
+	 * into the buffer of the run and updates the clock and statistics as the sequential loop would.
+	 */
+	private void mergePartitions() {
+		SimulationContext ctx = getContext();
+		SpillReportBuffer[] buffers = new SpillReportBuffer[partitions.length];
+		long eventIDs = 0;
+		long lastTime = ctx.getCurrTime();
+		for (Partition p : partitions) {
+			buffers[p.index] = p.buffer;
+			eventIDs += p.context.getEventIDsUsed();
+			numEventsProcessed += p.processed;
+			numIgnoredEventsProcessed += p.ignored;
+			if (p.processed > 0) {
+				lastTime = Math.max(lastTime, p.lastTime);
+			}
+		}
+
+		SpillReportBuffer.mergeInto(ctx.getReportBuffer(), buffers, ctx.getEventIDsUsed());
+		ctx.skipEventIDs(eventIDs);
+
+		Event first = null;
+		for (Partition p : partitions) {
+			Event h = p.queue.peek();
+			if (h != null && (first == null || precedes(h, first.getTime(), first.getSeq()))) {
+				first = h;
+			}
+		}
+		if (first != null) {
+			// The sequential loop takes the first event past the termination time out of the queue before it stops.
+			numEventsProcessed++;
+			ctx.setCurrTime(first.getTime());
+			System.out.println("\n\n    Sim #" + this.getSimID() + ": reached termination time. Ignoring remaining queue and exiting.");
+		} else {
+			ctx.setCurrTime(lastTime);
+		}
+	}
+
+
+	/**
+	 * The time and sequence number of an event, ordering events as they are processed.
+	 */
+	private static final class Key {
+		static final Key DONE = new Key(Long.MAX_VALUE, Long.MAX_VALUE);
+
+		final long time;
+		final long seq;
+
+		Key(long time, long seq) {
+			this.time = time;
+			this.seq = seq;
+		}
+
+		boolean precedes(Key k) {
+			return (time < k.time) || (time == k.time && seq < k.seq);
+		}
+	}
+
+	/**
+	 * The events scheduled during a window by an event of a partition: those up to position {@code end} of the deferred
+	 * events of the partition, following those of the previous record. {@code latest} is the latest time of the events
+	 * scheduled by this and all previous events of the partition in the window.
+	 */
+	private static final class Record {
+		final Key key;
+		int end;
+		long latest;
+
+		Record(Key key, long latest) {
+			this.key = key;
+			this.latest = latest;
+		}
+	}
+
+	/**
+	 * The events of a set of nodes, along with the thread state processing them.
+	 */
+	private static class Partition {
+		final int index;
+		final boolean global;
+		final EventQueue queue;
+		final SpillReportBuffer buffer = new SpillReportBuffer();
+		SimulationContext context;
+
+		// The event being processed, whether it holds the turn, and the event the partition is at in the window:
+		// the event being processed or the next one, or DONE once the partition has finished the window.
+		Key current = null;
+		boolean turn = false;
+		volatile Key progress = Key.DONE;
+
+		// The events scheduled in the window, by scheduling event, and the earliest of them.
+		final ArrayList<Event> deferred = new ArrayList<>();
+		final BitSet cancelledDeferred = new BitSet();
+		final ArrayList<Record> records = new ArrayList<>();
+		volatile long minDeferredTime = Long.MAX_VALUE;
+
+		// The number of processed and canceled events and the time of the last processed one.
+		int processed = 0;
+		long ignored = 0;
+		long cancelled = 0;
+		long lastTime;
+
+		Partition(int index, boolean global, EventQueue queue) {
+			this.index = index;
+			this.global = global;
+			this.queue = queue;
+		}
+
+		void record(Event e) {
+			lastTime = e.getTime();
+			processed++;
+			if (e.ignoreEvt()) {
+				ignored++;
+			}
+		}
+
+		/**
+		 * Keeps an event scheduled by the current event until the end of the window.
+		 */
+		void defer(Event e) {
+			long last = (e instanceof Event_Multicast m) ? m.getLastTime() : e.getTime();
+			synchronized (records) {
+				Record r = records.isEmpty() ? null : records.get(records.size() - 1);
+				if (r == null || r.key != current) {
+					r = new Record(current, (r == null) ? Long.MIN_VALUE : r.latest);
+					records.add(r);
+				}
+				deferred.add(e);
+				r.end = deferred.size();
+				r.latest = Math.max(r.latest, last);
+			}
+			minDeferredTime = Math.min(minDeferredTime, e.getTime());
+		}
+
+		/**
+		 * Cancels an event scheduled during the window. It keeps its sequence numbers, but is not queued.
+		 * @return {@code true} if the event was scheduled in the window and not canceled yet.
+		 */
+		boolean cancelDeferred(Event e) {
+			for (int k = deferred.size() - 1; k >= 0; k--) {
+				if (deferred.get(k) == e) {
+					if (cancelledDeferred.get(k)) {
+						return false;
+					}
+					cancelledDeferred.set(k);
+					return true;
+				}
+			}
+			return false;
+		}
+
+		/**
+		 * The latest time of the events scheduled in the window by events of the partition up to a given one.
+		 */
+		long latestScheduledUpTo(Key k) {
+			synchronized (records) {
+				for (int i = records.size() - 1; i >= 0; i--) {
+					Record r = records.get(i);
+					if (!k.precedes(r.key)) {
+						return r.latest;
+					}
+				}
+				return Long.MIN_VALUE;
+			}
+		}
+
+		void clearDeferred() {
+			synchronized (records) {
+				deferred.clear();
+				cancelledDeferred.clear();
+				records.clear();
+			}
+		}
+	}
+
+
+	/**
+	 * The context of a partition thread. Clocks and the report buffer are its own; node, transaction and other
+	 * IDs are handed out by the context of the run, in event order.
+	 */
+	private class WorkerContext extends SimulationContext {
+		private final Partition partition;
+		private final SimulationContext parent;
+
+		WorkerContext(Partition partition, SimulationContext parent) {
+			super(parent.getSimID(), partition.buffer);
+			this.partition = partition;
+			this.parent = parent;
+			setSysStartTime(parent.getSysStartTime());
+		}
+
+		ParallelSimulation owner() {
+			return ParallelSimulation.this;
+		}
+
+		@Override
+		public int nextNodeID() {
+			awaitTurn();
+			return parent.nextNodeID();
+		}
+
+		@Override
+		public void resetNodeID() {
+			awaitTurn();
+			parent.resetNodeID();
+		}
+
+		@Override
+		public int nextTxID() {
+			awaitTurn();
+			return parent.nextTxID();
+		}
+
+		@Override
+		public int getCurrTxID() {
+			awaitTurn();
+			return parent.getCurrTxID();
+		}
+
+		@Override
+		public void resetTxID() {
+			awaitTurn();
+			parent.resetTxID();
+		}
+
+		@Override
+		public int nextID(Class<?> kind) {
+			awaitTurn();
+			return parent.nextID(kind);
+		}
+
+		@Override
+		public int getCurrID(Class<?> kind) {
+			awaitTurn();
+			return parent.getCurrID(kind);
+		}
+
+		@Override
+		public void setCurrID(Class<?> kind, int id) {
+			awaitTurn();
+			parent.setCurrID(kind, id);
+		}
+
+		@Override
+		public <T> T getShared(Class<T> kind, Supplier<? extends T> factory) {
+			awaitTurn();
+			return parent.getShared(kind, factory);
+		}
+
+		@Override
+		public TransactionTable getTransactionTable() {
+			// Created while the run is set up, and only read while it runs.
+			return parent.getTransactionTable();
+		}
+
+		@Override
+		public RunMetrics getMetrics() {
+			// Metrics are synchronized and commute, so partitions record without waiting for their turn.
+			return parent.getMetrics();
+		}
+	}
+
+
+	/**
+	 * Routes events to the queues of the partitions. Within a window, a partition only re-inserts its own multicasts
+	 * (see {@linkplain Event_Multicast}); events are otherwise added outside windows or at the barrier.
+	 */
+	private class PartitionedEventQueue implements EventQueue {
+
+		@Override
+		public void add(Event e) {
+			Partition target = partitionOf(e);
+			Partition p = currentPartition();
+			if (p != null && !p.global && target != p) {
+				throw new IllegalStateException("Event " + e.getClass().getSimpleName() + " at time " + e.getTime()
+						+ " must be scheduled, not added to the queue of another partition.");
+			}
+			if (source != null) {
+				checkRemoteAccess(source, target, e, sourceTime);
+			}
+			target.queue.add(e);
+		}
+
+		@Override
+		public Event poll() {
+			Partition p = earliest();
+			return (p == null) ? null : p.queue.poll();
+		}
+
+		@Override
+		public Event peek() {
+			Partition p = earliest();
+			return (p == null) ? null : p.queue.peek();
+		}
+
+		@Override
+		public boolean remove(Event e) {
+			Partition target = partitionOf(e);
+			Partition p = currentPartition();
+			if (p != null && !p.global && target != p) {
+				throw new IllegalStateException("Event " + e.getClass().getSimpleName() + " at time " + e.getTime()
+						+ " belongs to another partition and cannot be removed by an event of partition " + p.index + ".");
+			}
+			return target.queue.remove(e);
+		}
+
+		@Override
+		public int size() {
+			int size = 0;
+			for (Partition p : partitions) {
+				size += p.queue.size();
+			}
+			return size;
+		}
+
+		private Partition earliest() {
+			Partition best = null;
+			for (Partition p : partitions) {
+				Event h = p.queue.peek();
+				if (h != null && (best == null || precedes(h, best.queue.peek().getTime(), best.queue.peek().getSeq()))) {
+					best = p;
+				}
+			}
+			return best;
+		}
+	}
+}
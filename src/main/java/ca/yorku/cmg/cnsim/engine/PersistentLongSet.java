@@ -0,0 +1,152 @@
+package ca.yorku.cmg.cnsim.engine;
+
+/**
+ * An immutable set of {@code long} values, stored as a hash array mapped trie. Adding a value returns a new set that
+ * shares all but the O(log<sub>32</sub> n) nodes on the path to the value with the original, so that many sets
+ * that grow from a common set (e.g., the transactions on the branches of a blockchain) take little memory.
+ * Lookups and additions take O(log<sub>32</sub> n) time.
+ * <p>
+ * Values are placed by a bijective hash of their 64 bits, so that distinct values always end up in distinct
+ * positions. Instances are immutable, and can be shared between threads.
+ *
+ * @author Sotirios Liaskos for the Conceptual Modeling Group @ York University
+ */
+public final class PersistentLongSet {
+
+	private static final long[] NO_VALUES = new long[0];
+	private static final Node[] NO_NODES = new Node[0];
+
+	/**
+	 * The empty set.
+	 */
+	public static final PersistentLongSet EMPTY = new PersistentLongSet(new Node(0, 0, NO_VALUES, NO_NODES), 0);
+
+	private final Node root;
+	private final int size;
+
+	private PersistentLongSet(Node root, int size) {
+		this.root = root;
+		this.size = size;
+	}
+
+	/**
+	 * Whether the set contains a value.
+	 * @param value The value.
+	 * @return {@code true} if the value is in the set.
+	 */
+	public boolean contains(long value) {
+		long h = hash(value);
+		Node n = root;
+		for (int shift = 0; ; shift += 5) {
+			int bit = bit(h, shift);
+			if ((n.dataMap & bit) != 0) {
+				return n.values[index(n.dataMap, bit)] == value;
+			}
+			if ((n.nodeMap & bit) == 0) {
+				return false;
+			}
+			n = n.nodes[index(n.nodeMap, bit)];
+		}
+	}
+
+	/**
+	 * Returns the set with a value added.
+	 * @param value The value.
+	 * @return A set containing the values of this set and {@code value}; this set if it already contains the value.
+	 */
+	public PersistentLongSet with(long value) {
+		Node r = insert(root, value, hash(value), 0);
+		return (r == root) ? this : new PersistentLongSet(r, size + 1);
+	}
+
+	/**
+	 * The number of values in the set.
+	 * @return The number of values.
+	 */
+	public int size() {
+		return size;
+	}
+
+
+	/**
+	 * A node of the trie. The positions in {@code dataMap} hold a value and those in {@code nodeMap} a child node.
+	 */
+	private static final class Node {
+		final int dataMap;
+		final int nodeMap;
+		final long[] values;
+		final Node[] nodes;
+
+		Node(int dataMap, int nodeMap, long[] values, Node[] nodes) {
+			this.dataMap = dataMap;
+			this.nodeMap = nodeMap;
+			this.values = values;
+			this.nodes = nodes;
+		}
+	}
+
+	/**
+	 * SplitMix64 finalizer; a bijection on 64 bits.
+	 */
+	private static long hash(long z) {
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+	private static int bit(long hash, int shift) {
+		return 1 << ((int) (hash >>> shift) & 31);
+	}
+
+	private static int index(int map, int bit) {
+		return Integer.bitCount(map & (bit - 1));
+	}
+
+	private static Node insert(Node n, long value, long h, int shift) {
+		int bit = bit(h, shift);
+		if ((n.dataMap & bit) != 0) {
+			int i = index(n.dataMap, bit);
+			long existing = n.values[i];
+			if (existing == value) {
+				return n;
+			}
+			// Replace the value with a node holding both values.
+			Node child = pair(existing, hash(existing), value, h, shift + 5);
+			long[] values = new long[n.values.length - 1];
+			System.arraycopy(n.values, 0, values, 0, i);
+			System.arraycopy(n.values, i + 1, values, i, values.length - i);
+			int j = index(n.nodeMap, bit);
+			Node[] nodes = new Node[n.nodes.length + 1];
+			System.arraycopy(n.nodes, 0, nodes, 0, j);
+			nodes[j] = child;
+			System.arraycopy(n.nodes, j, nodes, j + 1, n.nodes.length - j);
+			return new Node(n.dataMap ^ bit, n.nodeMap | bit, values, nodes);
+		}
+		if ((n.nodeMap & bit) != 0) {
+			int j = index(n.nodeMap, bit);
+			Node child = insert(n.nodes[j], value, h, shift + 5);
+			if (child == n.nodes[j]) {
+				return n;
+			}
+			Node[] nodes = n.nodes.clone();
+			nodes[j] = child;
+			return new Node(n.dataMap, n.nodeMap, n.values, nodes);
+		}
+		int i = index(n.dataMap, bit);
+		long[] values = new long[n.values.length + 1];
+		System.arraycopy(n.values, 0, values, 0, i);
+		values[i] = value;
+		System.arraycopy(n.values, i, values, i + 1, n.values.length - i);
+		return new Node(n.dataMap | bit, n.nodeMap, values, n.nodes);
+	}
+
+	private static Node pair(long v1, long h1, long v2, long h2, int shift) {
+		int b1 = bit(h1, shift);
+		int b2 = bit(h2, shift);
+		if (b1 == b2) {
+			return new Node(0, b1, NO_VALUES, new Node[] {pair(v1, h1, v2, h2, shift + 5)});
+		}
+		long[] values = (Integer.compareUnsigned(b1, b2) < 0) ? new long[] {v1, v2} : new long[] {v2, v1};
+		return new Node(b1 | b2, 0, values, NO_NODES);
+	}
+}
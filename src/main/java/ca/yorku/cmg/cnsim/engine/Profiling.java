@@ -5,5 +5,4 @@ package ca.yorku.cmg.cnsim.engine;
 public class Profiling {
 	public static long weightCalclations = 0;
 	public static long mcmcCalclations = 0;
-	public static long simBeginningTime = 0;
 }
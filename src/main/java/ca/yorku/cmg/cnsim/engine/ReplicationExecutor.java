@@ -0,0 +1,89 @@
+package ca.yorku.cmg.cnsim.engine;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.IntConsumer;
+
+import ca.yorku.cmg.cnsim.engine.reporter.ReportBuffer;
+import ca.yorku.cmg.cnsim.engine.reporter.Reporter;
+import ca.yorku.cmg.cnsim.engine.reporter.SpillReportBuffer;
+
+/**
+ * Executes the independent replications (simulation runs) of an experiment, either one after the other
+ * or concurrently on a pool of threads. Each replication executes with its own {@linkplain SimulationContext}. 
+ * Once finished, replications are merged into the {@linkplain Reporter} strictly in the order of their 
+ * simulation IDs, so that the output does not depend on the number of threads. Sequential replications write
+ * their log lines as they go (see {@linkplain Reporter#streamingBuffer()}); concurrent ones write them to a file of
+ * their own (see {@linkplain SpillReportBuffer}), which is copied to the logs when the replication is merged.
+ * 
+ * @author Sotirios Liaskos for the Conceptual Modeling Group @ York University
+ */
+public class ReplicationExecutor {
+
+	private final int threads;
+
+	/**
+	 * @param threads The number of replications to execute concurrently. Values below 2 mean sequential execution in the calling thread.
+	 */
+	public ReplicationExecutor(int threads) {
+		this.threads = threads;
+	}
+
+	public int getThreads() {
+		return threads;
+	}
+
+	/**
+	 * Executes replications {@code firstSimID} to {@code lastSimID} (inclusive).
+	 * @param firstSimID The ID of the first replication.
+	 * @param lastSimID The ID of the last replication.
+	 * @param replication The code of a replication, given its simulation ID.
+	 */
+	public void run(int firstSimID, int lastSimID, IntConsumer replication) {
+		if (threads <= 1 || firstSimID == lastSimID) {
+			for (int simID = firstSimID; simID <= lastSimID; simID++) {
+				Reporter.merge(execute(simID, replication, Reporter.streamingBuffer()));
+			}
+			return;
+		}
+
+		ExecutorService pool = Executors.newFixedThreadPool(Math.min(threads, lastSimID - firstSimID + 1));
+		try {
+			List<Future<SimulationContext>> results = new ArrayList<>();
+			for (int simID = firstSimID; simID <= lastSimID; simID++) {
+				final int id = simID;
+				results.add(pool.submit(() -> {
+					SpillReportBuffer buffer = new SpillReportBuffer();
+					SimulationContext ctx = execute(id, replication, buffer);
+					buffer.finish();
+					return ctx;
+				}));
+			}
+			for (Future<SimulationContext> f : results) {
+				Reporter.merge(f.get());
+			}
+		} catch (ExecutionException e) {
+			throw new RuntimeException("Replication failed", e.getCause());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Interrupted while waiting for replications", e);
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	private static SimulationContext execute(int simID, IntConsumer replication, ReportBuffer buffer) {
+		SimulationContext ctx = new SimulationContext(simID, buffer);
+		SimulationContext.set(ctx);
+		try {
+			replication.accept(simID);
+		} finally {
+			SimulationContext.clear();
+		}
+		return ctx;
+	}
+}
@@ -0,0 +1,442 @@
+package ca.yorku.cmg.cnsim.engine;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import ca.yorku.cmg.cnsim.engine.event.EventQueueFactory;
+
+/**
+ * An immutable, typed snapshot of the configuration parameters read while a simulation is set up and run.
+ * Built and validated once by {@linkplain ConfigInitializer#initialize(String[])} from the properties loaded
+ * by {@linkplain Config}, and handed to each {@linkplain Simulation} (see {@linkplain Simulation#getConfig()}),
+ * so that no property lookup or parsing happens while events are processed.
+ * <p>
+ * The properties marked as required (see {@linkplain #REQUIRED}) must be present; the others take the default given
+ * for each component when absent. Properties that are present must be well-formed and within range, or
+ * {@linkplain #fromProperties(Properties)} throws an {@linkplain IllegalArgumentException}.
+ *
+ * @param numSimulations {@code sim.numSimulations}: number of simulations (replications) to run (default 1).
+ * @param threads {@code sim.threads}: number of simulations run concurrently (default 1).
+ * @param partitions {@code sim.partitions}: number of threads processing the nodes of each simulation (default 1).
+ * @param lookahead {@code sim.lookahead}: minimum delay (ms) of events scheduled for other nodes (default none: derived
+ *   from the network and the workload, see {@linkplain ParallelSimulation}).
+ * @param maxNodes {@code sim.maxNodes}: maximum number of nodes of the network (default 0).
+ * @param terminationTime {@code sim.terminate.atTime}: simulation time (ms) at which the simulation stops (required).
+ * @param beliefReportInterval {@code sim.reporting.beliefReportInterval}: interval (ms) between belief reports (default 0).
+ * @param beliefReportOffset {@code sim.reporting.beliefReportOffset}: time (ms) of the first belief report (default 0).
+ * @param eventQueue {@code sim.eventQueue}: the pending event set implementation (default {@code quaternary}).
+ * @param outputDirectory {@code sim.output.directory}: the directory of the logs of all runs (default {@code ./log/}).
+ * @param reportEvents {@code reporter.reportEvents} (default {@code false}).
+ * @param reportTransactions {@code reporter.reportTransactions} (default {@code false}).
+ * @param reportNodes {@code reporter.reportNodes} (default {@code false}).
+ * @param reportNetEvents {@code reporter.reportNetEvents} (default {@code false}).
+ * @param reportBeliefs {@code reporter.reportBeliefs} (default {@code false}).
+ * @param reportBlockEvents {@code reporter.reportBlockEvents} (default {@code false}).
+ * @param reportStructureEvents {@code reporter.reportStructureEvents} (default {@code false}).
+ * @param reportFormat {@code reporter.format}: {@code csv} (default) or {@code binary} for the
+ *   {@linkplain ca.yorku.cmg.cnsim.engine.reporter.ColumnarFormat binary columnar format} of the logs with typed columns.
+ * @param blockEventNodes {@code reporter.blockEvents.nodes}: IDs of the nodes whose block events are reported (default none, for all nodes).
+ * @param blockEventTypes {@code reporter.blockEvents.types}: names of the block event types reported, as in
+ *   {@code {APPENDED, RECEIVED}} (default empty, for all types).
+ * @param blockEventSampling {@code reporter.blockEvents.sampling}: block events are reported for one in every so many blocks (default 1).
+ * @param reportMetrics {@code reporter.reportMetrics}: whether {@linkplain ca.yorku.cmg.cnsim.engine.reporter.RunMetrics metrics}
+ *   are computed during each run and summarized in the metrics log (default {@code false}).
+ * @param metricsConfirmations {@code reporter.metrics.confirmations}: number of blocks that confirm a block or transaction
+ *   for the confirmation time metrics (default 6).
+ * @param numOfNodes {@code net.numOfNodes}: number of nodes of the network (required).
+ * @param numOfHonestNodes {@code net.numOfHonestNodes} (default 0).
+ * @param numOfMaliciousNodes {@code net.numOfMaliciousNodes} (default 0).
+ * @param propagationTime {@code net.propagationTime}: fixed delay (ms) added to every propagation (required).
+ * @param networkType {@code net.type}: {@code endToEnd} for a throughput per pair of nodes (default) or {@code topology}
+ *   for a peer graph (see {@linkplain ca.yorku.cmg.cnsim.engine.network.TopologyNetwork}).
+ * @param topologyDegree {@code net.topology.degree}: number of peers each node connects to (default 8).
+ * @param topologyLatency {@code net.topology.latency}: mean latency (ms) of a link of the peer graph (default 0).
+ * @param topologyRoutingSize {@code net.topology.routingSize}: message size (bytes) for which routes are chosen (default 1000).
+ * @param topologyCacheSize {@code net.topology.cacheSize}: number of origins whose routes are kept (default 128).
+ * @param netSamplerFile {@code net.sampler.file}: file of the throughputs between nodes (default none, for random throughputs).
+ * @param netSamplerSeed {@code net.sampler.seed}: seed of the network sampler (default none).
+ * @param netSamplerSeedUpdate {@code net.sampler.seed.updateSeed}: whether the simulation ID is added to the seed of the
+ *   network sampler (default {@code false}).
+ * @param throughputMean {@code net.throughputMean}: mean throughput (bps) between two nodes (required).
+ * @param throughputSD {@code net.throughputSD} (required).
+ * @param numTransactions {@code workload.numTransactions}: number of transactions of the workload (required).
+ * @param sampleTransactions {@code workload.sampleTransaction}: IDs of the transactions covered by belief reports (default none).
+ * @param workloadSamplerFile {@code workload.sampler.file}: file of the workload (default none, for a random workload).
+ * @param workloadSamplerSeed {@code workload.sampler.seed}: seed of the transaction sampler (default 0).
+ * @param workloadSeedUpdate {@code workload.sampler.seed.updateSeed}: whether the seed of the transaction sampler changes
+ *   after a transaction (default {@code false}).
+ * @param workloadSeedUpdateTransaction {@code workload.sampler.seed.updateTransaction}: the transaction after which it
+ *   changes (default 0).
+ * @param arrivalRate {@code workload.lambda}: transactions arriving per second (required).
+ * @param txSizeMean {@code workload.txSizeMean}: mean transaction size in bytes (required).
+ * @param txSizeSD {@code workload.txSizeSD} (required).
+ * @param txFeeValueMean {@code workload.txFeeValueMean}: mean transaction fee (required).
+ * @param txFeeValueSD {@code workload.txFeeValueSD} (required).
+ * @param createMaliciousNode {@code node.createMaliciousNode} (default {@code false}).
+ * @param maliciousPowerByRatio {@code node.maliciousPowerByRatio} (default {@code false}).
+ * @param maliciousRatio {@code node.maliciousRatio}: share of the total hashpower held by the malicious node (default 0).
+ * @param maliciousHashPower {@code node.maliciousHashPower}: absolute hashpower of the malicious node (default -1, unset).
+ * @param nodeSamplerFile {@code node.sampler.file}: file of the nodes (default none, for random nodes).
+ * @param nodeSamplerSeed {@code node.sampler.seed}: seeds of the node sampler, as in {@code {444,222}} (default none).
+ * @param nodeSeedUpdateTimes {@code node.sampler.seedUpdateTimes}: times (ms) at which the node sampler switches to
+ *   its next seed (default none).
+ * @param nodeUpdateSeedFlags {@code node.sampler.updateSeedFlags}: whether the simulation ID is added to each seed (default none).
+ * @param electricPowerMean {@code node.electricPowerMean}: mean electric power (W) of a node (required).
+ * @param electricPowerSD {@code node.electricPowerSD} (required).
+ * @param electricCostMean {@code node.electricCostMean}: mean electricity cost (USD/kWh) of a node (required).
+ * @param electricCostSD {@code node.electricCostSD} (required).
+ * @param difficulty {@code pow.difficulty}: the proof-of-work difficulty (required).
+ * @param hashPowerMean {@code pow.hashPowerMean}: mean hashpower (GH/s) of a node (required).
+ * @param hashPowerSD {@code pow.hashPowerSD} (required).
+ * @param maxBlockSize {@code bitcoin.maxBlockSize}: maximum block size in bytes (required).
+ * @param minSizeToMine {@code bitcoin.minSizeToMine} (default 0).
+ * @param minValueToMine {@code bitcoin.minValueToMine} (default 0).
+ * @param maxOrphans {@code bitcoin.maxOrphans}: maximum number of orphan blocks kept per node, the oldest being evicted
+ *   first; 0 for no limit (default 0).
+ * @param pruneDepth {@code bitcoin.pruneDepth}: depth below the longest tip at which blocks are final, and older history is
+ *   pruned; 0 to keep all history (default 0).
+ *
+ * @author Sotirios Liaskos for the Conceptual Modeling Group @ York University
+ */
+public record SimConfig(
+		int numSimulations,
+		int threads,
+		int partitions,
+		Long lookahead,
+		int maxNodes,
+		long terminationTime,
+		long beliefReportInterval,
+		long beliefReportOffset,
+		String eventQueue,
+		String outputDirectory,
+		boolean reportEvents,
+		boolean reportTransactions,
+		boolean reportNodes,
+		boolean reportNetEvents,
+		boolean reportBeliefs,
+		boolean reportBlockEvents,
+		boolean reportStructureEvents,
+		String reportFormat,
+		long[] blockEventNodes,
+		String blockEventTypes,
+		int blockEventSampling,
+		boolean reportMetrics,
+		int metricsConfirmations,
+		int numOfNodes,
+		int numOfHonestNodes,
+		int numOfMaliciousNodes,
+		long propagationTime,
+		String networkType,
+		int topologyDegree,
+		double topologyLatency,
+		double topologyRoutingSize,
+		int topologyCacheSize,
+		String netSamplerFile,
+		Long netSamplerSeed,
+		boolean netSamplerSeedUpdate,
+		float throughputMean,
+		float throughputSD,
+		long numTransactions,
+		long[] sampleTransactions,
+		String workloadSamplerFile,
+		long workloadSamplerSeed,
+		boolean workloadSeedUpdate,
+		long workloadSeedUpdateTransaction,
+		float arrivalRate,
+		float txSizeMean,
+		float txSizeSD,
+		float txFeeValueMean,
+		float txFeeValueSD,
+		boolean createMaliciousNode,
+		boolean maliciousPowerByRatio,
+		float maliciousRatio,
+		float maliciousHashPower,
+		String nodeSamplerFile,
+		String nodeSamplerSeed,
+		String nodeSeedUpdateTimes,
+		String nodeUpdateSeedFlags,
+		float electricPowerMean,
+		float electricPowerSD,
+		float electricCostMean,
+		float electricCostSD,
+		double difficulty,
+		float hashPowerMean,
+		float hashPowerSD,
+		long maxBlockSize,
+		long minSizeToMine,
+		long minValueToMine,
+		int maxOrphans,
+		int pruneDepth) {
+
+	/** The properties that must be present, as the simulation cannot do without them. */
+	public static final List<String> REQUIRED = List.of(
+			"sim.terminate.atTime",
+			"net.numOfNodes",
+			"net.propagationTime",
+			"net.throughputMean",
+			"net.throughputSD",
+			"workload.numTransactions",
+			"workload.lambda",
+			"workload.txSizeMean",
+			"workload.txSizeSD",
+			"workload.txFeeValueMean",
+			"workload.txFeeValueSD",
+			"node.electricPowerMean",
+			"node.electricPowerSD",
+			"node.electricCostMean",
+			"node.electricCostSD",
+			"pow.difficulty",
+			"pow.hashPowerMean",
+			"pow.hashPowerSD",
+			"bitcoin.maxBlockSize");
+
+	public SimConfig {
+		requireAtLeast("sim.numSimulations", numSimulations, 1);
+		requireAtLeast("sim.threads", threads, 1);
+		requireAtLeast("sim.partitions", partitions, 1);
+		if (lookahead != null) {
+			requireAtLeast("sim.lookahead", lookahead, 0);
+		}
+		requireAtLeast("sim.maxNodes", maxNodes, 0);
+		requireAtLeast("sim.terminate.atTime", terminationTime, 0);
+		requireAtLeast("sim.reporting.beliefReportInterval", beliefReportInterval, 0);
+		requireAtLeast("sim.reporting.beliefReportOffset", beliefReportOffset, 0);
+		if (!reportFormat.equalsIgnoreCase("csv") && !reportFormat.equalsIgnoreCase("binary")) {
+			throw new IllegalArgumentException("Unknown report format: " + reportFormat + ". Use one of csv, binary.");
+		}
+		requireAtLeast("reporter.blockEvents.sampling", blockEventSampling, 1);
+		requireAtLeast("reporter.metrics.confirmations", metricsConfirmations, 1);
+		requireAtLeast("net.numOfNodes", numOfNodes, 0);
+		requireAtLeast("net.numOfHonestNodes", numOfHonestNodes, 0);
+		requireAtLeast("net.numOfMaliciousNodes", numOfMaliciousNodes, 0);
+		requireAtLeast("net.propagationTime", propagationTime, 0);
+		if (!networkType.equalsIgnoreCase("endToEnd") && !networkType.equalsIgnoreCase("topology")) {
+			throw new IllegalArgumentException("Unknown network type: " + networkType + ". Use one of endToEnd, topology.");
+		}
+		requireAtLeast("net.topology.degree", topologyDegree, 1);
+		if (topologyLatency < 0) {
+			throw new IllegalArgumentException("net.topology.latency must be non-negative, but was " + topologyLatency);
+		}
+		if (topologyRoutingSize < 0) {
+			throw new IllegalArgumentException("net.topology.routingSize must be non-negative, but was " + topologyRoutingSize);
+		}
+		requireAtLeast("net.topology.cacheSize", topologyCacheSize, 1);
+		requireAtLeast("workload.numTransactions", numTransactions, 0);
+		requireAtLeast("bitcoin.maxBlockSize", maxBlockSize, 0);
+		requireAtLeast("bitcoin.minSizeToMine", minSizeToMine, 0);
+		requireAtLeast("bitcoin.minValueToMine", minValueToMine, 0);
+		requireAtLeast("bitcoin.maxOrphans", maxOrphans, 0);
+		requireAtLeast("bitcoin.pruneDepth", pruneDepth, 0);
+		if (maliciousRatio < 0 || maliciousRatio >= 1) {
+			throw new IllegalArgumentException("node.maliciousRatio must be in [0,1), but was " + maliciousRatio);
+		}
+		if (difficulty < 0) {
+			throw new IllegalArgumentException("pow.difficulty must be non-negative, but was " + difficulty);
+		}
+		// Fails for unknown types.
+		EventQueueFactory.createEventQueue(eventQueue);
+		sampleTransactions = sampleTransactions.clone();
+		blockEventNodes = blockEventNodes.clone();
+	}
+
+
+	/**
+	 * Builds the configuration snapshot from a set of properties.
+	 *
+	 * @param p The properties, as loaded from the configuration file and the command line.
+	 * @return The typed configuration.
+	 * @throws IllegalArgumentException If a required property is missing, or a property is malformed or out of range.
+	 */
+	public static SimConfig fromProperties(Properties p) {
+		List<String> missing = missing(p);
+		if (!missing.isEmpty()) {
+			throw new IllegalArgumentException("Missing required properties: " + String.join(", ", missing));
+		}
+		String sample = p.getProperty("workload.sampleTransaction");
+		String nodes = p.getProperty("reporter.blockEvents.nodes");
+		return new SimConfig(
+				getInt(p, "sim.numSimulations", 1),
+				getInt(p, "sim.threads", 1),
+				getInt(p, "sim.partitions", 1),
+				(value(p, "sim.lookahead") == null) ? null : getLong(p, "sim.lookahead"),
+				getInt(p, "sim.maxNodes", 0),
+				getLong(p, "sim.terminate.atTime"),
+				getLong(p, "sim.reporting.beliefReportInterval", 0),
+				getLong(p, "sim.reporting.beliefReportOffset", 0),
+				p.getProperty("sim.eventQueue", "quaternary").trim(),
+				p.getProperty("sim.output.directory", "./log/").trim(),
+				getBoolean(p, "reporter.reportEvents"),
+				getBoolean(p, "reporter.reportTransactions"),
+				getBoolean(p, "reporter.reportNodes"),
+				getBoolean(p, "reporter.reportNetEvents"),
+				getBoolean(p, "reporter.reportBeliefs"),
+				getBoolean(p, "reporter.reportBlockEvents"),
+				getBoolean(p, "reporter.reportStructureEvents"),
+				p.getProperty("reporter.format", "csv").trim(),
+				(nodes == null) ? new long[0] : Config.parseStringToArray(nodes.trim()),
+				p.getProperty("reporter.blockEvents.types", "").trim(),
+				getInt(p, "reporter.blockEvents.sampling", 1),
+				getBoolean(p, "reporter.reportMetrics"),
+				getInt(p, "reporter.metrics.confirmations", 6),
+				getInt(p, "net.numOfNodes"),
+				getInt(p, "net.numOfHonestNodes", 0),
+				getInt(p, "net.numOfMaliciousNodes", 0),
+				getLong(p, "net.propagationTime"),
+				p.getProperty("net.type", "endToEnd").trim(),
+				getInt(p, "net.topology.degree", 8),
+				getDouble(p, "net.topology.latency", 0),
+				getDouble(p, "net.topology.routingSize", 1000),
+				getInt(p, "net.topology.cacheSize", 128),
+				value(p, "net.sampler.file"),
+				(value(p, "net.sampler.seed") == null) ? null : getLong(p, "net.sampler.seed"),
+				getBoolean(p, "net.sampler.seed.updateSeed"),
+				getFloat(p, "net.throughputMean"),
+				getFloat(p, "net.throughputSD"),
+				getLong(p, "workload.numTransactions"),
+				(sample == null) ? new long[0] : Config.parseStringToArray(sample.trim()),
+				value(p, "workload.sampler.file"),
+				getLong(p, "workload.sampler.seed", 0),
+				getBoolean(p, "workload.sampler.seed.updateSeed"),
+				getLong(p, "workload.sampler.seed.updateTransaction", 0),
+				getFloat(p, "workload.lambda"),
+				getFloat(p, "workload.txSizeMean"),
+				getFloat(p, "workload.txSizeSD"),
+				getFloat(p, "workload.txFeeValueMean"),
+				getFloat(p, "workload.txFeeValueSD"),
+				getBoolean(p, "node.createMaliciousNode"),
+				getBoolean(p, "node.maliciousPowerByRatio"),
+				(float) getDouble(p, "node.maliciousRatio", 0),
+				(float) getDouble(p, "node.maliciousHashPower", -1),
+				value(p, "node.sampler.file"),
+				value(p, "node.sampler.seed"),
+				value(p, "node.sampler.seedUpdateTimes"),
+				value(p, "node.sampler.updateSeedFlags"),
+				getFloat(p, "node.electricPowerMean"),
+				getFloat(p, "node.electricPowerSD"),
+				getFloat(p, "node.electricCostMean"),
+				getFloat(p, "node.electricCostSD"),
+				getDouble(p, "pow.difficulty"),
+				getFloat(p, "pow.hashPowerMean"),
+				getFloat(p, "pow.hashPowerSD"),
+				getLong(p, "bitcoin.maxBlockSize"),
+				getLong(p, "bitcoin.minSizeToMine", 0),
+				getLong(p, "bitcoin.minValueToMine", 0),
+				getInt(p, "bitcoin.maxOrphans", 0),
+				getInt(p, "bitcoin.pruneDepth", 0));
+	}
+
+	/**
+	 * The IDs of the transactions covered by belief reports.
+	 * @return A copy of the IDs.
+	 */
+	@Override
+	public long[] sampleTransactions() {
+		return sampleTransactions.clone();
+	}
+
+	/**
+	 * The IDs of the nodes whose block events are reported.
+	 * @return A copy of the IDs; empty for all nodes.
+	 */
+	@Override
+	public long[] blockEventNodes() {
+		return blockEventNodes.clone();
+	}
+
+	/**
+	 * Whether the network is a peer graph rather than a throughput per pair of nodes.
+	 * @return {@code true} if {@code net.type} is {@code topology}.
+	 */
+	public boolean isTopologyNetwork() {
+		return networkType.equalsIgnoreCase("topology");
+	}
+
+
+
+	/**
+	 * The required properties that are absent or empty.
+	 * @param p The properties.
+	 * @return The keys of the missing properties, in the order of {@linkplain #REQUIRED}.
+	 */
+	public static List<String> missing(Properties p) {
+		List<String> missing = new ArrayList<>();
+		for (String key : REQUIRED) {
+			if (value(p, key) == null) {
+				missing.add(key);
+			}
+		}
+		return missing;
+	}
+
+	private static void requireAtLeast(String key, long value, long min) {
+		if (value < min) {
+			throw new IllegalArgumentException(key + " must be at least " + min + ", but was " + value);
+		}
+	}
+
+	private static String value(Properties p, String key) {
+		String v = p.getProperty(key);
+		return (v == null || v.trim().isEmpty()) ? null : v.trim();
+	}
+
+	private static int getInt(Properties p, String key, int defaultValue) {
+		long l = getLong(p, key, defaultValue);
+		if (l != (int) l) {
+			throw new IllegalArgumentException(key + " must be a valid integer, but was '" + p.getProperty(key) + "'");
+		}
+		return (int) l;
+	}
+
+	private static long getLong(Properties p, String key, long defaultValue) {
+		String v = value(p, key);
+		if (v == null) {
+			return defaultValue;
+		}
+		try {
+			return Long.parseLong(v);
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException(key + " must be a valid integer, but was '" + v + "'");
+		}
+	}
+
+	// Getters of required properties, which fromProperties has checked to be present.
+
+	private static int getInt(Properties p, String key) {
+		return getInt(p, key, 0);
+	}
+
+	private static long getLong(Properties p, String key) {
+		return getLong(p, key, 0);
+	}
+
+	private static double getDouble(Properties p, String key) {
+		return getDouble(p, key, 0);
+	}
+
+	private static float getFloat(Properties p, String key) {
+		String v = value(p, key);
+		try {
+			return Float.parseFloat(v);
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException(key + " must be a valid number, but was '" + v + "'");
+		}
+	}
+
+	private static double getDouble(Properties p, String key, double defaultValue) {
+		String v = value(p, key);
+		if (v == null) {
+			return defaultValue;
+		}
+		try {
+			return Double.parseDouble(v);
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException(key + " must be a valid number, but was '" + v + "'");
+		}
+	}
+
+	private static boolean getBoolean(Properties p, String key) {
+		String v = value(p, key);
+		return (v != null) && Boolean.parseBoolean(v);
+	}
+}
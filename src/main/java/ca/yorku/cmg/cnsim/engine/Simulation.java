@@ -1,14 +1,17 @@
 package ca.yorku.cmg.cnsim.engine;
 
 import ca.yorku.cmg.cnsim.engine.event.Event;
-import ca.yorku.cmg.cnsim.engine.event.EventTimeComparator;
+import ca.yorku.cmg.cnsim.engine.event.EventQueue;
+import ca.yorku.cmg.cnsim.engine.event.EventQueueFactory;
+import ca.yorku.cmg.cnsim.engine.event.Event_Multicast;
 import ca.yorku.cmg.cnsim.engine.event.Event_NewTransactionArrival;
 import ca.yorku.cmg.cnsim.engine.network.AbstractNetwork;
+import ca.yorku.cmg.cnsim.engine.node.INode;
 import ca.yorku.cmg.cnsim.engine.node.NodeSet;
 import ca.yorku.cmg.cnsim.engine.transaction.Transaction;
+import ca.yorku.cmg.cnsim.engine.transaction.TransactionTable;
 import ca.yorku.cmg.cnsim.engine.transaction.TransactionWorkload;
 
-import java.util.PriorityQueue;
 /**
  * The central class of any simulation
  *  
@@ -17,17 +20,13 @@ import java.util.PriorityQueue;
  */
 public class Simulation {
 
-	public static long currTime;
-	public static long sysStartTime;
-	public static long sysEndTime;
-	public static int currentSimulationID = 1;
-
-	
-	
 	private int simID;
+
+	private final SimulationContext context;
+
+	private final SimConfig config;
 		
-	private final EventTimeComparator comp = new EventTimeComparator();
-	protected PriorityQueue<Event> queue = new PriorityQueue<>(comp);
+	protected EventQueue queue;
 	
 	private AbstractNetwork net;
 	//protected AbstractSampler sampler;
@@ -40,12 +39,24 @@ public class Simulation {
 	private long terminationTime = 0;
 	
 	private long numEventsScheduled = 0;
-	private long numEventsProcessed = 0;
+	protected long numEventsProcessed = 0;
+	private long numEventsCancelled = 0;
+	protected long numIgnoredEventsProcessed = 0;
+	private long nextEventSeq = 0;
+	private float minTransactionSize = Float.POSITIVE_INFINITY;
 	
 	public long getLatestKnownEventTime() {
 		return latestKnownEventTime;
 	}
 
+	/**
+	 * @return The size (bytes) of the smallest transaction of the workloads scheduled so far (see
+	 * {@linkplain #schedule(TransactionWorkload)}), or infinity if none was.
+	 */
+	public float getMinTransactionSize() {
+		return minTransactionSize;
+	}
+
 	public long getNumEventsScheduled() {
 		return numEventsScheduled;
 	}
@@ -54,28 +65,66 @@ public class Simulation {
 		return numEventsProcessed;
 	}
 
+	public long getNumEventsCancelled() {
+		return numEventsCancelled;
+	}
+
+	public long getNumIgnoredEventsProcessed() {
+		return numIgnoredEventsProcessed;
+	}
+
 	public void setTerminationTime(long terminationTime) {
 		this.terminationTime = terminationTime;
 	}
 
+	public long getTerminationTime() {
+		return terminationTime;
+	}
+
 	
 
 	public String getStatistics() {
 		String s;
+		long currTime = context.getCurrTime();
+		long realTime = context.getSysEndTime() - context.getSysStartTime();
 		s = "    Total Simulation Time: " + currTime + " (ms)\n";
-		s = s + "    Total Real Time: " + (sysEndTime - sysStartTime) + " (ms)\n";
-		s = s + "    Speed-up factor: " + currTime/(sysEndTime - sysStartTime) + "\n";
+		s = s + "    Total Real Time: " + realTime + " (ms)\n";
+		s = s + "    Speed-up factor: " + currTime/Math.max(1, realTime) + "\n";
 		s = s + "    Total Events Scheduled: " + numEventsScheduled + "\n";
 		s = s + "    Total Events Processed: " + numEventsProcessed + "\n";
+		s = s + "    Total Ignored Events Avoided (cancelled and removed from queue): " + getNumEventsCancelled() + "\n";
+		s = s + "    Total Ignored Events Processed: " + numIgnoredEventsProcessed + "\n";
 		return(s);
 	}
 	
 
 
 
+	/**
+	 * Creates a simulation bound to the {@linkplain SimulationContext} of the current thread, using the
+	 * configuration built by {@linkplain ConfigInitializer#initialize(String[])}.
+	 *
+	 * @param simID The ID of the simulation (replication).
+	 */
 	public Simulation(int simID) {
+		this(simID, ConfigInitializer.getSimConfig());
+	}
+
+	/**
+	 * Creates a simulation bound to the {@linkplain SimulationContext} of the current thread.
+	 *
+	 * @param simID The ID of the simulation (replication).
+	 * @param config The configuration of the simulation.
+	 */
+	public Simulation(int simID, SimConfig config) {
+		if (config == null) {
+			throw new IllegalStateException("Configuration not initialized.");
+		}
 		this.simID = simID;
-		currentSimulationID = simID;
+		this.config = config;
+		this.queue = EventQueueFactory.createEventQueue(config.eventQueue());
+		this.context = SimulationContext.current();
+		context.setSimID(simID);
 	}
 
 	
@@ -88,6 +137,51 @@ public class Simulation {
 		return (simID);
 	}
 
+	/**
+	 * Retrieves the configuration of this simulation.
+	 *
+	 * @return The typed configuration snapshot.
+	 */
+	public SimConfig getConfig() {
+		return config;
+	}
+
+	/**
+	 * Retrieves the context (clocks, ID generators, report buffer) of this simulation.
+	 *
+	 * @return The SimulationContext of the simulation.
+	 */
+	public SimulationContext getContext() {
+		return context;
+	}
+
+	/**
+	 * Retrieves the current simulation time of the simulation running in the current thread.
+	 *
+	 * @return The time of the event currently being processed.
+	 */
+	public static long getCurrTime() {
+		return SimulationContext.current().getCurrTime();
+	}
+
+	/**
+	 * Retrieves the real (system) time at which the simulation running in the current thread started.
+	 *
+	 * @return The system time in milliseconds.
+	 */
+	public static long getSysStartTime() {
+		return SimulationContext.current().getSysStartTime();
+	}
+
+	/**
+	 * Retrieves the ID of the simulation running in the current thread.
+	 *
+	 * @return The simulation ID.
+	 */
+	public static int getCurrentSimulationID() {
+		return SimulationContext.current().getSimID();
+	}
+
 	
 	/**
 	 * @deprecated
@@ -145,7 +239,13 @@ public class Simulation {
 	}
 	 
 	
-	public PriorityQueue<Event> getQueue() {
+	/**
+	 * Retrieves the pending event set of the simulation.
+	 * The implementation is selected through the {@code sim.eventQueue} configuration property.
+	 *
+	 * @return The EventQueue object holding the scheduled events.
+	 */
+	public EventQueue getQueue() {
 		return queue;
 	}
 
@@ -158,37 +258,96 @@ public class Simulation {
 	
 	/**
 	 * Schedules an event by adding it to the queue.
+	 * The event is stamped with the next schedule sequence number, so that
+	 * events of equal time are processed in the order they were scheduled.
+	 * An {@linkplain Event_Multicast} counts as one event per recipient and
+	 * reserves a sequence number for each of them.
 	 *
 	 * @param e The Event object to be scheduled.
 	 */
 	public void schedule(Event e) {
-		if (e.getTime() > this.latestKnownEventTime) {
-			this.latestKnownEventTime = e.getTime();
+		stamp(e);
+		enqueue(e);
+	}
+
+	/**
+	 * Stamps an event with the next schedule sequence number (or numbers, for an {@linkplain Event_Multicast})
+	 * and counts it as scheduled, without queuing it. See {@linkplain #schedule(Event)}.
+	 *
+	 * @param e The Event object to be stamped.
+	 */
+	protected void stamp(Event e) {
+		if (e instanceof Event_Multicast m) {
+			if (m.getLastTime() > this.latestKnownEventTime) {
+				this.latestKnownEventTime = m.getLastTime();
+			}
+			numEventsScheduled += m.getNumRecipients();
+			m.setSeqBase(nextEventSeq);
+			nextEventSeq += m.getNumRecipients();
+		} else {
+			if (e.getTime() > this.latestKnownEventTime) {
+				this.latestKnownEventTime = e.getTime();
+			}
+			numEventsScheduled++;
+			e.setSeq(nextEventSeq++);
 		}
-		numEventsScheduled++;
+	}
+
+	/**
+	 * Adds a scheduled event to the queue.
+	 *
+	 * @param e The Event object, already stamped with its sequence number.
+	 */
+	protected void enqueue(Event e) {
 	    queue.add(e);
 	}
 
 	
+	/**
+	 * Cancels a pending event by removing it from the queue, so that it never occurs.
+	 * Unlike {@linkplain Event#ignoreEvt(boolean)}, the canceled event is neither processed nor logged.
+	 *
+	 * @param e The Event object to be canceled.
+	 * @return {@code true} if the event was pending and has been canceled, {@code false} if it was not in the queue (e.g., it has already occurred).
+	 */
+	public boolean cancel(Event e) {
+		if (queue.remove(e)) {
+			numEventsCancelled++;
+			return true;
+		}
+		return false;
+	}
+
 	/**
 	 * Schedules a set of transactions given in the form of a TransactionWorkload object by adding them to the events queue.
-	 * For each transaction in the TransactionSet, an Event_NewTransactionArrival event is created and scheduled.
+	 * The arrivals of the transactions are a single {@linkplain Event_NewTransactionArrival}, which refers to them by
+	 * their handle in the table of the workload, and counts as one event per transaction.
 	 * If the transaction's nodeID is -1, a random node from the network's NodeSet is selected.
 	 * Otherwise, the transaction is assigned to the specific node with the given nodeID.
 	 *
 	 * @param ts The TransactionWorkload object containing the set of transactions to be scheduled.
 	 */
 	public void schedule(TransactionWorkload ts) {
-        Event_NewTransactionArrival e;
-		for (Transaction t : ts.getTransactions()) {
-			if (t.getNodeID() == -1) {
-				e = new Event_NewTransactionArrival(t, this.net.getNodeSet().pickRandomNode(), t.getCreationTime());
+        TransactionTable table = ts.getTable();
+        int n = ts.getCount();
+        int[] handles = new int[n];
+        INode[] nodes = new INode[n];
+        long[] times = new long[n];
+		for (int i = 0; i < n; i++) {
+			int h = ts.getHandle(i);
+			handles[i] = h;
+			if (table.getNodeID(h) == -1) {
+				nodes[i] = this.net.getNodeSet().pickRandomNode();
 			} else {
-				e = new Event_NewTransactionArrival(t, this.net.getNodeSet().pickSpecificNode(t.getNodeID()), t.getCreationTime());
+				nodes[i] = this.net.getNodeSet().pickSpecificNode(table.getNodeID(h));
 			}
-	        this.schedule(e);
+			times[i] = table.getCreationTime(h);
+			minTransactionSize = Math.min(minTransactionSize, table.getSize(h));
+		}
+		if (n > 0) {
+			this.schedule(new Event_NewTransactionArrival(table, handles, nodes, times));
 		}
-		this.totalqueuedTransactions += ts.getCount();
+		this.totalqueuedTransactions += n;
 	}
 
 	
@@ -209,18 +368,21 @@ public class Simulation {
 	
 	public void run() {
 	    //MainLoop
-		sysStartTime = System.currentTimeMillis();
+		context.setSysStartTime(System.currentTimeMillis());
 	    Event e;
 	    while (!queue.isEmpty()){
 	        e = queue.poll(); //it removes the last element of the queue
 	        numEventsProcessed++;
-            Simulation.currTime = e.getTime();
-            if (Simulation.currTime > this.terminationTime) {
+	        if (e.ignoreEvt()) {
+	        	numIgnoredEventsProcessed++;
+	        }
+            context.setCurrTime(e.getTime());
+            if (e.getTime() > this.terminationTime) {
             	System.out.println("\n\n    Sim #" + this.getSimID() + ": reached termination time. Ignoring remaining queue and exiting.");
             	break;
             }
             e.happen(this);
 	    }
-		sysEndTime = System.currentTimeMillis();
+		context.setSysEndTime(System.currentTimeMillis());
 	}
 }
\ No newline at end of file
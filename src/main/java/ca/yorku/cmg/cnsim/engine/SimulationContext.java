@@ -0,0 +1,243 @@
+package ca.yorku.cmg.cnsim.engine;
+
+import java.util.HashMap;
+import java.util.function.Supplier;
+
+import ca.yorku.cmg.cnsim.engine.reporter.ReportBuffer;
+import ca.yorku.cmg.cnsim.engine.reporter.RunMetrics;
+import ca.yorku.cmg.cnsim.engine.transaction.TransactionTable;
+
+/**
+ * Holds the state that belongs to a single simulation run (replication): the simulation clocks, the ID
+ * generators of events, nodes, transactions and model-specific objects, and the buffer into which the
+ * {@linkplain ca.yorku.cmg.cnsim.engine.reporter.Reporter} collects log lines.
+ * <p>
+ * The context is bound to the thread that executes the run, so that independent replications can be
+ * executed concurrently (see {@linkplain ReplicationExecutor}). Code that used to access global static
+ * counters and clocks obtains them from {@linkplain #current()}. A thread that has not been given a
+ * context explicitly receives a fresh one on first use.
+ * 
+ * @author Sotirios Liaskos for the Conceptual Modeling Group @ York University
+ */
+public class SimulationContext {
+
+	private static final ThreadLocal<SimulationContext> current = ThreadLocal.withInitial(SimulationContext::new);
+
+	private int simID = 1;
+
+	private long currTime = 0;
+	private long sysStartTime = 0;
+	private long sysEndTime = 0;
+
+	private long nextEventID = 1;
+	private int nextNodeID = 1;
+	private int nextTxID = 1;
+	private final HashMap<Class<?>, int[]> otherIDs = new HashMap<>();
+	private final HashMap<Class<?>, Object> shared = new HashMap<>();
+	private TransactionTable transactionTable;
+
+	private final ReportBuffer reportBuffer;
+	private final RunMetrics metrics = new RunMetrics();
+
+
+	public SimulationContext() {
+		this(1);
+	}
+
+	public SimulationContext(int simID) {
+		this(simID, new ReportBuffer());
+	}
+
+	/**
+	 * @param simID The ID of the simulation run.
+	 * @param reportBuffer The buffer into which the log lines of the run are collected.
+	 */
+	protected SimulationContext(int simID, ReportBuffer reportBuffer) {
+		this.simID = simID;
+		this.reportBuffer = reportBuffer;
+	}
+
+
+	/**
+	 * Returns the context bound to the current thread.
+	 * @return The context of the simulation run executing in the current thread.
+	 */
+	public static SimulationContext current() {
+		return current.get();
+	}
+
+	/**
+	 * Binds a context to the current thread.
+	 * @param ctx The context of the simulation run that is about to execute in the current thread.
+	 */
+	public static void set(SimulationContext ctx) {
+		current.set(ctx);
+	}
+
+	/**
+	 * Unbinds the context of the current thread.
+	 */
+	public static void clear() {
+		current.remove();
+	}
+
+
+	//
+	// C L O C K S
+	//
+
+	public int getSimID() {
+		return simID;
+	}
+
+	public void setSimID(int simID) {
+		this.simID = simID;
+	}
+
+	public long getCurrTime() {
+		return currTime;
+	}
+
+	public void setCurrTime(long currTime) {
+		this.currTime = currTime;
+	}
+
+	public long getSysStartTime() {
+		return sysStartTime;
+	}
+
+	public void setSysStartTime(long sysStartTime) {
+		this.sysStartTime = sysStartTime;
+	}
+
+	public long getSysEndTime() {
+		return sysEndTime;
+	}
+
+	public void setSysEndTime(long sysEndTime) {
+		this.sysEndTime = sysEndTime;
+	}
+
+
+	//
+	// I D   G E N E R A T O R S
+	//
+
+	public long nextEventID() {
+		return nextEventID++;
+	}
+
+	/**
+	 * Returns the number of event IDs handed out so far in this run.
+	 * @return The number of event IDs used.
+	 */
+	public long getEventIDsUsed() {
+		return nextEventID - 1;
+	}
+
+	/**
+	 * Marks a number of event IDs as used, e.g., by events that were processed on behalf of this run in other threads.
+	 * @param count The number of event IDs to skip.
+	 */
+	public void skipEventIDs(long count) {
+		nextEventID += count;
+	}
+
+	public int nextNodeID() {
+		return nextNodeID++;
+	}
+
+	public void resetNodeID() {
+		nextNodeID = 1;
+	}
+
+	public int nextTxID() {
+		return nextTxID++;
+	}
+
+	public int getCurrTxID() {
+		return nextTxID;
+	}
+
+	public void resetTxID() {
+		nextTxID = 1;
+	}
+
+	/**
+	 * Returns the next ID of a model-specific kind of object, e.g., blocks. Each kind has its own counter, starting from 1.
+	 * @param kind The class whose objects are numbered.
+	 * @return The next available ID for the kind.
+	 */
+	public int nextID(Class<?> kind) {
+		return otherIDs.computeIfAbsent(kind, k -> new int[] {1})[0]++;
+	}
+
+	/**
+	 * Returns the next available ID of a model-specific kind of object, without consuming it.
+	 * @param kind The class whose objects are numbered.
+	 * @return The next available ID for the kind.
+	 */
+	public int getCurrID(Class<?> kind) {
+		return otherIDs.computeIfAbsent(kind, k -> new int[] {1})[0];
+	}
+
+	/**
+	 * Sets the next available ID of a model-specific kind of object.
+	 * @param kind The class whose objects are numbered.
+	 * @param id The next ID to be handed out.
+	 */
+	public void setCurrID(Class<?> kind, int id) {
+		otherIDs.computeIfAbsent(kind, k -> new int[] {1})[0] = id;
+	}
+
+
+	//
+	// S H A R E D   O B J E C T S
+	//
+
+	/**
+	 * Returns the object of a model-specific kind that is shared by all nodes of the run, e.g., a store of blocks.
+	 * The object is created on first request.
+	 * @param <T> The kind of the object.
+	 * @param kind The class of the object.
+	 * @param factory Creates the object on first request.
+	 * @return The shared object of the kind.
+	 */
+	public <T> T getShared(Class<T> kind, Supplier<? extends T> factory) {
+		return kind.cast(shared.computeIfAbsent(kind, k -> factory.get()));
+	}
+
+
+	/**
+	 * Returns the table holding the transactions of the run, shared by its workload, pools and blocks.
+	 * The table is created on first request.
+	 * @return The transaction table of the run.
+	 */
+	public TransactionTable getTransactionTable() {
+		if (transactionTable == null) {
+			transactionTable = new TransactionTable();
+		}
+		return transactionTable;
+	}
+
+
+	//
+	// R E P O R T I N G
+	//
+
+	/**
+	 * Returns the buffer collecting the log lines produced by this run.
+	 * @return The report buffer of the run.
+	 */
+	public ReportBuffer getReportBuffer() {
+		return reportBuffer;
+	}
+
+	/**
+	 * Returns the metrics computed by this run.
+	 * @return The metrics of the run.
+	 */
+	public RunMetrics getMetrics() {
+		return metrics;
+	}
+}
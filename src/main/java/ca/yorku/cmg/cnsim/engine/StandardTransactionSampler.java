@@ -15,7 +15,7 @@ public class StandardTransactionSampler extends AbstractTransactionSampler {
 
 	
     public void updateSeed() {
-    	if ((seedUpdateEnabled) && (seedSwitchTx < Transaction.currID - 1)) {
+    	if ((seedUpdateEnabled) && (seedSwitchTx < Transaction.getCurrID() - 1)) {
     		currentSeed = this.initialSeed + this.simID;
     		super.random.setSeed(currentSeed);
     		seedUpdateEnabled = false;
@@ -103,9 +103,10 @@ public class StandardTransactionSampler extends AbstractTransactionSampler {
     @Override
     public void LoadConfig() {
     	super.LoadConfig();
-    	this.seedUpdateEnabled = (Config.hasProperty("workload.sampler.seed.updateSeed") ? Config.getPropertyBoolean("workload.sampler.seed.updateSeed") : false);
-    	this.seedSwitchTx = (Config.hasProperty("workload.sampler.seed.updateTransaction") ? Config.getPropertyLong("workload.sampler.seed.updateTransaction") : 0);
-    	this.currentSeed = (Config.hasProperty("workload.sampler.seed") ? Config.getPropertyLong("workload.sampler.seed") : 0);
+    	SimConfig config = ConfigInitializer.getSimConfig();
+    	this.seedUpdateEnabled = config.workloadSeedUpdate();
+    	this.seedSwitchTx = config.workloadSeedUpdateTransaction();
+    	this.currentSeed = config.workloadSamplerSeed();
     	this.initialSeed = this.currentSeed;
     }
 
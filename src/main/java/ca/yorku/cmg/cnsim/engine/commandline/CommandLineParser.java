@@ -9,6 +9,7 @@ import java.util.*;
  * This class handles parsing of command line arguments, including:
  * - Config file path (required)
  * - Number of simulations
+ * - Number of simulations to run concurrently
  * - Workload file path
  * - Network file path
  * - Node file path
@@ -40,6 +41,14 @@ public final class CommandLineParser {
     )
     private Long numSimulations;
 
+    @CommandLineOption(
+            key = "sim.threads",
+            description = "Number of simulations to run concurrently (Default 1)",
+            argument = "<long>",
+            aliases = {"-t", "--threads"}
+    )
+    private Long threads;
+
     @CommandLineOption(
             key = "workload.sampler.file",
             description = "Workload file path",
@@ -289,4 +298,5 @@ public final class CommandLineParser {
     public List<Long> getSwitchTimes() { return switchTimes; }
     public Long getNetworkSeed() { return networkSeed; }
     public String getOutputDirectory() { return outputDirectory; }
+    public Long getThreads() { return threads; }
 }
@@ -0,0 +1,40 @@
+package ca.yorku.cmg.cnsim.engine.event;
+
+import java.util.PriorityQueue;
+
+/**
+ * An {@linkplain EventQueue} backed by a {@linkplain PriorityQueue} (binary heap).
+ * Ties in time are broken by schedule sequence number (see {@linkplain EventTimeComparator}).
+ * O(log n) insertion and removal of the earliest event, O(n) removal of an arbitrary event.
+ * 
+ * @author Sotirios Liaskos for the Conceptual Modeling Group @ York University
+ */
+public class BinaryHeapEventQueue implements EventQueue {
+
+	private final PriorityQueue<Event> heap = new PriorityQueue<>(new EventTimeComparator());
+
+	@Override
+	public void add(Event e) {
+		heap.add(e);
+	}
+
+	@Override
+	public Event poll() {
+		return heap.poll();
+	}
+
+	@Override
+	public Event peek() {
+		return heap.peek();
+	}
+
+	@Override
+	public boolean remove(Event e) {
+		return heap.remove(e);
+	}
+
+	@Override
+	public int size() {
+		return heap.size();
+	}
+}
@@ -0,0 +1,209 @@
+package ca.yorku.cmg.cnsim.engine.event;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An {@linkplain EventQueue} implemented as a calendar queue (R. Brown, 1988).
+ * <p>
+ * Events are hashed by time into an array of "day" buckets, each bucket being a
+ * list sorted by time. Insertion and removal take O(1) amortized time provided
+ * the bucket width matches the density of pending events; the calendar is
+ * resized (and the width re-estimated) whenever the queue doubles or halves.
+ * Within a bucket events are sorted by time and schedule sequence number, so
+ * that ties are resolved in order of scheduling even for events re-inserted
+ * under an earlier sequence number (see {@linkplain Event_Multicast}).
+ * 
+ * @author Sotirios Liaskos for the Conceptual Modeling Group @ York University
+ */
+public class CalendarEventQueue implements EventQueue {
+
+	private static final int MIN_BUCKETS = 16;
+	private static final int WIDTH_SAMPLE = 25;
+	private static final EventTimeComparator ORDER = new EventTimeComparator();
+
+	private static final class Slot {
+		private final Event event;
+		private Slot next;
+
+		private Slot(Event event) {
+			this.event = event;
+		}
+	}
+
+	private Slot[] heads;
+	private Slot[] tails;
+	private int mask;
+	private long width = 1;
+
+	private int size = 0;
+	private int lastBucket = 0;
+	private long bucketTop;
+	private long lastTime = 0;
+
+	public CalendarEventQueue() {
+		allocate(MIN_BUCKETS);
+		setPosition(0);
+	}
+
+	private void allocate(int nbuckets) {
+		heads = new Slot[nbuckets];
+		tails = new Slot[nbuckets];
+		mask = nbuckets - 1;
+	}
+
+	private void setPosition(long time) {
+		long day = time / width;
+		lastTime = time;
+		lastBucket = (int) (day & mask);
+		bucketTop = (day + 1) * width;
+	}
+
+	@Override
+	public void add(Event e) {
+		if (e.getTime() < lastTime) {
+			setPosition(e.getTime());
+		}
+		insert(new Slot(e));
+		if (++size > 2 * heads.length) {
+			resize(heads.length * 2);
+		}
+	}
+
+	private void insert(Slot s) {
+		Event e = s.event;
+		int i = (int) ((e.getTime() / width) & mask);
+		Slot tail = tails[i];
+		if (tail == null) {
+			heads[i] = tails[i] = s;
+		} else if (ORDER.compare(tail.event, e) <= 0) {
+			tail.next = s;
+			tails[i] = s;
+		} else if (ORDER.compare(heads[i].event, e) > 0) {
+			s.next = heads[i];
+			heads[i] = s;
+		} else {
+			Slot p = heads[i];
+			while (ORDER.compare(p.next.event, e) <= 0) {
+				p = p.next;
+			}
+			s.next = p.next;
+			p.next = s;
+		}
+	}
+
+	@Override
+	public Event poll() {
+		if (size == 0) {
+			return null;
+		}
+		int i = locate();
+		Slot s = heads[i];
+		heads[i] = s.next;
+		if (heads[i] == null) {
+			tails[i] = null;
+		}
+		if (--size < heads.length / 2 && heads.length > MIN_BUCKETS) {
+			resize(heads.length / 2);
+		}
+		return s.event;
+	}
+
+	@Override
+	public Event peek() {
+		return (size == 0 ? null : heads[locate()].event);
+	}
+
+	@Override
+	public boolean remove(Event e) {
+		int i = (int) ((e.getTime() / width) & mask);
+		Slot prev = null;
+		for (Slot p = heads[i]; p != null; prev = p, p = p.next) {
+			if (p.event == e) {
+				if (prev == null) {
+					heads[i] = p.next;
+				} else {
+					prev.next = p.next;
+				}
+				if (tails[i] == p) {
+					tails[i] = prev;
+				}
+				if (--size < heads.length / 2 && heads.length > MIN_BUCKETS) {
+					resize(heads.length / 2);
+				}
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Finds the bucket holding the earliest event, advancing the calendar
+	 * position accordingly. Assumes the queue is not empty.
+	 */
+	private int locate() {
+		int i = lastBucket;
+		long top = bucketTop;
+		for (int n = 0; n <= mask; n++) {
+			Slot h = heads[i];
+			if (h != null && h.event.getTime() < top) {
+				lastBucket = i;
+				bucketTop = top;
+				lastTime = h.event.getTime();
+				return i;
+			}
+			i = (i + 1) & mask;
+			top += width;
+		}
+		// Nothing within a year: direct search for the minimum.
+		long min = Long.MAX_VALUE;
+		for (Slot h : heads) {
+			if (h != null && h.event.getTime() < min) {
+				min = h.event.getTime();
+			}
+		}
+		setPosition(min);
+		return lastBucket;
+	}
+
+	private void resize(int nbuckets) {
+		List<Event> all = new ArrayList<>(size);
+		for (Slot h : heads) {
+			for (Slot p = h; p != null; p = p.next) {
+				all.add(p.event);
+			}
+		}
+		all.sort(ORDER);
+		width = estimateWidth(all);
+		allocate(nbuckets);
+		for (Event e : all) {
+			insert(new Slot(e));
+		}
+		setPosition(lastTime);
+	}
+
+	private static long estimateWidth(List<Event> sorted) {
+		int n = Math.min(sorted.size(), WIDTH_SAMPLE);
+		if (n < 2) {
+			return 1;
+		}
+		long total = sorted.get(n - 1).getTime() - sorted.get(0).getTime();
+		double avg = (double) total / (n - 1);
+		long sum = 0;
+		int count = 0;
+		for (int k = 1; k < n; k++) {
+			long d = sorted.get(k).getTime() - sorted.get(k - 1).getTime();
+			if (d <= 2 * avg) {
+				sum += d;
+				count++;
+			}
+		}
+		long w = (count == 0) ? 0 : Math.round(3.0 * sum / count);
+		return Math.max(1, w);
+	}
+}
@@ -1,8 +1,9 @@
 package ca.yorku.cmg.cnsim.engine.event;
 
-import ca.yorku.cmg.cnsim.engine.Config;
 import ca.yorku.cmg.cnsim.engine.Simulation;
+import ca.yorku.cmg.cnsim.engine.SimulationContext;
 import ca.yorku.cmg.cnsim.engine.node.INode;
+import ca.yorku.cmg.cnsim.engine.reporter.Reporter;
 import ca.yorku.cmg.cnsim.engine.transaction.ITxContainer;
 import ca.yorku.cmg.cnsim.engine.transaction.Transaction;
 
@@ -14,7 +15,6 @@ import ca.yorku.cmg.cnsim.engine.transaction.Transaction;
 public class Event {
 	
 	// The ID of the current event
-	public static long currID = 1;
 	public long evtID = 1;
 	
 	//TODO: erase eventually
@@ -31,16 +31,30 @@ public class Event {
 	// The simulation time of occurrence of the event.
     private long time;
 
+	// The order in which the event was scheduled; breaks ties between events of equal time.
+    private long seq;
+
+	// Position of the event in an indexed queue, -1 if not in one.
+    int queueIndex = -1;
+
+	// The event log type number of each event class.
+    private static final ClassValue<Integer> EVENT_TYPES = new ClassValue<Integer>() {
+    	@Override
+    	protected Integer computeValue(Class<?> c) {
+    		return Reporter.eventType(c.getSimpleName());
+    	}
+    };
+
     
 	
 	/**
-	 * Retrieves the next unique event ID.
+	 * Retrieves the next unique event ID of the simulation running in the current thread.
 	 *
 	 * @return The next event ID.
 	 * @author Sotirios Liaskos
 	 */
 	public static long getNextEventID() {
-		return(currID++);
+		return(SimulationContext.current().nextEventID());
 	}
 	
 
@@ -67,7 +81,27 @@ public class Event {
     }
     
     /**
-     * Checks if the event should be ignored. Useful for when canceling future events.
+     * Sets the schedule sequence number of the event. Assigned by the simulation at scheduling time.
+     *
+     * @param seq A number greater than that of any previously scheduled event.
+     */
+    public void setSeq(long seq) {
+        this.seq = seq;
+    }
+
+    /**
+     * Retrieves the schedule sequence number of the event. Events of equal time
+     * are processed in increasing sequence number, i.e., in the order they were scheduled.
+     *
+     * @return The schedule sequence number of the event.
+     */
+    public long getSeq() {
+        return seq;
+    }
+
+    /**
+     * Checks if the event should be ignored. Useful for when canceling future events;
+     * see also {@linkplain Simulation#cancel(Event)}, which removes the event from the queue altogether.
      *
      * @return {@code true} if the event should be ignored, {@code false} otherwise.
      */
@@ -85,6 +119,38 @@ public class Event {
     	ignore = ignoreEvt;
     }
     
+    /**
+     * Retrieves the number under which the event log reports events of this class, i.e., the number of the simple
+     * name of the class (see {@linkplain Reporter#eventType(String)}). Looked up once per class.
+     *
+     * @return The number of the event type.
+     */
+    protected int getEventType() {
+    	return EVENT_TYPES.get(getClass());
+    }
+
+    /**
+     * Retrieves the node at which the event occurs. Used by {@linkplain ca.yorku.cmg.cnsim.engine.ParallelSimulation}
+     * to assign the event to the partition that owns the node.
+     *
+     * @return The node of the event, or {@code null} if the event concerns the simulation as a whole (e.g., belief reports).
+     */
+    public INode getNode() {
+    	return null;
+    }
+
+    /**
+     * Checks whether the event only reads and modifies the state of its own node, apart from operations that
+     * go through the simulation (scheduling, canceling, sampling, ID generation). A parallel simulation may
+     * process such events ahead of events of other nodes that precede them in time. Events that touch objects
+     * shared among nodes (e.g., propagated blocks) must return {@code false}, the default.
+     *
+     * @return {@code true} if the event touches no state shared with other nodes.
+     */
+    public boolean isNodeLocal() {
+    	return false;
+    }
+
 	/**
 	 * The ID of the current event object. IDs are created at the time of processing the event.
 	 * @return The ID of the current event object
@@ -95,27 +161,14 @@ public class Event {
     
     
     /**
-     * Executes the event in the simulation. Call node's periodic and time advancement reports. 
+     * Executes the event in the simulation. Assigns the event ID.
+     * Node periodic and time advancement reports are produced by {@linkplain Event_Report_PeriodicReport} events
+     * scheduled for the nodes that subscribe to them.
      *
      * @param sim The simulation instance.
      */
     public void happen(Simulation sim){
     	evtID = getNextEventID();
- 
-    	// Every little while ask node if it wants to print any period reports.
-    	// TODO: the periodic printing should (also) be based on simulation time.
-    	if ((currID % Config.getPropertyLong("sim.reporting.window")) == 0) {
-    		for (INode n : sim.getNodeSet().getNodes()) {
-    			n.periodicReport();
-    		}
-    	}
-
-    	// Ask node if it wants to print Node report.
-    	// TODO: difference between time advancement report and periodic report.
-		for (INode n : sim.getNodeSet().getNodes()) {
-			n.timeAdvancementReport();
-		}
-    	
     }
    
         
@@ -0,0 +1,73 @@
+package ca.yorku.cmg.cnsim.engine.event;
+
+/**
+ * The pending event set of a {@linkplain ca.yorku.cmg.cnsim.engine.Simulation}.
+ * <p>
+ * Implementations must return events in non-decreasing time order and,
+ * for events with equal timestamps, in increasing schedule sequence number
+ * ({@linkplain Event#getSeq()}), i.e., in the order they were scheduled, so
+ * that switching implementations never changes the outcome of a simulation.
+ * 
+ * @author Sotirios Liaskos for the Conceptual Modeling Group @ York University
+ * @see EventQueueFactory
+ */
+public interface EventQueue {
+
+	/**
+	 * Adds an event to the queue.
+	 * @param e The event to be added.
+	 */
+	void add(Event e);
+
+	/**
+	 * Retrieves and removes the earliest event of the queue.
+	 * @return The earliest event or {@code null} if the queue is empty.
+	 */
+	Event poll();
+
+	/**
+	 * Retrieves, but does not remove, the earliest event of the queue.
+	 * @return The earliest event or {@code null} if the queue is empty.
+	 */
+	Event peek();
+
+	/**
+	 * Removes a pending event from the queue, e.g., when the event is canceled.
+	 * <p>
+	 * Only {@linkplain QuaternaryHeapEventQueue}, which is indexed, removes an arbitrary event in O(log n) time.
+	 * The other implementations search for the event: {@linkplain BinaryHeapEventQueue} scans the whole heap,
+	 * {@linkplain CalendarEventQueue} the bucket of the event's day and {@linkplain LadderEventQueue} the list
+	 * (top, rung bucket or bottom) that holds it, so removal is linear in the length of that list.
+	 * @param e The event to be removed.
+	 * @return {@code true} if the event was pending and has been removed, {@code false} if it was not in the queue.
+	 */
+	boolean remove(Event e);
+
+	/**
+	 * Moves an event to a new time and schedule sequence number. If the event is
+	 * not pending it is added to the queue. Costs as much as {@linkplain #remove(Event)}.
+	 * @param e The event to be moved.
+	 * @param time The new time of the event.
+	 * @param seq The new schedule sequence number of the event.
+	 */
+	default void reschedule(Event e, long time, long seq) {
+		remove(e);
+		e.setTime(time);
+		e.setSeq(seq);
+		add(e);
+	}
+
+	/**
+	 * Returns the number of pending events.
+	 * @return The number of events in the queue.
+	 */
+	int size();
+
+	/**
+	 * Checks whether there are pending events.
+	 * @return {@code true} if the queue contains no events.
+	 */
+	default boolean isEmpty() {
+		return (size() == 0);
+	}
+}
@@ -0,0 +1,29 @@
+package ca.yorku.cmg.cnsim.engine.event;
+
+/**
+ * Creates the {@linkplain EventQueue} to be used by a simulation, based on the
+ * {@code sim.eventQueue} configuration property (see {@linkplain ca.yorku.cmg.cnsim.engine.SimConfig#eventQueue()}): {@code quaternary} (default),
+ * {@code heap}, {@code calendar} or {@code ladder}.
+ * 
+ * @author Sotirios Liaskos for the Conceptual Modeling Group @ York University
+ */
+public class EventQueueFactory {
+
+	public static EventQueue createEventQueue(String type) {
+		if (type == null || type.isBlank()) {
+			return new QuaternaryHeapEventQueue();
+		}
+		switch (type.trim().toLowerCase()) {
+		case "quaternary":
+			return new QuaternaryHeapEventQueue();
+		case "heap":
+			return new BinaryHeapEventQueue();
+		case "calendar":
+			return new CalendarEventQueue();
+		case "ladder":
+			return new LadderEventQueue();
+		default:
+			throw new IllegalArgumentException("Unknown event queue type: " + type + ". Use one of quaternary, heap, calendar, ladder.");
+		}
+	}
+}
@@ -2,12 +2,13 @@ package ca.yorku.cmg.cnsim.engine.event;
 
 import java.util.Comparator;
 
+/**
+ * Orders events by time and, for equal times, by schedule sequence number (FIFO).
+ */
 public class EventTimeComparator implements Comparator<Event>{
 	@Override
 	public int compare(Event e1, Event e2) {
-		if(e1.getTime() >= e2.getTime())
-			return 1;
-		else
-			return -1;
+		int c = Long.compare(e1.getTime(), e2.getTime());
+		return (c != 0 ? c : Long.compare(e1.getSeq(), e2.getSeq()));
 	}
 }
@@ -7,17 +7,15 @@ import ca.yorku.cmg.cnsim.engine.transaction.ITxContainer;
 
 /**
  * Event that signifies the arrival of a container (e.g. block) that has been validated by someone else.
+ * A single event delivers the container to all receiving nodes, see {@linkplain Event_Multicast}.
  * 
  * @author Sotirios Liaskos for the Enterprise Systems Group @ York University
  * 
  *  
  */
-public class Event_ContainerArrival extends Event {
+public class Event_ContainerArrival extends Event_Multicast {
 	//A pointer to the container
     private ITxContainer container;
-    
-    //A pointer to the node at which the container arrives
-    private INode node;
 
     
     /**
@@ -28,30 +26,38 @@ public class Event_ContainerArrival extends Event {
      * @param time  The simulation time at which the event occurs.
      */
     public Event_ContainerArrival(ITxContainer txc, INode n, long time){
-    	super();
-        this.node = n;
+    	this(txc, new INode[] {n}, new long[] {time});
+    }
+
+    /**
+     * Constructs a new Event_ContainerArrival that delivers the container to several nodes.
+     *
+     * @param txc   The container that arrives at the nodes.
+     * @param ns    The nodes at which the container arrives.
+     * @param times The simulation time at which the container arrives at each node.
+     */
+    public Event_ContainerArrival(ITxContainer txc, INode[] ns, long[] times){
+    	super(ns, times);
         this.container = txc;
-        super.setTime(time);
     }
     
 
     /**
-     * Executes the event in the simulation, by calling the {@linkplain INode::event_NodeReceivesPropagatedContainer}
+     * Delivers the container to a node, by calling the {@linkplain INode::event_NodeReceivesPropagatedContainer}
      *
      * @param sim The simulation instance.
+     * @param node The node at which the container arrives.
      */
     @Override
-    public void happen(Simulation sim) {
-        super.happen(sim);
+    protected void deliver(Simulation sim, INode node) {
         node.event_NodeReceivesPropagatedContainer(container);
         Reporter.addEvent(
         		sim.getSimID(),
         		this.getEvtID(), 
         		this.getTime(), 
-        		System.currentTimeMillis() - Simulation.sysStartTime, 
-        		this.getClass().getSimpleName(), 
+        		System.currentTimeMillis() - Simulation.getSysStartTime(), 
+        		getEventType(), 
         		node.getID(), 
         		container.getID());
     }
-
 }
@@ -14,6 +14,14 @@ public class Event_ContainerValidation extends Event {
     private ITxContainer container;
     private INode node;
 
+    // The event log type number of abandoned validations, for each event class.
+    private static final ClassValue<Integer> ABANDONED_TYPES = new ClassValue<Integer>() {
+    	@Override
+    	protected Integer computeValue(Class<?> c) {
+    		return Reporter.eventType(c.getSimpleName() + "_Abandonded");
+    	}
+    };
+
     
     /**
      * Constructs a new Event_ContainerValidation.
@@ -38,20 +46,24 @@ public class Event_ContainerValidation extends Event {
     @Override
     public void happen(Simulation sim) {
         super.happen(sim);
-        String status = "";
+        int type = getEventType();
         if (!super.ignoreEvt()) {
         	node.event_NodeCompletesValidation(container, getTime());
         } else {
-        	status = "_Abandonded";
+        	type = ABANDONED_TYPES.get(getClass());
         }
         Reporter.addEvent(
         		sim.getSimID(),
         		getEvtID(), 
         		getTime(), 
-        		System.currentTimeMillis() - Simulation.sysStartTime, 
-        		this.getClass().getSimpleName() + status, 
+        		System.currentTimeMillis() - Simulation.getSysStartTime(), 
+        		type, 
         		node.getID(), 
         		container.getID());
     }
 
+    @Override
+    public INode getNode() {
+        return node;
+    }
 }
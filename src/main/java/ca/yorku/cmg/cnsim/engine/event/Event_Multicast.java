@@ -0,0 +1,200 @@
+package ca.yorku.cmg.cnsim.engine.event;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.function.ToIntFunction;
+
+import ca.yorku.cmg.cnsim.engine.Simulation;
+import ca.yorku.cmg.cnsim.engine.node.INode;
+
+/**
+ * An event that delivers the same message (e.g., a propagated transaction or block) to several nodes,
+ * each at its own arrival time. Instead of one queued event per recipient, the multicast occupies a single
+ * slot in the queue: it is scheduled at the earliest arrival and, after each delivery, re-inserts itself
+ * at the next one.
+ * <p>
+ * When scheduled, the multicast reserves one schedule sequence number per recipient, in the order the
+ * recipients were given (see {@linkplain Simulation#schedule(Event)}). Each delivery is queued with the time
+ * and sequence number it would have had as a separate event, so deliveries interleave with other events
+ * exactly as if one event had been scheduled per recipient. Each delivery is processed, and logged, as
+ * an event of its own.
+ *
+ * @author Sotirios Liaskos for the Conceptual Modeling Group @ York University
+ */
+public abstract class Event_Multicast extends Event implements Cloneable {
+
+	// Recipients and arrival times, in order of arrival.
+	private INode[] recipients;
+	private long[] times;
+
+	// Position of each recipient in the given order, i.e., its offset in the block of reserved sequence numbers.
+	private int[] offsets;
+
+	private final int numRecipients;
+	private int size;
+	private int next = 0;
+	private long seqBase = 0;
+
+
+	/**
+	 * @param recipients The nodes to which the message is delivered.
+	 * @param times The arrival time at each node. If the times are in order, the arrays are kept rather than copied,
+	 *   and must not be changed afterwards.
+	 */
+	protected Event_Multicast(INode[] recipients, long[] times) {
+		super();
+		if (recipients.length != times.length) {
+			throw new IllegalArgumentException("Expected one arrival time per recipient.");
+		}
+		if (recipients.length == 0) {
+			throw new IllegalArgumentException("A multicast needs at least one recipient.");
+		}
+		this.numRecipients = recipients.length;
+		this.size = recipients.length;
+		this.offsets = new int[size];
+		if (isOrdered(times)) {
+			// As for a workload of many arrivals, which need not be sorted or copied.
+			this.recipients = recipients;
+			this.times = times;
+			for (int i = 0; i < size; i++) {
+				this.offsets[i] = i;
+			}
+			setTime(this.times[0]);
+			return;
+		}
+		Integer[] order = new Integer[recipients.length];
+		for (int i = 0; i < order.length; i++) {
+			order[i] = i;
+		}
+		// Stable: recipients arriving at the same time keep their given order.
+		Arrays.sort(order, Comparator.comparingLong(i -> times[i]));
+		this.recipients = new INode[size];
+		this.times = new long[size];
+		for (int i = 0; i < size; i++) {
+			this.recipients[i] = recipients[order[i]];
+			this.times[i] = times[order[i]];
+			this.offsets[i] = order[i];
+		}
+		setTime(this.times[0]);
+	}
+
+
+	private static boolean isOrdered(long[] times) {
+		for (int i = 1; i < times.length; i++) {
+			if (times[i] < times[i - 1]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+
+	/**
+	 * Delivers the message to a single node.
+	 * @param sim The simulation instance.
+	 * @param recipient The node to which the message arrives at the time of the event.
+	 */
+	protected abstract void deliver(Simulation sim, INode recipient);
+
+
+	/**
+	 * Delivers the message to the current recipient and re-inserts the event in the queue for the next one, if any.
+	 *
+	 * @param sim The simulation instance.
+	 */
+	@Override
+	public void happen(Simulation sim) {
+		super.happen(sim);
+		deliver(sim, recipients[next]);
+		next++;
+		if (next < size) {
+			setTime(times[next]);
+			setSeq(seqBase + offsets[next]);
+			sim.getQueue().add(this);
+		}
+	}
+
+	/**
+	 * The node that the message reaches at the time of the event.
+	 */
+	@Override
+	public INode getNode() {
+		return recipients[next];
+	}
+
+	/**
+	 * The position of the current recipient among the recipients as given to the constructor.
+	 * @return The position, from <tt>0</tt> to {@linkplain #getNumRecipients()} minus one.
+	 */
+	protected int getOffset() {
+		return offsets[next];
+	}
+
+	/**
+	 * Returns the total number of recipients, i.e., the number of sequence numbers to be reserved.
+	 * @return The number of recipients.
+	 */
+	public int getNumRecipients() {
+		return numRecipients;
+	}
+
+	/**
+	 * Returns the arrival time at the last recipient.
+	 * @return The time of the last delivery.
+	 */
+	public long getLastTime() {
+		return times[size - 1];
+	}
+
+	/**
+	 * Assigns the block of sequence numbers reserved for the recipients. The sequence number of the event
+	 * becomes that of the current recipient.
+	 * @param seqBase The first reserved sequence number.
+	 */
+	public void setSeqBase(long seqBase) {
+		this.seqBase = seqBase;
+		setSeq(seqBase + offsets[next]);
+	}
+
+	/**
+	 * Splits the pending deliveries into one multicast per group of recipients, e.g., the partitions of a parallel simulation.
+	 * Each part keeps the arrival times and sequence numbers of its deliveries. To be called after the multicast has been
+	 * scheduled and before it is queued.
+	 *
+	 * @param group Maps a recipient to its group.
+	 * @return The multicasts, in order of their first delivery.
+	 */
+	public List<Event_Multicast> split(ToIntFunction<INode> group) {
+		LinkedHashMap<Integer, List<Integer>> groups = new LinkedHashMap<>();
+		for (int i = next; i < size; i++) {
+			groups.computeIfAbsent(group.applyAsInt(recipients[i]), k -> new ArrayList<>()).add(i);
+		}
+		List<Event_Multicast> parts = new ArrayList<>(groups.size());
+		for (List<Integer> members : groups.values()) {
+			Event_Multicast part;
+			try {
+				part = (Event_Multicast) clone();
+			} catch (CloneNotSupportedException e) {
+				throw new IllegalStateException(e);
+			}
+			part.queueIndex = -1;
+			part.next = 0;
+			part.size = members.size();
+			part.recipients = new INode[part.size];
+			part.times = new long[part.size];
+			part.offsets = new int[part.size];
+			for (int j = 0; j < part.size; j++) {
+				part.recipients[j] = recipients[members.get(j)];
+				part.times[j] = times[members.get(j)];
+				part.offsets[j] = offsets[members.get(j)];
+			}
+			part.setTime(part.times[0]);
+			part.setSeq(seqBase + part.offsets[0]);
+			parts.add(part);
+		}
+		return parts;
+	}
+}
@@ -4,20 +4,33 @@ import ca.yorku.cmg.cnsim.engine.ProgressBar;
 import ca.yorku.cmg.cnsim.engine.Simulation;
 import ca.yorku.cmg.cnsim.engine.node.INode;
 import ca.yorku.cmg.cnsim.engine.reporter.Reporter;
+import ca.yorku.cmg.cnsim.engine.reporter.RunMetrics;
 import ca.yorku.cmg.cnsim.engine.transaction.Transaction;
+import ca.yorku.cmg.cnsim.engine.transaction.TransactionTable;
 
 
 /**
  * Represents an event of a new transaction arrival in the simulation.
+ * <p>
+ * The arrivals of a whole workload are a single event (see {@linkplain Event_Multicast}): each arrival is
+ * processed and logged as an event of its own, at the time and in the order it would have as a separate event,
+ * but the workload takes one slot in the queue and a few arrays of handles, nodes and times rather than one
+ * event object per transaction. The transaction object of an arrival is created from the table when it arrives;
+ * it stays bound to its row, so the pools and blocks it reaches keep only its handle.
+ * <p>
+ * Arrivals are not {@linkplain #isNodeLocal() node-local}: they update the progress bar, which is shared by all
+ * nodes, and may reseed the node sampler.
+ *
  * @author Sotirios Liaskos for the Conceptual Modeling Group @ York University
- * 
+ *
  */
-public class Event_NewTransactionArrival extends Event {
+public class Event_NewTransactionArrival extends Event_Multicast {
     private Transaction transaction;
-    private INode node;
-    
+    private TransactionTable table;
+    private int[] handles;
+
     public static int totalqueuedTransactions = 0;
-    
+
     /**
      * Constructs a new Event_NewTransactionArrival.
      *
@@ -26,38 +39,59 @@ public class Event_NewTransactionArrival extends Event {
      * @param time  The simulation time at which the event occurs.
      */
     public Event_NewTransactionArrival(Transaction tx, INode n, long time) {
-    	super();
-        this.node = n;
+    	super(new INode[] {n}, new long[] {time});
         this.transaction = tx;
-        super.setTime(time);
+    }
+
+    /**
+     * Constructs the arrivals of transactions of a table, each at its own node and time.
+     *
+     * @param table   The table holding the transactions.
+     * @param handles The handles of the transactions in the table.
+     * @param nodes   The node where each transaction arrives.
+     * @param times   The simulation time at which each transaction arrives.
+     */
+    public Event_NewTransactionArrival(TransactionTable table, int[] handles, INode[] nodes, long[] times) {
+    	super(nodes, times);
+    	if (handles.length != nodes.length) {
+    		throw new IllegalArgumentException("Expected one node per transaction.");
+    	}
+        this.table = table;
+        this.handles = handles;
     }
 
 
     /**
-     * Executes the event in the simulation and adds the corresponding logs.
+     * Executes the arrival of the current transaction in the simulation and adds the corresponding logs.
      *
      * @param sim The simulation instance.
+     * @param node The node where the transaction arrives.
      */
     @Override
-    public void happen(Simulation sim) {
-        super.happen(sim);
+    protected void deliver(Simulation sim, INode node) {
+        Transaction transaction = (this.transaction != null) ? this.transaction : table.get(handles[getOffset()]);
         node.event_NodeReceivesClientTransaction(transaction, getTime());
         //System.out.println();
         Reporter.addEvent(
         		sim.getSimID(),
-        		getEvtID(), 
-        		getTime(), 
-        		System.currentTimeMillis() - Simulation.sysStartTime, 
-        		this.getClass().getSimpleName(), 
-        		node.getID(), 
+        		getEvtID(),
+        		getTime(),
+        		System.currentTimeMillis() - Simulation.getSysStartTime(),
+        		getEventType(),
+        		node.getID(),
         		transaction.getID());
         Reporter.addTx(
         		sim.getSimID(),
-        		transaction.getID(), 
-        		transaction.getSize(), 
+        		transaction.getID(),
+        		transaction.getSize(),
         		transaction.getValue(),
         		getTime());
-        
+
+        RunMetrics m = Reporter.metrics();
+        if (m != null) {
+        	m.count(Reporter.TX_ARRIVALS, 1);
+        }
+
         ProgressBar.printProgress((int) transaction.getID(),sim.totalqueuedTransactions,4);
 
         // If the transaction has been marked (at TransactionWorkload) as seed changing.
@@ -65,6 +99,6 @@ public class Event_NewTransactionArrival extends Event {
         if (transaction.isSeedChanging()) {
         	sim.getSampler().getNodeSampler().updateSeed();
         }
-        
+
     }
 }
@@ -1,6 +1,5 @@
 package ca.yorku.cmg.cnsim.engine.event;
 
-import ca.yorku.cmg.cnsim.engine.Config;
 import ca.yorku.cmg.cnsim.engine.Simulation;
 import ca.yorku.cmg.cnsim.engine.node.INode;
 
@@ -8,9 +7,13 @@ public class Event_Report_BeliefReport extends Event {
 	
 	private long[] sampleTx;
 	
-	public Event_Report_BeliefReport(long time){
+	/**
+	 * @param time The time of the report.
+	 * @param sampleTx The IDs of the transactions to report beliefs about (see {@linkplain ca.yorku.cmg.cnsim.engine.SimConfig#sampleTransactions()}).
+	 */
+	public Event_Report_BeliefReport(long time, long[] sampleTx){
 		super.setTime(time);
-		this.sampleTx = Config.parseStringToArray(Config.getPropertyString("workload.sampleTransaction"));
+		this.sampleTx = sampleTx;
 	}
 	
     public void happen(Simulation sim){
@@ -3,11 +3,45 @@ package ca.yorku.cmg.cnsim.engine.event;
 import ca.yorku.cmg.cnsim.engine.Simulation;
 import ca.yorku.cmg.cnsim.engine.node.INode;
 
-public abstract class Event_Report_PeriodicReport extends Event {
-    public void happen(Simulation sim){
-    	super.happen(sim);
-		for (INode n : sim.getNodeSet().getNodes()) {
-			n.event_PrintPeriodicReport(this.getTime());
+/**
+ * A recurring reporting tick of a single node. The event asks the node for its time advancement
+ * and periodic reports and then schedules the next tick, {@linkplain INode#getReportingInterval()}
+ * later, for as long as other events are known to be scheduled at or after that time.
+ * @author Sotirios Liaskos for the Conceptual Modeling Group @ York University
+ * 
+ */
+public class Event_Report_PeriodicReport extends Event {
+	private INode node;
+
+	/**
+	 * Constructs a new Event_Report_PeriodicReport.
+	 * @param n The node to report.
+	 * @param time The simulation time at which the event occurs.
+	 */
+	public Event_Report_PeriodicReport(INode n, long time) {
+		super();
+		this.node = n;
+		super.setTime(time);
+	}
+
+	@Override
+	public void happen(Simulation sim) {
+		super.happen(sim);
+		node.timeAdvancementReport();
+		node.event_PrintPeriodicReport(this.getTime());
+		long next = this.getTime() + node.getReportingInterval();
+		if (node.getReportingInterval() > 0 && next <= sim.getLatestKnownEventTime()) {
+			sim.schedule(new Event_Report_PeriodicReport(node, next));
 		}
-    }
+	}
+
+	@Override
+	public INode getNode() {
+		return node;
+	}
+
+	@Override
+	public boolean isNodeLocal() {
+		return true;
+	}
 }
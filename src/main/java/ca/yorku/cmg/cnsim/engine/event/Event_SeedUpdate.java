@@ -30,8 +30,8 @@ public class Event_SeedUpdate extends Event {
         		sim.getSimID(),
         		this.getEvtID(), 
         		this.getTime(), 
-        		System.currentTimeMillis() - Simulation.sysStartTime, 
-        		this.getClass().getSimpleName(), 
+        		System.currentTimeMillis() - Simulation.getSysStartTime(), 
+        		getEventType(), 
         		-1, 
         		-1);
     }
@@ -8,14 +8,13 @@ import ca.yorku.cmg.cnsim.engine.transaction.Transaction;
 /**
  * 
  * Represents an event for transaction propagation in the simulation.
- * It extends the base Event class.
+ * A single event delivers the transaction to all receiving nodes, see {@linkplain Event_Multicast}.
  * 
  * @author Sotirios Liaskos for the Conceptual Modeling Group @ York University
  * 
  */
-public class Event_TransactionPropagation extends Event {
+public class Event_TransactionPropagation extends Event_Multicast {
     private Transaction trans;
-    private INode node;
 
     
     /**
@@ -27,31 +26,44 @@ public class Event_TransactionPropagation extends Event {
      * @param time  The simultion time at which the event occurs.
      */
     public Event_TransactionPropagation(Transaction t, INode n, long time){
-    	super();
-        this.node = n;
+    	this(t, new INode[] {n}, new long[] {time});
+    }
+
+    /**
+     * Constructs a new Event_TransactionPropagation object that delivers the transaction to several nodes.
+     *
+     * @param t     The transaction being propagated.
+     * @param ns    The nodes receiving the propagated transaction.
+     * @param times The simulation time at which the transaction arrives at each node.
+     */
+    public Event_TransactionPropagation(Transaction t, INode[] ns, long[] times){
+    	super(ns, times);
         this.trans = t;
-        super.setTime(time);
     }
 
     /**
-     * Performs the actions associated with the transaction propagation event.
+     * Performs the actions associated with the arrival of the transaction at a node.
      * It invokes the event_NodeReceivesPropagatedTransaction method of the node
      * and records the event in the Reporter.
      *
      * @param sim  The Simulation object.
+     * @param node The node receiving the transaction.
      */
     @Override
-    public void happen(Simulation sim) {
-        super.happen(sim);
+    protected void deliver(Simulation sim, INode node) {
         node.event_NodeReceivesPropagatedTransaction(trans, getTime());
         Reporter.addEvent(
         		sim.getSimID(),
         		getEvtID(), 
         		getTime(), 
-        		System.currentTimeMillis() - Simulation.sysStartTime, 
-        		this.getClass().getSimpleName(), 
+        		System.currentTimeMillis() - Simulation.getSysStartTime(), 
+        		getEventType(), 
         		node.getID(), 
         		trans.getID());
     }
 
+    @Override
+    public boolean isNodeLocal() {
+        return true;
+    }
 }
@@ -0,0 +1,217 @@
+package ca.yorku.cmg.cnsim.engine.event;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+
+/**
+ * An {@linkplain EventQueue} implemented as a ladder queue (W.T. Tang, R.S.M. Goh
+ * and I.L.-J. Thng, 2005).
+ * <p>
+ * Far-future events are appended to an unsorted <em>top</em> list. When needed,
+ * the top list is spread into the buckets of a <em>rung</em>; the earliest
+ * non-empty bucket is either subdivided into a new, finer rung or, once small
+ * enough, sorted into the <em>bottom</em> list from which events are dequeued.
+ * Events are only ever sorted in small batches, giving O(1) amortized
+ * insertion and removal of the earliest event independently of the distribution of timestamps.
+ * Removing an arbitrary event scans the list that holds it (see {@linkplain #remove(Event)}).
+ * <p>
+ * Batches are sorted by time and schedule sequence number, and new events are
+ * inserted into the bottom list in the same order, so that ties are resolved in
+ * order of scheduling even for events re-inserted under an earlier sequence
+ * number (see {@linkplain Event_Multicast}).
+ * 
+ * @author Sotirios Liaskos for the Conceptual Modeling Group @ York University
+ */
+public class LadderEventQueue implements EventQueue {
+
+	private static final int THRESHOLD = 50;
+	private static final int MAX_RUNGS = 8;
+
+	private static final class Rung {
+		private final long start;
+		private final long width;
+		private final ArrayList<Event>[] buckets;
+		private int cur = 0;
+		private int count = 0;
+
+		private Rung(long start, long width, int nbuckets) {
+			this.start = start;
+			this.width = width;
+			@SuppressWarnings("unchecked")
+			ArrayList<Event>[] b = (ArrayList<Event>[]) new ArrayList<?>[nbuckets];
+			this.buckets = b;
+		}
+
+		private long currentStart() {
+			return start + cur * width;
+		}
+
+		private void add(Event e) {
+			int i = (int) ((e.getTime() - start) / width);
+			if (buckets[i] == null) {
+				buckets[i] = new ArrayList<>();
+			}
+			buckets[i].add(e);
+			count++;
+		}
+	}
+
+	private static final Comparator<Event> LATEST_FIRST = new EventTimeComparator().reversed();
+
+	private ArrayList<Event> top = new ArrayList<>();
+	private long topMin = Long.MAX_VALUE;
+	private long topMax = Long.MIN_VALUE;
+	private long topStart = Long.MIN_VALUE;
+
+	private final Rung[] rungs = new Rung[MAX_RUNGS];
+	private int nRungs = 0;
+
+	// Sorted by descending time and sequence number; the next event is last.
+	private final ArrayList<Event> bottom = new ArrayList<>();
+
+	private int size = 0;
+
+	@Override
+	public void add(Event e) {
+		size++;
+		long t = e.getTime();
+		if (t >= topStart) {
+			top.add(e);
+			topMin = Math.min(topMin, t);
+			topMax = Math.max(topMax, t);
+			return;
+		}
+		for (int r = 0; r < nRungs; r++) {
+			if (t >= rungs[r].currentStart()) {
+				rungs[r].add(e);
+				return;
+			}
+		}
+		int lo = 0, hi = bottom.size();
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (LATEST_FIRST.compare(bottom.get(mid), e) < 0) {
+				lo = mid + 1;
+			} else {
+				hi = mid;
+			}
+		}
+		bottom.add(lo, e);
+	}
+
+	@Override
+	public Event poll() {
+		if (!prepareBottom()) {
+			return null;
+		}
+		size--;
+		return bottom.remove(bottom.size() - 1);
+	}
+
+	@Override
+	public Event peek() {
+		return (prepareBottom() ? bottom.get(bottom.size() - 1) : null);
+	}
+
+	@Override
+	public boolean remove(Event e) {
+		long t = e.getTime();
+		if (t >= topStart) {
+			if (removeIdentical(top, e)) {
+				size--;
+				return true;
+			}
+			return false;
+		}
+		for (int r = 0; r < nRungs; r++) {
+			Rung rung = rungs[r];
+			if (t >= rung.currentStart()) {
+				ArrayList<Event> b = rung.buckets[(int) ((t - rung.start) / rung.width)];
+				if (b != null && removeIdentical(b, e)) {
+					rung.count--;
+					size--;
+					return true;
+				}
+				return false;
+			}
+		}
+		if (removeIdentical(bottom, e)) {
+			size--;
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Removes the given object from a list, searching from the end, where recently added events are.
+	 */
+	private static boolean removeIdentical(ArrayList<Event> list, Event e) {
+		for (int i = list.size() - 1; i >= 0; i--) {
+			if (list.get(i) == e) {
+				list.remove(i);
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Makes sure the bottom list contains the earliest events, if any.
+	 * @return {@code false} if the queue is empty.
+	 */
+	private boolean prepareBottom() {
+		while (bottom.isEmpty()) {
+			if (nRungs == 0) {
+				if (top.isEmpty()) {
+					return false;
+				}
+				transferTop();
+				continue;
+			}
+			Rung r = rungs[nRungs - 1];
+			if (r.count == 0) {
+				rungs[--nRungs] = null;
+				continue;
+			}
+			while (r.buckets[r.cur] == null || r.buckets[r.cur].isEmpty()) {
+				r.cur++;
+			}
+			ArrayList<Event> b = r.buckets[r.cur];
+			long bStart = r.currentStart();
+			r.buckets[r.cur] = null;
+			r.count -= b.size();
+			r.cur++;
+			if (b.size() <= THRESHOLD || nRungs == MAX_RUNGS || r.width == 1) {
+				b.sort(LATEST_FIRST);
+				bottom.addAll(b);
+			} else {
+				long w = Math.max(1, (r.width + b.size() - 1) / b.size());
+				Rung child = new Rung(bStart, w, (int) ((r.width + w - 1) / w));
+				for (Event e : b) {
+					child.add(e);
+				}
+				rungs[nRungs++] = child;
+			}
+		}
+		return true;
+	}
+
+	private void transferTop() {
+		long span = topMax - topMin + 1;
+		long w = Math.max(1, (span + top.size() - 1) / top.size());
+		Rung r = new Rung(topMin, w, (int) ((span + w - 1) / w));
+		for (Event e : top) {
+			r.add(e);
+		}
+		rungs[nRungs++] = r;
+		topStart = topMax + 1;
+		top = new ArrayList<>();
+		topMin = Long.MAX_VALUE;
+		topMax = Long.MIN_VALUE;
+	}
+}
@@ -0,0 +1,154 @@
+package ca.yorku.cmg.cnsim.engine.event;
+
+import java.util.Arrays;
+
+/**
+ * An {@linkplain EventQueue} implemented as an implicit 4-ary min-heap.
+ * <p>
+ * The ordering keys, time and schedule sequence number, are kept in parallel
+ * primitive arrays next to the array of events, so that sifting compares
+ * {@code long}s held contiguously in memory rather than calling a comparator
+ * on event objects. The 4-ary layout halves the depth of the heap compared to
+ * a binary heap and keeps the children of a node in the same cache line.
+ * <p>
+ * The queue is indexed: each event knows its position in the heap, so that
+ * pending events can be removed or rescheduled in O(log n) time instead of
+ * being left in the queue to be ignored when their time comes.
+ * 
+ * @author Sotirios Liaskos for the Conceptual Modeling Group @ York University
+ */
+public class QuaternaryHeapEventQueue implements EventQueue {
+
+	private static final int INITIAL_CAPACITY = 1024;
+
+	private long[] times = new long[INITIAL_CAPACITY];
+	private long[] seqs = new long[INITIAL_CAPACITY];
+	private Event[] events = new Event[INITIAL_CAPACITY];
+	private int size = 0;
+
+	@Override
+	public void add(Event e) {
+		if (size == events.length) {
+			int cap = events.length * 2;
+			times = Arrays.copyOf(times, cap);
+			seqs = Arrays.copyOf(seqs, cap);
+			events = Arrays.copyOf(events, cap);
+		}
+		siftUp(size++, e.getTime(), e.getSeq(), e);
+	}
+
+	@Override
+	public Event poll() {
+		if (size == 0) {
+			return null;
+		}
+		Event first = events[0];
+		removeAt(0);
+		return first;
+	}
+
+	@Override
+	public boolean remove(Event e) {
+		int i = e.queueIndex;
+		if (i < 0 || i >= size || events[i] != e) {
+			return false;
+		}
+		removeAt(i);
+		return true;
+	}
+
+	@Override
+	public void reschedule(Event e, long time, long seq) {
+		int i = e.queueIndex;
+		e.setTime(time);
+		e.setSeq(seq);
+		if (i < 0 || i >= size || events[i] != e) {
+			add(e);
+		} else if (i > 0 && isBefore(time, seq, (i - 1) >>> 2)) {
+			siftUp(i, time, seq, e);
+		} else {
+			siftDown(i, time, seq, e);
+		}
+	}
+
+	private void removeAt(int i) {
+		Event removed = events[i];
+		int last = --size;
+		if (i != last) {
+			long t = times[last], s = seqs[last];
+			Event moved = events[last];
+			if (i > 0 && isBefore(t, s, (i - 1) >>> 2)) {
+				siftUp(i, t, s, moved);
+			} else {
+				siftDown(i, t, s, moved);
+			}
+		}
+		events[last] = null;
+		removed.queueIndex = -1;
+	}
+
+	/**
+	 * Whether the key (t, s) precedes the key at position p.
+	 */
+	private boolean isBefore(long t, long s, int p) {
+		return (t < times[p] || (t == times[p] && s < seqs[p]));
+	}
+
+	@Override
+	public Event peek() {
+		return (size == 0 ? null : events[0]);
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	private void siftUp(int i, long t, long s, Event e) {
+		while (i > 0) {
+			int p = (i - 1) >>> 2;
+			if (!isBefore(t, s, p)) {
+				break;
+			}
+			long pt = times[p];
+			set(i, pt, seqs[p], events[p]);
+			i = p;
+		}
+		set(i, t, s, e);
+	}
+
+	private void siftDown(int i, long t, long s, Event e) {
+		int n = size;
+		while (true) {
+			int c = (i << 2) + 1;
+			if (c >= n) {
+				break;
+			}
+			// Find the smallest of up to four children.
+			int min = c;
+			long mt = times[c], ms = seqs[c];
+			int end = Math.min(c + 4, n);
+			for (int k = c + 1; k < end; k++) {
+				long kt = times[k];
+				if (kt < mt || (kt == mt && seqs[k] < ms)) {
+					min = k;
+					mt = kt;
+					ms = seqs[k];
+				}
+			}
+			if (t < mt || (t == mt && s < ms)) {
+				break;
+			}
+			set(i, mt, ms, events[min]);
+			i = min;
+		}
+		set(i, t, s, e);
+	}
+
+	private void set(int i, long t, long s, Event e) {
+		times[i] = t;
+		seqs[i] = s;
+		events[i] = e;
+		e.queueIndex = i;
+	}
+}
@@ -1,7 +1,9 @@
 package ca.yorku.cmg.cnsim.engine.network;
 
-import ca.yorku.cmg.cnsim.engine.Config;
+import ca.yorku.cmg.cnsim.engine.ConfigInitializer;
+import ca.yorku.cmg.cnsim.engine.SimConfig;
 import ca.yorku.cmg.cnsim.engine.Simulation;
+import ca.yorku.cmg.cnsim.engine.node.INode;
 import ca.yorku.cmg.cnsim.engine.node.NodeSet;
 import ca.yorku.cmg.cnsim.engine.reporter.Reporter;
 
@@ -17,18 +19,43 @@ public abstract class AbstractNetwork {
 
 	public float[][] Net;
 
+	// The number of nodes of the network (net.numOfNodes).
+	protected int numOfNodes;
+
 	/**
-	 * Constructor. 
+	 * Constructor. Uses the configuration built by {@linkplain ConfigInitializer#initialize(String[])}.
 	 * @param ns A NodeSet object representing the nodes of the network.
 	 * @throws Exception 
 	 */
 	public AbstractNetwork(NodeSet ns) throws Exception {
-        int maxNodes = Config.getPropertyInt("sim.maxNodes");
+		this(ns, ConfigInitializer.getSimConfig());
+	}
+
+	/**
+	 * Constructor. 
+	 * @param ns A NodeSet object representing the nodes of the network.
+	 * @param config The configuration giving the maximum and actual number of nodes.
+	 * @throws Exception 
+	 */
+	public AbstractNetwork(NodeSet ns, SimConfig config) throws Exception {
+        int maxNodes = config.maxNodes();
 		if (maxNodes < ns.getNodeSetCount()) {
 			throw new Exception("Node count exceed maximum allowed number of nodes.");
 		}
 		Net = new float [maxNodes + 1][maxNodes + 1];
         this.ns = ns;
+        this.numOfNodes = config.numOfNodes();
+	}
+	
+	
+	/**
+	 * Constructor for networks that do not keep a throughput matrix and override {@linkplain #getThroughput(int, int)}.
+	 * @param ns A NodeSet object representing the nodes of the network.
+	 * @param numOfNodes The number of nodes of the network.
+	 */
+	protected AbstractNetwork(NodeSet ns, int numOfNodes) {
+		this.ns = ns;
+		this.numOfNodes = numOfNodes;
 	}
 	
 	
@@ -63,6 +90,24 @@ public abstract class AbstractNetwork {
 	}
 
 	
+	/**
+	 * Returns the shortest propagation time of a message of size Size between any two distinct nodes, i.e., over the fastest link.
+	 * @param size The size of the message in bytes
+	 * @return The propagation time *in milliseconds*, -1 if some two nodes are not connected, or 0 if there are fewer than two nodes.
+	 */
+	public long getMinPropagationTime(float size) {
+		long min = Long.MAX_VALUE;
+		for (INode origin : ns.getNodes()) {
+			for (INode destination : ns.getNodes()) {
+				if (origin != destination) {
+					min = Math.min(min, getPropagationTime(origin.getID(), destination.getID(), size));
+				}
+			}
+		}
+		return (min == Long.MAX_VALUE) ? 0 : min;
+	}
+
+
 	/**
 	 * Returns the propagation time of a message of size `size` in a channel of throughput `throughput`
 	 * @param throughput in Bits per Second (bps)
@@ -101,7 +146,7 @@ public abstract class AbstractNetwork {
 	}
 
 	public void setThroughput(int origin, int destination, float throughput) {
-		Reporter.addNetEvent(Simulation.currentSimulationID, origin, destination, throughput, Simulation.currTime);
+		Reporter.addNetEvent(Simulation.getCurrentSimulationID(), origin, destination, throughput, Simulation.getCurrTime());
 		if(origin < 0)
 			throw new ArithmeticException("Origin < 0");
 		if(destination < 0)
@@ -125,7 +170,7 @@ public abstract class AbstractNetwork {
 		float sum=0;
 		int i=1, count = 0;
 		
-		for (i=1; i <= Config.getPropertyInt("net.numOfNodes"); i++) {
+		for (i=1; i <= numOfNodes; i++) {
 	        if(i!=origin)
 	        {
 	            sum += (Net[origin][i] + Net[i][origin]);
@@ -1,17 +1,22 @@
 package ca.yorku.cmg.cnsim.engine.network;
 
-import ca.yorku.cmg.cnsim.engine.Config;
+import ca.yorku.cmg.cnsim.engine.ConfigInitializer;
 import ca.yorku.cmg.cnsim.engine.Debug;
 import ca.yorku.cmg.cnsim.engine.Sampler;
+import ca.yorku.cmg.cnsim.engine.SimConfig;
 import ca.yorku.cmg.cnsim.engine.node.NodeSet;
 
 public class NetworkFactory {
 	public static AbstractNetwork createNetwork(NodeSet ns, Sampler sampler) {
 		AbstractNetwork net = null;
 		
-		// try to read from config file, if available
-		String netFilePath = Config.getPropertyString("net.sampler.file");
-		if (netFilePath != null) {
+		// a peer graph if so configured, otherwise try to read from config file, if available
+		SimConfig config = ConfigInitializer.getSimConfig();
+		String netFilePath = (config == null) ? null : config.netSamplerFile();
+		if (config != null && config.isTopologyNetwork()) {
+			net = new TopologyNetwork(ns, sampler, config);
+			Debug.p("Creating topology network.");
+		} else if (netFilePath != null) {
 			try {
 				Debug.p("Creating file-based network.");
 				net = new FileBasedEndToEndNetwork(ns, netFilePath);
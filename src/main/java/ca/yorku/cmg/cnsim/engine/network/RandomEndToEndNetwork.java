@@ -1,7 +1,6 @@
 package ca.yorku.cmg.cnsim.engine.network;
 
 import ca.yorku.cmg.cnsim.engine.AbstractSampler;
-import ca.yorku.cmg.cnsim.engine.Config;
 import ca.yorku.cmg.cnsim.engine.Sampler;
 import ca.yorku.cmg.cnsim.engine.node.NodeSet;
 
@@ -44,8 +43,8 @@ public class RandomEndToEndNetwork extends AbstractNetwork {
 	 * @author Sotirios Liaskos
 	 */
 	private void CreateRandomNetwork(){
-		for (int i=1; i <= Config.getPropertyInt("net.numOfNodes"); i++) {
-			for (int j=1; j <= Config.getPropertyInt("net.numOfNodes"); j++) {
+		for (int i=1; i <= numOfNodes; i++) {
+			for (int j=1; j <= numOfNodes; j++) {
 	            if(i!=j && Net[i][j] == 0)
 	            {
 	            	//network throughput refers to how much data can be transferred from source to destination within a given time frame
@@ -0,0 +1,496 @@
+package ca.yorku.cmg.cnsim.engine.network;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+import ca.yorku.cmg.cnsim.engine.Sampler;
+import ca.yorku.cmg.cnsim.engine.SimConfig;
+import ca.yorku.cmg.cnsim.engine.Simulation;
+import ca.yorku.cmg.cnsim.engine.node.NodeSet;
+import ca.yorku.cmg.cnsim.engine.reporter.Reporter;
+
+/**
+ * A network given by its peer graph: nodes are connected by bidirectional links, each with its own bandwidth
+ * and latency, and messages travel along the links of a route. Unlike the end-to-end networks, which keep
+ * a throughput for every pair of nodes, the memory needed grows with the number of links rather than
+ * the square of the number of nodes.
+ * <p>
+ * The links are stored in compressed sparse row form. End-to-end figures are computed on demand: the routes
+ * from an origin to every other node are found with a single-source shortest path search and kept in a
+ * bounded cache of recently used origins. A message is forwarded by each node on the route once fully received,
+ * so it reaches its destination after the latencies of the links plus its transmission time over each of them.
+ * Accordingly, the end-to-end throughput of a route is {@code 1/sum(1/bandwidth)}. Routes minimize the delay
+ * of a message of a fixed size (the routing size).
+ * <p>
+ * The random topology has each node open links to {@code degree} distinct random peers, the first of them to a node
+ * of lower ID (possibly already linked to it), which keeps the graph connected. Bandwidths are drawn from the network
+ * sampler; latencies are drawn uniformly between 0 and twice the configured mean.
+ *
+ * @author Sotirios Liaskos for the Conceptual Modeling Group @ York University
+ */
+public class TopologyNetwork extends AbstractNetwork {
+
+	// Links as added, until the graph is built.
+	private int numLinks = 0;
+	private int[] linkFrom = new int[64];
+	private int[] linkTo = new int[64];
+	private float[] linkBandwidth = new float[64];
+	private float[] linkLatency = new float[64];
+	private final HashSet<Long> linked = new HashSet<>();
+
+	// The links of node i are at positions offsets[i] to offsets[i+1]-1.
+	private int[] offsets;
+	private int[] peers;
+	private float[] bandwidth;
+	private float[] latency;
+
+	// Cost (ms) of sending a message of the routing size over a link, apart from its latency, times the bandwidth.
+	private final double routingCost;
+	private final Map<Integer, Routes> cache;
+
+
+	/**
+	 * Creates a random topology over the nodes of a NodeSet, as given by the {@code net.topology.*} parameters
+	 * of the configuration.
+	 *
+	 * @param ns The NodeSet for the network.
+	 * @param sampler The sampler to use for the peers, bandwidths and latencies of the links.
+	 * @param config The configuration of the simulation.
+	 */
+	public TopologyNetwork(NodeSet ns, Sampler sampler, SimConfig config) {
+		this(ns, ns.getNodeSetCount(), config.topologyCacheSize(), config.topologyRoutingSize());
+		createRandomTopology(sampler, config.topologyDegree(), config.topologyLatency());
+	}
+
+	/**
+	 * Creates a network without links. Links are to be added with {@linkplain #addLink(int, int, float, float)}.
+	 *
+	 * @param ns The NodeSet for the network.
+	 * @param numOfNodes The number of nodes, whose IDs are 1 to {@code numOfNodes}.
+	 * @param cacheSize The number of origins whose routes are kept.
+	 * @param routingSize The size (bytes) of the message for which routes are chosen.
+	 */
+	public TopologyNetwork(NodeSet ns, int numOfNodes, int cacheSize, double routingSize) {
+		super(ns, numOfNodes);
+		if (cacheSize < 1) {
+			throw new IllegalArgumentException("Cache size must be positive: " + cacheSize);
+		}
+		this.routingCost = routingSize * 8 * 1000;
+		this.cache = new LinkedHashMap<Integer, Routes>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Integer, Routes> eldest) {
+				return size() > cacheSize;
+			}
+		};
+	}
+
+
+	/**
+	 * Connects two nodes with a bidirectional link. Links must be added before the network is first queried or a
+	 * link bandwidth is changed (see {@linkplain #setThroughput(int, int, float)}).
+	 *
+	 * @param a The ID of one node.
+	 * @param b The ID of the other node.
+	 * @param bandwidth The bandwidth of the link in bits per second (bps).
+	 * @param latency The latency of the link in milliseconds.
+	 */
+	public synchronized void addLink(int a, int b, float bandwidth, float latency) {
+		if (offsets != null) {
+			throw new IllegalStateException("Links cannot be added once the network is in use.");
+		}
+		if (a < 1 || a > numOfNodes || b < 1 || b > numOfNodes || a == b) {
+			throw new IllegalArgumentException("Invalid link between " + a + " and " + b);
+		}
+		if (bandwidth < 0)
+			throw new ArithmeticException("Bandwidth < 0");
+		if (latency < 0)
+			throw new ArithmeticException("Latency < 0");
+		if (!linked.add(key(a, b))) {
+			throw new IllegalArgumentException("Nodes " + a + " and " + b + " are already linked.");
+		}
+		if (numLinks == linkFrom.length) {
+			int n = numLinks * 2;
+			linkFrom = Arrays.copyOf(linkFrom, n);
+			linkTo = Arrays.copyOf(linkTo, n);
+			linkBandwidth = Arrays.copyOf(linkBandwidth, n);
+			linkLatency = Arrays.copyOf(linkLatency, n);
+		}
+		linkFrom[numLinks] = a;
+		linkTo[numLinks] = b;
+		linkBandwidth[numLinks] = bandwidth;
+		linkLatency[numLinks] = latency;
+		numLinks++;
+		Reporter.addNetEvent(Simulation.getCurrentSimulationID(), a, b, bandwidth, Simulation.getCurrTime());
+		Reporter.addNetEvent(Simulation.getCurrentSimulationID(), b, a, bandwidth, Simulation.getCurrTime());
+	}
+
+	/**
+	 * Checks whether two nodes are directly linked.
+	 * @param a The ID of one node.
+	 * @param b The ID of the other node.
+	 * @return {@code true} if a link between the nodes has been added.
+	 */
+	public synchronized boolean isLinked(int a, int b) {
+		return linked.contains(key(a, b));
+	}
+
+	/**
+	 * @return The number of (bidirectional) links of the network.
+	 */
+	public synchronized int getNumLinks() {
+		return numLinks;
+	}
+
+	private static long key(int a, int b) {
+		return ((long) Math.min(a, b) << 32) | Math.max(a, b);
+	}
+
+
+	private void createRandomTopology(Sampler sampler, int degree, double meanLatency) {
+		Random random = sampler.getNetworkSampler().getRandom();
+		int target = Math.min(degree, numOfNodes - 1);
+		for (int i = 1; i <= numOfNodes; i++) {
+			int opened = 0;
+			if (i > 1) {
+				int j = 1 + random.nextInt(i - 1);
+				if (!isLinked(i, j)) {
+					openLink(sampler, random, i, j, meanLatency);
+				}
+				opened++;
+			}
+			// Give up on nodes that are already linked to (nearly) everyone.
+			for (int attempts = 0; opened < target && attempts < 20 * target; attempts++) {
+				int j = 1 + random.nextInt(numOfNodes);
+				if (j != i && !isLinked(i, j)) {
+					openLink(sampler, random, i, j, meanLatency);
+					opened++;
+				}
+			}
+		}
+	}
+
+	private void openLink(Sampler sampler, Random random, int a, int b, double meanLatency) {
+		float bps = sampler.getNetworkSampler().getNextConnectionThroughput();
+		addLink(a, b, bps, (float) (random.nextDouble() * 2 * meanLatency));
+	}
+
+	/**
+	 * Lays out the links in compressed sparse row form.
+	 */
+	private void build() {
+		offsets = new int[numOfNodes + 2];
+		for (int k = 0; k < numLinks; k++) {
+			offsets[linkFrom[k] + 1]++;
+			offsets[linkTo[k] + 1]++;
+		}
+		for (int i = 1; i < offsets.length; i++) {
+			offsets[i] += offsets[i - 1];
+		}
+		int[] next = Arrays.copyOf(offsets, offsets.length);
+		peers = new int[2 * numLinks];
+		bandwidth = new float[2 * numLinks];
+		latency = new float[2 * numLinks];
+		for (int k = 0; k < numLinks; k++) {
+			place(next[linkFrom[k]]++, linkTo[k], k);
+			place(next[linkTo[k]]++, linkFrom[k], k);
+		}
+		linkFrom = linkTo = null;
+		linkBandwidth = linkLatency = null;
+	}
+
+	private void place(int pos, int peer, int link) {
+		peers[pos] = peer;
+		bandwidth[pos] = linkBandwidth[link];
+		latency[pos] = linkLatency[link];
+	}
+
+
+	/**
+	 * Returns the routes from an origin to every node, computing them if they are not cached.
+	 */
+	private synchronized Routes routes(int origin) {
+		if (offsets == null) {
+			build();
+		}
+		Routes r = cache.get(origin);
+		if (r == null) {
+			r = findRoutes(origin);
+			cache.put(origin, r);
+		}
+		return r;
+	}
+
+	/**
+	 * Dijkstra's algorithm over the link delays of a message of the routing size.
+	 */
+	private Routes findRoutes(int origin) {
+		int n = numOfNodes + 1;
+		double[] cost = new double[n];
+		Routes r = new Routes(n);
+		Arrays.fill(cost, Double.POSITIVE_INFINITY);
+		Arrays.fill(r.inverseThroughput, Double.POSITIVE_INFINITY);
+		cost[origin] = 0;
+		r.latency[origin] = 0;
+		r.inverseThroughput[origin] = 0;
+
+		Heap heap = new Heap(peers.length + 1);
+		heap.push(origin, 0);
+		while (heap.size > 0) {
+			double c = heap.topKey();
+			int u = heap.pop();
+			if (c > cost[u]) {
+				continue;
+			}
+			for (int e = offsets[u]; e < offsets[u + 1]; e++) {
+				if (bandwidth[e] == 0) {
+					continue;
+				}
+				int v = peers[e];
+				double cv = c + latency[e] + routingCost / bandwidth[e];
+				if (cv < cost[v]) {
+					cost[v] = cv;
+					r.latency[v] = r.latency[u] + latency[e];
+					r.inverseThroughput[v] = r.inverseThroughput[u] + 1.0 / bandwidth[e];
+					heap.push(v, cv);
+				}
+			}
+		}
+		return r;
+	}
+
+
+	/**
+	 * Returns the end-to-end throughput of the route from Origin to Destination.
+	 * @param Origin The ID of the origin node.
+	 * @param Destination The ID of the destination node.
+	 * @return The throughput in bits per second (bps), 0 if the nodes are not connected or the same.
+	 */
+	@Override
+	public float getThroughput(int Origin, int Destination) {
+		if(Origin < 0)
+			throw new ArithmeticException("Origin < 0");
+		if(Destination < 0)
+			throw new ArithmeticException("Destination < 0");
+		if (Origin == Destination) {
+			return 0;
+		}
+		double inv = routes(Origin).inverseThroughput[Destination];
+		return (inv == Double.POSITIVE_INFINITY) ? 0 : (float) (1.0 / inv);
+	}
+
+	/**
+	 * Returns the propagation time of a message of size Size from Origin to Destination: the latencies of
+	 * the links of the route plus the transmission time of the message over each of them.
+	 * @param origin The ID of the origin node.
+	 * @param destination The ID of the destination node.
+	 * @param size The size of the message in bytes
+	 * @return The propagation time *in milliseconds* or -1 if the nodes are not connected.
+	 */
+	@Override
+	public long getPropagationTime(int origin, int destination, float size) {
+		if(size < 0)
+			throw new ArithmeticException("Size < 0");
+		if (origin == destination) {
+			return -1;
+		}
+		Routes r = routes(origin);
+		double inv = r.inverseThroughput[destination];
+		if (inv == Double.POSITIVE_INFINITY) {
+			return -1;
+		}
+		return Math.round(r.latency[destination] + size * 8 * 1000 * inv);
+	}
+
+	/**
+	 * Returns the shortest propagation time of a message of size Size between any two distinct nodes. Every
+	 * route takes at least as long as its fastest link, so this is the propagation time over the fastest link,
+	 * found from the links alone without computing any route.
+	 * @param size The size of the message in bytes
+	 * @return The propagation time *in milliseconds*, -1 if some two nodes are not connected, or 0 if there are fewer than two nodes.
+	 */
+	@Override
+	public synchronized long getMinPropagationTime(float size) {
+		if(size < 0)
+			throw new ArithmeticException("Size < 0");
+		if (offsets == null) {
+			build();
+		}
+		if (numOfNodes < 2) {
+			return 0;
+		}
+		int[] component = new int[numOfNodes + 1];
+		for (int i = 1; i <= numOfNodes; i++) {
+			component[i] = i;
+		}
+		int components = numOfNodes;
+		long min = Long.MAX_VALUE;
+		for (int u = 1; u <= numOfNodes; u++) {
+			for (int e = offsets[u]; e < offsets[u + 1]; e++) {
+				if (bandwidth[e] == 0) {
+					continue;
+				}
+				min = Math.min(min, Math.round(latency[e] + size * 8 * 1000 * (1.0 / bandwidth[e])));
+				int a = find(component, u), b = find(component, peers[e]);
+				if (a != b) {
+					component[a] = b;
+					components--;
+				}
+			}
+		}
+		return (components > 1) ? -1 : min;
+	}
+
+	private static int find(int[] component, int i) {
+		while (component[i] != i) {
+			component[i] = component[component[i]];
+			i = component[i];
+		}
+		return i;
+	}
+
+	/**
+	 * Sets the bandwidth of the link from origin to destination, which must be directly linked. Only the direction
+	 * from origin to destination changes; a bandwidth of 0 takes the link out of the routes. Routes are recomputed
+	 * as they are next needed. No more links can be added after this call.
+	 * @param origin The ID of the origin node.
+	 * @param destination The ID of the destination node.
+	 * @param throughput The new bandwidth of the link in bits per second (bps).
+	 */
+	@Override
+	public synchronized void setThroughput(int origin, int destination, float throughput) {
+		if(origin < 0)
+			throw new ArithmeticException("Origin < 0");
+		if(destination < 0)
+			throw new ArithmeticException("Destination < 0");
+		if(throughput < 0)
+			throw new ArithmeticException("Throughput < 0");
+		if (!isLinked(origin, destination)) {
+			throw new IllegalArgumentException("Nodes " + origin + " and " + destination + " are not linked.");
+		}
+		if (offsets == null) {
+			build();
+		}
+		for (int e = offsets[origin]; e < offsets[origin + 1]; e++) {
+			if (peers[e] == destination) {
+				bandwidth[e] = throughput;
+			}
+		}
+		cache.clear();
+		Reporter.addNetEvent(Simulation.getCurrentSimulationID(), origin, destination, throughput, Simulation.getCurrTime());
+	}
+
+	/**
+	 * Calculates the average end-to-end throughput of a given origin node with the rest of the network.
+	 *
+	 * @param origin The origin node for which to calculate the average throughput.
+	 * @return The average throughput for the origin node.
+	 */
+	@Override
+	public float getAvgTroughput(int origin) {
+		float sum = 0;
+		for (int i = 1; i <= numOfNodes; i++) {
+			if (i != origin) {
+				sum += getThroughput(origin, i);
+			}
+		}
+		return (sum / (numOfNodes - 1));
+	}
+
+	/**
+	 * Prints the links of the network, one per line: the two nodes, the bandwidth and the latency.
+	 */
+	@Override
+	public synchronized void printNetwork() {
+		if (offsets == null) {
+			build();
+		}
+		for (int i = 1; i <= numOfNodes; i++) {
+			for (int e = offsets[i]; e < offsets[i + 1]; e++) {
+				if (i < peers[e]) {
+					System.out.printf("%d %d %3.1f %3.1f%n", i, peers[e], bandwidth[e], latency[e]);
+				}
+			}
+		}
+	}
+
+	@Override
+	public void printNetwork2() {
+		printNetwork();
+	}
+
+
+	/**
+	 * The routes from an origin: total latency and sum of inverse bandwidths to each node.
+	 */
+	private static class Routes {
+		final double[] latency;
+		final double[] inverseThroughput;
+
+		Routes(int n) {
+			latency = new double[n];
+			inverseThroughput = new double[n];
+		}
+	}
+
+	/**
+	 * A binary min-heap of nodes keyed by cost, allowing duplicates (stale entries are skipped on removal).
+	 */
+	private static class Heap {
+		final int[] node;
+		final double[] key;
+		int size = 0;
+
+		Heap(int capacity) {
+			node = new int[capacity];
+			key = new double[capacity];
+		}
+
+		void push(int n, double k) {
+			int i = size++;
+			while (i > 0) {
+				int p = (i - 1) >>> 1;
+				if (key[p] <= k) {
+					break;
+				}
+				node[i] = node[p];
+				key[i] = key[p];
+				i = p;
+			}
+			node[i] = n;
+			key[i] = k;
+		}
+
+		double topKey() {
+			return key[0];
+		}
+
+		int pop() {
+			int top = node[0];
+			size--;
+			int n = node[size];
+			double k = key[size];
+			int i = 0;
+			while (true) {
+				int c = 2 * i + 1;
+				if (c >= size) {
+					break;
+				}
+				if (c + 1 < size && key[c + 1] < key[c]) {
+					c++;
+				}
+				if (key[c] >= k) {
+					break;
+				}
+				node[i] = node[c];
+				key[i] = key[c];
+				i = c;
+			}
+			node[i] = n;
+			key[i] = k;
+			return top;
+		}
+	}
+}
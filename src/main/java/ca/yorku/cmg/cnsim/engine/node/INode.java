@@ -129,10 +129,18 @@ public interface INode {
     //
     //
     
+    /**
+     * Returns the interval, in simulation time, at which the node wants its time advancement and
+     * periodic reports to be produced. Nodes that return a non-positive value are not subscribed
+     * and receive no reporting callbacks at all.
+     * @return The reporting interval or a non-positive value if the node does not report.
+     */
+	public long getReportingInterval();
+
     /**
      * Generates a time advancement report.
      * The method is called from the simulator (or other) environment in for continues logging of events. 
-     * The method is called every time a new even is processed.
+     * The method is called at every reporting tick of the node, see {@linkplain #getReportingInterval()}.
      * The content and format of the report may vary depending on the implementation.
      * No parameters are required for this method.
      */
@@ -141,6 +149,7 @@ public interface INode {
 	/**
 	 * Generates a generic time-advancement report.
      * The method is called from the simulator (or other) environment in for periodic logging on events status etc.
+     * It is called at every reporting tick of the node, right after {@linkplain #timeAdvancementReport()}.
 	 * The content and format of the report may vary depending on the implementation.
 	 * This method does not take any parameters.
 	 */
@@ -1,17 +1,19 @@
 package ca.yorku.cmg.cnsim.engine.node;
 
-import ca.yorku.cmg.cnsim.engine.Config;
 import ca.yorku.cmg.cnsim.engine.Simulation;
+import ca.yorku.cmg.cnsim.engine.SimulationContext;
 import ca.yorku.cmg.cnsim.engine.event.Event;
 import ca.yorku.cmg.cnsim.engine.event.Event_ContainerArrival;
 import ca.yorku.cmg.cnsim.engine.event.Event_ContainerValidation;
 import ca.yorku.cmg.cnsim.engine.event.Event_TransactionPropagation;
 import ca.yorku.cmg.cnsim.engine.reporter.Reporter;
 import ca.yorku.cmg.cnsim.engine.transaction.ITxContainer;
+import ca.yorku.cmg.cnsim.engine.transaction.Mempool;
 import ca.yorku.cmg.cnsim.engine.transaction.Transaction;
 import ca.yorku.cmg.cnsim.engine.transaction.TransactionGroup;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 
 /**
  * Abstract class representing a node in a blockchain network.
@@ -25,7 +27,6 @@ import java.util.ArrayList;
  */
 public abstract class Node implements INode {
 
-	private static int currID = 1;
 	protected int ID;
 	
 	protected Simulation sim;
@@ -37,7 +38,7 @@ public abstract class Node implements INode {
 	protected double prospectiveMiningCycles = 0;
 	
 	protected BehaviorType behaviorType;
-	protected TransactionGroup pool;
+	protected Mempool pool;
 	protected Event nextValidationEvent;
 	
 	private boolean isMining = false;
@@ -50,7 +51,7 @@ public abstract class Node implements INode {
 	public Node(Simulation sim) {
 		super();
         this.sim = sim;
-        pool = new TransactionGroup();
+        pool = new Mempool();
         //setNetwork(sim.getNetwork());
         ID = getNextNodeID();
 	}
@@ -64,12 +65,12 @@ public abstract class Node implements INode {
 	public void ______________________ID() {} 
 	
 	/**
-	 * Gets the next available ID for a node and increments the counter.
+	 * Gets the next available ID for a node and increments the counter of the current {@linkplain SimulationContext}.
 	 * @return The next available ID for a node.
 	 * @author Sotirios Liaskos
 	 */
 	public static int getNextNodeID() {
-	    return(currID++);
+	    return(SimulationContext.current().nextNodeID());
 	}
 
 
@@ -78,7 +79,7 @@ public abstract class Node implements INode {
 	 * @author Sotirios Liaskos
 	 */
 	public static void resetCurrID() {
-	    currID = 1;
+	    SimulationContext.current().resetNodeID();
 	}
 	
 	
@@ -117,10 +118,10 @@ public abstract class Node implements INode {
 
 	/**
 	 * Gets the transaction pool of the node.
-	 * @return The transaction pool of the node.
+	 * @return The transaction pool of the node, ordered by value per size.
 	 * @author Sotirios Liaskos
 	 */
-	public TransactionGroup getPool() {
+	public Mempool getPool() {
 	    return pool;
 	}
 
@@ -270,24 +271,31 @@ public abstract class Node implements INode {
 	 * @author Sotirios Liaskos
 	 */
 	public void removeFromPool(ITxContainer removeThese) {
-		if ( (!pool.getTransactions().isEmpty()) && (!removeThese.getTransactions().isEmpty()) )
-			pool.getTransactions().removeAll(removeThese.getTransactions());
+		if ( (pool.getCount() > 0) && (removeThese.getCount() > 0) ) {
+			if (removeThese instanceof TransactionGroup g) {
+				// By ID, without creating the transaction objects.
+				pool.extractGroup(g);
+			} else {
+				for (Transaction t : removeThese.getTransactions())
+					pool.removeTransaction(t);
+			}
+		}
 	}
 
 	public void removeFromPool(Transaction removeThis) {
-		if ( (!pool.getTransactions().isEmpty()) && (removeThis != null) )
-			pool.getTransactions().remove(removeThis);
+		if ( (pool.getCount() > 0) && (removeThis != null) )
+			pool.removeTransaction(removeThis);
 	}
 
 	public void removeFromPool(int removeThis) {
-		if ( (!pool.getTransactions().isEmpty()) && (removeThis >= 0) )
-			//pool.getTransactions().remove(removeThis);
+		if ( (pool.getCount() > 0) && (removeThis >= 0) )
 			pool.removeTransaction(removeThis);
 	}
 
 	
 	/**
 	 * Propagates the specified transaction container to other nodes in the simulation.
+	 * A single {@linkplain Event_ContainerArrival} delivers the container to each node at its arrival time.
 	 * TODO: All time references should be on a global time parameter. 
 	 * @param txc The transaction container to be propagated.
 	 * @param time The current simulation time.
@@ -296,18 +304,25 @@ public abstract class Node implements INode {
 	public void propagateContainer(ITxContainer txc, long time) {
 	    NodeSet nodes = sim.getNodeSet();
 	    ArrayList<INode> ns_list = nodes.getNodes();
+	    INode[] recipients = new INode[ns_list.size()];
+	    long[] times = new long[ns_list.size()];
+	    int count = 0;
 	    for (INode n : ns_list) {
 	        if (!n.equals(this)){
 	            long inter = sim.getNetwork().getPropagationTime(this.getID(), n.getID(), txc.getSize());
-	            Event_ContainerArrival e = new Event_ContainerArrival(txc, n, time + inter);
-	            sim.schedule(e);
+	            recipients[count] = n;
+	            times[count++] = time + inter;
 	        }
 	    }
+	    if (count > 0) {
+	    	sim.schedule(new Event_ContainerArrival(txc, Arrays.copyOf(recipients, count), Arrays.copyOf(times, count)));
+	    }
 	}
 	
 	/**
 	 * 
 	 * Propagates the specified transaction to other nodes in the simulation.
+	 * A single {@linkplain Event_TransactionPropagation} delivers the transaction to each node at its arrival time.
 	 * @param t The transaction to be propagated.
 	 * @param time The current time in the simulation.
 	 * @author Sotirios Liaskos
@@ -315,6 +330,10 @@ public abstract class Node implements INode {
 	public void propagateTransaction(Transaction t, long time) {
 	    NodeSet nodes = sim.getNodeSet();
 	    ArrayList<INode> ns_list = nodes.getNodes();
+	    long propagationTime = sim.getConfig().propagationTime();
+	    INode[] recipients = new INode[ns_list.size()];
+	    long[] times = new long[ns_list.size()];
+	    int count = 0;
 	    for (INode n : ns_list) {
 	        if (!n.equals(this)){
 	            long inter = sim.getNetwork().getPropagationTime(this.getID(), n.getID(), t.getSize());
@@ -326,12 +345,15 @@ public abstract class Node implements INode {
 	            }
 
 	            //TODO: do something more elaborate perhaps
-	            inter+= Config.getPropertyInt("net.propagationTime");
+	            inter+= propagationTime;
 	            
-	            Event_TransactionPropagation e = new Event_TransactionPropagation(t, n, time + inter);
-	            sim.schedule(e);
+	            recipients[count] = n;
+	            times[count++] = time + inter;
 	        }
 	    }
+	    if (count > 0) {
+	    	sim.schedule(new Event_TransactionPropagation(t, Arrays.copyOf(recipients, count), Arrays.copyOf(times, count)));
+	    }
 	}
 
 	
@@ -397,22 +419,28 @@ public abstract class Node implements INode {
     }
     
     /**
-     * Deletes the next validation event associated with this node.
+     * Deletes the next validation event associated with this node. If the event is still pending
+     * it is canceled, i.e., removed from the simulation queue.
      * TODO: how does this affect cycle counting statistics?
      * @author Sotirios Liaskos
      */
     public void resetNextValidationEvent() {
+    	if (this.nextValidationEvent != null) {
+    		sim.cancel(this.nextValidationEvent);
+    	}
     	this.nextValidationEvent = null;
     }
 	
 	/**
 	 * Schedules a validation event for the specified transaction container at the given time.
+	 * Any pending validation event of the node is canceled.
 	 * @param txc The transaction container to be validated.
 	 * @param time The simulation time when the scheduling occurs. The even will be scheduled at `time + mining interval`. 
 	 * @return The scheduled mining interval in seconds.
 	 * @author Sotirios Liaskos
 	 */
 	public long scheduleValidationEvent(ITxContainer txc, long time) {
+		resetNextValidationEvent();
 		long h = sim.getSampler().getNodeSampler().getNextMiningInterval(getHashPower());
 	    Event_ContainerValidation e = new Event_ContainerValidation(txc, this, time + h);
 	    this.nextValidationEvent = e;
@@ -438,6 +466,15 @@ public abstract class Node implements INode {
 	}
 
 
+	/**
+	 * See {@linkplain INode#getReportingInterval()}. Nodes are not subscribed to reporting
+	 * callbacks unless they override this method.
+	 */
+	@Override
+	public long getReportingInterval() {
+		return -1;
+	}
+
 	/**
 	 * See {@linkplain INode#event_PrintPeriodicReport(long)}
 	 */
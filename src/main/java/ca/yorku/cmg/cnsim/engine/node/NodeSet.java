@@ -112,7 +112,7 @@ public class NodeSet {
 	public void closeNodes() {
 		for (INode n:this.getNodes()) {
 			n.close(n);
-			Reporter.addNode(Simulation.currentSimulationID, n.getID(), n.getHashPower(), n.getElectricPower(), n.getElectricityCost(), n.getTotalCycles());
+			Reporter.addNode(Simulation.getCurrentSimulationID(), n.getID(), n.getHashPower(), n.getElectricPower(), n.getElectricityCost(), n.getTotalCycles());
 		}
 	}
 	
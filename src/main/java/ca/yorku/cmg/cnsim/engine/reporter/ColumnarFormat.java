@@ -0,0 +1,82 @@
+package ca.yorku.cmg.cnsim.engine.reporter;
+
+/**
+ * The binary columnar format of the logs, an alternative to CSV for large logs (see {@code reporter.format} in
+ * {@linkplain Reporter}). A file holds the rows of one log as a sequence of <i>segments</i>, each holding a number of
+ * rows column by column, each column compressed on its own. Readers decompress the columns they need instead of
+ * parsing text, see {@linkplain ColumnarLogReader} and {@code tools/columnar.py}.
+ * <p>
+ * All numbers are little-endian. A file starts with a header:
+ * <pre>
+ *   8 bytes  magic "CNSIMCOL"
+ *   int32    format version (1)
+ *   int32    number of columns
+ *   per column: int8 type (see {@linkplain Type}), int16 length and UTF-8 bytes of the name
+ * </pre>
+ * followed by segments, until the end of the file:
+ * <pre>
+ *   int32    number of rows
+ *   per column: int32 raw length, int32 compressed length, the raw bytes compressed with zlib (deflate)
+ * </pre>
+ * The raw bytes of a column are, by type:
+ * <ul>
+ * <li>{@linkplain Type#LONG}: one int64 per row.</li>
+ * <li>{@linkplain Type#DOUBLE}: one float64 per row.</li>
+ * <li>{@linkplain Type#DICT}: int32 number of new dictionary entries, the entries (int16 length and UTF-8 bytes),
+ * then one int32 code per row. Codes index the dictionary of the column, which grows from segment to segment:
+ * the entries of a segment follow those of the segments before it.</li>
+ * <li>{@linkplain Type#IDS}: one int32 offset per row, one int32 length per row, then the int64 IDs of all rows;
+ * the IDs of a row are the <tt>length</tt> IDs starting at <tt>offset</tt>. In CSV, a list of IDs reads <tt>{1;2;3}</tt>.</li>
+ * </ul>
+ * Segments end when they are full and whenever the output is {@linkplain ReportWriter#sync() synced}, so that
+ * every segment written is complete.
+ *
+ * @author Sotirios Liaskos for the Conceptual Modeling Group @ York University
+ */
+public final class ColumnarFormat {
+
+	/** The first bytes of a file. */
+	public static final byte[] MAGIC = {'C', 'N', 'S', 'I', 'M', 'C', 'O', 'L'};
+	/** The version of the format written. */
+	public static final int VERSION = 1;
+	/** The extension of the files. */
+	public static final String EXTENSION = ".bin";
+
+	private ColumnarFormat() {
+	}
+
+	/**
+	 * The types of columns.
+	 */
+	public enum Type {
+		/** Integers, such as IDs and times. */
+		LONG,
+		/** Decimal numbers. */
+		DOUBLE,
+		/** Strings from a small set, such as event types, stored as codes into a dictionary. */
+		DICT,
+		/** Lists of IDs, such as the transactions of a block. */
+		IDS
+	}
+
+	/**
+	 * Receives the fields of a row, in the order of the columns, from a {@linkplain ReportWriter.Chunk} that can
+	 * provide them without formatting a line (see {@linkplain ReportWriter.Chunk#appendRow(int, Row)}).
+	 */
+	public interface Row {
+		/**
+		 * @param v The value of a {@linkplain Type#LONG} column.
+		 */
+		void putLong(long v);
+
+		/**
+		 * @param v The value of a {@linkplain Type#DOUBLE} column.
+		 */
+		void putDouble(double v);
+
+		/**
+		 * @param v The value of a {@linkplain Type#DICT} column.
+		 */
+		void putString(String v);
+	}
+}
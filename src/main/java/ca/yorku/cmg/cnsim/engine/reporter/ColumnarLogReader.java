@@ -0,0 +1,377 @@
+package ca.yorku.cmg.cnsim.engine.reporter;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Reads a log written in the binary {@linkplain ColumnarFormat}, one segment at a time. The compressed columns of a
+ * segment are memory-mapped and decompressed when first accessed, so that reading some columns of a log does not
+ * cost the others. A segment stays valid after the next one is read.
+ * <p>
+ * For example, the number of blocks appended on chain by node 3:
+ * <pre>
+ * try (ColumnarLogReader r = new ColumnarLogReader(file)) {
+ *     int node = r.getColumn("NodeID"), type = r.getColumn("EvtType");
+ *     for (ColumnarLogReader.Segment s = r.nextSegment(); s != null; s = r.nextSegment()) {
+ *         for (int i = 0; i < s.getRowCount(); i++) {
+ *             if (s.getLong(node, i) == 3 &amp;&amp; s.getString(type, i).startsWith("Appended")) count++;
+ *         }
+ *     }
+ * }
+ * </pre>
+ * Run as a program, it converts a file to CSV: <tt>ColumnarLogReader &lt;file&gt; [&lt;CSV file&gt;]</tt>.
+ *
+ * @author Sotirios Liaskos for the Conceptual Modeling Group @ York University
+ */
+public class ColumnarLogReader implements Closeable {
+
+	private static final ColumnarFormat.Type[] TYPES = ColumnarFormat.Type.values();
+
+	private final FileChannel channel;
+	private final String[] names;
+	private final ColumnarFormat.Type[] types;
+	/** The entries of the dictionary of each column, for the segments read so far. */
+	private final List<List<String>> dictionaries = new ArrayList<>();
+	private long position;
+
+	/**
+	 * Opens a file and reads its header.
+	 * @param file The file.
+	 * @throws IOException If the file cannot be read or is not in the columnar format.
+	 */
+	public ColumnarLogReader(Path file) throws IOException {
+		channel = FileChannel.open(file, StandardOpenOption.READ);
+		try {
+			ByteBuffer b = read(0, ColumnarFormat.MAGIC.length + 8);
+			byte[] magic = new byte[ColumnarFormat.MAGIC.length];
+			b.get(magic);
+			if (!Arrays.equals(magic, ColumnarFormat.MAGIC)) {
+				throw new IOException(file + " is not a columnar log.");
+			}
+			int version = b.getInt();
+			if (version != ColumnarFormat.VERSION) {
+				throw new IOException(file + " has unsupported format version " + version);
+			}
+			int n = b.getInt();
+			names = new String[n];
+			types = new ColumnarFormat.Type[n];
+			position = ColumnarFormat.MAGIC.length + 8;
+			for (int c = 0; c < n; c++) {
+				b = read(position, 3);
+				types[c] = TYPES[b.get()];
+				int len = b.getShort() & 0xFFFF;
+				names[c] = StandardCharsets.UTF_8.decode(read(position + 3, len)).toString();
+				position += 3 + len;
+				dictionaries.add(new ArrayList<>());
+			}
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * @return The names of the columns.
+	 */
+	public List<String> getColumnNames() {
+		return List.of(names);
+	}
+
+	/**
+	 * @param col The index of a column.
+	 * @return The type of the column.
+	 */
+	public ColumnarFormat.Type getType(int col) {
+		return types[col];
+	}
+
+	/**
+	 * The index of a column.
+	 * @param name The name of the column.
+	 * @return The index.
+	 * @throws IllegalArgumentException If there is no column of that name.
+	 */
+	public int getColumn(String name) {
+		for (int c = 0; c < names.length; c++) {
+			if (names[c].equals(name)) {
+				return c;
+			}
+		}
+		throw new IllegalArgumentException("No column " + name + " in " + String.join(",", names));
+	}
+
+	/**
+	 * Reads the next segment.
+	 * @return The segment, or <tt>null</tt> at the end of the file.
+	 * @throws IOException If the file cannot be read or is truncated.
+	 */
+	public Segment nextSegment() throws IOException {
+		if (position >= channel.size()) {
+			return null;
+		}
+		int rows = read(position, 4).getInt();
+		position += 4;
+		Segment s = new Segment(rows);
+		for (int c = 0; c < types.length; c++) {
+			ByteBuffer b = read(position, 8);
+			int rawLength = b.getInt();
+			int length = b.getInt();
+			position += 8;
+			if (position + length > channel.size()) {
+				throw new IOException("Truncated segment in columnar log.");
+			}
+			s.compressed[c] = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+			s.rawLengths[c] = rawLength;
+			position += length;
+			if (types[c] == ColumnarFormat.Type.DICT) {
+				// Dictionaries grow from segment to segment, so they are read in order.
+				s.column(c);
+			}
+		}
+		return s;
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	private ByteBuffer read(long at, int length) throws IOException {
+		ByteBuffer b = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+		while (b.hasRemaining()) {
+			if (channel.read(b, at + b.position()) < 0) {
+				throw new IOException("Unexpected end of columnar log.");
+			}
+		}
+		return b.flip();
+	}
+
+
+	/**
+	 * The rows of a segment.
+	 */
+	public final class Segment {
+		private final int rows;
+		private final MappedByteBuffer[] compressed = new MappedByteBuffer[types.length];
+		private final int[] rawLengths = new int[types.length];
+		/** The decompressed columns; for lists of IDs, the offsets, and the lengths and IDs in {@code ids}. */
+		private final Object[] values = new Object[types.length];
+		private final int[][] lengths = new int[types.length][];
+		private final long[][] ids = new long[types.length][];
+
+		private Segment(int rows) {
+			this.rows = rows;
+		}
+
+		/**
+		 * @return The number of rows.
+		 */
+		public int getRowCount() {
+			return rows;
+		}
+
+		/**
+		 * All values of a {@linkplain ColumnarFormat.Type#LONG} column.
+		 * @param col The index of the column.
+		 * @return The values, one per row; not to be changed.
+		 */
+		public long[] getLongs(int col) {
+			return (long[]) column(col);
+		}
+
+		/**
+		 * All values of a {@linkplain ColumnarFormat.Type#DOUBLE} column.
+		 * @param col The index of the column.
+		 * @return The values, one per row; not to be changed.
+		 */
+		public double[] getDoubles(int col) {
+			return (double[]) column(col);
+		}
+
+		/**
+		 * All dictionary codes of a {@linkplain ColumnarFormat.Type#DICT} column, see {@linkplain #getDictionary(int)}.
+		 * @param col The index of the column.
+		 * @return The codes, one per row; not to be changed.
+		 */
+		public int[] getCodes(int col) {
+			return (int[]) column(col);
+		}
+
+		/**
+		 * The dictionary of a {@linkplain ColumnarFormat.Type#DICT} column, holding the strings of this segment and of the ones before it.
+		 * @param col The index of the column.
+		 * @return The strings, by code.
+		 */
+		public List<String> getDictionary(int col) {
+			column(col);
+			return dictionaries.get(col);
+		}
+
+		public long getLong(int col, int row) {
+			return getLongs(col)[row];
+		}
+
+		public double getDouble(int col, int row) {
+			return getDoubles(col)[row];
+		}
+
+		public String getString(int col, int row) {
+			return getDictionary(col).get(getCodes(col)[row]);
+		}
+
+		/**
+		 * The IDs of a row of a {@linkplain ColumnarFormat.Type#IDS} column.
+		 * @param col The index of the column.
+		 * @param row The row.
+		 * @return A new array with the IDs.
+		 */
+		public long[] getIDs(int col, int row) {
+			int offset = ((int[]) column(col))[row];
+			return Arrays.copyOfRange(ids[col], offset, offset + lengths[col][row]);
+		}
+
+		/**
+		 * Appends a row as a CSV line, without a line separator.
+		 * @param row The row.
+		 * @param out The builder receiving the line.
+		 */
+		public void appendLine(int row, StringBuilder out) {
+			for (int c = 0; c < types.length; c++) {
+				if (c > 0) {
+					out.append(',');
+				}
+				switch (types[c]) {
+				case LONG:
+					out.append(getLong(c, row));
+					break;
+				case DOUBLE:
+					out.append(getDouble(c, row));
+					break;
+				case DICT:
+					out.append(getString(c, row));
+					break;
+				case IDS:
+					out.append('{');
+					long[] l = getIDs(c, row);
+					for (int i = 0; i < l.length; i++) {
+						if (i > 0) {
+							out.append(';');
+						}
+						out.append(l[i]);
+					}
+					out.append('}');
+					break;
+				}
+			}
+		}
+
+		private Object column(int col) {
+			if (values[col] == null) {
+				try {
+					values[col] = decode(col, inflate(col));
+				} catch (DataFormatException e) {
+					throw new IllegalStateException("Corrupt column " + names[col] + " in columnar log.", e);
+				}
+			}
+			return values[col];
+		}
+
+		private ByteBuffer inflate(int col) throws DataFormatException {
+			ByteBuffer out = ByteBuffer.allocate(rawLengths[col]).order(ByteOrder.LITTLE_ENDIAN);
+			Inflater inflater = new Inflater();
+			try {
+				inflater.setInput(compressed[col].duplicate());
+				while (out.hasRemaining() && !inflater.finished()) {
+					if (inflater.inflate(out) == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+						throw new DataFormatException("Column shorter than its length.");
+					}
+				}
+			} finally {
+				inflater.end();
+			}
+			compressed[col] = null;
+			return out.flip();
+		}
+
+		private Object decode(int col, ByteBuffer b) {
+			switch (types[col]) {
+			case LONG: {
+				long[] v = new long[rows];
+				b.asLongBuffer().get(v);
+				return v;
+			}
+			case DOUBLE: {
+				double[] v = new double[rows];
+				b.asDoubleBuffer().get(v);
+				return v;
+			}
+			case DICT: {
+				int n = b.getInt();
+				for (int i = 0; i < n; i++) {
+					byte[] s = new byte[b.getShort() & 0xFFFF];
+					b.get(s);
+					dictionaries.get(col).add(new String(s, StandardCharsets.UTF_8));
+				}
+				int[] v = new int[rows];
+				b.asIntBuffer().get(v);
+				return v;
+			}
+			default: {
+				int[] offsets = new int[rows];
+				lengths[col] = new int[rows];
+				b.asIntBuffer().get(offsets);
+				b.position(b.position() + rows * 4);
+				b.asIntBuffer().get(lengths[col]);
+				b.position(b.position() + rows * 4);
+				ids[col] = new long[b.remaining() / 8];
+				b.asLongBuffer().get(ids[col]);
+				return offsets;
+			}
+			}
+		}
+	}
+
+
+	/**
+	 * Converts a columnar log to CSV.
+	 * @param args The file, and the CSV file to be written; standard output if absent.
+	 * @throws IOException If a file cannot be read or written.
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length < 1) {
+			System.err.println("Usage: ColumnarLogReader <file> [<CSV file>]");
+			System.exit(1);
+		}
+		try (ColumnarLogReader r = new ColumnarLogReader(Paths.get(args[0]));
+				Writer w = (args.length > 1) ? Files.newBufferedWriter(Paths.get(args[1]))
+						: new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8))) {
+			w.write(String.join(", ", r.names));
+			w.write(System.lineSeparator());
+			StringBuilder line = new StringBuilder();
+			for (Segment s = r.nextSegment(); s != null; s = r.nextSegment()) {
+				for (int i = 0; i < s.getRowCount(); i++) {
+					line.setLength(0);
+					s.appendLine(i, line);
+					w.append(line).write(System.lineSeparator());
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,356 @@
+package ca.yorku.cmg.cnsim.engine.reporter;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.zip.Deflater;
+
+/**
+ * Writes the lines of a log to a file in the binary {@linkplain ColumnarFormat}. Fields are collected in one array
+ * per column until a segment is full, or the output is forced, and then each column is compressed and written.
+ * Lines are parsed by splitting them at commas; fields of {@linkplain ColumnarFormat.Type#DICT} columns are kept as
+ * they are, including spaces.
+ *
+ * @author Sotirios Liaskos for the Conceptual Modeling Group @ York University
+ */
+class ColumnarOutput extends ReportWriter.Output implements ColumnarFormat.Row {
+
+	/** The number of rows of a full segment. */
+	static final int SEGMENT_ROWS = 1 << 16;
+
+	private final FileChannel channel;
+	private final ColumnarFormat.Type[] types;
+	private final Column[] columns;
+	private int rows = 0;
+	/** The column receiving the next field of the current row. */
+	private int col = 0;
+
+	private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+	private ByteBuffer raw = ByteBuffer.allocate(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+	private byte[] compressed = new byte[1 << 20];
+	private final ByteBuffer lengths = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+
+	/**
+	 * Creates the output and writes the header of the file.
+	 * @param channel The file.
+	 * @param names The names of the columns; surrounding spaces are dropped.
+	 * @param types The types of the columns.
+	 */
+	ColumnarOutput(FileChannel channel, String[] names, ColumnarFormat.Type[] types) throws IOException {
+		this.channel = channel;
+		this.types = types;
+		columns = new Column[types.length];
+		for (int c = 0; c < types.length; c++) {
+			columns[c] = new Column(types[c]);
+		}
+		ensure(16);
+		raw.put(ColumnarFormat.MAGIC).putInt(ColumnarFormat.VERSION).putInt(types.length);
+		for (int c = 0; c < types.length; c++) {
+			byte[] name = names[c].trim().getBytes(StandardCharsets.UTF_8);
+			ensure(3 + name.length);
+			raw.put((byte) types[c].ordinal()).putShort((short) name.length).put(name);
+		}
+		raw.flip();
+		writeFully(raw);
+		raw.clear();
+	}
+
+
+	////////// Rows //////////
+
+	@Override
+	void write(String line) throws IOException {
+		parse(line);
+	}
+
+	@Override
+	void write(ReportWriter.Chunk c, StringBuilder text) throws IOException {
+		for (int l = 0; l < c.lines(); l++) {
+			if (c.appendRow(l, this)) {
+				endRow();
+			} else {
+				text.setLength(0);
+				c.appendLine(l, text);
+				parse(text);
+			}
+		}
+	}
+
+	private void parse(CharSequence line) throws IOException {
+		int start = 0;
+		for (int c = 0; c < types.length; c++) {
+			int end = (c == types.length - 1) ? line.length() : indexOf(line, ',', start);
+			if (end < 0) {
+				throw malformed(line);
+			}
+			try {
+				switch (types[c]) {
+				case LONG:
+					putLong(Long.parseLong(line, start, end, 10));
+					break;
+				case DOUBLE:
+					putDouble(Double.parseDouble(line.subSequence(start, end).toString()));
+					break;
+				case DICT:
+					putString(line.subSequence(start, end).toString());
+					break;
+				case IDS:
+					putIDs(line, start, end);
+					break;
+				}
+			} catch (NumberFormatException e) {
+				throw malformed(line);
+			}
+			start = end + 1;
+		}
+		endRow();
+	}
+
+	private static int indexOf(CharSequence s, char ch, int from) {
+		for (int i = from; i < s.length(); i++) {
+			if (s.charAt(i) == ch) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private IOException malformed(CharSequence line) {
+		col = 0;
+		return new IOException("Line does not match the " + types.length + " columns of the log: " + line);
+	}
+
+	@Override
+	public void putLong(long v) {
+		columns[col++].addLong(rows, v);
+	}
+
+	@Override
+	public void putDouble(double v) {
+		columns[col++].addDouble(rows, v);
+	}
+
+	@Override
+	public void putString(String v) {
+		columns[col++].addString(rows, v);
+	}
+
+	/**
+	 * Adds a list of IDs of the form "{1;2;3}".
+	 */
+	private void putIDs(CharSequence s, int start, int end) {
+		if (end - start < 2 || s.charAt(start) != '{' || s.charAt(end - 1) != '}') {
+			throw new NumberFormatException();
+		}
+		Column column = columns[col++];
+		column.startIDs(rows);
+		int i = start + 1;
+		while (i < end - 1) {
+			int j = indexOf(s, ';', i);
+			if (j < 0 || j > end - 1) {
+				j = end - 1;
+			}
+			column.addID(Long.parseLong(s, i, j, 10));
+			i = j + 1;
+		}
+	}
+
+	private void endRow() throws IOException {
+		col = 0;
+		rows++;
+		lines++;
+		if (rows == SEGMENT_ROWS) {
+			writeSegment();
+		}
+	}
+
+
+	////////// Segments //////////
+
+	@Override
+	void force() throws IOException {
+		if (rows > 0) {
+			writeSegment();
+		}
+		channel.force(false);
+	}
+
+	@Override
+	void close() throws IOException {
+		channel.close();
+	}
+
+	private void writeSegment() throws IOException {
+		lengths.clear();
+		lengths.putInt(rows).flip();
+		writeFully(lengths);
+		for (Column c : columns) {
+			raw.clear();
+			c.encode(rows);
+			raw.flip();
+			int rawLength = raw.remaining();
+			deflater.reset();
+			deflater.setInput(raw);
+			deflater.finish();
+			int n = 0;
+			while (!deflater.finished()) {
+				if (n == compressed.length) {
+					compressed = Arrays.copyOf(compressed, n * 2);
+				}
+				n += deflater.deflate(compressed, n, compressed.length - n);
+			}
+			lengths.clear();
+			lengths.putInt(rawLength).putInt(n).flip();
+			writeFully(lengths);
+			writeFully(ByteBuffer.wrap(compressed, 0, n));
+			c.clear();
+		}
+		rows = 0;
+	}
+
+	/**
+	 * Makes room for more bytes in the raw buffer.
+	 */
+	private void ensure(int bytes) {
+		if (raw.remaining() < bytes) {
+			ByteBuffer b = ByteBuffer.allocate(Math.max(raw.capacity() * 2, raw.position() + bytes)).order(ByteOrder.LITTLE_ENDIAN);
+			raw.flip();
+			b.put(raw);
+			raw = b;
+		}
+	}
+
+	private void writeFully(ByteBuffer b) throws IOException {
+		while (b.hasRemaining()) {
+			channel.write(b);
+		}
+	}
+
+
+	/**
+	 * The fields of a column in the current segment.
+	 */
+	private final class Column {
+		final ColumnarFormat.Type type;
+		long[] longs = new long[1024];
+		double[] doubles;
+		int[] ints;
+		/** For lists of IDs: the offset of each row, the IDs being in {@code longs}. */
+		int[] offsets;
+		int ids = 0;
+		/** For dictionary columns: the code of each string, and the strings added in this segment. */
+		HashMap<String, Integer> codes;
+		ArrayList<String> newEntries;
+
+		Column(ColumnarFormat.Type type) {
+			this.type = type;
+			switch (type) {
+			case DOUBLE:
+				doubles = new double[1024];
+				break;
+			case DICT:
+				ints = new int[1024];
+				codes = new HashMap<>();
+				newEntries = new ArrayList<>();
+				break;
+			case IDS:
+				offsets = new int[1024];
+				break;
+			default:
+			}
+		}
+
+		void addLong(int row, long v) {
+			if (row == longs.length) {
+				longs = Arrays.copyOf(longs, row * 2);
+			}
+			longs[row] = v;
+		}
+
+		void addDouble(int row, double v) {
+			if (row == doubles.length) {
+				doubles = Arrays.copyOf(doubles, row * 2);
+			}
+			doubles[row] = v;
+		}
+
+		void addString(int row, String v) {
+			Integer code = codes.get(v);
+			if (code == null) {
+				code = codes.size();
+				codes.put(v, code);
+				newEntries.add(v);
+			}
+			if (row == ints.length) {
+				ints = Arrays.copyOf(ints, row * 2);
+			}
+			ints[row] = code;
+		}
+
+		void startIDs(int row) {
+			if (row == offsets.length) {
+				offsets = Arrays.copyOf(offsets, row * 2);
+			}
+			offsets[row] = ids;
+		}
+
+		void addID(long id) {
+			if (ids == longs.length) {
+				longs = Arrays.copyOf(longs, ids * 2);
+			}
+			longs[ids++] = id;
+		}
+
+		/**
+		 * Puts the raw bytes of the column in the raw buffer.
+		 */
+		void encode(int rows) {
+			switch (type) {
+			case LONG:
+				ensure(rows * 8);
+				raw.asLongBuffer().put(longs, 0, rows);
+				raw.position(raw.position() + rows * 8);
+				break;
+			case DOUBLE:
+				ensure(rows * 8);
+				raw.asDoubleBuffer().put(doubles, 0, rows);
+				raw.position(raw.position() + rows * 8);
+				break;
+			case DICT:
+				ensure(4);
+				raw.putInt(newEntries.size());
+				for (String s : newEntries) {
+					byte[] b = s.getBytes(StandardCharsets.UTF_8);
+					ensure(2 + b.length);
+					raw.putShort((short) b.length).put(b);
+				}
+				ensure(rows * 4);
+				raw.asIntBuffer().put(ints, 0, rows);
+				raw.position(raw.position() + rows * 4);
+				break;
+			case IDS:
+				ensure(rows * 8 + ids * 8);
+				raw.asIntBuffer().put(offsets, 0, rows);
+				raw.position(raw.position() + rows * 4);
+				for (int r = 0; r < rows; r++) {
+					raw.putInt(((r == rows - 1) ? ids : offsets[r + 1]) - offsets[r]);
+				}
+				raw.asLongBuffer().put(longs, 0, ids);
+				raw.position(raw.position() + ids * 8);
+				break;
+			}
+		}
+
+		void clear() {
+			ids = 0;
+			if (newEntries != null) {
+				newEntries.clear();
+			}
+		}
+	}
+}
@@ -0,0 +1,158 @@
+package ca.yorku.cmg.cnsim.engine.reporter;
+
+import java.util.Arrays;
+import java.util.Queue;
+
+/**
+ * Event log entries stored in primitive columns: simulation ID, event ID, simulation time, system time, event type
+ * (see {@linkplain Reporter#eventType(String)}), node and object. Adding an entry allocates nothing once the columns
+ * have grown to size; lines are formatted only when written out, and not at all in the columnar format.
+ * <p>
+ * An entry may instead hold the remaining fields as a preformatted string, for callers that produce their own lines.
+ *
+ * @author Sotirios Liaskos for the Conceptual Modeling Group @ York University
+ */
+final class EventRecords implements ReportWriter.Chunk {
+
+	private int[] simIDs;
+	private long[] evtIDs;
+	private long[] simTimes;
+	private long[] sysTimes;
+	private int[] types;
+	private int[] nodes;
+	private long[] objects;
+	/** The preformatted fields after the event ID, or null for entries stored in columns. */
+	private String[] rest;
+	private int size = 0;
+	/** Where the records return once written, if they are a chunk of a streaming buffer. */
+	private final Queue<EventRecords> pool;
+
+	/**
+	 * @param capacity The initial capacity.
+	 * @param pool Where the records are returned when released by the writer, or <tt>null</tt>.
+	 */
+	EventRecords(int capacity, Queue<EventRecords> pool) {
+		simIDs = new int[capacity];
+		evtIDs = new long[capacity];
+		simTimes = new long[capacity];
+		sysTimes = new long[capacity];
+		types = new int[capacity];
+		nodes = new int[capacity];
+		objects = new long[capacity];
+		rest = new String[capacity];
+		this.pool = pool;
+	}
+
+	private int next() {
+		if (size == simIDs.length) {
+			int cap = size * 2;
+			simIDs = Arrays.copyOf(simIDs, cap);
+			evtIDs = Arrays.copyOf(evtIDs, cap);
+			simTimes = Arrays.copyOf(simTimes, cap);
+			sysTimes = Arrays.copyOf(sysTimes, cap);
+			types = Arrays.copyOf(types, cap);
+			nodes = Arrays.copyOf(nodes, cap);
+			objects = Arrays.copyOf(objects, cap);
+			rest = Arrays.copyOf(rest, cap);
+		}
+		return size++;
+	}
+
+	void add(int simID, long evtID, long simTime, long sysTime, int type, int node, long object) {
+		int i = next();
+		simIDs[i] = simID;
+		evtIDs[i] = evtID;
+		simTimes[i] = simTime;
+		sysTimes[i] = sysTime;
+		types[i] = type;
+		nodes[i] = node;
+		objects[i] = object;
+	}
+
+	void add(int simID, long evtID, String fields) {
+		int i = next();
+		simIDs[i] = simID;
+		evtIDs[i] = evtID;
+		rest[i] = fields;
+	}
+
+	int size() {
+		return size;
+	}
+
+	boolean isFull() {
+		return size == simIDs.length;
+	}
+
+	/**
+	 * Adds the i-th entry to a buffer under a different event ID.
+	 */
+	void copy(int i, long evtID, ReportBuffer target) {
+		if (rest[i] != null) {
+			target.addEvent(simIDs[i], evtID, rest[i]);
+		} else {
+			target.addEvent(simIDs[i], evtID, simTimes[i], sysTimes[i], types[i], nodes[i], objects[i]);
+		}
+	}
+
+	/**
+	 * Appends the i-th entry as a log line, offsetting its event ID.
+	 */
+	void appendLine(int i, long evtIDOffset, StringBuilder out) {
+		out.append(simIDs[i]).append(',').append(evtIDs[i] + evtIDOffset).append(',');
+		if (rest[i] != null) {
+			out.append(rest[i]);
+		} else {
+			out.append(simTimes[i]).append(',')
+				.append(sysTimes[i]).append(',')
+				.append(Reporter.eventTypeName(types[i])).append(',')
+				.append(nodes[i]).append(',')
+				.append(objects[i]);
+		}
+	}
+
+	/**
+	 * Passes the fields of the i-th entry to a columnar output, offsetting its event ID.
+	 * @return <tt>false</tt>, passing nothing, if the entry is preformatted.
+	 */
+	boolean appendRow(int i, long evtIDOffset, ColumnarFormat.Row row) {
+		if (rest[i] != null) {
+			return false;
+		}
+		row.putLong(simIDs[i]);
+		row.putLong(evtIDs[i] + evtIDOffset);
+		row.putLong(simTimes[i]);
+		row.putLong(sysTimes[i]);
+		row.putString(Reporter.eventTypeName(types[i]));
+		row.putLong(nodes[i]);
+		row.putLong(objects[i]);
+		return true;
+	}
+
+	@Override
+	public int lines() {
+		return size;
+	}
+
+	@Override
+	public void appendLine(int i, StringBuilder out) {
+		appendLine(i, 0, out);
+	}
+
+	@Override
+	public boolean appendRow(int i, ColumnarFormat.Row row) {
+		return appendRow(i, 0, row);
+	}
+
+	/**
+	 * Empties the records and returns them to their pool.
+	 */
+	@Override
+	public void release() {
+		Arrays.fill(rest, 0, size, null);
+		size = 0;
+		if (pool != null) {
+			pool.offer(this);
+		}
+	}
+}
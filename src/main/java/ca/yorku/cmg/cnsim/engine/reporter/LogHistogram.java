@@ -0,0 +1,143 @@
+package ca.yorku.cmg.cnsim.engine.reporter;
+
+import java.util.Arrays;
+
+/**
+ * A histogram of non-negative integer values, such as delays in milliseconds, with buckets of logarithmically growing width.
+ * Values below 32 have a bucket each; above, each power of two is split into 32 buckets, so that a percentile is known
+ * to within about 3% of its value whatever the range, and a histogram takes at most a few kilobytes. Histograms with
+ * the same buckets can be {@linkplain #merge(LogHistogram) merged}, e.g., those of the runs of an experiment.
+ * <p>
+ * Not synchronized.
+ *
+ * @author Sotirios Liaskos for the Conceptual Modeling Group @ York University
+ */
+public class LogHistogram {
+
+	/** The number of bits of a value kept by its bucket: each power of two has {@code 2^SUB_BITS} buckets. */
+	private static final int SUB_BITS = 5;
+	private static final int SUB_BUCKETS = 1 << SUB_BITS;
+
+	private long[] counts = new long[2 * SUB_BUCKETS];
+	private long count = 0;
+	private long sum = 0;
+	private long min = Long.MAX_VALUE;
+	private long max = Long.MIN_VALUE;
+
+	/**
+	 * Adds a value.
+	 * @param value The value.
+	 * @throws IllegalArgumentException If the value is negative.
+	 */
+	public void record(long value) {
+		if (value < 0) {
+			throw new IllegalArgumentException("Histogram values must be non-negative, but was " + value);
+		}
+		int b = bucket(value);
+		if (b >= counts.length) {
+			counts = Arrays.copyOf(counts, Math.max(b + 1, counts.length * 2));
+		}
+		counts[b]++;
+		count++;
+		sum += value;
+		min = Math.min(min, value);
+		max = Math.max(max, value);
+	}
+
+	/**
+	 * Adds the values of another histogram.
+	 * @param other The histogram; not changed.
+	 */
+	public void merge(LogHistogram other) {
+		if (other.counts.length > counts.length) {
+			counts = Arrays.copyOf(counts, other.counts.length);
+		}
+		for (int b = 0; b < other.counts.length; b++) {
+			counts[b] += other.counts[b];
+		}
+		count += other.count;
+		sum += other.sum;
+		min = Math.min(min, other.min);
+		max = Math.max(max, other.max);
+	}
+
+	public long getCount() {
+		return count;
+	}
+
+	public long getSum() {
+		return sum;
+	}
+
+	/**
+	 * @return The smallest value, or 0 if there is none.
+	 */
+	public long getMin() {
+		return (count == 0) ? 0 : min;
+	}
+
+	/**
+	 * @return The largest value, or 0 if there is none.
+	 */
+	public long getMax() {
+		return (count == 0) ? 0 : max;
+	}
+
+	/**
+	 * @return The mean of the values, or 0 if there is none.
+	 */
+	public double getMean() {
+		return (count == 0) ? 0 : (double) sum / count;
+	}
+
+	/**
+	 * Returns a percentile of the values: the middle of the bucket holding the value of that rank, within the
+	 * smallest and largest values. Exact for values below 32.
+	 * @param p The percentile, from 0 to 100.
+	 * @return The value, or 0 if there is none.
+	 */
+	public long getPercentile(double p) {
+		if (p < 0 || p > 100) {
+			throw new IllegalArgumentException("Percentile must be within 0 and 100, but was " + p);
+		}
+		if (count == 0) {
+			return 0;
+		}
+		long rank = Math.max(1, (long) Math.ceil(p / 100 * count));
+		long seen = 0;
+		int b = 0;
+		while (b < counts.length - 1 && (seen += counts[b]) < rank) {
+			b++;
+		}
+		long value = lowest(b) + width(b) / 2;
+		return Math.max(min, Math.min(max, value));
+	}
+
+	/**
+	 * The bucket of a value: the value itself below {@linkplain #SUB_BUCKETS}; above, {@linkplain #SUB_BUCKETS} buckets
+	 * per power of two, indexed by the {@linkplain #SUB_BITS} bits following the highest one.
+	 */
+	static int bucket(long value) {
+		if (value < SUB_BUCKETS) {
+			return (int) value;
+		}
+		int exp = 63 - Long.numberOfLeadingZeros(value);
+		int sub = (int) (value >>> (exp - SUB_BITS)) - SUB_BUCKETS;
+		return (exp - SUB_BITS + 1) * SUB_BUCKETS + sub;
+	}
+
+	/**
+	 * The lowest value of a bucket.
+	 */
+	static long lowest(int bucket) {
+		if (bucket < SUB_BUCKETS) {
+			return bucket;
+		}
+		int shift = bucket / SUB_BUCKETS - 1;
+		return (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+	}
+
+	private static long width(int bucket) {
+		return (bucket < SUB_BUCKETS) ? 1 : 1L << (bucket / SUB_BUCKETS - 1);
+	}
+}
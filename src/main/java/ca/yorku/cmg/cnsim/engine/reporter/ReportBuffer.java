@@ -0,0 +1,117 @@
+package ca.yorku.cmg.cnsim.engine.reporter;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Collects the log lines produced by a single simulation run, before they are merged into the
+ * output of the {@linkplain Reporter} (see {@linkplain Reporter#merge(ca.yorku.cmg.cnsim.engine.SimulationContext)}).
+ * <p>
+ * Logs are identified by name. Event log entries are kept in primitive columns (see {@linkplain EventRecords}) and
+ * formatted when written out; event IDs are renumbered to be unique across runs when merged.
+ * See {@linkplain Reporter#streamingBuffer()} for a buffer that writes lines out instead of collecting them.
+ * 
+ * @author Sotirios Liaskos for the Conceptual Modeling Group @ York University
+ */
+public class ReportBuffer {
+
+	private final LinkedHashMap<String, ArrayList<String>> logs = new LinkedHashMap<>();
+
+	private final EventRecords events = new EventRecords(256, null);
+
+	/**
+	 * Adds a line to a named log.
+	 * @param log The name of the log.
+	 * @param line The line to be added.
+	 */
+	public void add(String log, String line) {
+		logs.computeIfAbsent(log, k -> new ArrayList<>()).add(line);
+	}
+
+	/**
+	 * Returns the lines of a named log.
+	 * @param log The name of the log.
+	 * @return The lines added to the log so far, possibly empty.
+	 */
+	public List<String> get(String log) {
+		return logs.getOrDefault(log, new ArrayList<>());
+	}
+
+	/**
+	 * Returns the named logs of the buffer, in order of first use.
+	 * @return A map from log name to log lines.
+	 */
+	public Map<String, ArrayList<String>> getLogs() {
+		return logs;
+	}
+
+	/**
+	 * Adds an entry to the event log.
+	 * @param simID The simulation ID.
+	 * @param evtID The ID of the event within the run.
+	 * @param rest The remaining comma-separated fields of the line.
+	 */
+	public void addEvent(int simID, long evtID, String rest) {
+		events.add(simID, evtID, rest);
+	}
+
+	/**
+	 * Adds an entry to the event log, without formatting it.
+	 * @param simID The simulation ID.
+	 * @param evtID The ID of the event within the run.
+	 * @param simTime The simulation time of the event.
+	 * @param sysTime The real time of the event.
+	 * @param type The type of the event, see {@linkplain Reporter#eventType(String)}.
+	 * @param node The node involved in the event.
+	 * @param object The ID of the object involved in the event.
+	 */
+	public void addEvent(int simID, long evtID, long simTime, long sysTime, int type, int node, long object) {
+		events.add(simID, evtID, simTime, sysTime, type, node, object);
+	}
+
+	/**
+	 * Returns the number of event log entries.
+	 * @return The number of event log entries.
+	 */
+	public int getEventCount() {
+		return events.size();
+	}
+
+	/**
+	 * Renders the i-th event log entry, offsetting its event ID.
+	 * @param i The index of the entry.
+	 * @param evtIDOffset The number to be added to the event ID.
+	 * @return The log line.
+	 */
+	public String getEventLine(int i, long evtIDOffset) {
+		StringBuilder s = new StringBuilder();
+		events.appendLine(i, evtIDOffset, s);
+		return s.toString();
+	}
+
+	/**
+	 * Appends the i-th event log entry to a builder, offsetting its event ID.
+	 */
+	void appendEventLine(int i, long evtIDOffset, StringBuilder out) {
+		events.appendLine(i, evtIDOffset, out);
+	}
+
+	/**
+	 * Passes the fields of the i-th event log entry to a columnar output, offsetting its event ID.
+	 */
+	boolean appendEventRow(int i, long evtIDOffset, ColumnarFormat.Row row) {
+		return events.appendRow(i, evtIDOffset, row);
+	}
+
+	/**
+	 * Copies the i-th event log entry to another buffer under a different event ID.
+	 * @param i The index of the entry.
+	 * @param evtID The event ID of the copy.
+	 * @param target The buffer receiving the copy.
+	 */
+	void copyEvent(int i, long evtID, ReportBuffer target) {
+		events.copy(i, evtID, target);
+	}
+}
@@ -2,14 +2,17 @@ package ca.yorku.cmg.cnsim.engine.reporter;
 
 import ca.yorku.cmg.cnsim.engine.Simulation;
 import ca.yorku.cmg.cnsim.engine.event.Event_Report_BeliefReport;
+import ca.yorku.cmg.cnsim.engine.event.Event_Report_PeriodicReport;
+import ca.yorku.cmg.cnsim.engine.node.INode;
 
 public class ReportEventFactory {
 	public void scheduleBeliefReports_Interval(long interval, Simulation sim, long offset) {
 		long t, max;
 		t = interval;
 		max = sim.getLatestKnownEventTime() + offset;
+		long[] sampleTx = sim.getConfig().sampleTransactions();
 		while (t <= max) {
-			sim.schedule(new Event_Report_BeliefReport(t));
+			sim.schedule(new Event_Report_BeliefReport(t, sampleTx));
 			t += interval;
 		}
 	}
@@ -18,5 +21,20 @@ public class ReportEventFactory {
 		long interval = (sim.getLatestKnownEventTime() + offset)/count;
 		scheduleBeliefReports_Interval(interval, sim, offset);
 	}
+
+	/**
+	 * Schedules the first reporting tick of each node that subscribes to periodic reports,
+	 * i.e., whose {@linkplain INode#getReportingInterval()} is positive. Each tick schedules the next one.
+	 * Nodes that do not subscribe cost nothing.
+	 * @param sim The simulation whose nodes are to report.
+	 */
+	public void schedulePeriodicReports(Simulation sim) {
+		for (INode n : sim.getNodeSet().getNodes()) {
+			long interval = n.getReportingInterval();
+			if (interval > 0) {
+				sim.schedule(new Event_Report_PeriodicReport(n, interval));
+			}
+		}
+	}
 	
 }
@@ -0,0 +1,475 @@
+package ca.yorku.cmg.cnsim.engine.reporter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Writes the logs of the {@linkplain Reporter} to files in a background thread. Lines are handed over through a
+ * ring buffer of fixed capacity: a thread adding a line waits while the buffer is full, so that the memory taken by
+ * lines not yet written does not depend on how many lines are produced. The writer thread appends the lines of each
+ * log to a large buffer, which it writes to the file channel of the log when full.
+ * <p>
+ * {@linkplain #sync()} waits until all lines added before it have been written and forced to the storage device.
+ * A log's file is created, with the log's header, when its first line is written or when it is {@linkplain #touch(String) touched}.
+ * Lines can be added from any thread; lines added by the same thread are written in order. Lines can also be added
+ * in {@linkplain Chunk chunks}, which the writer thread formats, so that producers do not have to build a string per line.
+ * <p>
+ * A log can instead be defined as {@linkplain #defineColumnar(String, String, String, ColumnarFormat.Type...) columnar}, in which
+ * case its lines are written in the binary {@linkplain ColumnarFormat}: the writer thread parses the fields of each line
+ * into columns, or takes them directly from chunks that provide them (see {@linkplain Chunk#appendRow(int, ColumnarFormat.Row)}).
+ *
+ * @author Sotirios Liaskos for the Conceptual Modeling Group @ York University
+ */
+public class ReportWriter {
+
+	/** The number of lines the ring buffer holds. */
+	private static final int CAPACITY = 8192;
+	/** The size of the buffer of each file. */
+	private static final int FILE_BUFFER = 1 << 20;
+	private static final String SEPARATOR = System.lineSeparator();
+	private static final byte[] NEWLINE = SEPARATOR.getBytes(StandardCharsets.UTF_8);
+
+	private final Path directory;
+	/** The file of each defined log. */
+	private final ConcurrentHashMap<String, Definition> definitions = new ConcurrentHashMap<>();
+	/** The files open so far; accessed by the writer thread, and read by others after {@linkplain #sync()}. */
+	private final ConcurrentHashMap<String, Output> outputs = new ConcurrentHashMap<>();
+
+	// The ring buffer of lines and chunks. A slot with a null item asks to create the file of the log, or, if the log is also null, to sync.
+	private final String[] logs = new String[CAPACITY];
+	private final Object[] items = new Object[CAPACITY];
+	private int head = 0;
+	private int count = 0;
+
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition notFull = lock.newCondition();
+	private final Condition notEmpty = lock.newCondition();
+	private final Condition synced = lock.newCondition();
+	private long syncsRequested = 0;
+	private long syncsDone = 0;
+	private boolean closing = false;
+	private IOException failure = null;
+	private Thread thread = null;
+
+
+	/**
+	 * Creates a writer of log files. The writer thread starts when the first line is added.
+	 * @param directory The directory where the files are written.
+	 */
+	public ReportWriter(Path directory) {
+		this.directory = directory;
+	}
+
+	/**
+	 * Defines the file of a log. Logs that are not defined are written to a file named after the log, without a header.
+	 * @param log The name of the log.
+	 * @param fileName The name of the file, within the directory of the writer.
+	 * @param header The first line of the file, or <tt>null</tt> for none.
+	 */
+	public void define(String log, String fileName, String header) {
+		definitions.put(log, new Definition(fileName, header, null));
+	}
+
+	/**
+	 * Defines the file of a log written in the binary {@linkplain ColumnarFormat}.
+	 * @param log The name of the log.
+	 * @param fileName The name of the file, within the directory of the writer.
+	 * @param header The names of the columns, separated by commas, as in the header of a CSV file.
+	 * @param types The types of the columns.
+	 * @throws IllegalArgumentException If the header does not name as many columns as there are types.
+	 */
+	public void defineColumnar(String log, String fileName, String header, ColumnarFormat.Type... types) {
+		if (header.split(",").length != types.length) {
+			throw new IllegalArgumentException("Log " + log + " has " + types.length + " column types for header: " + header);
+		}
+		definitions.put(log, new Definition(fileName, header, types.clone()));
+	}
+
+	/**
+	 * Adds a line to a log. Waits if the ring buffer is full.
+	 * @param log The name of the log.
+	 * @param line The line, without a line separator.
+	 * @throws UncheckedIOException If writing has failed.
+	 */
+	public void write(String log, String line) {
+		put(log, line);
+	}
+
+	/**
+	 * Adds a chunk of lines to a log, to be formatted by the writer thread. Waits if the ring buffer is full.
+	 * @param log The name of the log.
+	 * @param chunk The lines; not to be changed until the writer {@linkplain Chunk#release() releases} it.
+	 * @throws UncheckedIOException If writing has failed.
+	 */
+	public void write(String log, Chunk chunk) {
+		put(log, chunk);
+	}
+
+	/**
+	 * Makes sure the file of a log is created, even if it receives no lines.
+	 * @param log The name of the log.
+	 */
+	public void touch(String log) {
+		put(log, null);
+	}
+
+	/**
+	 * Waits until all lines added so far have been written and forced to the storage device.
+	 * @throws UncheckedIOException If writing has failed.
+	 */
+	public void sync() {
+		lock.lock();
+		try {
+			if (thread == null) {
+				return;
+			}
+			long ticket = ++syncsRequested;
+			enqueue(null, null);
+			while (syncsDone < ticket && failure == null) {
+				synced.awaitUninterruptibly();
+			}
+			checkFailure();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Writes all lines, closes the files and stops the writer thread.
+	 * @throws UncheckedIOException If writing has failed.
+	 */
+	public void close() {
+		sync();
+		Thread t;
+		lock.lock();
+		try {
+			closing = true;
+			notEmpty.signalAll();
+			t = thread;
+		} finally {
+			lock.unlock();
+		}
+		if (t != null) {
+			try {
+				t.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		for (Output o : outputs.values()) {
+			try {
+				o.close();
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+		outputs.clear();
+	}
+
+	/**
+	 * The number of lines written to a log, not counting the header. Exact after {@linkplain #sync()}.
+	 * @param log The name of the log.
+	 * @return The number of lines.
+	 */
+	public long getLineCount(String log) {
+		Output o = outputs.get(log);
+		return (o == null) ? 0 : o.lines;
+	}
+
+
+	private void put(String log, Object item) {
+		lock.lock();
+		try {
+			if (closing) {
+				throw new IllegalStateException("Report writer is closed.");
+			}
+			if (thread == null) {
+				thread = new Thread(this::drain, "cnsim-report-writer");
+				thread.setDaemon(true);
+				thread.start();
+			}
+			enqueue(log, item);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/** Must hold the lock. */
+	private void enqueue(String log, Object item) {
+		while (count == CAPACITY && failure == null) {
+			notFull.awaitUninterruptibly();
+		}
+		checkFailure();
+		int slot = (head + count) % CAPACITY;
+		logs[slot] = log;
+		items[slot] = item;
+		count++;
+		notEmpty.signal();
+	}
+
+	private void checkFailure() {
+		if (failure != null) {
+			throw new UncheckedIOException("Cannot write report to " + directory, failure);
+		}
+	}
+
+	/**
+	 * The loop of the writer thread: takes all lines in the ring buffer at once and writes them outside the lock.
+	 */
+	private void drain() {
+		String[] batchLogs = new String[CAPACITY];
+		Object[] batchItems = new Object[CAPACITY];
+		StringBuilder text = new StringBuilder(1 << 16);
+		while (true) {
+			int n;
+			lock.lock();
+			try {
+				while (count == 0 && !closing) {
+					notEmpty.awaitUninterruptibly();
+				}
+				if (count == 0) {
+					return;
+				}
+				n = count;
+				for (int i = 0; i < n; i++) {
+					int slot = (head + i) % CAPACITY;
+					batchLogs[i] = logs[slot];
+					batchItems[i] = items[slot];
+					logs[slot] = null;
+					items[slot] = null;
+				}
+				head = (head + n) % CAPACITY;
+				count = 0;
+				notFull.signalAll();
+			} finally {
+				lock.unlock();
+			}
+
+			int syncs = 0;
+			try {
+				for (int i = 0; i < n; i++) {
+					if (batchLogs[i] != null) {
+						Output o = output(batchLogs[i]);
+						if (batchItems[i] instanceof Chunk) {
+							Chunk c = (Chunk) batchItems[i];
+							o.write(c, text);
+							c.release();
+						} else if (batchItems[i] != null) {
+							o.write((String) batchItems[i]);
+						}
+					} else {
+						for (Output o : outputs.values()) {
+							o.force();
+						}
+						syncs++;
+					}
+				}
+			} catch (IOException e) {
+				lock.lock();
+				try {
+					if (failure == null) {
+						failure = e;
+					}
+				} finally {
+					lock.unlock();
+				}
+			}
+			Arrays.fill(batchItems, 0, n, null);
+			lock.lock();
+			try {
+				syncsDone += syncs;
+				notFull.signalAll();
+				synced.signalAll();
+			} finally {
+				lock.unlock();
+			}
+		}
+	}
+
+	private Output output(String log) throws IOException {
+		Output o = outputs.get(log);
+		if (o == null) {
+			Definition def = definitions.getOrDefault(log, new Definition(log, null, null));
+			FileChannel channel = FileChannel.open(directory.resolve(def.fileName),
+					StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+			if (def.types != null) {
+				o = new ColumnarOutput(channel, def.header.split(","), def.types);
+			} else {
+				o = new TextOutput(channel);
+				if (def.header != null) {
+					o.write(def.header);
+					o.lines = 0;
+				}
+			}
+			outputs.put(log, o);
+		}
+		return o;
+	}
+
+
+	/**
+	 * Lines that are formatted by the writer thread, so that the thread producing them does not build strings.
+	 */
+	public interface Chunk {
+		/**
+		 * @return The number of lines in the chunk.
+		 */
+		int lines();
+
+		/**
+		 * Appends a line, without a line separator.
+		 * @param i The index of the line.
+		 * @param out The builder receiving the line.
+		 */
+		void appendLine(int i, StringBuilder out);
+
+		/**
+		 * Called by the writer thread once the lines have been written; the chunk may be reused after that.
+		 */
+		default void release() {
+		}
+
+		/**
+		 * Passes the fields of a line to a columnar output, as an alternative to formatting it.
+		 * @param i The index of the line.
+		 * @param row The row receiving the fields, one per column.
+		 * @return <tt>false</tt>, having passed nothing, if the chunk cannot provide the fields, in which case the line is
+		 * formatted with {@linkplain #appendLine(int, StringBuilder)} and parsed.
+		 */
+		default boolean appendRow(int i, ColumnarFormat.Row row) {
+			return false;
+		}
+	}
+
+
+	/**
+	 * The file name of a log, its header, and the types of its columns if it is columnar.
+	 */
+	private static final class Definition {
+		final String fileName;
+		final String header;
+		final ColumnarFormat.Type[] types;
+
+		Definition(String fileName, String header, ColumnarFormat.Type[] types) {
+			this.fileName = fileName;
+			this.header = header;
+			this.types = types;
+		}
+	}
+
+
+	/**
+	 * The file of a log. Used by the writer thread, except for the line count.
+	 */
+	abstract static class Output {
+		volatile long lines = 0;
+
+		/**
+		 * Writes a line.
+		 */
+		abstract void write(String line) throws IOException;
+
+		/**
+		 * Writes the lines of a chunk.
+		 * @param text A builder that may be used for formatting.
+		 */
+		abstract void write(Chunk c, StringBuilder text) throws IOException;
+
+		/**
+		 * Writes out what is buffered and forces the file to the storage device.
+		 */
+		abstract void force() throws IOException;
+
+		/**
+		 * Closes the file; called after {@linkplain #force()}.
+		 */
+		abstract void close() throws IOException;
+	}
+
+
+	/**
+	 * The file of a CSV log and the buffer in front of it.
+	 */
+	private static class TextOutput extends Output {
+		final FileChannel channel;
+		final ByteBuffer buffer = ByteBuffer.allocateDirect(FILE_BUFFER);
+		final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+
+		TextOutput(FileChannel channel) {
+			this.channel = channel;
+		}
+
+		@Override
+		void write(String line) throws IOException {
+			encode(CharBuffer.wrap(line));
+			if (buffer.remaining() < NEWLINE.length) {
+				flush();
+			}
+			buffer.put(NEWLINE);
+			lines++;
+		}
+
+		/**
+		 * Formats the lines of the chunk into the builder and writes them at once.
+		 */
+		@Override
+		void write(Chunk c, StringBuilder text) throws IOException {
+			text.setLength(0);
+			for (int l = 0; l < c.lines(); l++) {
+				c.appendLine(l, text);
+				text.append(SEPARATOR);
+			}
+			encode(CharBuffer.wrap(text));
+			lines += c.lines();
+		}
+
+		private void encode(CharBuffer in) throws IOException {
+			encoder.reset();
+			while (true) {
+				CoderResult r = encoder.encode(in, buffer, true);
+				if (r.isOverflow()) {
+					flush();
+				} else if (r.isUnderflow()) {
+					return;
+				} else {
+					r.throwException();
+				}
+			}
+		}
+
+		void flush() throws IOException {
+			buffer.flip();
+			writeFully(buffer);
+			buffer.clear();
+		}
+
+		@Override
+		void force() throws IOException {
+			flush();
+			channel.force(false);
+		}
+
+		@Override
+		void close() throws IOException {
+			channel.close();
+		}
+
+		private void writeFully(ByteBuffer b) throws IOException {
+			while (b.hasRemaining()) {
+				channel.write(b);
+			}
+		}
+	}
+}
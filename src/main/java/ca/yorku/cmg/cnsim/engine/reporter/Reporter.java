@@ -3,17 +3,40 @@ package ca.yorku.cmg.cnsim.engine.reporter;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
 
 import ca.yorku.cmg.cnsim.engine.Config;
+import ca.yorku.cmg.cnsim.engine.ConfigInitializer;
+import ca.yorku.cmg.cnsim.engine.SimConfig;
+import ca.yorku.cmg.cnsim.engine.SimulationContext;
 import ca.yorku.cmg.cnsim.engine.node.Node;
+import ca.yorku.cmg.cnsim.engine.reporter.ColumnarFormat.Type;
 import ca.yorku.cmg.cnsim.engine.transaction.Transaction;
 
 /**
  * Handles all main measurement and reporting for simulations. 
  * Meant to be used via its static methods.
+ * Log lines are added to the {@linkplain ReportBuffer} of the {@linkplain SimulationContext} of the running simulation.
+ * Runs that are executed one after the other use a streaming buffer (see {@linkplain #streamingBuffer()}), which hands
+ * each line to the {@linkplain ReportWriter} as soon as it is added; runs executed concurrently write their lines to a
+ * file of their own (see {@linkplain SpillReportBuffer}) and hand them over when the run is merged (see
+ * {@linkplain #merge(SimulationContext)}). Either way, the lines of a run are on disk once the run is merged, and lines
+ * are not kept in memory.
+ * <p>
+ * With {@code reporter.format = binary}, the logs that have typed columns are written in the binary {@linkplain ColumnarFormat}
+ * instead of CSV, to files named "[Log Name] - [Simulation Date Time].bin".
+ * <p>
+ * With {@code reporter.reportMetrics}, {@linkplain RunMetrics metrics} such as rates and delay percentiles are computed
+ * while each run executes (see {@linkplain #metrics()}) and summarized in a few lines per run of the metrics log, so that
+ * the larger logs can be turned off when only those figures are needed.
  * Supports three log actions which add a line to the corresponding file:
  * 1. Events: adds a log line every time an event is processed.
  * 2. Transactions: adds a log line for every transaction arrival event.
@@ -24,13 +47,34 @@ import ca.yorku.cmg.cnsim.engine.transaction.Transaction;
  * 
  */
 public class Reporter {
-	// Each of the arraylists below contain a line in the output
-	protected static ArrayList<String> inputTxLog = new ArrayList<String>();
-	protected static ArrayList<String> eventLog = new ArrayList<String>();
-	protected static ArrayList<String> nodeLog = new ArrayList<String>();
-	protected static ArrayList<String> netLog = new ArrayList<String>();
-	protected static ArrayList<String> beliefLog = new ArrayList<String>();
-	protected static ArrayList<String> errorLog = new ArrayList<String>();
+	// Names of the logs.
+	public static final String EVENT_LOG = "EventLog";
+	public static final String INPUT_LOG = "Input";
+	public static final String NODE_LOG = "Nodes";
+	public static final String NET_LOG = "NetLog";
+	public static final String BELIEF_LOG = "BeliefLog";
+	public static final String ERROR_LOG = "ErrorLog";
+	public static final String METRICS_LOG = "Metrics";
+
+	// Names of the metrics recorded by the engine, see metrics().
+	public static final String TX_ARRIVALS = "tx.arrivals";
+
+	// Writes the logs to their files.
+	protected static ReportWriter output;
+
+	// Event type names by number, see eventType(String).
+	private static final HashMap<String, Integer> eventTypes = new HashMap<>();
+	private static volatile String[] eventTypeNames = new String[0];
+
+	// Whether logs with typed columns are written in the binary columnar format.
+	protected static boolean columnar;
+
+	// Event IDs used by the runs merged so far.
+	protected static long eventIDOffset = 0;
+
+	// The metrics of the runs merged so far, and their number.
+	private static final RunMetrics totalMetrics = new RunMetrics();
+	private static int metricRuns = 0;
 
 	protected static String runId;
 	protected static String path;
@@ -42,6 +86,7 @@ public class Reporter {
 	protected static boolean reportNodes;
 	protected static boolean reportNetEvents;
 	protected static boolean reportBeliefs;
+	protected static boolean reportMetrics;
 
 
 	public static void reportEvents(boolean reportEvents) {
@@ -64,10 +109,15 @@ public class Reporter {
 		Reporter.reportBeliefs = reportBeliefs;
 	}
 
+	public static void reportMetrics(boolean reportMetrics) {
+		Reporter.reportMetrics = reportMetrics;
+	}
+
 	
 	
 	static {
-		root = Config.getPropertyString("sim.output.directory");
+		SimConfig config = ConfigInitializer.getSimConfig();
+		root = (config == null) ? "./log/" : config.outputDirectory();
 
 		//ID the run
 		DateTimeFormatter dtf = DateTimeFormatter.ofPattern("yyyy.MM.dd HH.mm.ss");  
@@ -83,16 +133,214 @@ public class Reporter {
 		} catch (IOException e) {e.printStackTrace();}
 		
 		//Prepare the reporting structures
-		eventLog.add("SimID, EventID, SimTime, SysTime, EventType, Node, Object");
-		inputTxLog.add("SimID, TxID, Size (bytes), Value (coins), ArrivalTime (ms)");
-		nodeLog.add("SimID, NodeID, HashPower (GH/s), ElectricPower (W), ElectricityCost (USD/kWh), TotalCycles");
-		netLog.add("SimID, From (NodeID), To (NodeID), Bandwidth (bps), Time (ms from start)");
-		beliefLog.add("SimID, Node ID, Transaction ID, Believes, Time (ms from start)");
+		columnar = (config != null) && config.reportFormat().equalsIgnoreCase("binary");
+		output = new ReportWriter(Paths.get(path));
+		define(EVENT_LOG, "SimID, EventID, SimTime, SysTime, EventType, Node, Object",
+				Type.LONG, Type.LONG, Type.LONG, Type.LONG, Type.DICT, Type.LONG, Type.LONG);
+		define(INPUT_LOG, "SimID, TxID, Size (bytes), Value (coins), ArrivalTime (ms)",
+				Type.LONG, Type.LONG, Type.DOUBLE, Type.DOUBLE, Type.LONG);
+		define(NODE_LOG, "SimID, NodeID, HashPower (GH/s), ElectricPower (W), ElectricityCost (USD/kWh), TotalCycles",
+				Type.LONG, Type.LONG, Type.DOUBLE, Type.DOUBLE, Type.DOUBLE, Type.DOUBLE);
+		define(NET_LOG, "SimID, From (NodeID), To (NodeID), Bandwidth (bps), Time (ms from start)",
+				Type.LONG, Type.LONG, Type.LONG, Type.DOUBLE, Type.LONG);
+		define(BELIEF_LOG, "SimID, Node ID, Transaction ID, Believes, Time (ms from start), Confirmations",
+				Type.LONG, Type.LONG, Type.LONG, Type.DICT, Type.LONG, Type.LONG);
+		define(METRICS_LOG, RunMetrics.HEADER);
+		output.define(ERROR_LOG, ERROR_LOG + " - " + runId + ".txt", null);
+	}
+
+	/**
+	 * Defines a log written to file "[Log Name] - [Simulation Date Time].csv", or, if the binary format is chosen and
+	 * the types of the columns are given, to file "[Log Name] - [Simulation Date Time].bin".
+	 * @param log The name of the log.
+	 * @param header The first line of the file; in the binary format, the names of the columns.
+	 * @param types The types of the columns, or none if the log is always CSV.
+	 */
+	protected static void define(String log, String header, Type... types) {
+		if (columnar && types.length > 0) {
+			output.defineColumnar(log, log + " - " + runId + ColumnarFormat.EXTENSION, header, types);
+		} else {
+			output.define(log, log + " - " + runId + ".csv", header);
+		}
 	}
 	
 	public static String getRunId() {
 		return(runId);
 	}
+
+	/**
+	 * @return The directory of the logs of the simulation, ending with "/".
+	 */
+	public static String getPath() {
+		return(path);
+	}
+
+	/**
+	 * Returns the report buffer of the simulation run executing in the current thread.
+	 * @return The report buffer of the current {@linkplain SimulationContext}.
+	 */
+	protected static ReportBuffer buffer() {
+		return SimulationContext.current().getReportBuffer();
+	}
+
+	/**
+	 * Returns the metrics of the simulation run executing in the current thread, if metrics are reported.
+	 * Callers record nothing, and compute nothing for the purpose, when it returns <tt>null</tt>.
+	 * @return The metrics of the current {@linkplain SimulationContext}, or <tt>null</tt> unless {@code reporter.reportMetrics} is set.
+	 */
+	public static RunMetrics metrics() {
+		return reportMetrics ? SimulationContext.current().getMetrics() : null;
+	}
+
+	/**
+	 * Returns a buffer that writes each line to the output as soon as it is added, for a run that is executed
+	 * after all previous runs have been merged. The buffer keeps no lines.
+	 * @return A new streaming buffer.
+	 */
+	public static ReportBuffer streamingBuffer() {
+		return new StreamingReportBuffer();
+	}
+
+	/**
+	 * Writes the log lines collected by a finished run to the output logs, and waits until the lines of the run are
+	 * on disk. Runs must be merged in the order of their simulation IDs, so that the output is the same regardless 
+	 * of how runs were executed. Event IDs, which each run counts from 1, are offset by the number of event IDs used
+	 * by previously merged runs. If metrics are reported, the {@linkplain RunMetrics metrics} of the run are summarized
+	 * in the metrics log.
+	 * @param ctx The context of the finished run.
+	 */
+	public static void merge(SimulationContext ctx) {
+		ReportBuffer b = ctx.getReportBuffer();
+		if (b instanceof StreamingReportBuffer) {
+			((StreamingReportBuffer) b).flushEvents();
+		} else if (b instanceof SpillReportBuffer) {
+			StreamingReportBuffer s = new StreamingReportBuffer();
+			((SpillReportBuffer) b).replayInto(s);
+			s.flushEvents();
+		} else if (b.getEventCount() > 0) {
+			final long offset = eventIDOffset;
+			output.write(EVENT_LOG, new ReportWriter.Chunk() {
+				@Override
+				public int lines() {
+					return b.getEventCount();
+				}
+
+				@Override
+				public void appendLine(int i, StringBuilder out) {
+					b.appendEventLine(i, offset, out);
+				}
+
+				@Override
+				public boolean appendRow(int i, ColumnarFormat.Row row) {
+					return b.appendEventRow(i, offset, row);
+				}
+			});
+		}
+		eventIDOffset += ctx.getEventIDsUsed();
+		for (Map.Entry<String, ArrayList<String>> e : b.getLogs().entrySet()) {
+			for (String line : e.getValue()) {
+				output.write(e.getKey(), line);
+			}
+		}
+		if (reportMetrics) {
+			for (String line : ctx.getMetrics().summary(ctx.getSimID())) {
+				output.write(METRICS_LOG, line);
+			}
+			totalMetrics.merge(ctx.getMetrics());
+			metricRuns++;
+		}
+		output.sync();
+	}
+
+	/**
+	 * A buffer that passes its lines on to the output. Event log entries are collected in chunks, which are formatted
+	 * by the writer thread; a few chunks are reused, so that recording an event allocates nothing. Event IDs are offset
+	 * by the event IDs of the runs merged before.
+	 */
+	private static class StreamingReportBuffer extends ReportBuffer {
+		private static final int CHUNK = 4096;
+		private static final int CHUNKS = 4;
+
+		private final ArrayBlockingQueue<EventRecords> free = new ArrayBlockingQueue<>(CHUNKS);
+		private int allocated = 0;
+		private EventRecords events = null;
+
+		@Override
+		public void add(String log, String line) {
+			output.write(log, line);
+		}
+
+		@Override
+		public void addEvent(int simID, long evtID, String rest) {
+			chunk().add(simID, evtID + eventIDOffset, rest);
+		}
+
+		@Override
+		public void addEvent(int simID, long evtID, long simTime, long sysTime, int type, int node, long object) {
+			chunk().add(simID, evtID + eventIDOffset, simTime, sysTime, type, node, object);
+		}
+
+		/**
+		 * Returns a chunk with room for an entry, handing a full one to the writer first.
+		 */
+		private EventRecords chunk() {
+			if (events != null && events.isFull()) {
+				flushEvents();
+			}
+			if (events == null) {
+				events = free.poll();
+				if (events == null) {
+					if (allocated < CHUNKS) {
+						allocated++;
+						events = new EventRecords(CHUNK, free);
+					} else {
+						try {
+							events = free.take();
+						} catch (InterruptedException e) {
+							Thread.currentThread().interrupt();
+							throw new IllegalStateException("Interrupted while waiting for the report writer", e);
+						}
+					}
+				}
+			}
+			return events;
+		}
+
+		/**
+		 * Hands the current chunk of event log entries to the writer.
+		 */
+		void flushEvents() {
+			if (events != null && events.size() > 0) {
+				output.write(EVENT_LOG, events);
+				events = null;
+			}
+		}
+	}
+
+	/**
+	 * Returns the number identifying an event type in event log entries.
+	 * @param name The name of the event type, as it appears in the event log.
+	 * @return The number of the type; the same for the same name throughout the execution.
+	 */
+	public static synchronized int eventType(String name) {
+		Integer type = eventTypes.get(name);
+		if (type == null) {
+			type = eventTypeNames.length;
+			eventTypeNames = Arrays.copyOf(eventTypeNames, type + 1);
+			eventTypeNames[type] = name;
+			eventTypes.put(name, type);
+		}
+		return type;
+	}
+
+	/**
+	 * Returns the name of an event type.
+	 * @param type The number of the type, see {@linkplain #eventType(String)}.
+	 * @return The name of the type.
+	 */
+	public static String eventTypeName(int type) {
+		return eventTypeNames[type];
+	}
 	
 	/**
 	 * Adds a line to the event log with information about the event.
@@ -109,13 +357,25 @@ public class Reporter {
 	public static void addEvent(int simID, long evtID, long simTime, long sysTime, 
 			String evtType, int nodeInvolved, long objInvolved) {
 		if (Reporter.reportEvents)
-			eventLog.add(simID + "," + 
-					evtID + "," + 
-					simTime + "," + 
-					sysTime + "," +
-					evtType + "," +
-					nodeInvolved + "," +
-					objInvolved);
+			addEvent(simID, evtID, simTime, sysTime, eventType(evtType), nodeInvolved, objInvolved);
+	}
+
+	/**
+	 * As {@linkplain #addEvent(int, long, long, long, String, int, long)}, with the event type given by its number 
+	 * (see {@linkplain #eventType(String)}). The entry is recorded without building a line.
+	 *  
+	 * @param simID The simulation ID.
+	 * @param evtID ID of the event.
+	 * @param simTime Simulation time in which the event is happening.
+	 * @param sysTime Real time in which the event is happening.
+	 * @param evtType The number of the type of the event.
+	 * @param nodeInvolved The {@linkplain Node} involved in the event.
+	 * @param objInvolved The object ID involved in the event (transaction, block, etc).
+	 */
+	public static void addEvent(int simID, long evtID, long simTime, long sysTime, 
+			int evtType, int nodeInvolved, long objInvolved) {
+		if (Reporter.reportEvents)
+			buffer().addEvent(simID, evtID, simTime, sysTime, evtType, nodeInvolved, objInvolved);
 	}
 
 	/**
@@ -130,7 +390,7 @@ public class Reporter {
 	 */
 	public static void addTx(int simID, long txID, float size, float value, long simTime) {
 		if (Reporter.reportTransactions)
-			inputTxLog.add(simID + "," +
+			buffer().add(INPUT_LOG, simID + "," +
 					txID + "," + 
 					size + "," +
 					value + "," +
@@ -150,7 +410,7 @@ public class Reporter {
 	public static void addNode(int simID, int nodeID, float hashPower, float electricPower, 
 		float electricityCost, double totalCycles) {
 			if (Reporter.reportNodes)
-				nodeLog.add(simID + "," +
+				buffer().add(NODE_LOG, simID + "," +
 					nodeID + "," + 
 					hashPower + "," +
 					electricPower + "," +
@@ -174,7 +434,7 @@ public class Reporter {
 	 */
 	public static void addNetEvent(int simID, int from, int to, float bandwidth, long simTime) {
 		if (Reporter.reportNetEvents)
-			netLog.add(simID + "," +
+			buffer().add(NET_LOG, simID + "," +
 					from + "," + 
 					to + "," +
 					bandwidth + "," +
@@ -190,14 +450,16 @@ public class Reporter {
 	 * @param believes Whether the node believes the transaction is valid and "final". Will report {@code false} if 
 	 * the transaction is not in the structure or has not been seen before.   
 	 * @param simTime The time at which the report is produced.
+	 * @param confirmations The confirmation depth of the transaction at the node; {@code 0} if the node does not believe it.
 	 */
-	public static void addBeliefEntry(int simID, int node, long tx, boolean believes, long simTime) {
+	public static void addBeliefEntry(int simID, int node, long tx, boolean believes, long simTime, int confirmations) {
 		if (Reporter.reportBeliefs)
-			beliefLog.add(simID + "," +
+			buffer().add(BELIEF_LOG, simID + "," +
 					node + "," + 
 					tx + "," +
 					believes + "," +
-					simTime);
+					simTime + "," +
+					confirmations);
 	}
 	
 	
@@ -206,119 +468,110 @@ public class Reporter {
 	 * @param errorMsg The custom error message.
 	 */
 	public static void addErrorEntry(String errorMsg) {
-		errorLog.add(errorMsg);
+		buffer().add(ERROR_LOG, errorMsg);
 	}
 		
 	
 	
 	/**
-	 * Save reporter's event log to file. File name is "EventLog - [Simulation Date Time].csv"
+	 * Completes the event log file. File name is "EventLog - [Simulation Date Time].csv".
+	 * Lines are written to the file as runs are merged; this creates the file if the log is empty.
 	 * @author Sotirios Liaskos
 	 */
 	public static void flushEvtReport() {
-		FileWriter writer;
-		try {
-			writer = new FileWriter(path + "EventLog - " + runId + ".csv");
-			for(String str: eventLog) {
-				  writer.write(str + System.lineSeparator());
-				}
-			writer.close();
-		} catch (IOException e) {
-			e.printStackTrace();
-		} 
+		flush(EVENT_LOG);
 	}
 	
 	/**
-	 * Save reporter's transaction log to file. File name is "Input - [Simulation Date Time].csv"
+	 * Completes the transaction log file. File name is "Input - [Simulation Date Time].csv"
 	 * @author Sotirios Liaskos
 	 */
 	public static void flushInputReport() {
-		FileWriter writer;
-		try {
-			writer = new FileWriter(path + "Input - " + runId + ".csv");
-			for(String str: inputTxLog) {
-				  writer.write(str + System.lineSeparator());
-				}
-			writer.close();
-		} catch (IOException e) {
-			e.printStackTrace();
-		} 
+		flush(INPUT_LOG);
 	}
 	
 	
 	/**
-	 * Save reporter's node log to file. File name is "Nodes - [Simulation Date Time].csv"
+	 * Completes the node log file. File name is "Nodes - [Simulation Date Time].csv"
 	 * @author Sotirios Liaskos
 	 */
 
 	public static void flushNodeReport() {
-		FileWriter writer;
-		try {
-			writer = new FileWriter(path + "Nodes - " + runId + ".csv");
-			for(String str: nodeLog) {
-				  writer.write(str + System.lineSeparator());
-				}
-			writer.close();
-		} catch (IOException e) {
-			e.printStackTrace();
-		} 
+		flush(NODE_LOG);
 	}
 	
 	
 	/**
-	 * Save reporter's network log to file. File name is "NetLog - [Simulation Date Time].csv"
+	 * Completes the network log file. File name is "NetLog - [Simulation Date Time].csv"
 	 * @author Sotirios Liaskos
 	 */
 	public static void flushNetworkReport() {
-		FileWriter writer;
-		try {
-			writer = new FileWriter(path + "NetLog - " + runId + ".csv");
-			for(String str: netLog) {
-				  writer.write(str + System.lineSeparator());
-				}
-			writer.close();
-		} catch (IOException e) {
-			e.printStackTrace();
-		} 
+		flush(NET_LOG);
 	}
 	
 	
 	/**
-	 * Save reporter's belief log to file. File name is "BeliefLog - [Simulation Date Time].csv"
+	 * Completes the belief log file. File name is "BeliefLog - [Simulation Date Time].csv"
 	 * @author Sotirios Liaskos
 	 */
 	public static void flushBeliefReport() {
-		FileWriter writer;
-		try {
-			writer = new FileWriter(path + "BeliefLog - " + runId + ".csv");
-			for(String str: beliefLog) {
-				  writer.write(str + System.lineSeparator());
-				}
-			writer.close();
-		} catch (IOException e) {
-			e.printStackTrace();
-		} 
+		flush(BELIEF_LOG);
+	}
+	
+	
+	/**
+	 * Completes the metrics log file, if metrics are reported. File name is "Metrics - [Simulation Date Time].csv".
+	 * The lines of each run are written as runs are merged; if more than one run was merged, the metrics of all runs 
+	 * together are added, with simulation ID 0.
+	 */
+	public static void flushMetricsReport() {
+		if (!reportMetrics) {
+			return;
+		}
+		if (metricRuns > 1) {
+			for (String line : totalMetrics.summary(0)) {
+				output.write(METRICS_LOG, line);
+			}
+		}
+		flush(METRICS_LOG);
 	}
 	
 	
 	/**
-	 * Save reporter's error log to file. File name is "ErrorLog - [Simulation Date Time].csv"
+	 * Completes the error log file. File name is "ErrorLog - [Simulation Date Time].txt"
 	 * @author Sotirios Liaskos
 	 */
 	public static void flushErrorReport() {
-		FileWriter writer;
-		boolean errorsExist = false;
 		try {
-			writer = new FileWriter(path + "ErrorLog - " + runId + ".txt");
-			for(String str: errorLog) {
-				writer.write(str + System.lineSeparator());
-				errorsExist = true;
-			}
-			writer.close();
-			if (errorsExist) {
+			flush(ERROR_LOG);
+			if (output.getLineCount(ERROR_LOG) > 0) {
 				System.err.println("    Errors were produced. Please check " + path + "ErrorLog - " + runId + ".txt");
 			}
-		} catch (IOException e) {
+		} catch (UncheckedIOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Creates the file of a log if it does not exist and waits until all its lines are on disk.
+	 * @param log The name of the log.
+	 */
+	protected static void flush(String log) {
+		try {
+			output.touch(log);
+			output.sync();
+		} catch (UncheckedIOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Writes all logs and closes their files. To be called once reporting is over.
+	 */
+	public static void close() {
+		try {
+			output.close();
+		} catch (UncheckedIOException e) {
 			e.printStackTrace();
 		}
 	}
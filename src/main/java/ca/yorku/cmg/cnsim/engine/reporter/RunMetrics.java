@@ -0,0 +1,150 @@
+package ca.yorku.cmg.cnsim.engine.reporter;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import ca.yorku.cmg.cnsim.engine.SimulationContext;
+
+/**
+ * Metrics computed while a simulation run executes, as an alternative to computing them afterwards from the logs:
+ * counters, {@linkplain LogHistogram histograms} and rates, each identified by a name such as "block.propagationDelay".
+ * Each {@linkplain SimulationContext run} has its own (see {@linkplain SimulationContext#getMetrics()}), which is
+ * written as a few lines of the metrics log when the run is merged (see {@linkplain Reporter#merge(SimulationContext)}).
+ * Metrics of several runs can be {@linkplain #merge(RunMetrics) merged}.
+ * <p>
+ * Metrics are recorded through {@linkplain Reporter#metrics()}, which returns <tt>null</tt> unless
+ * {@code reporter.reportMetrics} is set. Synchronized, as the partitions of a run may record concurrently;
+ * as recording commutes, the result does not depend on the order.
+ *
+ * @author Sotirios Liaskos for the Conceptual Modeling Group @ York University
+ */
+public class RunMetrics {
+
+	/** The header of the metrics log. */
+	public static final String HEADER = "SimID, Metric, Count, Mean, Min, P50, P90, P99, Max";
+
+	private final TreeMap<String, long[]> counters = new TreeMap<>();
+	/** Numerator and denominator of each rate. */
+	private final TreeMap<String, long[]> rates = new TreeMap<>();
+	private final TreeMap<String, LogHistogram> histograms = new TreeMap<>();
+	/** The IDs seen so far under each name, see {@linkplain #once(String, long)}. */
+	private final HashMap<String, BitSet> seen = new HashMap<>();
+
+	/**
+	 * Adds to a counter.
+	 * @param name The counter.
+	 * @param n The amount added.
+	 */
+	public synchronized void count(String name, long n) {
+		counters.computeIfAbsent(name, k -> new long[1])[0] += n;
+	}
+
+	/**
+	 * Adds a value to a histogram.
+	 * @param name The histogram.
+	 * @param value The value; non-negative.
+	 */
+	public synchronized void record(String name, long value) {
+		histograms.computeIfAbsent(name, k -> new LogHistogram()).record(value);
+	}
+
+	/**
+	 * Adds to the numerator and the denominator of a rate, e.g., the stale blocks and the blocks mined.
+	 * @param name The rate.
+	 * @param numerator The amount added to the numerator.
+	 * @param denominator The amount added to the denominator.
+	 */
+	public synchronized void rate(String name, long numerator, long denominator) {
+		long[] r = rates.computeIfAbsent(name, k -> new long[2]);
+		r[0] += numerator;
+		r[1] += denominator;
+	}
+
+	/**
+	 * Marks an ID as seen under a name, e.g., a transaction as included in a block, so that it is measured once.
+	 * Sets of seen IDs are not merged or written.
+	 * @param name The set of IDs.
+	 * @param id The ID; non-negative and within the range of <tt>int</tt>.
+	 * @return <tt>true</tt> if the ID was not seen under the name before.
+	 */
+	public synchronized boolean once(String name, long id) {
+		if (id < 0 || id > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("ID out of range for metric " + name + ": " + id);
+		}
+		BitSet s = seen.computeIfAbsent(name, k -> new BitSet());
+		if (s.get((int) id)) {
+			return false;
+		}
+		s.set((int) id);
+		return true;
+	}
+
+	/**
+	 * @param name The counter.
+	 * @return The value of the counter; 0 if nothing was counted.
+	 */
+	public synchronized long getCount(String name) {
+		long[] c = counters.get(name);
+		return (c == null) ? 0 : c[0];
+	}
+
+	/**
+	 * @param name The histogram.
+	 * @return The histogram, or <tt>null</tt> if nothing was recorded; not to be changed.
+	 */
+	public synchronized LogHistogram getHistogram(String name) {
+		return histograms.get(name);
+	}
+
+	/**
+	 * Adds the counters, rates and histograms of other metrics to these.
+	 * @param other The metrics, e.g., of a run; not changed.
+	 */
+	public void merge(RunMetrics other) {
+		if (other == this) {
+			throw new IllegalArgumentException("Metrics cannot be merged into themselves.");
+		}
+		synchronized (other) {
+			synchronized (this) {
+				for (Map.Entry<String, long[]> e : other.counters.entrySet()) {
+					count(e.getKey(), e.getValue()[0]);
+				}
+				for (Map.Entry<String, long[]> e : other.rates.entrySet()) {
+					rate(e.getKey(), e.getValue()[0], e.getValue()[1]);
+				}
+				for (Map.Entry<String, LogHistogram> e : other.histograms.entrySet()) {
+					histograms.computeIfAbsent(e.getKey(), k -> new LogHistogram()).merge(e.getValue());
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the lines of the metrics log for these metrics (see {@linkplain #HEADER}): counters, then rates, then
+	 * histograms, each by name. A counter fills the count only; a rate gives its denominator as the count and its
+	 * value as the mean; a histogram fills all columns, times in milliseconds.
+	 * @param simID The simulation ID of the lines.
+	 * @return The lines.
+	 */
+	public synchronized List<String> summary(int simID) {
+		ArrayList<String> lines = new ArrayList<>();
+		for (Map.Entry<String, long[]> e : counters.entrySet()) {
+			lines.add(simID + "," + e.getKey() + "," + e.getValue()[0] + ",,,,,,");
+		}
+		for (Map.Entry<String, long[]> e : rates.entrySet()) {
+			long[] r = e.getValue();
+			lines.add(simID + "," + e.getKey() + "," + r[1] + ","
+					+ ((r[1] == 0) ? 0.0 : (double) r[0] / r[1]) + ",,,,,");
+		}
+		for (Map.Entry<String, LogHistogram> e : histograms.entrySet()) {
+			LogHistogram h = e.getValue();
+			lines.add(simID + "," + e.getKey() + "," + h.getCount() + "," + h.getMean() + "," + h.getMin() + ","
+					+ h.getPercentile(50) + "," + h.getPercentile(90) + "," + h.getPercentile(99) + "," + h.getMax());
+		}
+		return lines;
+	}
+}
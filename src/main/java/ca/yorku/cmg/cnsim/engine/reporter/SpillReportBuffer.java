@@ -0,0 +1,302 @@
+package ca.yorku.cmg.cnsim.engine.reporter;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * A {@linkplain ReportBuffer} that writes its lines to a file of its own as they are added, rather than keeping them
+ * in memory, for a run whose lines cannot be written out before the runs preceding it are merged (see
+ * {@linkplain Reporter#merge(ca.yorku.cmg.cnsim.engine.SimulationContext)}). The lines are read back and handed on,
+ * in the order they were added, by {@linkplain #replayInto(ReportBuffer)}, which also deletes the file.
+ * <p>
+ * The buffer of a thread processing part of the events of a run (see {@linkplain ca.yorku.cmg.cnsim.engine.ParallelSimulation})
+ * also records the start of every event with its time and sequence number (see {@linkplain #mark(long, long)}), so that
+ * the buffers of the threads can be merged in event order (see {@linkplain #mergeInto(ReportBuffer, SpillReportBuffer[], long)}).
+ * <p>
+ * Not thread-safe; each buffer is filled by one thread.
+ *
+ * @author Sotirios Liaskos for the Conceptual Modeling Group @ York University
+ */
+public class SpillReportBuffer extends ReportBuffer {
+
+	// Record types.
+	private static final int MARK = 'M';
+	private static final int EVENT = 'E';
+	private static final int EVENT_TEXT = 'T';
+	private static final int NAME = 'N';
+	private static final int LINE = 'L';
+
+	private final Path file;
+	private final DataOutputStream out;
+
+	// Number of each log name, defined in the file on first use.
+	private final HashMap<String, Integer> logNumbers = new HashMap<>();
+	private int events = 0;
+
+
+	/**
+	 * Creates a buffer writing to a new temporary file.
+	 */
+	public SpillReportBuffer() {
+		try {
+			file = Files.createTempFile("cnsim-report-", ".bin");
+			file.toFile().deleteOnExit();
+			out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16));
+		} catch (IOException e) {
+			throw new UncheckedIOException("Cannot create report spill file", e);
+		}
+	}
+
+	/**
+	 * Records the start of an event; lines added from now on belong to it.
+	 * @param time The simulation time of the event.
+	 * @param seq The schedule sequence number of the event.
+	 */
+	public void mark(long time, long seq) {
+		try {
+			out.writeByte(MARK);
+			out.writeLong(time);
+			out.writeLong(seq);
+		} catch (IOException e) {
+			throw new UncheckedIOException("Cannot write report spill file " + file, e);
+		}
+	}
+
+	@Override
+	public void add(String log, String line) {
+		try {
+			Integer n = logNumbers.get(log);
+			if (n == null) {
+				n = logNumbers.size();
+				logNumbers.put(log, n);
+				out.writeByte(NAME);
+				writeString(log);
+			}
+			out.writeByte(LINE);
+			out.writeInt(n);
+			writeString(line);
+		} catch (IOException e) {
+			throw new UncheckedIOException("Cannot write report spill file " + file, e);
+		}
+	}
+
+	@Override
+	public void addEvent(int simID, long evtID, String rest) {
+		try {
+			out.writeByte(EVENT_TEXT);
+			out.writeInt(simID);
+			out.writeLong(evtID);
+			writeString(rest);
+			events++;
+		} catch (IOException e) {
+			throw new UncheckedIOException("Cannot write report spill file " + file, e);
+		}
+	}
+
+	@Override
+	public void addEvent(int simID, long evtID, long simTime, long sysTime, int type, int node, long object) {
+		try {
+			out.writeByte(EVENT);
+			out.writeInt(simID);
+			out.writeLong(evtID);
+			out.writeLong(simTime);
+			out.writeLong(sysTime);
+			out.writeInt(type);
+			out.writeInt(node);
+			out.writeLong(object);
+			events++;
+		} catch (IOException e) {
+			throw new UncheckedIOException("Cannot write report spill file " + file, e);
+		}
+	}
+
+	/**
+	 * Returns the number of event log entries added; the entries themselves are only available through
+	 * {@linkplain #replayInto(ReportBuffer)}.
+	 */
+	@Override
+	public int getEventCount() {
+		return events;
+	}
+
+	/**
+	 * Writes out the lines still buffered and closes the file, e.g., once the run is over and waits to be merged.
+	 * No lines can be added afterwards.
+	 */
+	public void finish() {
+		try {
+			out.close();
+		} catch (IOException e) {
+			throw new UncheckedIOException("Cannot write report spill file " + file, e);
+		}
+	}
+
+	private void writeString(String s) throws IOException {
+		byte[] b = s.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(b.length);
+		out.write(b);
+	}
+
+
+	/**
+	 * Adds the lines of the buffer to another buffer, in the order they were added, and deletes the file.
+	 * No lines can be added afterwards.
+	 * @param target The buffer receiving the lines.
+	 */
+	public void replayInto(ReportBuffer target) {
+		try (Reader r = new Reader()) {
+			while (r.type >= 0) {
+				if (r.type == MARK) {
+					r.readMark();
+				}
+				r.copyEvent(target, -1);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException("Cannot read report spill file " + file, e);
+		}
+	}
+
+	/**
+	 * Adds the lines of several buffers to a buffer, ordered by the (time, sequence number) of the events that added
+	 * them, as marked by {@linkplain #mark(long, long)}. Lines added during the same event keep their order. Events are
+	 * numbered in that order and event log entries receive the number of their event as event ID. The files of the
+	 * buffers are deleted.
+	 *
+	 * @param target The buffer receiving the lines.
+	 * @param parts The buffers, each with its events marked in (time, sequence number) order.
+	 * @param lastRank The number of the event preceding the first one.
+	 * @return The number of the last event.
+	 */
+	public static long mergeInto(ReportBuffer target, SpillReportBuffer[] parts, long lastRank) {
+		Reader[] readers = new Reader[parts.length];
+		try {
+			for (int w = 0; w < parts.length; w++) {
+				readers[w] = parts[w].new Reader();
+				// Lines added outside of any event, if any, come first.
+				readers[w].copyEvent(target, -1);
+			}
+			while (true) {
+				Reader best = null;
+				for (Reader r : readers) {
+					if (r.type == MARK && (best == null || r.precedes(best))) {
+						best = r;
+					}
+				}
+				if (best == null) {
+					return lastRank;
+				}
+				best.readMark();
+				best.copyEvent(target, ++lastRank);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException("Cannot read report spill file", e);
+		} finally {
+			for (Reader r : readers) {
+				if (r != null) {
+					r.close();
+				}
+			}
+		}
+	}
+
+
+	/**
+	 * Reads the records of the file back, one event at a time, and deletes the file when closed.
+	 */
+	private class Reader implements AutoCloseable {
+		private final DataInputStream in;
+		private final List<String> names = new ArrayList<>();
+
+		// The type of the next record, -1 at the end of the file.
+		int type;
+		// The time and sequence number of the next mark, once peeked.
+		private long time;
+		private long seq;
+
+		Reader() throws IOException {
+			finish();
+			in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16));
+			advance();
+		}
+
+		private void advance() throws IOException {
+			type = in.read();
+			if (type == MARK) {
+				time = in.readLong();
+				seq = in.readLong();
+			}
+		}
+
+		boolean precedes(Reader other) {
+			return time < other.time || (time == other.time && seq < other.seq);
+		}
+
+		void readMark() throws IOException {
+			advance();
+		}
+
+		/**
+		 * Copies the records up to the next mark to a buffer.
+		 * @param evtID The event ID of the event log entries, or -1 to keep their own.
+		 */
+		void copyEvent(ReportBuffer target, long evtID) throws IOException {
+			while (type >= 0 && type != MARK) {
+				switch (type) {
+				case EVENT: {
+					int simID = in.readInt();
+					long id = in.readLong();
+					long simTime = in.readLong();
+					long sysTime = in.readLong();
+					int evtType = in.readInt();
+					int node = in.readInt();
+					long object = in.readLong();
+					target.addEvent(simID, (evtID < 0) ? id : evtID, simTime, sysTime, evtType, node, object);
+					break;
+				}
+				case EVENT_TEXT: {
+					int simID = in.readInt();
+					long id = in.readLong();
+					target.addEvent(simID, (evtID < 0) ? id : evtID, readString());
+					break;
+				}
+				case NAME:
+					names.add(readString());
+					break;
+				case LINE:
+					String log = names.get(in.readInt());
+					target.add(log, readString());
+					break;
+				default:
+					throw new IOException("Unknown record type " + type + " in report spill file " + file);
+				}
+				advance();
+			}
+		}
+
+		private String readString() throws IOException {
+			byte[] b = new byte[in.readInt()];
+			in.readFully(b);
+			return new String(b, StandardCharsets.UTF_8);
+		}
+
+		@Override
+		public void close() {
+			try {
+				in.close();
+				Files.deleteIfExists(file);
+			} catch (IOException e) {
+				throw new UncheckedIOException("Cannot delete report spill file " + file, e);
+			}
+		}
+	}
+}
@@ -0,0 +1,418 @@
+package ca.yorku.cmg.cnsim.engine.transaction;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import ca.yorku.cmg.cnsim.engine.SimulationContext;
+
+/**
+ * A pool of unconfirmed transactions, kept in decreasing order of value per size (fee rate) as by
+ * {@linkplain TxValuePerSizeComparator}; transactions of equal value per size keep the order in which they were added.
+ * <p>
+ * Transactions are held in a balanced search tree (a treap), plus an index by transaction ID. Adding, removing and
+ * looking up a transaction take O(log P) time, where P is the number of transactions in the pool. The best block
+ * template, and its value, are produced in O(log P + k) time for k transactions (see {@linkplain #getTopN(float)}
+ * and {@linkplain #getTopValue(float)}), without sorting the pool.
+ * <p>
+ * The pool keeps the handles of its transactions in a {@linkplain TransactionTable}, by default the table of the run
+ * (see {@linkplain SimulationContext#getTransactionTable()}), rather than {@linkplain Transaction} objects: the pools of
+ * the nodes share the rows of the transactions, and objects are only created when they are asked for.
+ * <p>
+ * A transaction already in the pool (by ID) is not added again.
+ *
+ * @author Sotirios Liaskos for the Conceptual Modeling Group @ York University
+ */
+public class Mempool implements ITxContainer {
+
+	private final TransactionTable table;
+	private final HashMap<Long, Entry> index = new HashMap<>();
+	private Entry root = null;
+	private long nextSeq = 0;
+
+	protected int groupID;
+	protected float totalValue;
+	protected float totalSize;
+
+
+	/**
+	 * Creates an empty pool over the transaction table of the run.
+	 */
+	public Mempool() {
+		this(SimulationContext.current().getTransactionTable());
+	}
+
+	/**
+	 * Creates an empty pool.
+	 * @param table The table holding the transactions of the pool.
+	 */
+	public Mempool(TransactionTable table) {
+		this.table = table;
+	}
+
+
+	////////// Modifiers //////////
+
+	/**
+	 * See {@linkplain ITxContainer#addTransaction(Transaction)}. The transaction is added to the table if it
+	 * does not come from it, see {@linkplain TransactionTable#rowOf(Transaction)}.
+	 */
+	@Override
+	public void addTransaction(Transaction t) {
+		if (index.containsKey(t.getID())) {
+			return;
+		}
+		addHandle(table.rowOf(t));
+	}
+
+	/**
+	 * Adds a transaction of the table to the pool, unless a transaction with its ID is already there.
+	 * @param h The handle of the transaction.
+	 */
+	public void addHandle(int h) {
+		long id = table.getID(h);
+		if (index.containsKey(id)) {
+			return;
+		}
+		Entry e = new Entry(h, table.getValue(h) / table.getSize(h), nextSeq++);
+		index.put(id, e);
+		root = insert(root, e);
+		totalSize += table.getSize(h);
+		totalValue += table.getValue(h);
+	}
+
+	/**
+	 * See {@linkplain ITxContainer#removeTransaction(Transaction)}.
+	 */
+	@Override
+	public void removeTransaction(Transaction t) {
+		removeTransaction(t.getID());
+	}
+
+	/**
+	 * Like removeTransaction(Transaction) but with ID as an argument.
+	 * See {@linkplain ITxContainer#removeTransaction(Transaction)}.
+	 * @param txID The ID of the transaction to be removed.
+	 */
+	public void removeTransaction(long txID) {
+		Entry e = index.remove(txID);
+		if (e == null) return;
+		root = delete(root, e);
+		totalSize -= table.getSize(e.h);
+		totalValue -= table.getValue(e.h);
+	}
+
+	/**
+	 * Removes the transaction with the highest value per size.
+	 * See {@linkplain ITxContainer#removeNextTx()}.
+	 */
+	@Override
+	public Transaction removeNextTx() {
+		if (root == null) {
+			throw new NoSuchElementException();
+		}
+		Entry e = root;
+		while (e.left != null) {
+			e = e.left;
+		}
+		removeTransaction(table.getID(e.h));
+		return table.get(e.h);
+	}
+
+	/**
+	 * See {@linkplain ITxContainer#extractGroup(TransactionGroup)}.
+	 */
+	@Override
+	public void extractGroup(TransactionGroup g) {
+		for (int i = 0; i < g.getCount(); i++) {
+			this.removeTransaction(g.getTransactionID(i));
+		}
+	}
+
+
+	////////// Block Templates //////////
+
+	/**
+	 * Retrieves the transactions of highest value per size that fit in a block, i.e., the longest run of
+	 * transactions, in order, whose cumulative size does not exceed {@code sizeLimit}. Returns the same group as
+	 * {@linkplain TransactionGroup#getTopN(float, java.util.Comparator)} with a {@linkplain TxValuePerSizeComparator}.
+	 *
+	 * @param sizeLimit The maximum cumulative size (in bytes) of transactions allowed in the result.
+	 * @return A {@link TransactionGroup} object containing the top N transactions that do not exceed sizeLimit.
+	 */
+	public TransactionGroup getTopN(float sizeLimit) {
+		if (sizeLimit < 0) {
+			throw new IllegalArgumentException(String.format("Size limit (%f) must be a positive integer", sizeLimit));
+		}
+		TransactionGroup result = new TransactionGroup(table);
+		ArrayDeque<Entry> path = new ArrayDeque<>();
+		Entry e = root;
+		float sum = 0;
+		while (e != null || !path.isEmpty()) {
+			while (e != null) {
+				path.push(e);
+				e = e.left;
+			}
+			e = path.pop();
+			sum += table.getSize(e.h);
+			if (sum > sizeLimit) {
+				break;
+			}
+			result.addHandle(e.h);
+			e = e.right;
+		}
+		return (result);
+	}
+
+	/**
+	 * Returns the total value of the transactions that {@linkplain #getTopN(float)} would return, without
+	 * producing the group. Sizes and values are accumulated in float, in the same order as {@linkplain #getTopN(float)}
+	 * and {@linkplain TransactionGroup} do, so the result equals the value of the group exactly.
+	 *
+	 * @param sizeLimit The maximum cumulative size (in bytes) of the transactions.
+	 * @return The total value of the top transactions.
+	 */
+	public float getTopValue(float sizeLimit) {
+		ArrayDeque<Entry> path = new ArrayDeque<>();
+		Entry e = root;
+		float size = 0, value = 0;
+		while (e != null || !path.isEmpty()) {
+			while (e != null) {
+				path.push(e);
+				e = e.left;
+			}
+			e = path.pop();
+			size += table.getSize(e.h);
+			if (size > sizeLimit) {
+				break;
+			}
+			value += table.getValue(e.h);
+			e = e.right;
+		}
+		return value;
+	}
+
+
+	////////// Examine Content //////////
+
+	/**
+	 * See {@linkplain ITxContainer#contains(Transaction)}.
+	 */
+	@Override
+	public boolean contains(Transaction t) {
+		return index.containsKey(t.getID());
+	}
+
+	/**
+	 * See {@linkplain ITxContainer#contains(long)}.
+	 */
+	@Override
+	public boolean contains(long txID) {
+		return index.containsKey(txID);
+	}
+
+
+	////////// Accessors //////////
+
+	/**
+	 * See {@linkplain ITxContainer#getID()}.
+	 */
+	@Override
+	public int getID() {
+		return groupID;
+	}
+
+	/**
+	 * See {@linkplain ITxContainer#getCount()}.
+	 */
+	@Override
+	public int getCount() {
+		return index.size();
+	}
+
+	/**
+	 * See {@linkplain ITxContainer#getSize()}.
+	 */
+	@Override
+	public float getSize() {
+		return totalSize;
+	}
+
+	/**
+	 * See {@linkplain ITxContainer#getValue()}.
+	 */
+	@Override
+	public float getValue() {
+		return totalValue;
+	}
+
+	/**
+	 * The table holding the transactions of the pool.
+	 * @return The table.
+	 */
+	public TransactionTable getTable() {
+		return table;
+	}
+
+	/**
+	 * Returns the transactions of the pool in decreasing order of value per size. The list is a copy, of objects
+	 * created from the table; modifying it does not affect the pool.
+	 *
+	 * @return A list of the transactions in the pool.
+	 */
+	@Override
+	public List<Transaction> getTransactions() {
+		ArrayList<Transaction> result = new ArrayList<>(index.size());
+		collect(root, result);
+		return result;
+	}
+
+	private void collect(Entry e, List<Transaction> out) {
+		while (e != null) {
+			collect(e.left, out);
+			out.add(table.get(e.h));
+			e = e.right;
+		}
+	}
+
+
+	////////// Print Group //////////
+
+	/**
+	 * See {@linkplain ITxContainer#printIDs(String)}.
+	 */
+	@Override
+	public String printIDs(String sep) {
+		StringBuilder s = new StringBuilder("{");
+		ArrayDeque<Entry> path = new ArrayDeque<>();
+		Entry e = root;
+		while (e != null || !path.isEmpty()) {
+			while (e != null) {
+				path.push(e);
+				e = e.left;
+			}
+			e = path.pop();
+			s.append(table.getID(e.h)).append(sep);
+			e = e.right;
+		}
+		if (s.length() > 1)
+			s = new StringBuilder(s.substring(0, s.length() - 1) + "}");
+		else
+			s.append("}");
+		return (s.toString());
+	}
+
+
+	////////// Tree //////////
+
+	/**
+	 * A transaction in the tree, by handle.
+	 */
+	private static class Entry {
+		final int h;
+		final float ratio;
+		final long seq;
+		final long priority;
+		Entry left, right;
+
+		Entry(int h, float ratio, long seq) {
+			this.h = h;
+			this.ratio = ratio;
+			this.seq = seq;
+			this.priority = mix(seq);
+		}
+	}
+
+	/**
+	 * Pseudo-random heap priority derived from the insertion sequence (SplitMix64 finalizer), so that
+	 * the shape of the tree is reproducible.
+	 */
+	private static long mix(long z) {
+		z += 0x9E3779B97F4A7C15L;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+	/**
+	 * Orders by decreasing value per size, then by insertion.
+	 */
+	private static int compare(Entry a, Entry b) {
+		if (a.ratio != b.ratio) {
+			return (a.ratio > b.ratio) ? -1 : 1;
+		}
+		return Long.compare(a.seq, b.seq);
+	}
+
+	private static Entry insert(Entry n, Entry e) {
+		if (n == null) {
+			return e;
+		}
+		if (e.priority > n.priority) {
+			split(n, e);
+			return e;
+		}
+		if (compare(e, n) < 0) {
+			n.left = insert(n.left, e);
+		} else {
+			n.right = insert(n.right, e);
+		}
+		return n;
+	}
+
+	/**
+	 * Splits subtree {@code n} into the entries preceding {@code e}, which become its left subtree, and
+	 * those following it, which become its right subtree.
+	 */
+	private static void split(Entry n, Entry e) {
+		Entry[] lr = new Entry[2];
+		splitInto(n, e, lr);
+		e.left = lr[0];
+		e.right = lr[1];
+	}
+
+	private static void splitInto(Entry n, Entry e, Entry[] lr) {
+		if (n == null) {
+			lr[0] = lr[1] = null;
+			return;
+		}
+		if (compare(n, e) < 0) {
+			splitInto(n.right, e, lr);
+			n.right = lr[0];
+			lr[0] = n;
+		} else {
+			splitInto(n.left, e, lr);
+			n.left = lr[1];
+			lr[1] = n;
+		}
+	}
+
+	private static Entry delete(Entry n, Entry e) {
+		if (n == e) {
+			return merge(n.left, n.right);
+		}
+		if (compare(e, n) < 0) {
+			n.left = delete(n.left, e);
+		} else {
+			n.right = delete(n.right, e);
+		}
+		return n;
+	}
+
+	/**
+	 * Joins two subtrees, all entries of {@code a} preceding those of {@code b}.
+	 */
+	private static Entry merge(Entry a, Entry b) {
+		if (a == null) return b;
+		if (b == null) return a;
+		if (a.priority > b.priority) {
+			a.right = merge(a.right, b);
+			return a;
+		} else {
+			b.left = merge(a, b.left);
+			return b;
+		}
+	}
+}
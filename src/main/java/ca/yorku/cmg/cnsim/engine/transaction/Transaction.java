@@ -1,8 +1,17 @@
 package ca.yorku.cmg.cnsim.engine.transaction;
 
+import java.util.Objects;
+
+import ca.yorku.cmg.cnsim.engine.SimulationContext;
+
+/**
+ * A transaction. Pools and blocks keep their transactions as rows of a {@linkplain TransactionTable}; the objects they
+ * hand out are created from the rows and stay bound to them (see {@linkplain TransactionTable#rowOf(Transaction)}), so
+ * that adding such an object to another pool or block reuses its row. Changing an object detaches it from its row.
+ * Transactions are equal if their contents are.
+ */
 public class Transaction {
 
-	public static int currID = 1;
 	public enum Type {HONEST, MALICIOUS, FAKE}
 
 	protected long ID;
@@ -13,8 +22,13 @@ public class Transaction {
 	protected Type type;
 	protected boolean seedChanging;
 
+	// The table row holding the contents of the transaction, if any.
+	TransactionTable table;
+	int handle;
+
 	public void makeSeedChanging() {
 		this.seedChanging = true;
+		table = null;
 	}
 
 	public boolean isSeedChanging() {
@@ -87,7 +101,15 @@ public class Transaction {
 	 * @return The next transaction ID number
 	 */
 	public static int getNextTxID() {
-	    return(currID++);
+	    return(SimulationContext.current().nextTxID());
+	}
+
+	/**
+	 * Get the next available ID number, without consuming it.
+	 * @return The next transaction ID number
+	 */
+	public static int getCurrID() {
+	    return(SimulationContext.current().getCurrTxID());
 	}
 	
 	
@@ -96,7 +118,7 @@ public class Transaction {
 	 * @author Sotirios Liaskos
 	 */
 	public static void resetCurrID() {
-	    currID = 1;
+	    SimulationContext.current().resetTxID();
 	}
 		
 	
@@ -124,6 +146,7 @@ public class Transaction {
 		if(value < 0)
 			throw new ArithmeticException("Value < 0");
 	    this.value = value;
+	    table = null;
 	}
 
 	/**
@@ -134,6 +157,7 @@ public class Transaction {
 	    if(size < 0)
 			throw new ArithmeticException("Size < 0");
 	    this.size = size;
+	    table = null;
 	}
 
 	/**
@@ -150,6 +174,7 @@ public class Transaction {
 	 */
 	public void setID(long ID) {
 	    this.ID = ID;
+	    table = null;
 	}
 
 	/**
@@ -174,6 +199,7 @@ public class Transaction {
 	 */
 	public void setType(Type type) {
 	    this.type = type;
+	    table = null;
 	}
 	
 	/**
@@ -190,5 +216,25 @@ public class Transaction {
 	 */
 	public void setNodeID(int nodeID) {
 		this.nodeID = nodeID;
+		table = null;
+	}
+
+	@Override
+	public boolean equals(Object other) {
+		if (this == other) return true;
+		if (other == null || getClass() != other.getClass()) return false;
+		Transaction t = (Transaction) other;
+		return ID == t.ID
+				&& Float.compare(size, t.size) == 0
+				&& Float.compare(value, t.value) == 0
+				&& creationTime == t.creationTime
+				&& nodeID == t.nodeID
+				&& type == t.type
+				&& seedChanging == t.seedChanging;
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(ID, size, value, creationTime, nodeID, type, seedChanging);
 	}
 }
\ No newline at end of file
@@ -3,18 +3,49 @@ package ca.yorku.cmg.cnsim.engine.transaction;
 import java.io.BufferedReader;
 import java.io.FileReader;
 import java.io.IOException;
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Comparator;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+import java.util.function.Consumer;
+
+import ca.yorku.cmg.cnsim.engine.LongIntHashMap;
+import ca.yorku.cmg.cnsim.engine.SimulationContext;
 
 /**
  * A list containing various transactions. Can be used as a block or other needed grouping (e.g. pool).
+ * <p>
+ * The transactions are kept as handles of the rows of a {@linkplain TransactionTable}, by default the table of the
+ * run (see {@linkplain SimulationContext#getTransactionTable()}), rather than as {@linkplain Transaction} objects. The
+ * objects the group hands out are created from the rows when they are accessed; the handles themselves are available
+ * through {@linkplain #getHandle(int)}, and the IDs through {@linkplain #getTransactionID(int)}.
+ * <p>
+ * Transactions keep the order in which they were added. An index from transaction ID to position makes lookups
+ * and removals by ID take O(1) time: removed transactions leave an empty slot that is compacted away, preserving
+ * the order, the next time the list is accessed as a whole. The index is built on the first lookup, so that groups
+ * that are only filled and scanned, such as a {@linkplain TransactionWorkload}, do not pay for it.
  *
  * @author Sotirios Liaskos for the Enterprise Systems Group @ York University
  */
 public class TransactionGroup implements ITxContainer {
 
-    private List<Transaction> group;
+    private static final int EMPTY = -1;
+
+    private final TransactionTable table;
+    private int[] handles = new int[8];
+    /** Number of slots used in {@code handles}, including empty ones. */
+    private int used;
+    /** Position in {@code handles} of the first remaining occurrence of each transaction ID; <tt>null</tt> until the first lookup. */
+    private LongIntHashMap index;
+    /** Number of empty (removed) slots in {@code handles}. */
+    private int removed;
+    /** Position in {@code handles} before which all slots are empty. */
+    private int head;
+    /** Whether a transaction ID may occur more than once in {@code handles}. */
+    private boolean duplicates;
     protected int groupID;
     protected float totalValue;
     protected float totalSize;
@@ -22,10 +53,19 @@ public class TransactionGroup implements ITxContainer {
     ////////// Constructors //////////
 
     /**
-     * Plain constructor, simply initializes the internal data structure.
+     * Plain constructor, creates an empty group over the transaction table of the run.
      */
     public TransactionGroup() {
-        group = new ArrayList<>();
+        this(SimulationContext.current().getTransactionTable());
+    }
+
+    /**
+     * Creates an empty group.
+     *
+     * @param table The table holding the transactions of the group.
+     */
+    public TransactionGroup(TransactionTable table) {
+        this.table = table;
     }
 
     /**
@@ -34,11 +74,18 @@ public class TransactionGroup implements ITxContainer {
      * @param initial An already created ArrayList of transactions
      */
     public TransactionGroup(List<Transaction> initial) {
-        group = initial;
-        for (Transaction t : initial) {
-            totalValue += t.getValue();
-            totalSize += t.getSize();
-        }
+        this();
+        updateTransactionGroup(initial);
+    }
+
+    /**
+     * Creates a group with the transactions of another group, in the same table.
+     *
+     * @param initial The group whose transactions are copied.
+     */
+    public TransactionGroup(TransactionGroup initial) {
+        this(initial.table);
+        updateTransactionGroup(initial);
     }
 
     /**
@@ -58,7 +105,18 @@ public class TransactionGroup implements ITxContainer {
      */
     public TransactionGroup(String fileName, boolean hasHeader) throws IOException {
         this();
+        readFile(fileName, hasHeader, this::addTransaction);
+    }
 
+    /**
+     * Reads the transactions of a text file in the format of {@linkplain #TransactionGroup(String, boolean)}.
+     *
+     * @param fileName  A name to the text file containing the transactions.
+     * @param hasHeader Whether the file has a header.
+     * @param action    What to do with each transaction, in the order of the file.
+     * @throws IOException Error finding or reading the file.
+     */
+    static void readFile(String fileName, boolean hasHeader, Consumer<Transaction> action) throws IOException {
         String l;
         String delimiter = ",";
 
@@ -88,7 +146,7 @@ public class TransactionGroup implements ITxContainer {
                 size = Float.parseFloat(t[3]);
                 nodeID = Integer.parseInt(t[4]);
 
-                this.addTransaction(new Transaction(id, time, value, size, nodeID));
+                action.accept(new Transaction(id, time, value, size, nodeID));
             }
         }
         br.close();
@@ -102,61 +160,201 @@ public class TransactionGroup implements ITxContainer {
      * @param initial An array list of <tt>Transaction</tt> objects, to replace the existing one.
      */
     public void updateTransactionGroup(List<Transaction> initial) {
+        clear(initial.size());
+        for (Transaction t : initial) {
+            addTransaction(t);
+        }
+    }
+
+    /**
+     * Replace transaction group with the transactions of another group.
+     *
+     * @param initial The group whose transactions replace the existing ones.
+     */
+    public void updateTransactionGroup(TransactionGroup initial) {
+        clear(initial.getCount());
+        addGroup(initial);
+    }
+
+    private void clear(int capacity) {
         totalValue = 0;
         totalSize = 0;
-        group = initial;
-        for (Transaction t : initial) {
-            totalValue += t.getValue();
-            totalSize += t.getSize();
+        handles = new int[Math.max(capacity, 1)];
+        used = 0;
+        index = null;
+        removed = 0;
+        head = 0;
+        duplicates = false;
+    }
+
+    /**
+     * Adds a transaction of the table to the group.
+     *
+     * @param h The handle of the transaction.
+     */
+    public void addHandle(int h) {
+        long id = table.getID(h);
+        if (index != null) {
+            if (index.containsKey(id)) {
+                duplicates = true;
+            } else {
+                index.put(id, used);
+            }
+        }
+        if (used == handles.length) {
+            handles = Arrays.copyOf(handles, used * 2);
+        }
+        handles[used++] = h;
+        totalSize += table.getSize(h);
+        totalValue += table.getValue(h);
+    }
+
+    /**
+     * Adds the transactions of another group, in their order. Transactions of a group over the same table are added
+     * by handle.
+     *
+     * @param g The group whose transactions are added.
+     */
+    public void addGroup(TransactionGroup g) {
+        if (g.table != table) {
+            for (Transaction t : g.getTransactions()) {
+                addTransaction(t);
+            }
+            return;
+        }
+        g.compact();
+        for (int i = 0; i < g.used; i++) {
+            addHandle(g.handles[i]);
         }
     }
 
     /**
-     * See {@linkplain ITxContainer#addTransaction(Transaction)}.
+     * See {@linkplain ITxContainer#addTransaction(Transaction)}. The transaction is added to the table if it
+     * does not come from it, see {@linkplain TransactionTable#rowOf(Transaction)}.
      */
     @Override
     public void addTransaction(Transaction t) {
-        group.add(t);
-        totalSize += t.getSize();
-        totalValue += t.getValue();
+        addHandle(table.rowOf(t));
     }
 
     /**
+     * Removes the first occurrence of a transaction with the same ID as <tt>t</tt>.
      * See {@linkplain ITxContainer#removeTransaction(Transaction)}.
      */
     @Override
     public void removeTransaction(Transaction t) {
-        if (!group.contains(t)) return;
-        group.remove(t);
-        totalSize -= t.getSize();
-        totalValue -= t.getValue();
+        removeTransaction(t.getID());
     }
 
 
     /**
      * Like removeTransaction(Transaction) but with ID as an argument. 
      * See {@linkplain ITxContainer#removeTransaction(Transaction)}.
-     * @param txID
+     * @param txID The ID of the transaction to be removed.
      */
-    public void removeTransaction(int txID) {
-        Transaction t = getTransactionById((int) txID);
-        if (!group.contains(t)) return;
-        group.remove(t);
-        totalSize -= t.getSize();
-        totalValue -= t.getValue();
+    public void removeTransaction(long txID) {
+        int pos = index().get(txID, -1);
+        if (pos < 0) return;
+        removeAt(pos);
     }
     
+    /**
+     * Empties slot <tt>pos</tt> and points the index to the next occurrence of the same ID, if any.
+     */
+    private void removeAt(int pos) {
+        int h = handles[pos];
+        long id = table.getID(h);
+        handles[pos] = EMPTY;
+        removed++;
+        LongIntHashMap ix = index();
+        ix.remove(id);
+        if (duplicates) {
+            for (int i = pos + 1; i < used; i++) {
+                int r = handles[i];
+                if (r != EMPTY && table.getID(r) == id) {
+                    ix.put(id, i);
+                    break;
+                }
+            }
+        }
+        totalSize -= table.getSize(h);
+        totalValue -= table.getValue(h);
+        if (removed == used) {
+            used = 0;
+            removed = 0;
+            head = 0;
+        } else if (removed > 32 && removed * 2 > used) {
+            compact();
+        }
+    }
     
+    /**
+     * Drops the empty slots left by removals, keeping the order of the remaining transactions.
+     */
+    private void compact() {
+        if (removed == 0) return;
+        int j = 0;
+        for (int i = head; i < used; i++) {
+            int h = handles[i];
+            if (h == EMPTY) continue;
+            if (i != j) {
+                handles[j] = h;
+                long id = table.getID(h);
+                if (index != null && index.get(id, -1) == i) {
+                    index.put(id, j);
+                }
+            }
+            j++;
+        }
+        used = j;
+        removed = 0;
+        head = 0;
+    }
+
+    /**
+     * The index from transaction ID to position, built on first use.
+     */
+    private LongIntHashMap index() {
+        if (index == null) {
+            index = new LongIntHashMap(used);
+            for (int i = head; i < used; i++) {
+                int h = handles[i];
+                if (h == EMPTY) continue;
+                long id = table.getID(h);
+                if (index.containsKey(id)) {
+                    duplicates = true;
+                } else {
+                    index.put(id, i);
+                }
+            }
+        }
+        return index;
+    }
     
+    /**
+     * Removes the first transaction from the group.
+     *
+     * @return The handle of the transaction removed.
+     * @throws NoSuchElementException If the group is empty.
+     */
+    public int removeNextHandle() {
+        if (getCount() == 0) {
+            throw new NoSuchElementException();
+        }
+        while (handles[head] == EMPTY) {
+            head++;
+        }
+        int h = handles[head];
+        removeAt(head);
+        return h;
+    }
+
     /**
      * See {@linkplain ITxContainer#removeNextTx()}.
      */
     @Override
     public Transaction removeNextTx() {
-        Transaction t = group.removeFirst();
-        totalSize -= t.getSize();
-        totalValue -= t.getValue();
-        return t;
+        return table.get(removeNextHandle());
     }
 
     /**
@@ -164,8 +362,8 @@ public class TransactionGroup implements ITxContainer {
      */
     @Override
     public void extractGroup(TransactionGroup g) {
-        for (Transaction t : g.getTransactions()) {
-            this.removeTransaction(t);
+        for (int i = 0; i < g.getCount(); i++) {
+            this.removeTransaction(g.getTransactionID(i));
         }
     }
 
@@ -176,12 +374,7 @@ public class TransactionGroup implements ITxContainer {
      */
     @Override
     public boolean contains(Transaction t) {
-        for (Transaction r : group) {
-            if (r.getID() == t.getID()) {
-                return true;
-            }
-        }
-        return false;
+        return index().containsKey(t.getID());
     }
 
     /**
@@ -189,30 +382,38 @@ public class TransactionGroup implements ITxContainer {
      */
     @Override
     public boolean contains(long txID) {
-        for (Transaction r : group) {
-            if (r.getID() == txID) {
-                return true;
-            }
-        }
-        return false;
+        return index().containsKey(txID);
     }
 
     /**
      * Check if the group overlaps with another transaction group, i.e.,
      * there is a transaction in {@code p} that also exists in the current group.
+     * Transactions are the same if they are held in the same row of the same table.
      *
      * @param p The <tt>TransactionGroup</tt> in question.
      * @return <tt>true</tt> of there is at least one transaction in <tt>p</tt> that is contained in the group, <tt>false</tt>, otherwise.
      */
     public boolean overlapsWithByObj(TransactionGroup p) {
-        boolean result = false;
-        for (Transaction t : p.getTransactions()) {
-            if (group.contains(t)) {
-                result = true;
-                break;
+        if (p.table != table) {
+            return false;
+        }
+        for (int i = 0; i < p.getCount(); i++) {
+            int h = p.getHandle(i);
+            int pos = index().get(table.getID(h), -1);
+            if ((pos >= 0) && ((handles[pos] == h) || (duplicates && holds(h)))) {
+                return true;
             }
         }
-        return (result);
+        return false;
+    }
+
+    private boolean holds(int h) {
+        for (int i = head; i < used; i++) {
+            if (handles[i] == h) {
+                return true;
+            }
+        }
+        return false;
     }
 
     /**
@@ -223,11 +424,11 @@ public class TransactionGroup implements ITxContainer {
      * @return <tt>true</tt> of there is at least one transaction in <tt>g</tt> that is contained in the group, <tt>false</tt>, otherwise.
      */
     public boolean overlapsWith(TransactionGroup g) {
-        for (Transaction r : group) {
-            for (Transaction t : g.getTransactions()) {
-                if (t.getID() == r.getID()) {
-                    return true;
-                }
+        TransactionGroup small = (g.getCount() < getCount()) ? g : this;
+        TransactionGroup large = (small == this) ? g : this;
+        for (int i = 0; i < small.getCount(); i++) {
+            if (large.contains(small.getTransactionID(i))) {
+                return true;
             }
         }
         return false;
@@ -247,24 +448,33 @@ public class TransactionGroup implements ITxContainer {
             throw new IllegalArgumentException(String.format("Size limit (%f) must be a positive integer", sizeLimit));
         }
 
-        ArrayList<Transaction> result = new ArrayList<>();
-        List<Transaction> sortedGroup = group.stream().sorted(comp).toList();
+        TransactionGroup result = new TransactionGroup(table);
+        List<Transaction> sortedGroup = getTransactions().stream().sorted(comp).toList();
 
         int i = 0;
         float sum = 0;
-        while ((sum <= sizeLimit) && (i < sortedGroup.size())) {
+        while (i < sortedGroup.size()) {
             sum += sortedGroup.get(i).getSize();
-            result.add(sortedGroup.get(i));
+            if (sum > sizeLimit) { //This one exceeds the limit.
+                break;
+            }
+            result.addTransaction(sortedGroup.get(i));
             i++;
         }
-        if (sum > sizeLimit) { //Last one was exceeding the limit.
-            result.remove(i - 1);
-        }
-        return (new TransactionGroup(result));
+        return (result);
     }
 
     ////////// Accessors //////////
 
+    /**
+     * The table holding the transactions of the group.
+     *
+     * @return The table.
+     */
+    public TransactionTable getTable() {
+        return table;
+    }
+
     /**
      * See {@linkplain ITxContainer#getID()}.
      */
@@ -278,7 +488,7 @@ public class TransactionGroup implements ITxContainer {
      */
     @Override
     public int getCount() {
-        return (group.size());
+        return (used - removed);
     }
 
     /**
@@ -298,32 +508,72 @@ public class TransactionGroup implements ITxContainer {
     }
 
     /**
-     * Return the ArrayList of transactions in the group
+     * A read-only view of the transactions of the group, which creates each <tt>Transaction</tt> object from the table
+     * when it is accessed. The view must not be used after the group changes.
      *
-     * @return An <tt>ArrayList</tt> of <tt>Transaction</tt> objects representing the transactions in the group.
+     * @return A list of <tt>Transaction</tt> objects representing the transactions in the group.
      */
     @Override
     public List<Transaction> getTransactions() {
-        return group;
+        compact();
+        return new View();
+    }
+
+    private final class View extends AbstractList<Transaction> implements RandomAccess {
+        @Override
+        public Transaction get(int index) {
+            if (index < 0 || index >= used) {
+                throw new IndexOutOfBoundsException(index);
+            }
+            return table.get(handles[index]);
+        }
+
+        @Override
+        public int size() {
+            return used;
+        }
+    }
+
+    /**
+     * The handle of the transaction of the group at index <tt>index</tt>. Does not check if index exists.
+     *
+     * @param index The index from <tt>0</tt> to <tt>n-1</tt>
+     * @return The handle of the transaction in the table of the group.
+     */
+    public int getHandle(int index) {
+        compact();
+        return handles[index];
+    }
+
+    /**
+     * The ID of the transaction of the group at index <tt>index</tt>. Does not check if index exists.
+     *
+     * @param index The index from <tt>0</tt> to <tt>n-1</tt>
+     * @return The ID of the transaction.
+     */
+    public long getTransactionID(int index) {
+        return table.getID(getHandle(index));
     }
 
     /**
      * Get the transaction of the group at index <tt>index</tt>. Does not check if index exists.
      *
      * @param index The index from <tt>0</tt> to <tt>n-1</tt>
-     * @return A reference to the <tt>Transaction</tt> object.
+     * @return A new <tt>Transaction</tt> object, see {@linkplain TransactionTable#get(int)}.
      */
     public Transaction getTransaction(int index) {
-        return group.get(index);
+        return table.get(getHandle(index));
     }
 
-    public Transaction getTransactionById(int txID) {
-        for (Transaction r : group) {
-            if (r.getID() == txID) {
-            	return (r);
-            }
-        }
-    	return null;
+    /**
+     * Get the first transaction of the group with ID <tt>txID</tt>.
+     *
+     * @param txID The ID of the transaction.
+     * @return A new <tt>Transaction</tt> object, or <tt>null</tt> if there is no such transaction.
+     */
+    public Transaction getTransactionById(long txID) {
+        int pos = index().get(txID, -1);
+        return (pos < 0) ? null : table.get(handles[pos]);
     }
     
     
@@ -334,9 +584,10 @@ public class TransactionGroup implements ITxContainer {
      */
     @Override
     public String printIDs(String sep) {
+        compact();
         StringBuilder s = new StringBuilder("{");
-        for (Transaction t : group) {
-            s.append(t.getID()).append(sep);
+        for (int i = 0; i < used; i++) {
+            s.append(table.getID(handles[i])).append(sep);
         }
         if (s.length() > 1)
             s = new StringBuilder(s.substring(0, s.length() - 1) + "}");
@@ -353,8 +604,8 @@ public class TransactionGroup implements ITxContainer {
     @SuppressWarnings("unused")
     public String debugPrintPoolTx() {
         StringBuilder s = new StringBuilder();
-        for (Transaction t : group) {
-            s.append(t.getID()).append(", ");
+        for (int i = 0; i < getCount(); i++) {
+            s.append(getTransactionID(i)).append(", ");
         }
         return (s.toString());
     }
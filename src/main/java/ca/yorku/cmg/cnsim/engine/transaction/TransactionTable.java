@@ -0,0 +1,231 @@
+package ca.yorku.cmg.cnsim.engine.transaction;
+
+import java.util.Arrays;
+
+import ca.yorku.cmg.cnsim.engine.LongIntHashMap;
+
+/**
+ * A table of transactions stored as primitive columns (ID, size, value, creation time, node ID and flags), one row
+ * per transaction. A row is identified by its <i>handle</i>, a dense {@code int} assigned in order of addition, so
+ * that groups of transactions can be kept as arrays of handles (see {@linkplain TransactionGroup} and
+ * {@linkplain Mempool}) rather than of {@linkplain Transaction} objects.
+ * <p>
+ * Each run has a table of its own (see {@linkplain ca.yorku.cmg.cnsim.engine.SimulationContext#getTransactionTable()}),
+ * which holds its workload and is shared by the pools and blocks of all its nodes: a transaction that arrives at many
+ * nodes takes one row, plus a handle of 4 bytes per pool or block holding it. {@linkplain #get(int)} creates a
+ * {@linkplain Transaction} from a row when an object is needed. Each call creates a new object, bound to the row
+ * (see {@linkplain #rowOf(Transaction)}): objects of the same row are equal, but not identical.
+ * <p>
+ * A row takes 29 bytes. IDs need not be unique: a transaction object that was created elsewhere, e.g., by a test, gets
+ * a row of its own when it is added to a pool or block. As long as transactions are added in increasing order of ID,
+ * as those of a workload are, a transaction is looked up by binary search over the IDs; otherwise an index from ID to
+ * handle is built, which takes about 24 more bytes per row.
+ * <p>
+ * Rows are added while a run is set up; during the run the table is only read, possibly by several threads (see
+ * {@linkplain ca.yorku.cmg.cnsim.engine.ParallelSimulation}). Additions are synchronized, but must not overlap with
+ * reads from other threads.
+ *
+ * @author Sotirios Liaskos for the Conceptual Modeling Group @ York University
+ */
+public class TransactionTable {
+
+	/** Bits 0-1 of the flags: the ordinal of the {@linkplain Transaction.Type} plus one, or 0 for none. */
+	private static final int TYPE_MASK = 0x3;
+	/** Bit 2 of the flags: the transaction is seed changing. */
+	private static final int SEED_CHANGING = 0x4;
+	private static final Transaction.Type[] TYPES = Transaction.Type.values();
+
+	private long[] id;
+	private float[] size;
+	private float[] value;
+	private long[] creationTime;
+	private int[] nodeID;
+	private byte[] flags;
+	private int rows = 0;
+	/** Handle of the first row of each ID; <tt>null</tt> while the IDs are in increasing order. */
+	private LongIntHashMap handleByID;
+
+	/**
+	 * Creates an empty table.
+	 */
+	public TransactionTable() {
+		this(64);
+	}
+
+	/**
+	 * Creates an empty table that can hold {@code expected} transactions before it grows.
+	 * @param expected The expected number of transactions.
+	 */
+	public TransactionTable(int expected) {
+		int capacity = Math.max(expected, 4);
+		id = new long[capacity];
+		size = new float[capacity];
+		value = new float[capacity];
+		creationTime = new long[capacity];
+		nodeID = new int[capacity];
+		flags = new byte[capacity];
+	}
+
+	/**
+	 * Adds a transaction.
+	 * @param txID The ID of the transaction.
+	 * @param time The creation time.
+	 * @param val The value.
+	 * @param sz The size in bytes.
+	 * @param node The ID of the node where the transaction shows up, or -1 for any.
+	 * @param type The type of the transaction; may be <tt>null</tt>.
+	 * @param seedChanging Whether the transaction is seed changing, see {@linkplain Transaction#makeSeedChanging()}.
+	 * @return The handle of the new row.
+	 * @throws ArithmeticException If the time, value or size is negative, as in {@linkplain Transaction#Transaction(long, long, float, float)}.
+	 */
+	public synchronized int add(long txID, long time, float val, float sz, int node, Transaction.Type type, boolean seedChanging) {
+		if (time < 0 || val < 0 || sz < 0) {
+			throw new ArithmeticException("Trying to add transaction " + txID + " with negative time, value or size");
+		}
+		if (handleByID == null && rows > 0 && txID <= id[rows - 1]) {
+			handleByID = new LongIntHashMap(id.length);
+			for (int h = rows - 1; h >= 0; h--) {
+				handleByID.put(id[h], h);
+			}
+		}
+		if (rows == id.length) {
+			int capacity = rows * 2;
+			id = Arrays.copyOf(id, capacity);
+			size = Arrays.copyOf(size, capacity);
+			value = Arrays.copyOf(value, capacity);
+			creationTime = Arrays.copyOf(creationTime, capacity);
+			nodeID = Arrays.copyOf(nodeID, capacity);
+			flags = Arrays.copyOf(flags, capacity);
+		}
+		int h = rows++;
+		id[h] = txID;
+		size[h] = sz;
+		value[h] = val;
+		creationTime[h] = time;
+		nodeID[h] = node;
+		flags[h] = (byte) (((type == null) ? 0 : type.ordinal() + 1) | (seedChanging ? SEED_CHANGING : 0));
+		if (handleByID != null && !handleByID.containsKey(txID)) {
+			handleByID.put(txID, h);
+		}
+		return h;
+	}
+
+	/**
+	 * Adds the contents of a transaction object.
+	 * @param t The transaction.
+	 * @return The handle of the new row.
+	 */
+	public int add(Transaction t) {
+		return add(t.getID(), t.getCreationTime(), t.getValue(), t.getSize(), t.getNodeID(), t.getType(), t.isSeedChanging());
+	}
+
+	/**
+	 * The row of a transaction object: the row it was created from or added as, if it has not changed since, or a new
+	 * row with its contents, to which it is then bound.
+	 * @param t The transaction.
+	 * @return The handle of the row.
+	 */
+	public int rowOf(Transaction t) {
+		if (t.table != this) {
+			int h = add(t);
+			t.table = this;
+			t.handle = h;
+		}
+		return t.handle;
+	}
+
+	/**
+	 * The handle of the first row of a transaction.
+	 * @param txID The ID of the transaction.
+	 * @return The handle, or -1 if the transaction is not in the table.
+	 */
+	public int handleOf(long txID) {
+		if (handleByID != null) {
+			return handleByID.get(txID, -1);
+		}
+		int h = Arrays.binarySearch(id, 0, rows, txID);
+		return (h < 0) ? -1 : h;
+	}
+
+	/**
+	 * Creates a transaction object with the contents of a row, bound to the row.
+	 * @param h The handle of the row.
+	 * @return A new <tt>Transaction</tt> object.
+	 */
+	public Transaction get(int h) {
+		Transaction t = new Transaction(id[h], creationTime[h], value[h], size[h]);
+		t.setNodeID(nodeID[h]);
+		t.setType(getType(h));
+		if (isSeedChanging(h)) {
+			t.makeSeedChanging();
+		}
+		t.table = this;
+		t.handle = h;
+		return t;
+	}
+
+	/**
+	 * The number of transactions in the table.
+	 * @return The number of rows; handles run from 0 to this number minus one.
+	 */
+	public int size() {
+		return rows;
+	}
+
+	/**
+	 * @param h The handle of a row.
+	 * @return The ID of the transaction.
+	 */
+	public long getID(int h) {
+		return id[h];
+	}
+
+	/**
+	 * @param h The handle of a row.
+	 * @return The size of the transaction in bytes.
+	 */
+	public float getSize(int h) {
+		return size[h];
+	}
+
+	/**
+	 * @param h The handle of a row.
+	 * @return The value of the transaction.
+	 */
+	public float getValue(int h) {
+		return value[h];
+	}
+
+	/**
+	 * @param h The handle of a row.
+	 * @return The creation time of the transaction.
+	 */
+	public long getCreationTime(int h) {
+		return creationTime[h];
+	}
+
+	/**
+	 * @param h The handle of a row.
+	 * @return The ID of the node where the transaction shows up, or -1 for any.
+	 */
+	public int getNodeID(int h) {
+		return nodeID[h];
+	}
+
+	/**
+	 * @param h The handle of a row.
+	 * @return The type of the transaction, or <tt>null</tt> if it has none.
+	 */
+	public Transaction.Type getType(int h) {
+		int t = flags[h] & TYPE_MASK;
+		return (t == 0) ? null : TYPES[t - 1];
+	}
+
+	/**
+	 * @param h The handle of a row.
+	 * @return Whether the transaction is seed changing.
+	 */
+	public boolean isSeedChanging(int h) {
+		return (flags[h] & SEED_CHANGING) != 0;
+	}
+}
@@ -6,6 +6,11 @@ import ca.yorku.cmg.cnsim.engine.Sampler;
 import java.util.ArrayList;
 import java.util.List;
 
+/**
+ * The transactions of a simulation run, to be scheduled for arrival (see {@linkplain ca.yorku.cmg.cnsim.engine.Simulation#schedule(TransactionWorkload)}).
+ * The workload is stored in the {@linkplain TransactionTable} of the run, which the pools and blocks of the nodes refer to
+ * as the transactions arrive.
+ */
 public class TransactionWorkload extends TransactionGroup {
 
     private Sampler sampler;
@@ -21,6 +26,7 @@ public class TransactionWorkload extends TransactionGroup {
      * @param sampler The sampler used to generate transaction attributes.
      */
     public TransactionWorkload(Sampler sampler) {
+        super();
         this.sampler = sampler;
 
     }
@@ -73,24 +79,19 @@ public class TransactionWorkload extends TransactionGroup {
      * @throws Exception 
      */
     public void addTransaction(long currTime) throws Exception{
-        Transaction t;
-        
         long trID = Transaction.getNextTxID();
-        
-        t = new Transaction(trID,
-                currTime,
-                sampler.getTransactionSampler().getNextTransactionFeeValue(),
-                sampler.getTransactionSampler().getNextTransactionSize());
-        t.setType(Transaction.Type.HONEST);
+        float value = sampler.getTransactionSampler().getNextTransactionFeeValue();
+        float size = sampler.getTransactionSampler().getNextTransactionSize();
+        boolean seedChanging = false;
         
         if (trID == sampler.getTransactionSampler().getSeedChangeTx()) {
         	if (sampler.getTransactionSampler().seedUpdateEnabled()) {
-            	t.makeSeedChanging();
+            	seedChanging = true;
             	sampler.getTransactionSampler().updateSeed();
         	}
         }
         
-        addTransaction(t);
+        addHandle(getTable().add(trID, currTime, value, size, -1, Transaction.Type.HONEST, seedChanging));
     }
     
 	/**
@@ -122,13 +123,14 @@ public class TransactionWorkload extends TransactionGroup {
     public void ___________________File_Based() {}
     
     /**
-     * See {@linkplain TransactionGroup#TransactionGroup(String, boolean)} 
+     * Loads a workload from a file in the format of {@linkplain TransactionGroup#TransactionGroup(String, boolean)}.
      * @param fileName The workload filename to be read.
      * @param hasHeader Whether the file has a header.
      * @throws Exception Generic IO exception.
      */
     public TransactionWorkload(String fileName, boolean hasHeader) throws Exception {
-    	super(fileName, hasHeader);
+    	super();
+    	TransactionGroup.readFile(fileName, hasHeader, this::addTransaction);
     }
 
         
@@ -0,0 +1,149 @@
+package ca.yorku.cmg.cnsim.bitcoin;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import ca.yorku.cmg.cnsim.engine.ConfigInitializer;
+import ca.yorku.cmg.cnsim.engine.ParallelSimulation;
+import ca.yorku.cmg.cnsim.engine.SimConfig;
+import ca.yorku.cmg.cnsim.engine.Simulation;
+import ca.yorku.cmg.cnsim.engine.SimulationContext;
+import ca.yorku.cmg.cnsim.engine.reporter.ReportBuffer;
+import ca.yorku.cmg.cnsim.engine.reporter.Reporter;
+
+class BitcoinPartitionsTest {
+
+	private Properties props;
+
+	@BeforeEach
+	void setUp() throws IOException {
+		props = new Properties();
+		try (Reader r = Files.newBufferedReader(Paths.get("src/test/resources/application.properties"))) {
+			props.load(r);
+		}
+		// Sampled rather than file-based workload and nodes; all logs on.
+		props.setProperty("workload.sampler.file", "");
+		props.setProperty("node.sampler.file", "");
+		props.setProperty("workload.numTransactions", "200");
+		props.setProperty("sim.terminate.atTime", "20000");
+		props.setProperty("sim.reporting.beliefReportInterval", "1000");
+		props.setProperty("sim.reporting.beliefReportOffset", "1000");
+		props.setProperty("reporter.reportEvents", "true");
+		props.setProperty("node.createMaliciousNode", "false");
+		props.setProperty("net.numOfHonestNodes", "30");
+		props.setProperty("net.numOfMaliciousNodes", "0");
+		props.setProperty("pow.difficulty", "1e16");
+		Path file = Files.createTempFile("cnsim-partitions-", ".properties");
+		try (Writer w = Files.newBufferedWriter(file)) {
+			props.store(w, null);
+		}
+		ConfigInitializer.initialize(new String[] {"-c", file.toString()});
+		Files.delete(file);
+		BitcoinReporter.reportBlockEvents(true);
+		BitcoinReporter.reportStructureEvents(true);
+	}
+
+	@AfterEach
+	void tearDown() {
+		BitcoinReporter.reportBlockEvents(false);
+		BitcoinReporter.reportStructureEvents(false);
+		Reporter.reportEvents(false);
+		SimulationContext.clear();
+	}
+
+	/**
+	 * Runs simulation #1 with a number of partitions and returns its log lines, without the system times.
+	 * @param lookahead The lookahead, or <tt>null</tt> to derive it.
+	 */
+	private List<String> run(int partitions, String lookahead) {
+		Properties p = new Properties();
+		p.putAll(props);
+		p.setProperty("sim.partitions", Integer.toString(partitions));
+		if (lookahead != null) {
+			p.setProperty("sim.lookahead", lookahead);
+		}
+		SimConfig config = SimConfig.fromProperties(p);
+		SimulationContext.set(new SimulationContext(1));
+		Simulation s = new BitcoinMainDriver(config).createSimulation(1);
+		assertEquals(partitions > 1, s instanceof ParallelSimulation);
+		s.run();
+		s.getNodeSet().closeNodes();
+		if (s instanceof ParallelSimulation ps && lookahead == null) {
+			// Derived from the slow links of the test network, so that partitions run ahead of each other.
+			assertTrue(ps.getLookahead() > 0);
+		}
+
+		ReportBuffer b = s.getContext().getReportBuffer();
+		List<String> lines = new ArrayList<>();
+		for (int i = 0; i < b.getEventCount(); i++) {
+			lines.add(withoutField(b.getEventLine(i, 0), 3));
+		}
+		for (Map.Entry<String, ArrayList<String>> e : b.getLogs().entrySet()) {
+			boolean blocks = e.getKey().equals(BitcoinReporter.BLOCK_LOG) || e.getKey().equals(BitcoinReporter.STRUCTURE_LOG);
+			for (String line : e.getValue()) {
+				lines.add(e.getKey() + ":" + (blocks ? withoutField(line, 2) : line));
+			}
+		}
+		lines.add("events:" + s.getNumEventsProcessed());
+		return lines;
+	}
+
+	private static String withoutField(String line, int field) {
+		String[] f = line.split(",", -1);
+		StringBuilder s = new StringBuilder();
+		for (int i = 0; i < f.length; i++) {
+			if (i != field) {
+				s.append(f[i]).append(',');
+			}
+		}
+		return s.toString();
+	}
+
+	@Test
+	void testSameLogsAsSequential() {
+		List<String> expected = run(1, null);
+		assertTrue(expected.stream().anyMatch(l -> l.startsWith(BitcoinReporter.BLOCK_LOG)), "blocks are mined");
+		for (int partitions : new int[] {2, 3}) {
+			assertEquals(expected, run(partitions, null), partitions + " partitions");
+			assertEquals(expected, run(partitions, "0"), partitions + " partitions, lookahead 0");
+		}
+	}
+
+	/**
+	 * Tests the same under a transaction load that keeps the shared transaction index of the blocks growing while
+	 * partitions check propagated transactions against their blockchains.
+	 */
+	@Test
+	void testSameLogsUnderTransactionLoad() {
+		props.setProperty("workload.numTransactions", "3000");
+		props.setProperty("workload.lambda", "300f");
+		props.setProperty("bitcoin.maxBlockSize", "60000");
+		props.setProperty("sim.reporting.beliefReportInterval", "5000");
+		long start = System.nanoTime();
+		List<String> expected = run(1, null);
+		long sequential = System.nanoTime() - start;
+		// Transactions placed in mined blocks, each an entry of the index.
+		long placed = expected.stream().filter(l -> l.startsWith(BitcoinReporter.BLOCK_LOG)).mapToLong(l -> l.chars().filter(c -> c == ';').count()).sum();
+		assertTrue(placed > 2000, "blocks carry the load");
+		start = System.nanoTime();
+		List<String> actual = run(3, null);
+		long parallel = System.nanoTime() - start;
+		assertEquals(expected, actual, "3 partitions");
+		System.out.printf("Speedup with 3 partitions on %d processors: %.2f (%d ms sequential, %d ms parallel)%n",
+				Runtime.getRuntime().availableProcessors(), (double) sequential / parallel, sequential / 1000000, parallel / 1000000);
+	}
+}
@@ -0,0 +1,120 @@
+package ca.yorku.cmg.cnsim.bitcoin;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.EnumSet;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import ca.yorku.cmg.cnsim.engine.SimulationContext;
+import ca.yorku.cmg.cnsim.engine.reporter.RunMetrics;
+import ca.yorku.cmg.cnsim.engine.transaction.Transaction;
+import ca.yorku.cmg.cnsim.engine.transaction.TransactionGroup;
+
+/**
+ * Unit test class for the block log filters and the block metrics of {@link BitcoinReporter}.
+ */
+public class BitcoinReporterTest {
+
+    @AfterEach
+    public void reset() {
+        BitcoinReporter.reportBlockEvents(false);
+        BitcoinReporter.filterBlockEventNodes(new long[0]);
+        BitcoinReporter.filterBlockEventTypes(EnumSet.allOf(BlockEvent.class));
+        BitcoinReporter.sampleBlockEvents(1);
+        BitcoinReporter.reportMetrics(false);
+        BitcoinReporter.metricsConfirmations(6);
+        SimulationContext.clear();
+    }
+
+    /**
+     * Tests {@link BitcoinReporter#isBlockEventReported(BlockEvent, int, int)}.
+     */
+    @Test
+    public void testBlockEventFilters() {
+        assertFalse(BitcoinReporter.isBlockEventReported(BlockEvent.APPENDED, 0, 1));
+
+        BitcoinReporter.reportBlockEvents(true);
+        assertTrue(BitcoinReporter.isBlockEventReported(BlockEvent.APPENDED, 0, 1));
+
+        BitcoinReporter.filterBlockEventNodes(new long[] {2, 5});
+        assertFalse(BitcoinReporter.isBlockEventReported(BlockEvent.APPENDED, 0, 1));
+        assertTrue(BitcoinReporter.isBlockEventReported(BlockEvent.APPENDED, 5, 1));
+        assertFalse(BitcoinReporter.isBlockEventReported(BlockEvent.APPENDED, -1, 1));
+
+        BitcoinReporter.filterBlockEventTypes(BlockEvent.parseSet("{appended, Added_To_Orphans}"));
+        assertTrue(BitcoinReporter.isBlockEventReported(BlockEvent.ADDED_TO_ORPHANS, 5, 1));
+        assertFalse(BitcoinReporter.isBlockEventReported(BlockEvent.RECEIVED, 5, 1));
+
+        BitcoinReporter.sampleBlockEvents(3);
+        assertFalse(BitcoinReporter.isBlockEventReported(BlockEvent.APPENDED, 5, 1));
+        assertTrue(BitcoinReporter.isBlockEventReported(BlockEvent.APPENDED, 5, 6));
+    }
+
+    /**
+     * Tests {@link BlockEvent#parseSet(String)}.
+     */
+    @Test
+    public void testParseBlockEventTypes() {
+        assertEquals(EnumSet.allOf(BlockEvent.class), BlockEvent.parseSet(""));
+        assertEquals(EnumSet.allOf(BlockEvent.class), BlockEvent.parseSet("{}"));
+        assertEquals(EnumSet.of(BlockEvent.VALIDATED, BlockEvent.RECEIVED), BlockEvent.parseSet(" {VALIDATED,RECEIVED} "));
+        assertThrows(IllegalArgumentException.class, () -> BlockEvent.parseSet("{APPENDED, MINED}"));
+        assertThrows(IllegalArgumentException.class, () -> BlockEvent.parseSet("APPENDED"));
+        assertThrows(IllegalArgumentException.class, () -> BitcoinReporter.sampleBlockEvents(0));
+    }
+
+    /**
+     * Tests the metrics recorded by {@link Blockchain} placements and completed by {@link BitcoinReporter#completeMetrics(int)}.
+     */
+    @Test
+    public void testBlockMetrics() {
+        SimulationContext ctx = new SimulationContext();
+        SimulationContext.set(ctx);
+        BitcoinReporter.reportMetrics(true);
+        BitcoinReporter.metricsConfirmations(2);
+        Blockchain chain = new Blockchain(new BlockStore(), 1, 0);
+
+        // Mined by the node itself: the genesis block.
+        Block a = block(100, 1, new Transaction(1, 10, 1, 100));
+        ctx.setCurrTime(100);
+        chain.addToStructure(a);
+        // From another node, confirming the genesis block.
+        Block b = block(200, 2, new Transaction(2, 50, 1, 100));
+        b.setParent(a);
+        ctx.setCurrTime(250);
+        chain.addToStructure(b);
+        // A sibling of b.
+        Block c = block(260, 3, new Transaction(3, 60, 1, 100));
+        c.setParent(a);
+        ctx.setCurrTime(300);
+        chain.addToStructure(c);
+        BitcoinReporter.completeMetrics(chain.getBlockchainHeight());
+
+        RunMetrics m = ctx.getMetrics();
+        assertEquals(1, m.getCount(BitcoinReporter.BLOCKS_MINED));
+        assertEquals(2, m.getCount(BitcoinReporter.BLOCKS_RECEIVED));
+        assertEquals(3, m.getCount(BitcoinReporter.BLOCKS_PLACED));
+        assertEquals(1, m.getCount(BitcoinReporter.FORKS));
+        assertEquals(0, m.getCount(BitcoinReporter.STALE));
+        assertEquals(90, m.getHistogram(BitcoinReporter.INCLUSION_TIME).getMax());
+        assertEquals(40, m.getHistogram(BitcoinReporter.PROPAGATION_DELAY).getMin());
+        assertEquals(50, m.getHistogram(BitcoinReporter.PROPAGATION_DELAY).getMax());
+        assertEquals(1, m.getHistogram(BitcoinReporter.BLOCK_CONFIRMATION_TIME).getCount());
+        assertEquals(150, m.getHistogram(BitcoinReporter.BLOCK_CONFIRMATION_TIME).getMax());
+        assertEquals(240, m.getHistogram(BitcoinReporter.CONFIRMATION_TIME).getMax());
+
+        List<String> summary = m.summary(7);
+        assertTrue(summary.contains("7,block.forks,1,,,,,,"));
+        assertTrue(summary.contains("7,block.forkRate,3," + (1.0 / 3) + ",,,,,"));
+        assertTrue(summary.contains("7,tx.confirmationTime,1,240.0,240,240,240,240,240"));
+    }
+
+    private static Block block(long simTime, int nodeID, Transaction t) {
+        Block b = new Block();
+        b.validateBlock(new TransactionGroup(List.of(t)), simTime, 0, nodeID, "Test", 1, 1);
+        return b;
+    }
+}
@@ -9,6 +9,10 @@ import ca.yorku.cmg.cnsim.engine.transaction.Transaction;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 /**
@@ -717,4 +721,383 @@ class BlockchainTest {
         // Additionally, check if the rejected block is considered an orphan or simply discarded
         assertEquals(0, blockchain.printOrphans().length - 1, "There should be no orphans from rejected blocks with duplicate transactions");
     }
+
+    /**
+     * Tests the transaction index across forks.
+     * <p>
+     * The same transaction is placed in blocks of two branches; it must be found on both
+     * chains and anywhere in the blockchain, while a transaction of one branch must not be
+     * found on the other.
+     */
+    @Test
+    final void testTransactionIndexAcrossForks() {
+        Block genesis = new Block();
+        genesis.addTransaction(new Transaction(1, 1, 1, 1));
+        blockchain.addToStructure(genesis);
+
+        Block left = new Block();
+        left.setParent(genesis);
+        left.addTransaction(new Transaction(2, 2, 1, 1));
+        left.addTransaction(new Transaction(3, 3, 1, 1));
+        blockchain.addToStructure(left);
+
+        Block right = new Block();
+        right.setParent(genesis);
+        right.addTransaction(new Transaction(3, 3, 1, 1));
+        blockchain.addToStructure(right);
+
+        Block rightTip = new Block();
+        rightTip.setParent(right);
+        rightTip.addTransaction(new Transaction(4, 4, 1, 1));
+        blockchain.addToStructure(rightTip);
+
+        assertTrue(blockchain.contains(new Transaction(2)));
+        assertFalse(blockchain.contains(new Transaction(5)));
+        assertSame(left, blockchain.getContainingBlock(3, left));
+        assertSame(right, blockchain.getContainingBlock(3, rightTip));
+        assertSame(genesis, blockchain.getContainingBlock(1, rightTip));
+        assertFalse(blockchain.transactionOnChain(2, rightTip));
+        assertFalse(blockchain.transactionOnChain(4, left));
+
+        // The longest chain is the right one.
+        assertTrue(blockchain.transactionInStructure(4));
+        assertTrue(blockchain.transactionInStructure(3));
+        assertFalse(blockchain.transactionInStructure(2));
+    }
+
+    /**
+     * Tests that blockchains sharing a {@link BlockStore} store each block once and only see the blocks they placed.
+     */
+    @Test
+    final void testSharedBlockStore() {
+        BlockStore store = new BlockStore();
+        Blockchain first = new Blockchain(store, 1, 0);
+        Blockchain second = new Blockchain(store, 2, 0);
+
+        Block genesis = new Block();
+        genesis.addTransaction(new Transaction(1, 1, 1, 1));
+        first.addToStructure(genesis);
+        Block child = new Block();
+        child.setParent(genesis);
+        child.addTransaction(new Transaction(2, 2, 1, 1));
+        first.addToStructure(child);
+
+        // The second blockchain receives the child first; it is kept as an orphan.
+        second.addToStructure(child);
+        assertEquals(2, store.size());
+        assertEquals(1, second.getOrphanCount());
+        assertNull(second.getBlockByID(child.getID()));
+        assertFalse(second.contains(new Transaction(2)));
+        assertTrue(first.contains(new Transaction(2)));
+
+        second.addToStructure(genesis);
+        assertEquals(2, store.size());
+        assertEquals(0, second.getOrphanCount());
+        assertSame(child, second.getBlockByID(child.getID()));
+        assertSame(child, second.getLongestTip());
+        assertTrue(second.contains(new Transaction(2)));
+        assertArrayEquals(first.printStructure(), second.printStructure());
+    }
+
+    /**
+     * Tests ancestors at height, fork points and reorganization differences against walks of the parents.
+     */
+    @Test
+    final void testAncestorsAndReorgDiff() {
+        ArrayList<Block> main = new ArrayList<>();
+        Block prev = null;
+        for (int i = 1; i <= 1000; i++) {
+            Block b = new Block();
+            b.setParent(prev);
+            b.addTransaction(new Transaction(i, i, 1, 1));
+            blockchain.addToStructure(b);
+            main.add(b);
+            prev = b;
+        }
+        ArrayList<Block> fork = new ArrayList<>();
+        prev = main.get(399);
+        for (int i = 1; i <= 700; i++) {
+            Block b = new Block();
+            b.setParent(prev);
+            b.addTransaction(new Transaction(10000 + i, i, 1, 1));
+            blockchain.addToStructure(b);
+            fork.add(b);
+            prev = b;
+        }
+        Block mainTip = main.get(999);
+        Block forkTip = fork.get(699);
+
+        for (int h = 1; h <= 1000; h++) {
+            assertSame(main.get(h - 1), mainTip.getAncestor(h));
+        }
+        for (int h = 1; h <= 1100; h++) {
+            assertSame((h <= 400) ? main.get(h - 1) : fork.get(h - 401), forkTip.getAncestor(h));
+        }
+        assertNull(mainTip.getAncestor(1001));
+
+        assertSame(main.get(399), mainTip.lastCommonAncestor(forkTip));
+        assertSame(main.get(399), fork.get(0).lastCommonAncestor(main.get(400)));
+        assertSame(main.get(299), forkTip.lastCommonAncestor(main.get(299)));
+
+        Blockchain.ReorgDiff diff = Blockchain.reorgDiff(mainTip, forkTip);
+        assertSame(main.get(399), diff.getForkPoint());
+        assertEquals(main.subList(400, 1000), reversed(diff.getRemoved()));
+        assertEquals(fork, diff.getAdded());
+
+        diff = Blockchain.reorgDiff(null, main.get(2));
+        assertNull(diff.getForkPoint());
+        assertEquals(main.subList(0, 3), diff.getAdded());
+        assertTrue(diff.getRemoved().isEmpty());
+
+        // The main chain of the blockchain follows the fork, which is longer.
+        assertEquals(0, blockchain.confirmationDepth(1000));
+        assertEquals(1100, blockchain.confirmationDepth(1));
+        assertEquals(1, blockchain.confirmationDepth(10700));
+    }
+
+    private static List<Block> reversed(List<Block> l) {
+        ArrayList<Block> r = new ArrayList<>(l);
+        Collections.reverse(r);
+        return r;
+    }
+
+    /**
+     * Tests that pruning drops forks below the checkpoint, archives final blocks and keeps reports and queries working.
+     */
+    @Test
+    final void testPruning() {
+        BlockStore store = new BlockStore();
+        Blockchain pruned = new Blockchain(store, 1, 0, 3);
+
+        ArrayList<Block> main = new ArrayList<>();
+        Block prev = null;
+        for (int i = 1; i <= 6; i++) {
+            prev = chainBlock(prev, i);
+            main.add(prev);
+            pruned.addToStructure(prev);
+        }
+        // A fork off height 3.
+        Block fork = chainBlock(main.get(2), 100);
+        pruned.addToStructure(fork);
+        assertSame(main.get(2), pruned.getCheckpoint());
+        assertTrue(pruned.printTips(",").contains("" + fork.getID()));
+
+        for (int i = 7; i <= 20; i++) {
+            prev = chainBlock(prev, i);
+            main.add(prev);
+            pruned.addToStructure(prev);
+        }
+        assertSame(main.get(16), pruned.getCheckpoint());
+        assertEquals(1, pruned.getPrunedForkBlocks());
+        assertFalse(pruned.printTips(",").contains("" + fork.getID()));
+        assertNull(pruned.getBlockByID(fork.getID()));
+
+        // Blocks below the checkpoint are archived, but reports and queries see them.
+        assertTrue(main.get(0).isPruned());
+        assertTrue(main.get(15).isPruned());
+        assertFalse(main.get(16).isPruned());
+        String[] structure = pruned.printStructure();
+        assertEquals(21, structure.length);
+        for (int i = 1; i <= 20; i++) {
+            Block b = main.get(20 - i);
+            assertEquals(b.getID() + "," + ((i == 20) ? -1 : main.get(19 - i).getID()) + "," + (21 - i) + ",{" + (21 - i) + "}", structure[i]);
+        }
+        assertTrue(pruned.contains(new Transaction(1)));
+        assertEquals(20, pruned.confirmationDepth(1));
+        assertSame(main.get(0), pruned.getContainingBlock(1, prev));
+
+        // A block branching off below the checkpoint is discarded.
+        Block late = chainBlock(main.get(10), 200);
+        pruned.addToStructure(late);
+        assertNull(pruned.getBlockByID(late.getID()));
+        assertSame(prev, pruned.getLongestTip());
+    }
+
+    private static Block chainBlock(Block parent, int tx) {
+        Block b = new Block();
+        b.setParent(parent);
+        b.addTransaction(new Transaction(tx, tx, 1, 1));
+        return b;
+    }
+
+    /**
+     * Tests that confirmation depths follow the longest chain as it is extended and reorganized.
+     */
+    @Test
+    final void testConfirmationDepthAcrossReorg() {
+        Block genesis = new Block();
+        genesis.addTransaction(new Transaction(1, 1, 1, 1));
+        blockchain.addToStructure(genesis);
+        assertEquals(1, blockchain.confirmationDepth(1));
+
+        Block left = new Block();
+        left.setParent(genesis);
+        left.addTransaction(new Transaction(2, 2, 1, 1));
+        blockchain.addToStructure(left);
+        assertEquals(2, blockchain.confirmationDepth(1));
+        assertEquals(1, blockchain.confirmationDepth(2));
+
+        Block right = new Block();
+        right.setParent(genesis);
+        right.addTransaction(new Transaction(3, 3, 1, 1));
+        blockchain.addToStructure(right);
+        Block rightTip = new Block();
+        rightTip.setParent(right);
+        rightTip.addTransaction(new Transaction(2, 2, 1, 1));
+        blockchain.addToStructure(rightTip);
+
+        // The right branch takes over: transaction 2 moves to a higher block.
+        assertEquals(3, blockchain.confirmationDepth(1));
+        assertEquals(2, blockchain.confirmationDepth(3));
+        assertEquals(1, blockchain.confirmationDepth(2));
+        assertEquals(0, blockchain.confirmationDepth(4));
+
+        Block leftMid = new Block();
+        leftMid.setParent(left);
+        leftMid.addTransaction(new Transaction(4, 4, 1, 1));
+        blockchain.addToStructure(leftMid);
+        Block leftTip = new Block();
+        leftTip.setParent(leftMid);
+        blockchain.addToStructure(leftTip);
+
+        // Back to the left branch, now one block longer.
+        assertEquals(4, blockchain.confirmationDepth(1));
+        assertEquals(3, blockchain.confirmationDepth(2));
+        assertEquals(2, blockchain.confirmationDepth(4));
+        assertEquals(0, blockchain.confirmationDepth(3));
+        assertFalse(blockchain.transactionInStructure(3));
+    }
+
+    /**
+     * Tests that a long run of orphans arriving in reverse order is placed at once,
+     * without recursion, when the missing block arrives.
+     */
+    @Test
+    final void testDeepOrphanBacklog() {
+        Block genesis = new Block();
+        genesis.addTransaction(new Transaction(0, 1, 1, 1));
+        blockchain.addToStructure(genesis);
+
+        Block first = new Block();
+        first.setParent(genesis);
+        first.addTransaction(new Transaction(1, 1, 1, 1));
+        Block[] chain = new Block[5000];
+        Block parent = first;
+        for (int i = 0; i < chain.length; i++) {
+            chain[i] = new Block();
+            chain[i].setParent(parent);
+            chain[i].addTransaction(new Transaction(i + 2, 1, 1, 1));
+            parent = chain[i];
+        }
+        for (int i = chain.length - 1; i >= 0; i--) {
+            blockchain.addToStructure(chain[i]);
+        }
+        assertEquals(chain.length, blockchain.getOrphanCount());
+
+        blockchain.addToStructure(first);
+        assertEquals(0, blockchain.getOrphanCount());
+        assertEquals(chain.length, blockchain.getOrphansResolved());
+        assertEquals(chain.length + 2, blockchain.getBlockchainHeight());
+        assertSame(chain[chain.length - 1], blockchain.getLongestTip());
+    }
+
+    /**
+     * Tests that the oldest orphan is evicted when the maximum number of orphans is reached.
+     */
+    @Test
+    final void testOrphanEviction() {
+        blockchain = new Blockchain(2);
+        Block genesis = new Block();
+        genesis.addTransaction(new Transaction(0, 1, 1, 1));
+        blockchain.addToStructure(genesis);
+
+        Block missing = new Block();
+        missing.setParent(genesis);
+        Block[] orphans = new Block[3];
+        for (int i = 0; i < orphans.length; i++) {
+            orphans[i] = new Block();
+            orphans[i].setParent(missing);
+            orphans[i].addTransaction(new Transaction(i + 1, 1, 1, 1));
+            blockchain.addToStructure(orphans[i]);
+        }
+        assertEquals(2, blockchain.getOrphanCount());
+        assertEquals(1, blockchain.getOrphansEvicted());
+
+        blockchain.addToStructure(missing);
+        assertEquals(0, blockchain.getOrphanCount());
+        assertNull(blockchain.getBlockByID(orphans[0].getID()));
+        assertNotNull(blockchain.getBlockByID(orphans[1].getID()));
+        assertNotNull(blockchain.getBlockByID(orphans[2].getID()));
+        assertThrows(IllegalArgumentException.class, () -> new Blockchain(-1));
+    }
+
+    /**
+     * Tests the order of equal-height tips, which must be that of a list of tips that is appended to and sorted by
+     * {@linkplain BlockHeightComparator} whenever a non-overlapping tip is looked for: {@linkplain Blockchain#getLongestTip()}
+     * returns the first of the tallest tips in that order, and {@linkplain Blockchain#getNonOverlappingTip(Block)}
+     * tries the tallest tips with the highest ID first. Also tests {@linkplain Blockchain#getBlockByID(int)} and
+     * {@linkplain Blockchain#getBlockchainHeight()} after forks and orphan placement.
+     */
+    @Test
+    final void testEqualHeightTipsAndLookups() {
+        Block genesis = block(null, 1);
+        blockchain.addToStructure(genesis);
+        Block a = block(genesis, 2);
+        blockchain.addToStructure(a);
+        Block b = block(genesis, 3);
+        blockchain.addToStructure(b);
+
+        // In order of arrival until sorted.
+        assertEquals("{" + a.getID() + "," + b.getID() + "}", blockchain.printTips(","));
+        assertSame(a, blockchain.getLongestTip());
+        assertEquals(2, blockchain.getBlockchainHeight());
+
+        // Tallest first, then highest ID first; a block overlapping one tip's chain goes on the other.
+        Block overlappingB = block(null, 3);
+        assertSame(a, blockchain.getNonOverlappingTip(overlappingB));
+        assertEquals("{" + b.getID() + "," + a.getID() + "}", blockchain.printTips(","));
+        assertSame(b, blockchain.getLongestTip());
+        assertSame(b, blockchain.getNonOverlappingTip(block(null, 4)));
+        assertNull(blockchain.getNonOverlappingTip(block(null, 1)));
+
+        // Each new tip replaces its parent at the end of the added tips.
+        Block c = block(a, 5);
+        blockchain.addToStructure(c);
+        Block d = block(b, 6);
+        blockchain.addToStructure(d);
+        assertEquals("{" + c.getID() + "," + d.getID() + "}", blockchain.printTips(","));
+        assertSame(c, blockchain.getLongestTip());
+        assertEquals(3, blockchain.getBlockchainHeight());
+
+        // An orphan is not in the blockchain until its parent arrives.
+        Block f = new Block();
+        f.addTransaction(new Transaction(7, 7, 1, 1));
+        Block e = block(f, 8);
+        f.setParent(d);
+        blockchain.addToStructure(e);
+        assertNull(blockchain.getBlockByID(e.getID()));
+        assertEquals(3, blockchain.getBlockchainHeight());
+        assertSame(c, blockchain.getLongestTip());
+
+        blockchain.addToStructure(f);
+        assertSame(e, blockchain.getBlockByID(e.getID()));
+        assertEquals(5, blockchain.getBlockByID(e.getID()).getHeight());
+        assertSame(d, blockchain.getBlockByID(d.getID()));
+        assertEquals(5, blockchain.getBlockchainHeight());
+        assertSame(e, blockchain.getLongestTip());
+        assertEquals("{" + c.getID() + "," + e.getID() + "}", blockchain.printTips(","));
+        assertNull(blockchain.getBlockByID(9999));
+    }
+
+    /**
+     * A block with one transaction, on a parent or parentless.
+     */
+    private static Block block(Block parent, long txID) {
+        Block b = new Block();
+        b.addTransaction(new Transaction(txID, txID, 1, 1));
+        if (parent != null) {
+            b.setParent(parent);
+        }
+        return b;
+    }
 }
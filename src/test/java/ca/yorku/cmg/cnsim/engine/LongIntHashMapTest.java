@@ -0,0 +1,43 @@
+package ca.yorku.cmg.cnsim.engine;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.HashMap;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class LongIntHashMapTest {
+
+	@Test
+	void testAgainstHashMap() {
+		Random r = new Random(3);
+		LongIntHashMap map = new LongIntHashMap();
+		HashMap<Long, Integer> reference = new HashMap<>();
+		for (int i = 0; i < 100000; i++) {
+			// Few distinct keys, so that removals often hit present keys and probe sequences collide.
+			long key = r.nextInt(2000) - 1000;
+			if (r.nextInt(3) == 0) {
+				assertEquals(reference.remove(key) != null, map.remove(key));
+			} else {
+				reference.put(key, i);
+				map.put(key, i);
+			}
+		}
+		assertEquals(reference.size(), map.size());
+		for (long key = -1000; key < 1000; key++) {
+			assertEquals((int) reference.getOrDefault(key, -1), map.get(key, -1));
+			assertEquals(reference.containsKey(key), map.containsKey(key));
+		}
+	}
+
+	@Test
+	void testReservedKey() {
+		LongIntHashMap map = new LongIntHashMap();
+		assertThrows(IllegalArgumentException.class, () -> map.put(Long.MIN_VALUE, 1));
+		map.put(5, 1);
+		map.clear();
+		assertFalse(map.containsKey(5));
+		assertEquals(0, map.size());
+	}
+}
@@ -0,0 +1,142 @@
+package ca.yorku.cmg.cnsim.engine;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import ca.yorku.cmg.cnsim.engine.event.Event;
+import ca.yorku.cmg.cnsim.engine.node.INode;
+import ca.yorku.cmg.cnsim.engine.reporter.ReportBuffer;
+
+class ParallelSimulationTest {
+
+	private static final int NODES = 10;
+
+	@BeforeEach
+	void setUp() throws IOException {
+		String[] args = {"-c", "src/test/resources/application.properties"};
+		ConfigInitializer.initialize(args);
+	}
+
+	/**
+	 * A minimal node that only knows its ID.
+	 */
+	private static INode node(int id) {
+		return (INode) Proxy.newProxyInstance(INode.class.getClassLoader(), new Class<?>[] {INode.class},
+				(proxy, method, args) -> switch (method.getName()) {
+					case "getID" -> id;
+					case "equals" -> proxy == args[0];
+					case "hashCode" -> id;
+					case "toString" -> "node" + id;
+					default -> null;
+				});
+	}
+
+	/**
+	 * Logs its occurrence to the event log and forwards a message to another node, some time later.
+	 */
+	private static class Ping extends Event {
+		private final INode[] nodes;
+		private final int at;
+		private final int hops;
+
+		Ping(INode[] nodes, int at, int hops, long time) {
+			this.nodes = nodes;
+			this.at = at;
+			this.hops = hops;
+			setTime(time);
+		}
+
+		@Override
+		public void happen(Simulation sim) {
+			super.happen(sim);
+			SimulationContext.current().getReportBuffer().addEvent(sim.getSimID(), getEvtID(), getTime() + "," + at + "," + hops);
+			if (hops > 0) {
+				int to = (at * 7 + hops) % NODES;
+				sim.schedule(new Ping(nodes, to, hops - 1, getTime() + 2 + (hops % 3)));
+				if (hops % 4 == 0) {
+					sim.schedule(new Ping(nodes, at, 0, getTime()));
+				}
+			}
+		}
+
+		@Override
+		public INode getNode() {
+			return nodes[at];
+		}
+
+		@Override
+		public boolean isNodeLocal() {
+			return true;
+		}
+	}
+
+	/**
+	 * Logs its occurrence to a separate log; concerns no particular node.
+	 */
+	private static class Tick extends Event {
+		Tick(long time) {
+			setTime(time);
+		}
+
+		@Override
+		public void happen(Simulation sim) {
+			super.happen(sim);
+			SimulationContext.current().getReportBuffer().add("Test", getTime() + ",tick");
+		}
+	}
+
+	private static List<String> run(Simulation s) {
+		INode[] nodes = new INode[NODES];
+		for (int i = 0; i < NODES; i++) {
+			nodes[i] = node(i + 1);
+		}
+		for (int i = 0; i < NODES; i++) {
+			s.schedule(new Ping(nodes, i, 30, i % 3));
+		}
+		for (long t = 0; t < 120; t += 10) {
+			s.schedule(new Tick(t));
+		}
+		s.setTerminationTime(100);
+		s.run();
+		ReportBuffer b = s.getContext().getReportBuffer();
+		List<String> lines = new ArrayList<>(b.get("Test"));
+		for (int i = 0; i < b.getEventCount(); i++) {
+			lines.add(b.getEventLine(i, 0));
+		}
+		return lines;
+	}
+
+	@Test
+	void testSameOutputAsSequential() {
+		SimulationContext.set(new SimulationContext(1));
+		Simulation seq = new Simulation(1);
+		List<String> expected = run(seq);
+
+		for (int partitions : new int[] {1, 3, 4}) {
+			for (long lookahead : new long[] {0, 2}) {
+				SimulationContext.set(new SimulationContext(1));
+				ParallelSimulation par = new ParallelSimulation(1, partitions, lookahead);
+				assertEquals(expected, run(par), partitions + " partitions, lookahead " + lookahead);
+				assertEquals(seq.getNumEventsProcessed(), par.getNumEventsProcessed());
+				assertEquals(seq.getContext().getEventIDsUsed(), par.getContext().getEventIDsUsed());
+				assertEquals(seq.getContext().getCurrTime(), par.getContext().getCurrTime());
+			}
+		}
+		SimulationContext.clear();
+	}
+
+	@Test
+	void testLookaheadViolationFails() {
+		SimulationContext.set(new SimulationContext(1));
+		ParallelSimulation par = new ParallelSimulation(1, 4, 3);
+		assertThrows(IllegalStateException.class, () -> run(par));
+		SimulationContext.clear();
+	}
+}
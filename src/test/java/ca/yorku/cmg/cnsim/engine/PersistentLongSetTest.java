@@ -0,0 +1,47 @@
+package ca.yorku.cmg.cnsim.engine;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.HashSet;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class PersistentLongSetTest {
+
+	@Test
+	void testAgainstHashSet() {
+		Random r = new Random(5);
+		PersistentLongSet set = PersistentLongSet.EMPTY;
+		HashSet<Long> reference = new HashSet<>();
+		for (int i = 0; i < 20000; i++) {
+			long v = (i % 2 == 0) ? r.nextInt(30000) : r.nextLong();
+			set = set.with(v);
+			reference.add(v);
+		}
+		assertEquals(reference.size(), set.size());
+		for (long v : reference) {
+			assertTrue(set.contains(v));
+		}
+		for (long v = 30000; v < 31000; v++) {
+			assertFalse(set.contains(v));
+		}
+	}
+
+	@Test
+	void testBranchesAreIndependent() {
+		PersistentLongSet common = PersistentLongSet.EMPTY;
+		for (long v = 1; v <= 1000; v++) {
+			common = common.with(v);
+		}
+		PersistentLongSet left = common.with(2000);
+		PersistentLongSet right = common.with(3000);
+
+		assertSame(common, common.with(500));
+		assertTrue(left.contains(2000) && !left.contains(3000));
+		assertTrue(right.contains(3000) && !right.contains(2000));
+		assertFalse(common.contains(2000) || common.contains(3000));
+		assertEquals(1001, left.size());
+		assertEquals(1000, common.size());
+	}
+}
@@ -0,0 +1,54 @@
+package ca.yorku.cmg.cnsim.engine;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import ca.yorku.cmg.cnsim.engine.event.Event;
+import ca.yorku.cmg.cnsim.engine.node.Node;
+import ca.yorku.cmg.cnsim.engine.transaction.Transaction;
+
+class ReplicationExecutorTest {
+
+	@BeforeEach
+	void setUp() throws IOException {
+		String[] args = {"-c", "src/test/resources/application.properties"};
+		ConfigInitializer.initialize(args);
+	}
+
+	@Test
+	void testReplicationsHaveTheirOwnContext() {
+		Map<Integer, String> seen = new ConcurrentHashMap<>();
+		new ReplicationExecutor(3).run(1, 6, simID -> {
+			Simulation s = new Simulation(simID);
+			assertSame(SimulationContext.current(), s.getContext());
+			assertEquals(simID, Simulation.getCurrentSimulationID());
+			// Consume a different number of IDs in each replication.
+			for (int i = 0; i < simID * 100; i++) {
+				Node.getNextNodeID();
+				Transaction.getNextTxID();
+				Event.getNextEventID();
+			}
+			seen.put(simID, Node.getNextNodeID() + "," + Transaction.getNextTxID() + "," + Event.getNextEventID());
+		});
+		assertEquals(6, seen.size());
+		for (int simID = 1; simID <= 6; simID++) {
+			int next = simID * 100 + 1;
+			assertEquals(next + "," + next + "," + next, seen.get(simID));
+		}
+	}
+
+	@Test
+	void testFailureIsPropagated() {
+		assertThrows(RuntimeException.class, () -> new ReplicationExecutor(2).run(1, 3, simID -> {
+			if (simID == 2) {
+				throw new IllegalStateException("failed");
+			}
+		}));
+	}
+}
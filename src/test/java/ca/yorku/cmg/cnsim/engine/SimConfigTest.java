@@ -0,0 +1,116 @@
+package ca.yorku.cmg.cnsim.engine;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import java.util.Properties;
+
+import org.junit.jupiter.api.Test;
+
+class SimConfigTest {
+
+	/**
+	 * The required properties, each set to 1.
+	 */
+	private static Properties required() {
+		Properties p = new Properties();
+		for (String key : SimConfig.REQUIRED) {
+			p.setProperty(key, "1");
+		}
+		return p;
+	}
+
+	@Test
+	void testParsesAndDefaults() {
+		Properties p = required();
+		p.setProperty("sim.numSimulations", "5");
+		p.setProperty("net.propagationTime", " 10 ");
+		p.setProperty("bitcoin.maxBlockSize", "1000000");
+		p.setProperty("pow.difficulty", "4.3933890848757156E23");
+		p.setProperty("workload.txSizeMean", "559.87f");
+		p.setProperty("net.sampler.seed", "123");
+		p.setProperty("reporter.reportNodes", "true");
+		p.setProperty("workload.sampleTransaction", "{10,15,20}");
+		p.setProperty("reporter.blockEvents.nodes", "{0,3}");
+
+		SimConfig c = SimConfig.fromProperties(p);
+		assertEquals(5, c.numSimulations());
+		assertEquals(10, c.propagationTime());
+		assertEquals(1000000, c.maxBlockSize());
+		assertEquals(4.3933890848757156E23, c.difficulty());
+		assertTrue(c.reportNodes());
+		assertArrayEquals(new long[] {10, 15, 20}, c.sampleTransactions());
+		assertArrayEquals(new long[] {0, 3}, c.blockEventNodes());
+		assertEquals(559.87f, c.txSizeMean());
+		assertEquals(Long.valueOf(123), c.netSamplerSeed());
+
+		assertEquals(1, c.threads());
+		assertEquals(1, c.partitions());
+		assertNull(c.lookahead());
+		assertEquals("quaternary", c.eventQueue());
+		assertFalse(c.reportEvents());
+		assertEquals(-1, c.maliciousHashPower());
+		assertEquals("", c.blockEventTypes());
+		assertEquals(1, c.blockEventSampling());
+		assertEquals("csv", c.reportFormat());
+		assertFalse(c.reportMetrics());
+		assertEquals(6, c.metricsConfirmations());
+		assertEquals("./log/", c.outputDirectory());
+		assertNull(c.nodeSamplerFile());
+		assertFalse(c.workloadSeedUpdate());
+		assertEquals(0, c.workloadSamplerSeed());
+	}
+
+	@Test
+	void testRequiresProperties() {
+		Properties p = required();
+		p.remove("sim.terminate.atTime");
+		p.setProperty("pow.difficulty", " ");
+		assertEquals(List.of("sim.terminate.atTime", "pow.difficulty"), SimConfig.missing(p));
+		IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> SimConfig.fromProperties(p));
+		assertEquals("Missing required properties: sim.terminate.atTime, pow.difficulty", e.getMessage());
+		assertTrue(SimConfig.missing(required()).isEmpty());
+	}
+
+	@Test
+	void testRejectsInvalidValues() {
+		Properties p = required();
+		p.setProperty("net.propagationTime", "ten");
+		assertThrows(IllegalArgumentException.class, () -> SimConfig.fromProperties(p));
+
+		p.clear();
+		p.putAll(required());
+		p.setProperty("sim.partitions", "0");
+		assertThrows(IllegalArgumentException.class, () -> SimConfig.fromProperties(p));
+
+		p.clear();
+		p.putAll(required());
+		p.setProperty("sim.lookahead", "-1");
+		assertThrows(IllegalArgumentException.class, () -> SimConfig.fromProperties(p));
+
+		p.clear();
+		p.putAll(required());
+		p.setProperty("sim.eventQueue", "fifo");
+		assertThrows(IllegalArgumentException.class, () -> SimConfig.fromProperties(p));
+
+		p.clear();
+		p.putAll(required());
+		p.setProperty("node.maliciousRatio", "1.5");
+		assertThrows(IllegalArgumentException.class, () -> SimConfig.fromProperties(p));
+
+		p.clear();
+		p.putAll(required());
+		p.setProperty("reporter.blockEvents.sampling", "0");
+		assertThrows(IllegalArgumentException.class, () -> SimConfig.fromProperties(p));
+
+		p.clear();
+		p.putAll(required());
+		p.setProperty("reporter.format", "parquet");
+		assertThrows(IllegalArgumentException.class, () -> SimConfig.fromProperties(p));
+
+		p.clear();
+		p.putAll(required());
+		p.setProperty("reporter.metrics.confirmations", "0");
+		assertThrows(IllegalArgumentException.class, () -> SimConfig.fromProperties(p));
+	}
+}
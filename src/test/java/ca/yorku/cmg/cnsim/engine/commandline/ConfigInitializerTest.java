@@ -3,6 +3,7 @@ package ca.yorku.cmg.cnsim.engine.commandline;
 
 import ca.yorku.cmg.cnsim.engine.Config;
 import ca.yorku.cmg.cnsim.engine.ConfigInitializer;
+import ca.yorku.cmg.cnsim.engine.SimConfig;
 
 import org.junit.jupiter.api.Order;
 import org.junit.jupiter.api.Test;
@@ -51,6 +52,7 @@ public class ConfigInitializerTest {
             writer.write("workload.sampler.file=" + workloadPath + "\n");
             writer.write("net.sampler.file=" + networkPath + "\n");
             writer.write("node.sampler.file=" + nodePath + "\n");
+            writeRequired(writer);
         }
 
         // Create empty files for other resources
@@ -61,6 +63,15 @@ public class ConfigInitializerTest {
         System.out.println("Test resources created at: " + testResourcesPath);
     }
 
+    /**
+     * Writes the properties the configuration requires, each set to 1.
+     */
+    private static void writeRequired(FileWriter writer) throws IOException {
+        for (String key : SimConfig.REQUIRED) {
+            writer.write(key + "=1\n");
+        }
+    }
+
     @AfterEach
     public void tearDown() throws IOException {
         // Delete the created files and directory
@@ -146,6 +157,7 @@ public class ConfigInitializerTest {
             writer.write("workload.sampler.file=" + workloadPath + "\n");
             writer.write("net.sampler.file=" + networkPath + "\n");
             writer.write("node.sampler.file=" + nodePath + "\n");
+            writeRequired(writer);
             writer.write("node.sampler.seedUpdateTimes={10,20}\n");
         }
 
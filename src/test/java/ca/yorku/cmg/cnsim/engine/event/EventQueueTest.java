@@ -0,0 +1,177 @@
+package ca.yorku.cmg.cnsim.engine.event;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class EventQueueTest {
+
+	private static final String[] TYPES = {"quaternary", "heap", "calendar", "ladder"};
+
+	private long seq = 0;
+
+	private Event event(long time) {
+		Event e = new Event();
+		e.setTime(time);
+		e.setSeq(seq++);
+		return e;
+	}
+
+	/**
+	 * Simple reference: earliest time first, ties in insertion order.
+	 */
+	private static Event pollReference(List<Event> pending) {
+		int best = 0;
+		for (int i = 1; i < pending.size(); i++) {
+			if (pending.get(i).getTime() < pending.get(best).getTime()) {
+				best = i;
+			}
+		}
+		return pending.remove(best);
+	}
+
+	private void holdModel(String type, long seed, int range) {
+		Random r = new Random(seed);
+		EventQueue q = EventQueueFactory.createEventQueue(type);
+		List<Event> ref = new ArrayList<>();
+		long now = 0;
+		for (int i = 0; i < 3000; i++) {
+			Event e = event(now + r.nextInt(range));
+			q.add(e);
+			ref.add(e);
+		}
+		for (int i = 0; i < 20000; i++) {
+			if (r.nextInt(3) > 0 || q.isEmpty()) {
+				Event e = event(now + r.nextInt(range));
+				q.add(e);
+				ref.add(e);
+			} else {
+				assertSame(q.peek(), q.peek(), type);
+				Event e = q.poll();
+				assertSame(pollReference(ref), e, type + ": wrong event at step " + i);
+				now = e.getTime();
+			}
+			assertEquals(ref.size(), q.size(), type);
+		}
+		while (!q.isEmpty()) {
+			assertSame(pollReference(ref), q.poll(), type);
+		}
+		assertNull(q.poll());
+		assertNull(q.peek());
+	}
+
+	@Test
+	void testOrderWithManyTies() {
+		for (String t : TYPES) {
+			holdModel(t, 1, 20);
+		}
+	}
+
+	@Test
+	void testOrderWithSparseTimes() {
+		for (String t : TYPES) {
+			holdModel(t, 2, 1_000_000);
+		}
+	}
+
+	@Test
+	void testEventsInThePast() {
+		for (String t : TYPES) {
+			EventQueue q = EventQueueFactory.createEventQueue(t);
+			Event a = event(500), b = event(100), c = event(100), d = event(0);
+			q.add(a);
+			assertSame(a, q.poll());
+			q.add(b);
+			q.add(c);
+			q.add(d);
+			assertSame(d, q.poll(), t);
+			assertSame(b, q.poll(), t);
+			assertSame(c, q.poll(), t);
+			assertTrue(q.isEmpty());
+		}
+	}
+
+	@Test
+	void testRemoveAndReschedule() {
+		for (String t : TYPES) {
+			Random r = new Random(3);
+			EventQueue q = EventQueueFactory.createEventQueue(t);
+			List<Event> ref = new ArrayList<>();
+			long now = 0;
+			for (int i = 0; i < 20000; i++) {
+				int op = r.nextInt(6);
+				if (op < 3 || ref.isEmpty()) {
+					Event e = event(now + r.nextInt(5000));
+					q.add(e);
+					ref.add(e);
+				} else if (op == 3) {
+					Event e = ref.remove(r.nextInt(ref.size()));
+					assertTrue(q.remove(e), t);
+					assertFalse(q.remove(e), t);
+				} else if (op == 4) {
+					Event e = ref.remove(r.nextInt(ref.size()));
+					q.reschedule(e, now + r.nextInt(5000), seq++);
+					ref.add(e);
+				} else {
+					Event e = q.poll();
+					assertSame(pollReference(ref), e, t + ": wrong event at step " + i);
+					assertFalse(q.remove(e), t);
+					now = e.getTime();
+				}
+				assertEquals(ref.size(), q.size(), t);
+			}
+			while (!q.isEmpty()) {
+				assertSame(pollReference(ref), q.poll(), t);
+			}
+		}
+	}
+
+	@Test
+	void testReinsertionUnderEarlierSeq() {
+		for (String type : TYPES) {
+			EventQueue q = EventQueueFactory.createEventQueue(type);
+			// Deliveries of a multicast keep the sequence numbers reserved when it was scheduled.
+			for (int i = 0; i < 60; i++) {
+				Event e = new Event();
+				e.setTime(10 + i / 20);
+				e.setSeq(100 + i);
+				q.add(e);
+			}
+			Event multicast = new Event();
+			multicast.setTime(5);
+			multicast.setSeq(1);
+			q.add(multicast);
+			assertSame(multicast, q.poll(), type);
+			for (int i = 0; i < 3; i++) {
+				multicast.setTime(10 + i);
+				multicast.setSeq(2 + i);
+				q.add(multicast);
+				assertSame(multicast, q.poll(), type + ": re-inserted event must precede later sequence numbers of equal time");
+				for (int j = 0; j < 20; j++) {
+					assertEquals(100 + 20 * i + j, q.poll().getSeq(), type);
+				}
+			}
+			assertTrue(q.isEmpty(), type);
+		}
+	}
+
+	@Test
+	void testUnknownType() {
+		assertThrows(IllegalArgumentException.class, () -> EventQueueFactory.createEventQueue("splay"));
+		assertTrue(EventQueueFactory.createEventQueue((String) null) instanceof QuaternaryHeapEventQueue);
+	}
+
+	@Test
+	void testComparatorIsConsistent() {
+		EventTimeComparator c = new EventTimeComparator();
+		Event a = event(10), b = event(10), d = event(5);
+		assertEquals(0, c.compare(a, a));
+		assertTrue(c.compare(a, b) < 0);
+		assertTrue(c.compare(b, a) > 0);
+		assertTrue(c.compare(d, a) < 0);
+	}
+}
@@ -0,0 +1,98 @@
+package ca.yorku.cmg.cnsim.engine.network;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import ca.yorku.cmg.cnsim.engine.SimulationContext;
+
+class TopologyNetworkTest {
+
+	TopologyNetwork n;
+
+	/**
+	 * 1 -- 2 -- 3    4 (isolated)
+	 *  \       /
+	 *   -- 5 --
+	 */
+	@BeforeEach
+	void setUp() throws Exception {
+		SimulationContext.set(new SimulationContext(1));
+		n = new TopologyNetwork(null, 5, 2, 1000);
+		n.addLink(1, 2, 1000000, 10);
+		n.addLink(2, 3, 2000000, 5);
+		n.addLink(1, 5, 100000, 1);
+		n.addLink(5, 3, 100000, 1);
+	}
+
+	@AfterEach
+	void tearDown() throws Exception {
+		SimulationContext.clear();
+	}
+
+	@Test
+	void testPropagationAlongRoute() {
+		// 1 -> 2: 10 ms latency + 1,000,000 bytes at 1 Mbit/sec = 8,000 ms
+		assertEquals(8010, n.getPropagationTime(1, 2, 1000000));
+		// 1 -> 2 -> 3: 15 ms + 8,000 ms + 4,000 ms; faster than via 5 (2 ms + 2 x 80,000 ms)
+		assertEquals(12015, n.getPropagationTime(1, 3, 1000000));
+		assertEquals(12015, n.getPropagationTime(3, 1, 1000000));
+		assertEquals(1000000f / 1.5f, n.getThroughput(1, 3), 1);
+	}
+
+	@Test
+	void testRoutesDependOnRoutingSize() {
+		// For a 10 byte message, latency dominates and the route via 5 is preferred.
+		TopologyNetwork small = new TopologyNetwork(null, 5, 2, 10);
+		small.addLink(1, 2, 1000000, 10);
+		small.addLink(2, 3, 2000000, 5);
+		small.addLink(1, 5, 100000, 1);
+		small.addLink(5, 3, 100000, 1);
+		assertEquals(2 + 2 * 80, small.getPropagationTime(1, 3, 1000));
+	}
+
+	@Test
+	void testUnconnected() {
+		assertEquals(-1, n.getPropagationTime(1, 4, 100));
+		assertEquals(0, n.getThroughput(4, 1));
+		assertEquals(-1, n.getPropagationTime(2, 2, 100));
+		assertThrows(IllegalStateException.class, () -> n.addLink(1, 4, 1000, 1));
+	}
+
+	@Test
+	void testInvalidLinks() {
+		TopologyNetwork m = new TopologyNetwork(null, 3, 1, 1000);
+		m.addLink(1, 2, 1000, 1);
+		assertThrows(IllegalArgumentException.class, () -> m.addLink(2, 1, 1000, 1));
+		assertThrows(IllegalArgumentException.class, () -> m.addLink(1, 4, 1000, 1));
+		assertThrows(IllegalArgumentException.class, () -> m.addLink(3, 3, 1000, 1));
+		assertTrue(m.isLinked(2, 1));
+		assertEquals(1, m.getNumLinks());
+	}
+
+	@Test
+	void testMinPropagationTime() {
+		assertEquals(-1, n.getMinPropagationTime(1000));
+		TopologyNetwork m = new TopologyNetwork(null, 3, 1, 1000);
+		m.addLink(1, 2, 1000000, 10);
+		m.addLink(2, 3, 100000, 1);
+		// 2 -> 3: 1 ms + 8 ms beats 1 -> 2: 10 ms + 0.8 ms; the route 1 -> 3 is slower than both.
+		assertEquals(9, m.getMinPropagationTime(100));
+		assertEquals(m.getPropagationTime(2, 3, 100), m.getMinPropagationTime(100));
+		assertTrue(m.getPropagationTime(1, 3, 100) > m.getMinPropagationTime(100));
+	}
+
+	@Test
+	void testSetThroughput() {
+		// Slowing 1 -> 2 makes the route via 5 faster, in that direction only.
+		n.setThroughput(1, 2, 1000);
+		assertEquals(2 + 2 * 80000, n.getPropagationTime(1, 3, 1000000));
+		assertEquals(12015, n.getPropagationTime(3, 1, 1000000));
+		assertEquals(1000000, n.getThroughput(2, 1), 1);
+		assertThrows(IllegalArgumentException.class, () -> n.setThroughput(1, 3, 1000));
+		assertThrows(ArithmeticException.class, () -> n.setThroughput(1, 2, -1));
+		assertThrows(IllegalStateException.class, () -> n.addLink(1, 4, 1000, 1));
+	}
+}
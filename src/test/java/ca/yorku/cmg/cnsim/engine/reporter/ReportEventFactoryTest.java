@@ -0,0 +1,98 @@
+package ca.yorku.cmg.cnsim.engine.reporter;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import ca.yorku.cmg.cnsim.engine.SimConfig;
+import ca.yorku.cmg.cnsim.engine.Simulation;
+import ca.yorku.cmg.cnsim.engine.SimulationContext;
+import ca.yorku.cmg.cnsim.engine.event.Event;
+import ca.yorku.cmg.cnsim.engine.node.NodeSet;
+import ca.yorku.cmg.cnsim.engine.node.NodeStub;
+
+class ReportEventFactoryTest {
+
+	/**
+	 * A node that records the times of its reporting ticks.
+	 */
+	private static class ReportingNode extends NodeStub {
+		private final long interval;
+		final List<Long> ticks = new ArrayList<>();
+		int advancements = 0;
+
+		ReportingNode(Simulation sim, long interval) {
+			super(sim);
+			this.interval = interval;
+		}
+
+		@Override
+		public long getReportingInterval() {
+			return interval;
+		}
+
+		@Override
+		public void timeAdvancementReport() {
+			advancements++;
+		}
+
+		@Override
+		public void event_PrintPeriodicReport(long time) {
+			ticks.add(time);
+		}
+	}
+
+	/**
+	 * The last event of the workload; does nothing.
+	 */
+	private static class Last extends Event {
+		Last(long time) {
+			setTime(time);
+		}
+	}
+
+	@AfterEach
+	void tearDown() {
+		SimulationContext.clear();
+	}
+
+	@Test
+	void testPeriodicReportsOfSubscribedNodesOnly() {
+		SimulationContext.set(new SimulationContext(1));
+		NodeSet nodes = new NodeSet(null);
+		Properties p = new Properties();
+		for (String key : SimConfig.REQUIRED) {
+			p.setProperty(key, "1");
+		}
+		Simulation sim = new Simulation(1, SimConfig.fromProperties(p)) {
+			@Override
+			public NodeSet getNodeSet() {
+				return nodes;
+			}
+		};
+		ReportingNode every300 = new ReportingNode(sim, 300);
+		ReportingNode every1000 = new ReportingNode(sim, 1000);
+		ReportingNode none = new ReportingNode(sim, -1);
+		nodes.getNodes().add(every300);
+		nodes.getNodes().add(every1000);
+		nodes.getNodes().add(none);
+
+		sim.schedule(new Last(1000));
+		new ReportEventFactory().schedulePeriodicReports(sim);
+		sim.setTerminationTime(5000);
+		sim.run();
+
+		// Ticks stop once the next one would come after the last known event.
+		assertEquals(List.of(300L, 600L, 900L), every300.ticks);
+		assertEquals(3, every300.advancements);
+		assertEquals(List.of(1000L), every1000.ticks);
+		assertTrue(none.ticks.isEmpty());
+		assertEquals(0, none.advancements);
+		assertEquals(5, sim.getNumEventsProcessed());
+	}
+}
@@ -0,0 +1,156 @@
+package ca.yorku.cmg.cnsim.engine.reporter;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class ReportWriterTest {
+
+	@Test
+	void testWritesInOrderThroughRing() throws IOException {
+		Path dir = Files.createTempDirectory("cnsim-report-");
+		ReportWriter w = new ReportWriter(dir);
+		w.define("A", "a.csv", "Header A");
+		w.define("E", "e.txt", null);
+		w.touch("E");
+		List<String> expected = new ArrayList<>();
+		expected.add("Header A");
+		// More lines than the ring buffer holds, so that writing waits for the writer thread.
+		for (int i = 0; i < 50000; i++) {
+			w.write("A", "line " + i);
+			expected.add("line " + i);
+			if (i == 20000) {
+				w.sync();
+				assertEquals(20001, w.getLineCount("A"));
+				assertEquals(20002, Files.readAllLines(dir.resolve("a.csv")).size());
+			}
+		}
+		w.write("B", "undefined");
+		w.close();
+
+		assertEquals(expected, Files.readAllLines(dir.resolve("a.csv")));
+		assertTrue(Files.readAllLines(dir.resolve("e.txt")).isEmpty());
+		assertEquals(List.of("undefined"), Files.readAllLines(dir.resolve("B")));
+		assertThrows(IllegalStateException.class, () -> w.write("A", "late"));
+	}
+
+	@Test
+	void testEventRecordsFormattedByWriter() throws IOException {
+		ReportBuffer b = new ReportBuffer();
+		int type = Reporter.eventType("Event_Test");
+		assertEquals(type, Reporter.eventType("Event_Test"));
+		b.addEvent(1, 1, 40, 7, type, 3, 12);
+		b.addEvent(1, 2, "41,8,Custom,4,13");
+		assertEquals("1,11,40,7,Event_Test,3,12", b.getEventLine(0, 10));
+		assertEquals("1,12,41,8,Custom,4,13", b.getEventLine(1, 10));
+
+		ReportBuffer copy = new ReportBuffer();
+		b.copyEvent(1, 5, copy);
+		b.copyEvent(0, 6, copy);
+		assertEquals("1,5,41,8,Custom,4,13", copy.getEventLine(0, 0));
+
+		Path dir = Files.createTempDirectory("cnsim-report-");
+		ReportWriter w = new ReportWriter(dir);
+		w.write("E", "first");
+		w.write("E", new ReportWriter.Chunk() {
+			@Override
+			public int lines() {
+				return copy.getEventCount();
+			}
+
+			@Override
+			public void appendLine(int i, StringBuilder out) {
+				copy.appendEventLine(i, 100, out);
+			}
+		});
+		w.sync();
+		assertEquals(3, w.getLineCount("E"));
+		w.close();
+		assertEquals(List.of("first", "1,105,41,8,Custom,4,13", "1,106,40,7,Event_Test,3,12"),
+				Files.readAllLines(dir.resolve("E")));
+	}
+
+	@Test
+	void testColumnarRoundTrip() throws IOException {
+		Path dir = Files.createTempDirectory("cnsim-report-");
+		ReportWriter w = new ReportWriter(dir);
+		w.defineColumnar("B", "b.bin", "SimID, Content, EvtType, Difficulty",
+				ColumnarFormat.Type.LONG, ColumnarFormat.Type.IDS, ColumnarFormat.Type.DICT, ColumnarFormat.Type.DOUBLE);
+		assertThrows(IllegalArgumentException.class, () -> w.defineColumnar("C", "c.bin", "A, B", ColumnarFormat.Type.LONG));
+		List<String> expected = new ArrayList<>();
+		// More rows than a segment holds, and a sync in between, so that the file has several segments.
+		for (int i = 0; i < ColumnarOutput.SEGMENT_ROWS + 1000; i++) {
+			String line = i + ",{" + i + ";" + (i + 1) + "}," + ((i % 3 == 0) ? "Appended" : " Orphan") + "," + (i / 4.0);
+			if (i % 10 == 0) {
+				line = i + ",{},Empty,-1.0";
+			}
+			w.write("B", line);
+			expected.add(line);
+			if (i == 500) {
+				w.sync();
+			}
+		}
+
+		ReportBuffer b = new ReportBuffer();
+		b.addEvent(1, 1, 40, 7, Reporter.eventType("Event_Test"), 3, 12);
+		b.addEvent(1, 2, "41,8,Custom,4,13");
+		w.defineColumnar("E", "e.bin", "SimID, EventID, SimTime, SysTime, EventType, Node, Object",
+				ColumnarFormat.Type.LONG, ColumnarFormat.Type.LONG, ColumnarFormat.Type.LONG, ColumnarFormat.Type.LONG,
+				ColumnarFormat.Type.DICT, ColumnarFormat.Type.LONG, ColumnarFormat.Type.LONG);
+		w.write("E", new ReportWriter.Chunk() {
+			@Override
+			public int lines() {
+				return b.getEventCount();
+			}
+
+			@Override
+			public void appendLine(int i, StringBuilder out) {
+				b.appendEventLine(i, 100, out);
+			}
+
+			@Override
+			public boolean appendRow(int i, ColumnarFormat.Row row) {
+				return b.appendEventRow(i, 100, row);
+			}
+		});
+		w.close();
+
+		List<String> lines = new ArrayList<>();
+		int segments = 0;
+		try (ColumnarLogReader r = new ColumnarLogReader(dir.resolve("b.bin"))) {
+			assertEquals(List.of("SimID", "Content", "EvtType", "Difficulty"), r.getColumnNames());
+			assertEquals(ColumnarFormat.Type.IDS, r.getType(r.getColumn("Content")));
+			for (ColumnarLogReader.Segment s = r.nextSegment(); s != null; s = r.nextSegment()) {
+				segments++;
+				for (int i = 0; i < s.getRowCount(); i++) {
+					StringBuilder line = new StringBuilder();
+					s.appendLine(i, line);
+					lines.add(line.toString());
+				}
+				if (segments == 1) {
+					assertArrayEquals(new long[] {1, 2}, s.getIDs(1, 1));
+					assertEquals(" Orphan", s.getString(2, 1));
+					assertEquals(0.25, s.getDouble(3, 1));
+				}
+			}
+		}
+		assertEquals(3, segments);
+		assertEquals(expected, lines);
+
+		try (ColumnarLogReader r = new ColumnarLogReader(dir.resolve("e.bin"))) {
+			ColumnarLogReader.Segment s = r.nextSegment();
+			assertEquals(2, s.getRowCount());
+			assertEquals(101, s.getLong(1, 0));
+			assertEquals("Event_Test", s.getString(4, 0));
+			assertEquals("Custom", s.getString(4, 1));
+			assertEquals(13, s.getLong(6, 1));
+			assertNull(r.nextSegment());
+		}
+	}
+}
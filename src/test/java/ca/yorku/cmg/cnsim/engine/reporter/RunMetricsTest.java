@@ -0,0 +1,65 @@
+package ca.yorku.cmg.cnsim.engine.reporter;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class RunMetricsTest {
+
+	@Test
+	void testHistogramBucketsAndPercentiles() {
+		for (long v : new long[] {0, 1, 31, 32, 33, 63, 64, 65, 1000, 123456789, Long.MAX_VALUE}) {
+			int b = LogHistogram.bucket(v);
+			assertTrue(LogHistogram.lowest(b) <= v, "lowest of bucket of " + v);
+			assertTrue(b + 1 > LogHistogram.bucket(Long.MAX_VALUE) || LogHistogram.lowest(b + 1) > v, "next bucket of " + v);
+		}
+
+		LogHistogram h = new LogHistogram();
+		assertEquals(0, h.getPercentile(50));
+		for (int v = 1; v <= 10000; v++) {
+			h.record(v);
+		}
+		assertEquals(10000, h.getCount());
+		assertEquals(5000.5, h.getMean());
+		assertEquals(1, h.getPercentile(0));
+		assertEquals(10000, h.getPercentile(100));
+		assertEquals(5000, h.getPercentile(50), 5000 * 0.04);
+		assertEquals(9900, h.getPercentile(99), 9900 * 0.04);
+		assertThrows(IllegalArgumentException.class, () -> h.record(-1));
+
+		LogHistogram other = new LogHistogram();
+		other.record(20000);
+		h.merge(other);
+		assertEquals(10001, h.getCount());
+		assertEquals(20000, h.getMax());
+		assertEquals(1, h.getMin());
+	}
+
+	@Test
+	void testMergeAndSummary() {
+		RunMetrics a = new RunMetrics();
+		a.count("x.count", 2);
+		a.rate("x.rate", 1, 4);
+		a.record("x.delay", 10);
+		assertTrue(a.once("x.seen", 5));
+		assertFalse(a.once("x.seen", 5));
+
+		RunMetrics b = new RunMetrics();
+		b.count("x.count", 3);
+		b.rate("x.rate", 1, 0);
+		b.record("x.delay", 30);
+
+		RunMetrics total = new RunMetrics();
+		total.merge(a);
+		total.merge(b);
+		assertEquals(5, total.getCount("x.count"));
+		assertEquals(List.of(
+				"0,x.count,5,,,,,,",
+				"0,x.rate,4,0.5,,,,,",
+				"0,x.delay,2,20.0,10,10,30,30,30"), total.summary(0));
+		assertEquals(List.of("2,x.count,3,,,,,,", "2,x.rate,0,0.0,,,,,", "2,x.delay,1,30.0,30,30,30,30,30"), b.summary(2));
+		assertThrows(IllegalArgumentException.class, () -> total.merge(total));
+	}
+}
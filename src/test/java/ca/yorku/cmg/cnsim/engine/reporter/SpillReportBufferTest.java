@@ -0,0 +1,52 @@
+package ca.yorku.cmg.cnsim.engine.reporter;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class SpillReportBufferTest {
+
+	@Test
+	void testReplayKeepsLines() {
+		SpillReportBuffer b = new SpillReportBuffer();
+		b.add("A", "a1");
+		b.addEvent(1, 7, 100, 5, 2, 3, 44);
+		b.add("B", "b1 é");
+		b.add("A", "a2");
+		b.addEvent(1, 8, "x,y");
+		assertEquals(2, b.getEventCount());
+
+		ReportBuffer target = new ReportBuffer();
+		b.replayInto(target);
+		assertEquals(List.of("a1", "a2"), target.get("A"));
+		assertEquals(List.of("b1 é"), target.get("B"));
+		assertEquals(2, target.getEventCount());
+		assertEquals("1,8,x,y", target.getEventLine(1, 0));
+		assertEquals("1,17,x,y", target.getEventLine(1, 9));
+	}
+
+	@Test
+	void testMergeInEventOrder() {
+		SpillReportBuffer p0 = new SpillReportBuffer();
+		SpillReportBuffer p1 = new SpillReportBuffer();
+		p0.mark(10, 1);
+		p0.add("L", "p0 first");
+		p0.addEvent(1, 1, "p0 first");
+		p1.mark(10, 2);
+		p1.add("L", "p1 second");
+		p0.mark(20, 3);
+		p1.mark(20, 4);
+		p1.addEvent(1, 1, "p1 fourth");
+		p1.add("L", "p1 fourth");
+		p0.mark(30, 0);
+
+		ReportBuffer target = new ReportBuffer();
+		assertEquals(105, SpillReportBuffer.mergeInto(target, new SpillReportBuffer[] {p0, p1}, 100));
+		assertEquals(List.of("p0 first", "p1 second", "p1 fourth"), target.get("L"));
+		// Event log entries receive the number of their event.
+		assertEquals("1,101,p0 first", target.getEventLine(0, 0));
+		assertEquals("1,104,p1 fourth", target.getEventLine(1, 0));
+	}
+}
@@ -0,0 +1,87 @@
+package ca.yorku.cmg.cnsim.engine.transaction;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MempoolTest {
+
+    private static List<Long> ids(List<Transaction> l) {
+        return l.stream().map(Transaction::getID).toList();
+    }
+
+    @Test
+    public void testTopNMatchesTransactionGroup() {
+        Random r = new Random(7);
+        Mempool pool = new Mempool();
+        TransactionGroup reference = new TransactionGroup();
+        List<Transaction> added = new ArrayList<>();
+        // Distinct values per size: TxValuePerSizeComparator does not order ties consistently.
+        List<Integer> ratios = new ArrayList<>();
+        for (int i = 1; i <= 3000; i++) ratios.add(i);
+        Collections.shuffle(ratios, r);
+        for (int i = 1; i <= 3000; i++) {
+            int size = 100 * (1 + r.nextInt(5));
+            Transaction t = new Transaction(i, i, ratios.get(i - 1) * size, size);
+            pool.addTransaction(t);
+            reference.addTransaction(t);
+            added.add(t);
+            if (i % 3 == 0) {
+                Transaction gone = added.remove(r.nextInt(added.size()));
+                pool.removeTransaction(gone);
+                reference.removeTransaction(gone);
+            }
+            if (i % 97 == 0) {
+                for (float limit : new float[] {0, 450, 5000, 60000, 1e7f}) {
+                    TransactionGroup expected = reference.getTopN(limit, new TxValuePerSizeComparator());
+                    TransactionGroup actual = pool.getTopN(limit);
+                    assertEquals(ids(expected.getTransactions()), ids(actual.getTransactions()));
+                    assertEquals(expected.getValue(), pool.getTopValue(limit), 0);
+                }
+            }
+        }
+        assertEquals(reference.getCount(), pool.getCount());
+        assertEquals(reference.getSize(), pool.getSize(), 1e-5 * reference.getSize());
+        assertEquals(reference.getValue(), pool.getValue(), 1e-5 * reference.getValue());
+    }
+
+    @Test
+    public void testContainsAndRemove() {
+        Mempool pool = new Mempool();
+        Transaction a = new Transaction(1, 0, 100, 10);
+        Transaction b = new Transaction(2, 0, 300, 10);
+        Transaction c = new Transaction(3, 0, 200, 10);
+        pool.addTransaction(a);
+        pool.addTransaction(b);
+        pool.addTransaction(c);
+        pool.addTransaction(b);
+
+        assertEquals(3, pool.getCount());
+        assertTrue(pool.contains(2));
+        assertEquals("{2,3,1}", pool.printIDs(","));
+
+        assertEquals(b, pool.removeNextTx());
+        assertFalse(pool.contains(b));
+        pool.removeTransaction(1);
+        assertEquals(List.of(c), pool.getTransactions());
+        assertEquals(200, pool.getValue());
+    }
+
+    @Test
+    public void testTiesKeepInsertionOrder() {
+        Mempool pool = new Mempool();
+        pool.addTransaction(new Transaction(5, 0, 10, 100));
+        pool.addTransaction(new Transaction(3, 0, 20, 200));
+        pool.addTransaction(new Transaction(9, 0, 50, 100));
+        pool.addTransaction(new Transaction(1, 0, 30, 300));
+        assertEquals("{9,5,3,1}", pool.printIDs(","));
+        assertEquals(List.of(9L, 5L, 3L), ids(pool.getTopN(450).getTransactions()));
+        assertEquals(80, pool.getTopValue(450), 0);
+        assertThrows(IllegalArgumentException.class, () -> pool.getTopN(-1));
+    }
+}
@@ -361,4 +361,103 @@ public class TransactionGroupTest {
     public void testGetTopN_invalidSizeLimit() {
         assertThrows(IllegalArgumentException.class, () -> pool.getTopN(-1, comparator));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testRemovalsKeepOrder() {
+        TransactionGroup group = new TransactionGroup();
+        for (int i = 1; i <= 200; i++) {
+            group.addTransaction(new Transaction(i, i, 1, 1));
+        }
+        for (int i = 2; i <= 200; i += 2) {
+            group.removeTransaction(i);
+        }
+        assertEquals(1, group.removeNextTx().getID());
+        group.removeTransaction(new Transaction(7));
+
+        assertEquals(98, group.getCount());
+        assertEquals(98, group.getSize());
+        assertFalse(group.contains(7));
+        assertNull(group.getTransactionById(100));
+        assertEquals(199, group.getTransactionById(199).getID());
+        assertEquals(3, group.getTransaction(0).getID());
+        assertEquals(5, group.getTransactions().get(1).getID());
+        assertEquals(9, group.getTransactions().get(2).getID());
+        assertEquals(199, group.getTransactions().getLast().getID());
+    }
+
+    @Test
+    public void testDuplicateIDs() {
+        Transaction a = new Transaction(1, 0, 10, 10);
+        Transaction b = new Transaction(2, 0, 10, 10);
+        TransactionGroup group = new TransactionGroup(new ArrayList<>(Arrays.asList(a, b, a)));
+
+        group.removeTransaction(a);
+        assertTrue(group.contains(a));
+        assertEquals("{2,1}", group.printIDs(","));
+        group.removeTransaction(a);
+        assertFalse(group.contains(a));
+        assertEquals(1, group.getCount());
+    }
+
+    @Test
+    public void testHandleGroup() {
+        TransactionTable table = new TransactionTable(2);
+        TransactionGroup group = new TransactionGroup(table);
+        Transaction seed = new Transaction(7, 50, 3, 4);
+        seed.setType(Transaction.Type.MALICIOUS);
+        seed.makeSeedChanging();
+        group.addTransaction(seed);
+        for (int i = 1; i <= 100; i++) {
+            group.addHandle(table.add(100 + i, i, 1, 2, 5, Transaction.Type.HONEST, false));
+        }
+        // Objects of the table are added by handle.
+        new TransactionGroup(table).addTransaction(seed);
+        new TransactionGroup(group).addTransaction(group.getTransaction(50));
+        assertEquals(101, table.size());
+        assertEquals(101, group.getCount());
+        assertEquals(204, group.getSize());
+        assertEquals(103, group.getValue());
+
+        Transaction t = group.getTransaction(0);
+        assertNotSame(seed, t);
+        assertEquals(7, t.getID());
+        assertEquals(50, t.getCreationTime());
+        assertEquals(Transaction.Type.MALICIOUS, t.getType());
+        assertTrue(t.isSeedChanging());
+        assertEquals(5, group.getTransactions().get(1).getNodeID());
+
+        for (int i = 1; i <= 99; i += 2) {
+            group.removeTransaction(100 + i);
+        }
+        assertEquals(7, group.removeNextTx().getID());
+        assertFalse(group.contains(seed));
+        assertTrue(group.contains(102));
+        assertFalse(group.contains(101));
+        assertEquals(50, group.getCount());
+        assertEquals(100, group.getSize());
+        assertEquals(102, group.getTransactions().get(0).getID());
+        assertEquals(200, group.getTransactions().get(49).getID());
+        assertEquals(table.handleOf(104), group.getHandle(1));
+    }
+
+    @Test
+    public void testTableLookup() {
+        TransactionTable table = new TransactionTable(2);
+        for (int i = 1; i <= 10; i++) {
+            table.add(2 * i, i, 1, 2, -1, null, false);
+        }
+        assertEquals(4, table.handleOf(10));
+        assertEquals(-1, table.handleOf(11));
+        assertEquals(-1, table.handleOf(0));
+
+        // Out of order: looked up through the index.
+        assertEquals(10, table.add(5, 1, 1, 2, -1, null, false));
+        assertEquals(10, table.handleOf(5));
+        assertEquals(9, table.handleOf(20));
+        assertEquals(-1, table.handleOf(7));
+        // A repeated ID gets a row of its own; lookups find the first.
+        assertEquals(11, table.add(4, 1, 1, 2, -1, null, false));
+        assertEquals(1, table.handleOf(4));
+        assertEquals(12, table.size());
+    }
+}
@@ -0,0 +1,194 @@
+"""Reader for CNSim logs written in the binary columnar format (reporter.format = binary).
+
+The format is described in ColumnarFormat.java. A file holds a header with the
+names and types of the columns, then segments of rows, each column of a segment
+compressed with zlib. The file is memory-mapped and only the columns asked for
+are decompressed.
+
+Usage as a library:
+
+    from columnar import ColumnarLog
+    log = ColumnarLog("BlockLog - 2024.09.13 13.56.59.bin")
+    heights = log.column("Height")             # array('q') of all rows
+    df = log.to_pandas(["NodeID", "EvtType"])  # if pandas is installed
+
+Usage as a script, to convert a file to CSV:
+
+    python columnar.py <file.bin> [<file.csv>]
+
+Only the standard library is needed; numpy and pandas are used if installed.
+"""
+
+import mmap
+import struct
+import sys
+import zlib
+from array import array
+
+MAGIC = b"CNSIMCOL"
+VERSION = 1
+LONG, DOUBLE, DICT, IDS = range(4)
+
+
+def _array(typecode, data):
+    a = array(typecode)
+    a.frombytes(data)
+    if sys.byteorder == "big":
+        a.byteswap()
+    return a
+
+
+class Segment:
+    """The rows of a segment. Columns are decompressed when first accessed."""
+
+    def __init__(self, log, rows, blocks):
+        self.log = log
+        self.rows = rows
+        self._blocks = blocks  # (offset, raw length, compressed length) per column
+        self._values = {}
+
+    def _raw(self, c):
+        offset, raw_length, length = self._blocks[c]
+        raw = zlib.decompress(self.log._map[offset:offset + length])
+        if len(raw) != raw_length:
+            raise ValueError("Corrupt column %s" % self.log.names[c])
+        return raw
+
+    def column(self, c):
+        """The values of column c: an array for numbers, a list of strings for
+        dictionary columns, a list of tuples of IDs for ID lists."""
+        if c not in self._values:
+            t = self.log.types[c]
+            raw = self._raw(c)
+            if t == LONG:
+                v = _array("q", raw)
+            elif t == DOUBLE:
+                v = _array("d", raw)
+            elif t == DICT:
+                v = self._dictionary(c, raw)
+            else:
+                n = self.rows
+                offsets = _array("i", raw[:4 * n])
+                lengths = _array("i", raw[4 * n:8 * n])
+                ids = _array("q", raw[8 * n:])
+                v = [tuple(ids[o:o + l]) for o, l in zip(offsets, lengths)]
+            self._values[c] = v
+        return self._values[c]
+
+    def _dictionary(self, c, raw):
+        dictionary = self.log._dictionaries[c]
+        (n,), pos = struct.unpack_from("<i", raw), 4
+        for _ in range(n):
+            (length,) = struct.unpack_from("<H", raw, pos)
+            dictionary.append(raw[pos + 2:pos + 2 + length].decode("utf-8"))
+            pos += 2 + length
+        return [dictionary[code] for code in _array("i", raw[pos:])]
+
+
+class ColumnarLog:
+    """A log in the binary columnar format."""
+
+    def __init__(self, path):
+        self._file = open(path, "rb")
+        self._map = mmap.mmap(self._file.fileno(), 0, access=mmap.ACCESS_READ)
+        if self._map[:8] != MAGIC:
+            raise ValueError("%s is not a columnar log" % path)
+        version, n = struct.unpack_from("<ii", self._map, 8)
+        if version != VERSION:
+            raise ValueError("%s has unsupported format version %d" % (path, version))
+        pos = 16
+        self.names, self.types = [], []
+        for _ in range(n):
+            t, length = struct.unpack_from("<bH", self._map, pos)
+            self.types.append(t)
+            self.names.append(self._map[pos + 3:pos + 3 + length].decode("utf-8"))
+            pos += 3 + length
+        self._start = pos
+        self._dictionaries = None
+
+    def close(self):
+        self._map.close()
+        self._file.close()
+
+    def __enter__(self):
+        return self
+
+    def __exit__(self, *exc):
+        self.close()
+
+    def index(self, name):
+        return self.names.index(name)
+
+    def segments(self):
+        """Yields the segments in order. Dictionary columns are read for every
+        segment, as their dictionaries grow from segment to segment."""
+        self._dictionaries = [[] for _ in self.names]
+        pos, end = self._start, len(self._map)
+        while pos < end:
+            (rows,) = struct.unpack_from("<i", self._map, pos)
+            pos += 4
+            blocks = []
+            for _ in self.names:
+                raw_length, length = struct.unpack_from("<ii", self._map, pos)
+                blocks.append((pos + 8, raw_length, length))
+                pos += 8 + length
+            segment = Segment(self, rows, blocks)
+            for c, t in enumerate(self.types):
+                if t == DICT:
+                    segment.column(c)
+            yield segment
+
+    def column(self, name):
+        """All values of a column, concatenated over the segments."""
+        c = self.index(name)
+        values = None
+        for s in self.segments():
+            v = s.column(c)
+            if values is None:
+                values = array(v.typecode) if isinstance(v, array) else []
+            values.extend(v)
+        if values is None:
+            values = array("q") if self.types[c] == LONG else array("d") if self.types[c] == DOUBLE else []
+        return values
+
+    def rows(self):
+        """Yields the rows as tuples."""
+        for s in self.segments():
+            cols = [s.column(c) for c in range(len(self.names))]
+            for r in range(s.rows):
+                yield tuple(col[r] for col in cols)
+
+    def to_pandas(self, columns=None):
+        """A pandas DataFrame with some or all columns. Needs pandas."""
+        import numpy as np
+        import pandas as pd
+        names = columns or self.names
+        data = {}
+        for name in names:
+            v = self.column(name)
+            data[name] = np.frombuffer(v, dtype=v.typecode) if isinstance(v, array) else v
+        return pd.DataFrame(data, columns=names)
+
+
+def _format(value, t):
+    if t == IDS:
+        return "{" + ";".join(str(i) for i in value) + "}"
+    return str(value)
+
+
+def main(args):
+    if not args:
+        sys.stderr.write("Usage: python columnar.py <file.bin> [<file.csv>]\n")
+        return 1
+    out = open(args[1], "w", encoding="utf-8") if len(args) > 1 else sys.stdout
+    with ColumnarLog(args[0]) as log:
+        out.write(", ".join(log.names) + "\n")
+        for row in log.rows():
+            out.write(",".join(_format(v, t) for v, t in zip(row, log.types)) + "\n")
+    if out is not sys.stdout:
+        out.close()
+    return 0
+
+
+if __name__ == "__main__":
+    sys.exit(main(sys.argv[1:]))